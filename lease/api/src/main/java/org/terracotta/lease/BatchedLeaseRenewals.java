@@ -0,0 +1,97 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.lease;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Groups the lease maintenance of the connections by batch key, so that the connection whose lease is refreshed first
+ * also refreshes the leases of the others of its group: the number of lease requests then depends on the number of
+ * server entities the process is connected to, rather than on the number of connections.
+ *
+ * @see BatchingLeaseAcquirer
+ */
+class BatchedLeaseRenewals {
+  private static final int MAX_BATCH_SIZE = Integer.getInteger("org.terracotta.lease.maxBatchSize", 1000);
+  private static final BatchedLeaseRenewals SHARED = new BatchedLeaseRenewals(MAX_BATCH_SIZE);
+
+  private final int maxBatchSize;
+  private final ConcurrentHashMap<Object, Set<ScheduledLeaseMaintenance>> groups = new ConcurrentHashMap<>();
+
+  BatchedLeaseRenewals(int maxBatchSize) {
+    this.maxBatchSize = maxBatchSize;
+  }
+
+  static BatchedLeaseRenewals getInstance() {
+    return SHARED;
+  }
+
+  /**
+   * Moves the lease maintenance from the group of its previous batch key to the group of its current one.
+   */
+  void update(ScheduledLeaseMaintenance leaseMaintenance, Object previousBatchKey, Object batchKey) {
+    if (previousBatchKey != null) {
+      groups.computeIfPresent(previousBatchKey, (key, group) -> {
+        group.remove(leaseMaintenance);
+        return group.isEmpty() ? null : group;
+      });
+    }
+    if (batchKey != null) {
+      groups.compute(batchKey, (key, group) -> {
+        if (group == null) {
+          group = ConcurrentHashMap.newKeySet();
+        }
+        group.add(leaseMaintenance);
+        return group;
+      });
+    }
+  }
+
+  /**
+   * Claims the lease maintenance of the other connections of the group, which do not refresh their lease until they
+   * are released.
+   *
+   * @return the claimed lease maintenance, at most one less than the maximum batch size
+   */
+  List<ScheduledLeaseMaintenance> claimOthers(ScheduledLeaseMaintenance leaseMaintenance, Object batchKey) {
+    List<ScheduledLeaseMaintenance> claimed = new ArrayList<>();
+    if (batchKey == null) {
+      return claimed;
+    }
+
+    Set<ScheduledLeaseMaintenance> group = groups.get(batchKey);
+    if (group == null) {
+      return claimed;
+    }
+
+    for (ScheduledLeaseMaintenance other : group) {
+      if (claimed.size() >= maxBatchSize - 1) {
+        break;
+      }
+      if (other != leaseMaintenance && other.claim()) {
+        claimed.add(other);
+      }
+    }
+    return claimed;
+  }
+
+  int getGroupCount() {
+    return groups.size();
+  }
+}
@@ -53,6 +53,13 @@ class LeaseImpl implements LeaseInternal {
     }
   }
 
+  /**
+   * @return the TimeSource nano time from which this lease is not valid anymore
+   */
+  long getLeaseExpiry() {
+    return leaseExpiry;
+  }
+
   private boolean isValid() {
     long now = timeSource.nanoTime();
     return now - leaseExpiry < 0;
@@ -30,9 +30,13 @@ import static org.terracotta.lease.LeaseEntityConstants.ENTITY_VERSION;
 
 /**
  * Allows creation of a LeaseMaintainer on a specified connection.
+ * <p>
+ * Leases are maintained by a scheduler shared by all the connections. The org.terracotta.lease.dedicatedThreads system
+ * property restores the previous behaviour of two threads per connection.
  */
 public class LeaseMaintainerFactory {
   private static final Logger LOGGER = LoggerFactory.getLogger(LeaseMaintainerFactory.class);
+  private static final boolean DEDICATED_THREADS = Boolean.getBoolean("org.terracotta.lease.dedicatedThreads");
   /**
    * Creates a LeaseMaintainer to maintain a lease on the connection. This should only be called once for any one
    * Connection.
@@ -41,12 +45,23 @@ public class LeaseMaintainerFactory {
    * @return the LeaseMaintainer that will maintain leases on the connection
    */
   public static LeaseMaintainer createLeaseMaintainer(Connection connection) {
-    LOGGER.info("Creating LeaseMaintainer for connection: " + connection);
-    ProxyLeaseReconnectListener leaseReconnectListener = new ProxyLeaseReconnectListener();
-    LeaseAcquirer leaseAcquirer = getLeaseAcquirer(connection, leaseReconnectListener);
+    if (DEDICATED_THREADS) {
+      return createDedicatedThreadsLeaseMaintainer(connection);
+    }
+    return createScheduledLeaseMaintainer(connection, LeaseScheduler.getInstance());
+  }
 
-    LeaseMaintainerImpl leaseMaintainer = new LeaseMaintainerImpl(leaseAcquirer);
-    leaseReconnectListener.setUnderlying(leaseMaintainer);
+  static LeaseMaintainer createScheduledLeaseMaintainer(Connection connection, LeaseScheduler leaseScheduler) {
+    LeaseMaintainerImpl leaseMaintainer = createLeaseMaintainerImpl(connection);
+
+    ScheduledLeaseMaintenance leaseMaintenance = new ScheduledLeaseMaintenance(leaseScheduler, leaseMaintainer, connection);
+    leaseMaintenance.start();
+
+    return new CleaningLeaseMaintainer(leaseMaintainer, connection, leaseMaintenance);
+  }
+
+  static LeaseMaintainer createDedicatedThreadsLeaseMaintainer(Connection connection) {
+    LeaseMaintainerImpl leaseMaintainer = createLeaseMaintainerImpl(connection);
 
     LeaseMaintenanceThread leaseMaintenanceThread = new LeaseMaintenanceThread(leaseMaintainer);
     LeaseExpiryConnectionKillingThread leaseExpiryConnectionKillingThread = new LeaseExpiryConnectionKillingThread(leaseMaintainer, connection);
@@ -57,6 +72,16 @@ public class LeaseMaintainerFactory {
     return new CleaningLeaseMaintainer(leaseMaintainer, connection, leaseMaintenanceThread, leaseExpiryConnectionKillingThread);
   }
 
+  private static LeaseMaintainerImpl createLeaseMaintainerImpl(Connection connection) {
+    LOGGER.info("Creating LeaseMaintainer for connection: " + connection);
+    ProxyLeaseReconnectListener leaseReconnectListener = new ProxyLeaseReconnectListener();
+    LeaseAcquirer leaseAcquirer = getLeaseAcquirer(connection, leaseReconnectListener);
+
+    LeaseMaintainerImpl leaseMaintainer = new LeaseMaintainerImpl(leaseAcquirer);
+    leaseReconnectListener.setUnderlying(leaseMaintainer);
+    return leaseMaintainer;
+  }
+
   private static LeaseAcquirer getLeaseAcquirer(Connection connection, LeaseReconnectListener leaseReconnectListener) {
     try {
       EntityRef<LeaseAcquirer, Properties, LeaseReconnectListener> entityRef = connection.getEntityRef(LeaseAcquirer.class, ENTITY_VERSION, ENTITY_NAME);
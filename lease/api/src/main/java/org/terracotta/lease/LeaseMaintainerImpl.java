@@ -19,6 +19,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
@@ -34,12 +37,18 @@ class LeaseMaintainerImpl implements LeaseMaintainer, LeaseReconnectListener {
 
   private final LeaseAcquirer leaseAcquirer;
   private final TimeSource timeSource;
+  private final LeaseStatistics statistics;
   private final AtomicReference<LeaseInternal> currentLease;
   private final CountDownLatch hasLease;
 
   LeaseMaintainerImpl(LeaseAcquirer leaseAcquirer) {
+    this(leaseAcquirer, LeaseStatistics.getInstance());
+  }
+
+  LeaseMaintainerImpl(LeaseAcquirer leaseAcquirer, LeaseStatistics statistics) {
     this.leaseAcquirer = leaseAcquirer;
     this.timeSource = TimeSourceProvider.getTimeSource();
+    this.statistics = statistics;
     this.currentLease = new AtomicReference<LeaseInternal>(new NullLease());
     this.hasLease = new CountDownLatch(1);
   }
@@ -74,6 +83,7 @@ class LeaseMaintainerImpl implements LeaseMaintainer, LeaseReconnectListener {
         long leaseRequestStartNanos = timeSource.nanoTime();
         long leaseLengthMillis = leaseAcquirer.acquireLease();
         long leaseRequestEndNanos = timeSource.nanoTime();
+        statistics.renewalCompleted(leaseRequestEndNanos - leaseRequestStartNanos);
 
         boolean updated = updateLease(lease, leaseRequestStartNanos, leaseRequestEndNanos, leaseLengthMillis);
 
@@ -92,6 +102,69 @@ class LeaseMaintainerImpl implements LeaseMaintainer, LeaseReconnectListener {
     }
   }
 
+  /**
+   * @return the key with which the lease of this connection can be refreshed along with others, or null if it cannot
+   * @see BatchingLeaseAcquirer#getBatchKey()
+   */
+  Object getBatchKey() {
+    if (leaseAcquirer instanceof BatchingLeaseAcquirer) {
+      return ((BatchingLeaseAcquirer) leaseAcquirer).getBatchKey();
+    }
+    return null;
+  }
+
+  /**
+   * Refreshes the lease, as refreshLease() does, along with the leases of other connections with the same batch key, in
+   * a single request.
+   * @param waitLengths filled with the time to wait before refreshing the lease of each other connection, or -1 if its
+   * lease was not refreshed
+   * @return the time to wait before refreshing the lease
+   */
+  long refreshLeases(List<LeaseMaintainerImpl> others, long[] waitLengths) throws LeaseException, InterruptedException {
+    Arrays.fill(waitLengths, -1L);
+    if (!(leaseAcquirer instanceof BatchingLeaseAcquirer)) {
+      return refreshLease();
+    }
+
+    try {
+      LOGGER.debug("Refreshing leases: " + (others.size() + 1));
+
+      LeaseInternal lease = currentLease.get();
+      List<BatchingLeaseAcquirer> otherLeaseAcquirers = new ArrayList<>(others.size());
+      LeaseInternal[] otherLeases = new LeaseInternal[others.size()];
+      for (int i = 0; i < others.size(); i++) {
+        LeaseMaintainerImpl other = others.get(i);
+        otherLeases[i] = other.currentLease.get();
+        otherLeaseAcquirers.add((BatchingLeaseAcquirer) other.leaseAcquirer);
+      }
+      long[] otherLeaseLengths = new long[others.size()];
+
+      long leaseRequestStartNanos = timeSource.nanoTime();
+      long leaseLengthMillis = ((BatchingLeaseAcquirer) leaseAcquirer).acquireLeases(otherLeaseAcquirers, otherLeaseLengths);
+      long leaseRequestEndNanos = timeSource.nanoTime();
+      statistics.renewalCompleted(leaseRequestEndNanos - leaseRequestStartNanos);
+
+      for (int i = 0; i < others.size(); i++) {
+        LeaseMaintainerImpl other = others.get(i);
+        if (otherLeaseLengths[i] > 0 && other.updateLease(otherLeases[i], leaseRequestStartNanos, leaseRequestEndNanos, otherLeaseLengths[i])) {
+          other.hasLease.countDown();
+          waitLengths[i] = calculateWaitLength(leaseRequestStartNanos, leaseRequestEndNanos, otherLeaseLengths[i]);
+        }
+      }
+
+      if (updateLease(lease, leaseRequestStartNanos, leaseRequestEndNanos, leaseLengthMillis)) {
+        hasLease.countDown();
+        return calculateWaitLength(leaseRequestStartNanos, leaseRequestEndNanos, leaseLengthMillis);
+      }
+    } catch (LeaseReconnectingException e) {
+      LOGGER.debug(e.getMessage());
+      return RETRY_MILLIS_DURING_RECONNECT;
+    }
+
+    // Another lease was more recent: start again with this lease only
+    return refreshLease();
+  }
+
   @Override
   public void reconnecting() {
     currentLease.set(new NullLease());
@@ -125,6 +198,10 @@ class LeaseMaintainerImpl implements LeaseMaintainer, LeaseReconnectListener {
     LeaseInternal updatedLease = lease.extend(timeSource, leaseStart, leaseExpiry);
     boolean updated = currentLease.compareAndSet(lease, updatedLease);
 
+    if (updated && lease instanceof LeaseImpl) {
+      statistics.leaseRenewed(((LeaseImpl) lease).getLeaseExpiry() - leaseRequestEndNanos);
+    }
+
     logLease(updated, lease, updatedLease);
 
     return updated;
@@ -143,6 +220,7 @@ class LeaseMaintainerImpl implements LeaseMaintainer, LeaseReconnectListener {
     }
 
     if (gap) {
+      statistics.gapOccurred();
       LOGGER.warn("A gap in leases occurred. nanoTime: " + timeSource.nanoTime());
     }
   }
@@ -0,0 +1,195 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.lease;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Drives the lease maintenance of all the connections of the JVM with a single timer thread.
+ * <p>
+ * The timer thread only waits for the next deadline and hands the due tasks over to an executor, because these tasks
+ * block (lease requests, connection closing). By default, this executor is a pool of daemon threads created on demand
+ * and discarded after a minute of inactivity. With the org.terracotta.lease.virtualThreads system property, each task
+ * runs in its own virtual thread if the JVM supports them.
+ * <p>
+ * Time is read and waited for through the TimeSource of the TimeSourceProvider, so that tests control it. The timer
+ * thread is started with the first task and stops when there is nothing left to schedule.
+ */
+class LeaseScheduler {
+  private static final Logger LOGGER = LoggerFactory.getLogger(LeaseScheduler.class);
+
+  private static final LeaseScheduler SHARED = new LeaseScheduler(createExecutor(Boolean.getBoolean("org.terracotta.lease.virtualThreads")));
+
+  private final Executor executor;
+  // guarded by this
+  private final PriorityQueue<ScheduledTask> tasks = new PriorityQueue<>();
+  private long sequence;
+  private Thread timerThread;
+  private ScheduledTask waitingFor;
+
+  LeaseScheduler(Executor executor) {
+    this.executor = executor;
+  }
+
+  static LeaseScheduler getInstance() {
+    return SHARED;
+  }
+
+  ScheduledTask schedule(Runnable task, long delay, TimeUnit unit) {
+    return scheduleAt(task, TimeSourceProvider.getTimeSource().nanoTime() + unit.toNanos(delay));
+  }
+
+  /**
+   * @param deadline the TimeSource nano time at which the task must run
+   */
+  synchronized ScheduledTask scheduleAt(Runnable task, long deadline) {
+    ScheduledTask scheduledTask = new ScheduledTask(this, task, deadline, sequence++);
+    tasks.add(scheduledTask);
+    if (timerThread == null) {
+      timerThread = new Thread(this::runTimer, "LeaseScheduler");
+      timerThread.setDaemon(true);
+      timerThread.start();
+    } else if (waitingFor != null && scheduledTask.compareTo(waitingFor) < 0) {
+      // the timer waits for a later task
+      waitingFor = null;
+      timerThread.interrupt();
+    }
+    return scheduledTask;
+  }
+
+  synchronized int getScheduledTaskCount() {
+    return tasks.size();
+  }
+
+  private synchronized void cancel(ScheduledTask task) {
+    if (tasks.remove(task) && task == waitingFor) {
+      // let the timer wait for the next task instead, or stop
+      waitingFor = null;
+      timerThread.interrupt();
+    }
+  }
+
+  private void runTimer() {
+    TimeSource timeSource = TimeSourceProvider.getTimeSource();
+    List<ScheduledTask> dueTasks = new ArrayList<>();
+    while (true) {
+      long waitNanos = 0;
+      synchronized (this) {
+        if (tasks.isEmpty()) {
+          timerThread = null;
+          // a late interrupt must not leak out of this thread
+          Thread.interrupted();
+          return;
+        }
+        timeSource = TimeSourceProvider.getTimeSource();
+        long now = timeSource.nanoTime();
+        while (!tasks.isEmpty() && tasks.peek().deadline - now <= 0) {
+          dueTasks.add(tasks.poll());
+        }
+        if (dueTasks.isEmpty()) {
+          waitingFor = tasks.peek();
+          waitNanos = waitingFor.deadline - now;
+        }
+      }
+
+      for (ScheduledTask dueTask : dueTasks) {
+        try {
+          executor.execute(dueTask.task);
+        } catch (RuntimeException e) {
+          LOGGER.error("Unable to run lease maintenance task: " + dueTask.task, e);
+        }
+      }
+      dueTasks.clear();
+
+      if (waitNanos > 0) {
+        try {
+          // rounded up so that the task is due when we wake up
+          timeSource.sleep(TimeUnit.NANOSECONDS.toMillis(waitNanos + TimeUnit.MILLISECONDS.toNanos(1) - 1));
+        } catch (InterruptedException e) {
+          // an earlier task was scheduled
+        } finally {
+          synchronized (this) {
+            waitingFor = null;
+          }
+        }
+      }
+    }
+  }
+
+  static Executor createExecutor(boolean virtualThreads) {
+    if (virtualThreads) {
+      try {
+        // Java 21+
+        Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        return (Executor) method.invoke(null);
+      } catch (Exception e) {
+        LOGGER.warn("Virtual threads are not available, using platform threads for lease maintenance");
+      }
+    }
+    final AtomicInteger count = new AtomicInteger();
+    return new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60L, TimeUnit.SECONDS, new SynchronousQueue<>(), r -> {
+      Thread thread = new Thread(r, "LeaseMaintenance-" + count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  static final class ScheduledTask implements Comparable<ScheduledTask> {
+    private final LeaseScheduler scheduler;
+    private final Runnable task;
+    private final long deadline;
+    private final long sequence;
+
+    private ScheduledTask(LeaseScheduler scheduler, Runnable task, long deadline, long sequence) {
+      this.scheduler = scheduler;
+      this.task = task;
+      this.deadline = deadline;
+      this.sequence = sequence;
+    }
+
+    long getDeadline() {
+      return deadline;
+    }
+
+    /**
+     * Removes this task if it did not start yet
+     */
+    void cancel() {
+      scheduler.cancel(this);
+    }
+
+    @Override
+    public int compareTo(ScheduledTask o) {
+      long d = deadline - o.deadline;
+      if (d != 0) {
+        return d < 0 ? -1 : 1;
+      }
+      return sequence < o.sequence ? -1 : sequence == o.sequence ? 0 : 1;
+    }
+  }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.lease;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records the lease renewals of all the connections of this process, so that the lease length can be tuned from the
+ * renewal latencies and the margins that were left on the leases.
+ */
+class LeaseStatistics implements LeaseStatisticsMBean {
+  private static final Logger LOGGER = LoggerFactory.getLogger(LeaseStatistics.class);
+  static final String MBEAN_NAME = "org.terracotta.lease:type=LeaseStatistics";
+
+  private static final LeaseStatistics INSTANCE = new LeaseStatistics().expose();
+
+  private final DurationHistogram renewalLatencies = new DurationHistogram(TimeUnit.MILLISECONDS);
+  private final DurationHistogram leaseMargins = new DurationHistogram(TimeUnit.MILLISECONDS);
+  private final LongAdder gaps = new LongAdder();
+
+  static LeaseStatistics getInstance() {
+    return INSTANCE;
+  }
+
+  private LeaseStatistics expose() {
+    try {
+      ManagementFactory.getPlatformMBeanServer().registerMBean(new StandardMBean(this, LeaseStatisticsMBean.class), new ObjectName(MBEAN_NAME));
+    } catch (Exception e) {
+      // For instance, another copy of the lease classes is loaded by another class loader
+      LOGGER.warn("LeaseStatistics MBean not registered: " + e);
+    }
+    return this;
+  }
+
+  void renewalCompleted(long roundTripNanos) {
+    renewalLatencies.record(roundTripNanos);
+  }
+
+  void leaseRenewed(long marginNanos) {
+    leaseMargins.record(marginNanos);
+  }
+
+  void gapOccurred() {
+    gaps.increment();
+  }
+
+  @Override
+  public long getRenewalCount() {
+    return renewalLatencies.getCount();
+  }
+
+  @Override
+  public double getRenewalLatencyMeanMillis() {
+    return renewalLatencies.getMean();
+  }
+
+  @Override
+  public long getRenewalLatencyMaximumMillis() {
+    return renewalLatencies.getMaximum();
+  }
+
+  @Override
+  public long getRenewalLatency99thPercentileMillis() {
+    return renewalLatencies.getPercentile(99);
+  }
+
+  @Override
+  public long[] getRenewalLatencyHistogram() {
+    return renewalLatencies.getBucketCounts();
+  }
+
+  @Override
+  public long getLeaseMarginCount() {
+    return leaseMargins.getCount();
+  }
+
+  @Override
+  public long getLeaseMarginMinimumMillis() {
+    return leaseMargins.getMinimum();
+  }
+
+  @Override
+  public double getLeaseMarginMeanMillis() {
+    return leaseMargins.getMean();
+  }
+
+  @Override
+  public long getLeaseMargin1stPercentileMillis() {
+    return leaseMargins.getPercentile(1);
+  }
+
+  @Override
+  public long[] getLeaseMarginHistogram() {
+    return leaseMargins.getBucketCounts();
+  }
+
+  @Override
+  public long getGapCount() {
+    return gaps.sum();
+  }
+
+  @Override
+  public long[] getHistogramBucketUpperBoundsMillis() {
+    return renewalLatencies.getBucketUpperBounds();
+  }
+}
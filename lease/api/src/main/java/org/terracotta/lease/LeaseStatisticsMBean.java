@@ -0,0 +1,62 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.lease;
+
+/**
+ * The statistics of the lease renewals of all the connections of this process, exposed through JMX under the name
+ * org.terracotta.lease:type=LeaseStatistics.
+ * <p>
+ * The histograms count the durations in buckets whose upper bounds are given by getHistogramBucketUpperBoundsMillis().
+ * Percentiles are interpolated within the bucket holding them, between the shortest and the longest recorded durations.
+ */
+public interface LeaseStatisticsMBean {
+  /**
+   * @return the number of lease requests that got a response, a batched request counting as one
+   */
+  long getRenewalCount();
+
+  double getRenewalLatencyMeanMillis();
+
+  long getRenewalLatencyMaximumMillis();
+
+  long getRenewalLatency99thPercentileMillis();
+
+  long[] getRenewalLatencyHistogram();
+
+  /**
+   * @return the number of leases renewed while the previous lease of the connection was still known, which are the
+   * renewals for which a lease margin is recorded
+   */
+  long getLeaseMarginCount();
+
+  /**
+   * @return the smallest time that was left on a lease when it was renewed, zero if a lease had already expired
+   */
+  long getLeaseMarginMinimumMillis();
+
+  double getLeaseMarginMeanMillis();
+
+  long getLeaseMargin1stPercentileMillis();
+
+  long[] getLeaseMarginHistogram();
+
+  /**
+   * @return the number of times a connection got a new lease after its previous lease had expired
+   */
+  long getGapCount();
+
+  long[] getHistogramBucketUpperBoundsMillis();
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.lease;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.terracotta.connection.Connection;
+import org.terracotta.exception.ConnectionClosedException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Does the work of LeaseMaintenanceThread and LeaseExpiryConnectionKillingThread for one connection, through the
+ * shared LeaseScheduler: the lease is refreshed when it has to be, and its validity is checked at its expiry instead
+ * of every 200ms. When the server supports it, the leases of the other connections to the same server entity are
+ * refreshed along with this one (see BatchedLeaseRenewals).
+ */
+class ScheduledLeaseMaintenance implements Closeable {
+  private static final Logger LOGGER = LoggerFactory.getLogger(ScheduledLeaseMaintenance.class);
+
+  private final LeaseScheduler scheduler;
+  private final BatchedLeaseRenewals batchedLeaseRenewals;
+  private final LeaseMaintainerImpl leaseMaintainer;
+  private final Connection connection;
+
+  // guarded by this
+  private boolean shutdown;
+  // the lease is being refreshed, either by this object or by the one that claimed it for a batch
+  private boolean refreshing;
+  private Thread refreshingThread;
+  // identifies the latest scheduled refresh, so that a refresh that was already running when cancelled does nothing
+  private long refreshGeneration;
+  private LeaseScheduler.ScheduledTask refresh;
+  private LeaseScheduler.ScheduledTask expiryCheck;
+  private Object batchKey;
+
+  ScheduledLeaseMaintenance(LeaseScheduler scheduler, LeaseMaintainerImpl leaseMaintainer, Connection connection) {
+    this(scheduler, BatchedLeaseRenewals.getInstance(), leaseMaintainer, connection);
+  }
+
+  ScheduledLeaseMaintenance(LeaseScheduler scheduler, BatchedLeaseRenewals batchedLeaseRenewals, LeaseMaintainerImpl leaseMaintainer, Connection connection) {
+    this.scheduler = scheduler;
+    this.batchedLeaseRenewals = batchedLeaseRenewals;
+    this.leaseMaintainer = leaseMaintainer;
+    this.connection = connection;
+  }
+
+  synchronized void start() {
+    scheduleRefresh(0);
+  }
+
+  private void refreshLease(long generation) {
+    Object currentBatchKey;
+    synchronized (this) {
+      if (shutdown || refreshing || generation != refreshGeneration) {
+        return;
+      }
+      refreshing = true;
+      refreshingThread = Thread.currentThread();
+      currentBatchKey = batchKey;
+    }
+
+    List<ScheduledLeaseMaintenance> others = batchedLeaseRenewals.claimOthers(this, currentBatchKey);
+    long[] otherWaitLengths = new long[others.size()];
+    long waitLength = 0;
+    try {
+      if (others.isEmpty()) {
+        waitLength = leaseMaintainer.refreshLease();
+      } else {
+        List<LeaseMaintainerImpl> otherLeaseMaintainers = new ArrayList<>(others.size());
+        for (ScheduledLeaseMaintenance other : others) {
+          otherLeaseMaintainers.add(other.leaseMaintainer);
+        }
+        waitLength = leaseMaintainer.refreshLeases(otherLeaseMaintainers, otherWaitLengths);
+      }
+
+      if (LOGGER.isDebugEnabled()) {
+        LOGGER.debug("Lease refresh wait: " + waitLength);
+      }
+    } catch (ConnectionClosedException e) {
+      close();
+      return;
+    } catch (InterruptedException e) {
+      // retry if not closed
+    } catch (LeaseException e) {
+      LOGGER.error("Error obtaining lease", e);
+    } finally {
+      // the others refresh their lease themselves if it was not refreshed
+      for (int i = 0; i < others.size(); i++) {
+        others.get(i).release(otherWaitLengths[i] < 0 ? 0 : otherWaitLengths[i]);
+      }
+      synchronized (this) {
+        refreshing = false;
+        refreshingThread = null;
+      }
+      // close() cannot interrupt this thread anymore: the executor can reuse it
+      Thread.interrupted();
+    }
+
+    rescheduleRefresh(waitLength);
+  }
+
+  /**
+   * Claims this lease maintenance for a batched refresh: it does not refresh its lease until released.
+   *
+   * @return false if the lease is already being refreshed or the maintenance is closed
+   */
+  synchronized boolean claim() {
+    if (shutdown || refreshing) {
+      return false;
+    }
+    refreshing = true;
+    if (refresh != null) {
+      refresh.cancel();
+    }
+    refreshGeneration++;
+    return true;
+  }
+
+  private void release(long waitLength) {
+    synchronized (this) {
+      refreshing = false;
+    }
+    rescheduleRefresh(waitLength);
+  }
+
+  private void rescheduleRefresh(long waitLength) {
+    Object previousBatchKey;
+    Object currentBatchKey = leaseMaintainer.getBatchKey();
+    synchronized (this) {
+      if (shutdown) {
+        return;
+      }
+      scheduleRefresh(waitLength);
+      if (expiryCheck == null) {
+        scheduleExpiryCheck();
+      }
+      previousBatchKey = batchKey;
+      batchKey = currentBatchKey;
+    }
+
+    if (!Objects.equals(previousBatchKey, currentBatchKey)) {
+      batchedLeaseRenewals.update(this, previousBatchKey, currentBatchKey);
+    }
+  }
+
+  // guarded by this
+  private void scheduleRefresh(long waitLength) {
+    long generation = ++refreshGeneration;
+    refresh = scheduler.schedule(() -> refreshLease(generation), waitLength, TimeUnit.MILLISECONDS);
+  }
+
+  private void checkExpiry() {
+    Lease lease = leaseMaintainer.getCurrentLease();
+
+    synchronized (this) {
+      expiryCheck = null;
+      if (shutdown) {
+        return;
+      }
+      if (lease instanceof NullLease || lease.isValidAndContiguous(lease)) {
+        // no lease (the next refresh will schedule the check) or a lease refreshed since the check was scheduled
+        scheduleExpiryCheck();
+        return;
+      }
+    }
+
+    // no more refresh
+    close();
+
+    try {
+      LOGGER.info("Lease lost, so closing connection to server: " + lease);
+      connection.close();
+    } catch (IOException e) {
+      LOGGER.error("Closing connection, due to lease expiry, caused an error", e);
+    } catch (IllegalStateException e) {
+      // Already closed.
+    }
+  }
+
+  // guarded by this
+  private void scheduleExpiryCheck() {
+    Lease lease = leaseMaintainer.getCurrentLease();
+    if (lease instanceof LeaseImpl) {
+      expiryCheck = scheduler.scheduleAt(this::checkExpiry, ((LeaseImpl) lease).getLeaseExpiry());
+    }
+  }
+
+  @Override
+  public void close() {
+    Object previousBatchKey;
+    synchronized (this) {
+      shutdown = true;
+      if (refresh != null) {
+        refresh.cancel();
+      }
+      if (expiryCheck != null) {
+        expiryCheck.cancel();
+      }
+      // the refresh may be in a blocking call
+      if (refreshingThread != null) {
+        refreshingThread.interrupt();
+      }
+      previousBatchKey = batchKey;
+      batchKey = null;
+    }
+
+    batchedLeaseRenewals.update(this, previousBatchKey, null);
+  }
+}
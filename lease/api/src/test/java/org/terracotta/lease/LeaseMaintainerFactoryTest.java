@@ -24,7 +24,12 @@ import org.mockito.junit.MockitoJUnitRunner;
 import org.terracotta.connection.Connection;
 import org.terracotta.connection.entity.EntityRef;
 
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -37,6 +42,9 @@ public class LeaseMaintainerFactoryTest {
   @Spy
   private TestTimeSource timeSource = new TestTimeSource();
 
+  @Spy
+  private LeaseScheduler leaseScheduler = new LeaseScheduler(LeaseScheduler.createExecutor(false));
+
   @Mock
   private Connection connection;
 
@@ -57,7 +65,7 @@ public class LeaseMaintainerFactoryTest {
 
   @Test
   public void objectsWiredTogetherCorrectly() throws Exception {
-    LeaseMaintainer leaseMaintainer = LeaseMaintainerFactory.createLeaseMaintainer(connection);
+    LeaseMaintainer leaseMaintainer = LeaseMaintainerFactory.createDedicatedThreadsLeaseMaintainer(connection);
 
     verify(timeSource, timeout(1000L).times(1)).sleep(2000L);
     verify(leaseAcquirer, times(1)).acquireLease();
@@ -77,4 +85,31 @@ public class LeaseMaintainerFactoryTest {
     verify(leaseAcquirer, times(2)).acquireLease();
     verify(leaseAcquirer, times(1)).close();
   }
+
+  @Test
+  public void objectsWiredTogetherCorrectlyWithScheduler() throws Exception {
+    LeaseMaintainer leaseMaintainer = LeaseMaintainerFactory.createScheduledLeaseMaintainer(connection, leaseScheduler);
+
+    // the first refresh is immediate, the next ones are scheduled a third of the lease length after the refresh
+    verify(leaseScheduler, times(1)).schedule(any(), eq(0L), eq(TimeUnit.MILLISECONDS));
+    verify(leaseScheduler, timeout(1000L).times(1)).schedule(any(), eq(2000L), eq(TimeUnit.MILLISECONDS));
+    verify(leaseAcquirer, times(1)).acquireLease();
+    verify(leaseAcquirer, times(0)).close();
+
+    timeSource.tickMillis(5000L);
+
+    verify(leaseScheduler, timeout(1000L).times(2)).schedule(any(), eq(2000L), eq(TimeUnit.MILLISECONDS));
+    verify(leaseAcquirer, times(2)).acquireLease();
+    verify(leaseAcquirer, times(0)).close();
+
+    leaseMaintainer.close();
+
+    // nothing left to run, whatever the time
+    assertThat(leaseScheduler.getScheduledTaskCount(), is(0));
+    timeSource.tickMillis(5000L);
+
+    verify(leaseScheduler, times(2)).schedule(any(), eq(2000L), eq(TimeUnit.MILLISECONDS));
+    verify(leaseAcquirer, times(2)).acquireLease();
+    verify(leaseAcquirer, times(1)).close();
+  }
 }
@@ -21,12 +21,16 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
+import java.util.Arrays;
 import java.util.Timer;
 import java.util.TimerTask;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -74,6 +78,34 @@ public class LeaseMaintainerImplTest {
     assertFalse(lease.isValidAndContiguous(lease));
   }
 
+  @Test
+  public void refreshLeasesRefreshesTheOtherLeases() throws Exception {
+    BatchingLeaseAcquirer batchingLeaseAcquirer = mock(BatchingLeaseAcquirer.class);
+    LeaseMaintainerImpl batchingLeaseMaintainer = new LeaseMaintainerImpl(batchingLeaseAcquirer);
+    LeaseMaintainerImpl otherLeaseMaintainer1 = new LeaseMaintainerImpl(mock(BatchingLeaseAcquirer.class));
+    LeaseMaintainerImpl otherLeaseMaintainer2 = new LeaseMaintainerImpl(mock(BatchingLeaseAcquirer.class));
+    doAnswer(invocation -> {
+      long[] otherLeaseLengths = invocation.getArgument(1);
+      otherLeaseLengths[0] = 6000L;
+      otherLeaseLengths[1] = -1L;
+      return 6000L;
+    }).when(batchingLeaseAcquirer).acquireLeases(any(), any());
+
+    long[] waitLengths = new long[2];
+    long waitLength = batchingLeaseMaintainer.refreshLeases(Arrays.asList(otherLeaseMaintainer1, otherLeaseMaintainer2), waitLengths);
+
+    assertEquals(2000L, waitLength);
+    assertEquals(2000L, waitLengths[0]);
+    assertEquals(-1L, waitLengths[1]);
+
+    Lease lease = batchingLeaseMaintainer.getCurrentLease();
+    assertTrue(lease.isValidAndContiguous(lease));
+    Lease otherLease1 = otherLeaseMaintainer1.getCurrentLease();
+    assertTrue(otherLease1.isValidAndContiguous(otherLease1));
+    Lease otherLease2 = otherLeaseMaintainer2.getCurrentLease();
+    assertFalse(otherLease2.isValidAndContiguous(otherLease2));
+  }
+
   @Test
   public void periodicRenewal() throws Exception {
     refreshLease(leaseMaintainer, 0L, 2000L);
@@ -153,6 +185,36 @@ public class LeaseMaintainerImplTest {
     assertFalse(lease2.isValidAndContiguous(lease2));
   }
 
+  @Test
+  public void recordsRenewalLatencyAndLeaseMargin() throws Exception {
+    LeaseStatistics statistics = new LeaseStatistics();
+    leaseMaintainer = new LeaseMaintainerImpl(delayedLeaseAcquirer, statistics);
+
+    refreshLease(leaseMaintainer, 0L, 2000L);
+    timeSource.tickMillis(2000L);
+    refreshLease(leaseMaintainer, 1000L, 1000L);
+
+    assertEquals(2L, statistics.getRenewalCount());
+    assertEquals(1000L, statistics.getRenewalLatencyMaximumMillis());
+    assertEquals(1L, statistics.getLeaseMarginCount());
+    assertEquals(3000L, statistics.getLeaseMarginMinimumMillis());
+    assertEquals(0L, statistics.getGapCount());
+  }
+
+  @Test
+  public void recordsGapsInLeases() throws Exception {
+    LeaseStatistics statistics = new LeaseStatistics();
+    leaseMaintainer = new LeaseMaintainerImpl(delayedLeaseAcquirer, statistics);
+
+    refreshLease(leaseMaintainer, 0L, 2000L);
+    timeSource.tickMillis(7000L);
+    refreshLease(leaseMaintainer, 0L, 2000L);
+
+    assertEquals(1L, statistics.getLeaseMarginCount());
+    assertEquals(0L, statistics.getLeaseMarginMinimumMillis());
+    assertEquals(1L, statistics.getGapCount());
+  }
+
   @Test(expected = InterruptedException.class)
   public void waitForLeaseWithoutALease() throws Exception {
     ThreadInterrupter.interruptIn(300L);
@@ -0,0 +1,112 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.lease;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LeaseSchedulerTest {
+  private final TestTimeSource timeSource = new TestTimeSource();
+  private final List<String> executed = new CopyOnWriteArrayList<>();
+  private LeaseScheduler scheduler;
+
+  @Before
+  public void before() {
+    TimeSourceProvider.setTimeSource(timeSource);
+    scheduler = new LeaseScheduler(Runnable::run);
+  }
+
+  @Test
+  public void tasksRunAtTheirDeadlineInOrder() throws Exception {
+    scheduler.schedule(record("c"), 3, TimeUnit.SECONDS);
+    scheduler.schedule(record("a"), 1, TimeUnit.SECONDS);
+    scheduler.schedule(record("b"), 2, TimeUnit.SECONDS);
+    scheduler.schedule(record("b2"), 2, TimeUnit.SECONDS);
+
+    Thread.sleep(100L);
+    assertTrue(executed.isEmpty());
+
+    timeSource.tickMillis(1000L);
+    waitForExecutions(1);
+    assertEquals("a", executed.get(0));
+
+    timeSource.tickMillis(2000L);
+    waitForExecutions(4);
+    assertEquals("b", executed.get(1));
+    assertEquals("b2", executed.get(2));
+    assertEquals("c", executed.get(3));
+    assertEquals(0, scheduler.getScheduledTaskCount());
+  }
+
+  @Test
+  public void earlierTaskWakesUpTheTimer() throws Exception {
+    LeaseScheduler.ScheduledTask late = scheduler.schedule(record("late"), 1, TimeUnit.HOURS);
+    Thread.sleep(100L);
+
+    scheduler.schedule(record("early"), 0, TimeUnit.SECONDS);
+    waitForExecutions(1);
+    assertEquals("early", executed.get(0));
+    assertEquals(1, scheduler.getScheduledTaskCount());
+
+    late.cancel();
+    assertEquals(0, scheduler.getScheduledTaskCount());
+  }
+
+  @Test
+  public void cancelledTaskDoesNotRun() throws Exception {
+    LeaseScheduler.ScheduledTask task = scheduler.schedule(record("cancelled"), 1, TimeUnit.SECONDS);
+    scheduler.schedule(record("kept"), 2, TimeUnit.SECONDS);
+    task.cancel();
+    assertEquals(1, scheduler.getScheduledTaskCount());
+
+    timeSource.tickMillis(2000L);
+    waitForExecutions(1);
+    Thread.sleep(100L);
+    assertEquals(1, executed.size());
+    assertEquals("kept", executed.get(0));
+  }
+
+  @Test
+  public void timerRestartsAfterIdling() throws Exception {
+    scheduler.schedule(record("first"), 0, TimeUnit.SECONDS);
+    waitForExecutions(1);
+    Thread.sleep(100L);
+
+    scheduler.schedule(record("second"), 1, TimeUnit.SECONDS);
+    timeSource.tickMillis(1000L);
+    waitForExecutions(2);
+    assertEquals("second", executed.get(1));
+  }
+
+  private Runnable record(String name) {
+    return () -> executed.add(name);
+  }
+
+  private void waitForExecutions(int count) throws InterruptedException {
+    long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (executed.size() < count && System.nanoTime() - end < 0) {
+      Thread.sleep(10L);
+    }
+    assertEquals(count, executed.size());
+  }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.lease;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.terracotta.connection.Connection;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ScheduledLeaseMaintenanceTest {
+  private TestTimeSource timeSource = new TestTimeSource();
+
+  @Mock
+  private LeaseMaintainerImpl leaseMaintainer;
+
+  @Mock
+  private LeaseMaintainerImpl otherLeaseMaintainer;
+
+  @Mock
+  private Connection connection;
+
+  private ScheduledLeaseMaintenance leaseMaintenance;
+
+  @Before
+  public void before() throws Exception {
+    TimeSourceProvider.setTimeSource(timeSource);
+    leaseMaintenance = new ScheduledLeaseMaintenance(new LeaseScheduler(Runnable::run), leaseMaintainer, connection);
+  }
+
+  @Test
+  public void leaseIsRefreshedWhenDue() throws Exception {
+    when(leaseMaintainer.refreshLease()).thenReturn(2000L);
+    when(leaseMaintainer.getCurrentLease()).thenReturn(new LeaseImpl(timeSource, 0L, millis(6000L)));
+    leaseMaintenance.start();
+    verify(leaseMaintainer, timeout(1000L).times(1)).refreshLease();
+
+    timeSource.tickMillis(1000L);
+    Thread.sleep(100L);
+    verify(leaseMaintainer, times(1)).refreshLease();
+
+    timeSource.tickMillis(1000L);
+    verify(leaseMaintainer, timeout(1000L).times(2)).refreshLease();
+  }
+
+  @Test
+  public void whenLeaseIsValidConnectionIsNotClosed() throws Exception {
+    when(leaseMaintainer.refreshLease()).thenReturn(60000L);
+    when(leaseMaintainer.getCurrentLease()).thenReturn(new LeaseImpl(timeSource, 0L, millis(6000L)));
+    leaseMaintenance.start();
+    verify(leaseMaintainer, timeout(1000L).times(1)).refreshLease();
+
+    timeSource.tickMillis(5000L);
+    Thread.sleep(100L);
+    verifyNoMoreInteractions(connection);
+  }
+
+  @Test
+  public void whenLeaseWasNeverValidConnectionIsNotClosed() throws Exception {
+    when(leaseMaintainer.refreshLease()).thenReturn(60000L);
+    when(leaseMaintainer.getCurrentLease()).thenReturn(new NullLease());
+    leaseMaintenance.start();
+    verify(leaseMaintainer, timeout(1000L).times(1)).refreshLease();
+
+    timeSource.tickMillis(10000L);
+    Thread.sleep(100L);
+    verifyNoMoreInteractions(connection);
+  }
+
+  @Test
+  public void whenLeaseExpiresConnectionIsClosed() throws Exception {
+    when(leaseMaintainer.refreshLease()).thenReturn(60000L);
+    when(leaseMaintainer.getCurrentLease()).thenReturn(new LeaseImpl(timeSource, 0L, millis(6000L)));
+    leaseMaintenance.start();
+    verify(leaseMaintainer, timeout(1000L).times(1)).refreshLease();
+
+    timeSource.tickMillis(6000L);
+    verify(connection, timeout(1000L).times(1)).close();
+
+    timeSource.tickMillis(60000L);
+    Thread.sleep(100L);
+    verify(leaseMaintainer, times(1)).refreshLease();
+  }
+
+  @Test
+  public void closeStopsMaintenance() throws Exception {
+    when(leaseMaintainer.refreshLease()).thenReturn(2000L);
+    when(leaseMaintainer.getCurrentLease()).thenReturn(new LeaseImpl(timeSource, 0L, millis(6000L)));
+    leaseMaintenance.start();
+    verify(leaseMaintainer, timeout(1000L).times(1)).refreshLease();
+
+    leaseMaintenance.close();
+
+    timeSource.tickMillis(10000L);
+    Thread.sleep(100L);
+    verify(leaseMaintainer, times(1)).refreshLease();
+    verifyNoMoreInteractions(connection);
+  }
+
+  @Test
+  public void leasesWithTheSameBatchKeyAreRefreshedTogether() throws Exception {
+    Object batchKey = new Object();
+    BatchedLeaseRenewals batchedLeaseRenewals = new BatchedLeaseRenewals(1000);
+    LeaseScheduler scheduler = new LeaseScheduler(Runnable::run);
+    when(leaseMaintainer.getBatchKey()).thenReturn(batchKey);
+    when(leaseMaintainer.refreshLease()).thenReturn(2000L);
+    when(leaseMaintainer.getCurrentLease()).thenReturn(new LeaseImpl(timeSource, 0L, millis(6000L)));
+    when(otherLeaseMaintainer.getBatchKey()).thenReturn(batchKey);
+    when(otherLeaseMaintainer.refreshLease()).thenReturn(1000L);
+    when(otherLeaseMaintainer.getCurrentLease()).thenReturn(new LeaseImpl(timeSource, 0L, millis(6000L)));
+    doAnswer(invocation -> {
+      long[] waitLengths = invocation.getArgument(1);
+      waitLengths[0] = 2000L;
+      return 2000L;
+    }).when(otherLeaseMaintainer).refreshLeases(any(), any());
+
+    ScheduledLeaseMaintenance leaseMaintenance = new ScheduledLeaseMaintenance(scheduler, batchedLeaseRenewals, leaseMaintainer, connection);
+    ScheduledLeaseMaintenance otherLeaseMaintenance = new ScheduledLeaseMaintenance(scheduler, batchedLeaseRenewals, otherLeaseMaintainer, connection);
+    leaseMaintenance.start();
+    otherLeaseMaintenance.start();
+    verify(leaseMaintainer, timeout(1000L).times(1)).refreshLease();
+    verify(otherLeaseMaintainer, timeout(1000L).times(1)).refreshLease();
+
+    // the other lease is due first and is refreshed along with this one
+    timeSource.tickMillis(1000L);
+    verify(otherLeaseMaintainer, timeout(1000L).times(1)).refreshLeases(eq(Collections.singletonList(leaseMaintainer)), any());
+
+    // so this lease is not refreshed on its own schedule anymore
+    timeSource.tickMillis(1500L);
+    Thread.sleep(100L);
+    verify(leaseMaintainer, times(1)).refreshLease();
+    verify(otherLeaseMaintainer, times(1)).refreshLease();
+
+    leaseMaintenance.close();
+    otherLeaseMaintenance.close();
+  }
+
+  private static long millis(long millis) {
+    return TimeUnit.MILLISECONDS.toNanos(millis);
+  }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.lease;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of durations, with buckets whose bounds double from one bucket to the next. Recording a duration never
+ * blocks and allocates nothing, so that it can be done on the lease renewal and lease monitoring paths.
+ * <p>
+ * Bucket 0 counts the durations shorter than one unit, and bucket i the durations from 2^(i-1) up to 2^i units. The
+ * last bucket also counts all the longer durations.
+ */
+public class DurationHistogram {
+  public static final int BUCKET_COUNT = 24;
+
+  private final TimeUnit unit;
+  private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+  private final LongAdder count = new LongAdder();
+  private final LongAdder totalNanos = new LongAdder();
+  private final AtomicLong minimumNanos = new AtomicLong(Long.MAX_VALUE);
+  private final AtomicLong maximumNanos = new AtomicLong();
+
+  public DurationHistogram(TimeUnit unit) {
+    this.unit = unit;
+  }
+
+  /**
+   * Records a duration. Negative durations are counted as zero.
+   */
+  public void record(long durationNanos) {
+    long nanos = Math.max(0L, durationNanos);
+    buckets.incrementAndGet(bucketOf(unit.convert(nanos, TimeUnit.NANOSECONDS)));
+    count.increment();
+    totalNanos.add(nanos);
+    minimumNanos.accumulateAndGet(nanos, Math::min);
+    maximumNanos.accumulateAndGet(nanos, Math::max);
+  }
+
+  private static int bucketOf(long value) {
+    return Math.min(BUCKET_COUNT - 1, Long.SIZE - Long.numberOfLeadingZeros(value));
+  }
+
+  public TimeUnit getUnit() {
+    return unit;
+  }
+
+  public long getCount() {
+    return count.sum();
+  }
+
+  /**
+   * @return the mean of the recorded durations, in the unit of this histogram, or 0 if none was recorded
+   */
+  public double getMean() {
+    long n = count.sum();
+    return n == 0 ? 0d : (double) totalNanos.sum() / n / unit.toNanos(1L);
+  }
+
+  /**
+   * @return the shortest recorded duration, in the unit of this histogram, or 0 if none was recorded
+   */
+  public long getMinimum() {
+    long nanos = minimumNanos.get();
+    return nanos == Long.MAX_VALUE ? 0L : unit.convert(nanos, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * @return the longest recorded duration, in the unit of this histogram
+   */
+  public long getMaximum() {
+    return unit.convert(maximumNanos.get(), TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * The percentile is interpolated linearly within the bucket that holds it, as if the durations of this bucket were
+   * evenly spread over it, and kept between the shortest and the longest recorded durations. It is thus not biased
+   * towards either bound of the bucket, which can be twice the other one.
+   *
+   * @param percentile between 0 and 100
+   * @return an estimate of the given percentile of the recorded durations, in the unit of this histogram, or 0 if none
+   * was recorded
+   */
+  public long getPercentile(double percentile) {
+    long[] counts = getBucketCounts();
+    long total = 0;
+    for (long bucketCount : counts) {
+      total += bucketCount;
+    }
+    if (total == 0) {
+      return 0L;
+    }
+
+    long minimum = getMinimum();
+    long maximum = getMaximum();
+    long rank = Math.max(1L, (long) Math.ceil(total * Math.min(100d, Math.max(0d, percentile)) / 100d));
+    long seen = 0;
+    for (int i = 0; i < counts.length; i++) {
+      if (seen + counts[i] >= rank) {
+        long lower = i == 0 ? 0L : 1L << (i - 1);
+        long upper = i == counts.length - 1 ? Math.max(lower, maximum) : getUpperBound(i);
+        // the middle of the slot of this rank among the durations of the bucket
+        double fraction = (rank - seen - 0.5d) / counts[i];
+        long value = lower + (long) ((upper - lower) * fraction);
+        return Math.min(maximum, Math.max(minimum, value));
+      }
+      seen += counts[i];
+    }
+    return maximum;
+  }
+
+  /**
+   * @return the number of durations recorded in each bucket
+   */
+  public long[] getBucketCounts() {
+    long[] counts = new long[BUCKET_COUNT];
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      counts[i] = buckets.get(i);
+    }
+    return counts;
+  }
+
+  /**
+   * @return the exclusive upper bound of each bucket, in the unit of this histogram, Long.MAX_VALUE for the last one
+   */
+  public long[] getBucketUpperBounds() {
+    long[] bounds = new long[BUCKET_COUNT];
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      bounds[i] = getUpperBound(i);
+    }
+    return bounds;
+  }
+
+  private static long getUpperBound(int bucket) {
+    return bucket == BUCKET_COUNT - 1 ? Long.MAX_VALUE : 1L << bucket;
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.lease;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class DurationHistogramTest {
+  @Test
+  public void emptyHistogram() {
+    DurationHistogram histogram = new DurationHistogram(TimeUnit.MILLISECONDS);
+    assertEquals(0L, histogram.getCount());
+    assertEquals(0d, histogram.getMean(), 0d);
+    assertEquals(0L, histogram.getMinimum());
+    assertEquals(0L, histogram.getMaximum());
+    assertEquals(0L, histogram.getPercentile(99));
+  }
+
+  @Test
+  public void recordsDurationsInDoublingBuckets() {
+    DurationHistogram histogram = new DurationHistogram(TimeUnit.MILLISECONDS);
+    histogram.record(TimeUnit.MICROSECONDS.toNanos(500));
+    histogram.record(TimeUnit.MILLISECONDS.toNanos(1));
+    histogram.record(TimeUnit.MILLISECONDS.toNanos(3));
+    histogram.record(TimeUnit.MILLISECONDS.toNanos(4));
+    histogram.record(-1L);
+
+    long[] counts = histogram.getBucketCounts();
+    assertEquals(2L, counts[0]);
+    assertEquals(1L, counts[1]);
+    assertEquals(1L, counts[2]);
+    assertEquals(1L, counts[3]);
+    assertEquals(5L, histogram.getCount());
+    assertEquals(0L, histogram.getMinimum());
+    assertEquals(4L, histogram.getMaximum());
+    assertEquals(1.7d, histogram.getMean(), 0.001d);
+  }
+
+  @Test
+  public void longDurationsGoInTheLastBucket() {
+    DurationHistogram histogram = new DurationHistogram(TimeUnit.MICROSECONDS);
+    histogram.record(TimeUnit.DAYS.toNanos(1));
+
+    assertEquals(1L, histogram.getBucketCounts()[DurationHistogram.BUCKET_COUNT - 1]);
+    assertEquals(Long.MAX_VALUE, histogram.getBucketUpperBounds()[DurationHistogram.BUCKET_COUNT - 1]);
+    assertEquals(TimeUnit.DAYS.toMicros(1), histogram.getPercentile(50));
+  }
+
+  @Test
+  public void percentilesAreInterpolatedWithinTheirBucket() {
+    DurationHistogram histogram = new DurationHistogram(TimeUnit.MILLISECONDS);
+    for (int i = 0; i < 90; i++) {
+      histogram.record(TimeUnit.MILLISECONDS.toNanos(10));
+    }
+    for (int i = 0; i < 10; i++) {
+      histogram.record(TimeUnit.MILLISECONDS.toNanos(100));
+    }
+
+    // kept within the recorded durations
+    assertEquals(10L, histogram.getPercentile(0));
+    assertEquals(15L, histogram.getPercentile(90));
+    assertEquals(67L, histogram.getPercentile(91));
+    assertEquals(100L, histogram.getPercentile(100));
+  }
+
+  @Test
+  public void lowPercentilesAreNotBucketUpperBounds() {
+    DurationHistogram histogram = new DurationHistogram(TimeUnit.MILLISECONDS);
+    for (int i = 1; i <= 100; i++) {
+      histogram.record(TimeUnit.MILLISECONDS.toNanos(512 + 5 * i));
+    }
+
+    // all in the [512, 1024) bucket: the 1st percentile is near its lower bound, not 1024
+    assertEquals(517L, histogram.getPercentile(1));
+    assertEquals(765L, histogram.getPercentile(50));
+  }
+
+  @Test
+  public void bucketUpperBoundsDouble() {
+    long[] bounds = new DurationHistogram(TimeUnit.MILLISECONDS).getBucketUpperBounds();
+    assertArrayEquals(new long[] { 1L, 2L, 4L, 8L }, Arrays.copyOf(bounds, 4));
+  }
+}
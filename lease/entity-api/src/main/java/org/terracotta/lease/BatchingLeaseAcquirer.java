@@ -0,0 +1,43 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.lease;
+
+import java.util.List;
+
+/**
+ * A LeaseAcquirer that can renew the leases of other connections of the same process along with its own, in a single
+ * request to the server.
+ */
+public interface BatchingLeaseAcquirer extends LeaseAcquirer {
+  /**
+   * @return an object identifying the server entity with which the connection is registered for batched renewals, or
+   * null if the lease of the connection cannot be renewed in a batch. Leases of connections with equal keys can be
+   * renewed together.
+   */
+  Object getBatchKey();
+
+  /**
+   * Acquires a lease on the connection, as acquireLease() does, and renews the leases of other connections.
+   * @param others connections whose batch key is the one of this connection
+   * @param otherLeaseLengths filled, unless an exception is thrown, with the number of milliseconds for which the lease
+   * of each other connection was issued, or -1 if it was not renewed, in which case it must be acquired through the
+   * connection itself
+   * @return the number of milliseconds for which the connection lease was issued
+   * @throws LeaseException if a lease could not be obtained for this connection
+   * @throws InterruptedException if the thread was interrupted
+   */
+  long acquireLeases(List<? extends BatchingLeaseAcquirer> others, long[] otherLeaseLengths) throws LeaseException, InterruptedException;
+}
@@ -20,13 +20,21 @@ import org.terracotta.entity.InvokeFuture;
 import org.terracotta.entity.MessageCodecException;
 import org.terracotta.exception.EntityException;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
 import java.util.concurrent.atomic.AtomicLong;
 
-class LeaseAcquirerImpl implements LeaseAcquirer, LeaseReconnectListener, LeaseReconnectDataSupplier {
+class LeaseAcquirerImpl implements BatchingLeaseAcquirer, LeaseReconnectListener, LeaseReconnectDataSupplier {
+  private static final boolean BATCH_RENEWAL = Boolean.getBoolean("org.terracotta.lease.batchRenewal");
+  private static final UUID PROCESS_ID = UUID.randomUUID();
+
   private final EntityClientEndpoint<LeaseMessage, LeaseResponse> endpoint;
   private final LeaseReconnectListener reconnectListener;
   private final AtomicLong connectionSequenceNumber = new AtomicLong();
+  private final UUID connectionId = UUID.randomUUID();
   private volatile boolean reconnecting;
+  private volatile UUID batchServerId;
 
   LeaseAcquirerImpl(EntityClientEndpoint<LeaseMessage, LeaseResponse> endpoint, LeaseReconnectListener reconnectListener) {
     this.endpoint = endpoint;
@@ -42,24 +50,62 @@ class LeaseAcquirerImpl implements LeaseAcquirer, LeaseReconnectListener, LeaseR
       throw new LeaseReconnectingException("Will not attempt to acquire a lease as a reconnection is taking place");
     }
 
-    try {
-      InvokeFuture<LeaseResponse> invokeFuture = endpoint.beginInvoke()
-              .message(new LeaseRequest(currentConnectionSequenceNumber))
-              .replicate(false)
-              .ackCompleted()
-              .invoke();
+    // Registers the connection, so that its lease can be renewed along with those of the other connections
+    LeaseRequest leaseRequest = BATCH_RENEWAL ? new LeaseRequest(currentConnectionSequenceNumber, PROCESS_ID, connectionId) : new LeaseRequest(currentConnectionSequenceNumber);
+    LeaseRequestResult leaseRequestResult = (LeaseRequestResult) invoke(leaseRequest);
+    return getLeaseLength(leaseRequestResult);
+  }
 
-      LeaseRequestResult leaseRequestResult = (LeaseRequestResult) invokeFuture.get();
+  @Override
+  public Object getBatchKey() {
+    return batchServerId;
+  }
 
-      if (!leaseRequestResult.isConnectionGood()) {
-        throw new LeaseReconnectingException("Attempted to acquire a lease but fail-over occurred");
+  @Override
+  public long acquireLeases(List<? extends BatchingLeaseAcquirer> others, long[] otherLeaseLengths) throws LeaseException, InterruptedException {
+    long currentConnectionSequenceNumber = connectionSequenceNumber.get();
+
+    if (reconnecting) {
+      throw new LeaseReconnectingException("Will not attempt to acquire a lease as a reconnection is taking place");
+    }
+
+    List<BatchedLeaseRequest.Renewal> renewals = new ArrayList<>(others.size());
+    List<Integer> renewedIndexes = new ArrayList<>(others.size());
+    for (int i = 0; i < others.size(); i++) {
+      otherLeaseLengths[i] = -1L;
+      BatchingLeaseAcquirer other = others.get(i);
+      if (other instanceof LeaseAcquirerImpl) {
+        LeaseAcquirerImpl otherImpl = (LeaseAcquirerImpl) other;
+        if (!otherImpl.reconnecting && otherImpl.batchServerId != null) {
+          renewals.add(new BatchedLeaseRequest.Renewal(otherImpl.connectionId, otherImpl.connectionSequenceNumber.get()));
+          renewedIndexes.add(i);
+        }
       }
+    }
 
-      if (!leaseRequestResult.isLeaseGranted()) {
-        throw new LeaseException("Unable to obtain lease, the connection is being closed because the lease was not renewed soon enough");
+    BatchedLeaseRequest batchedLeaseRequest = new BatchedLeaseRequest(currentConnectionSequenceNumber, PROCESS_ID, connectionId, renewals);
+    BatchedLeaseRequestResult batchedLeaseRequestResult = (BatchedLeaseRequestResult) invoke(batchedLeaseRequest);
+
+    List<LeaseRequestResult> renewalResults = batchedLeaseRequestResult.getRenewalResults();
+    for (int i = 0; i < renewalResults.size(); i++) {
+      LeaseRequestResult renewalResult = renewalResults.get(i);
+      if (renewalResult != null && renewalResult.isConnectionGood() && renewalResult.isLeaseGranted()) {
+        otherLeaseLengths[renewedIndexes.get(i)] = renewalResult.getLeaseLength();
       }
+    }
+
+    return getLeaseLength(batchedLeaseRequestResult.getLeaseRequestResult());
+  }
+
+  private LeaseResponse invoke(LeaseMessage leaseMessage) throws LeaseException, InterruptedException {
+    try {
+      InvokeFuture<LeaseResponse> invokeFuture = endpoint.beginInvoke()
+              .message(leaseMessage)
+              .replicate(false)
+              .ackCompleted()
+              .invoke();
 
-      return leaseRequestResult.getLeaseLength();
+      return invokeFuture.get();
     } catch (MessageCodecException e) {
       throw new LeaseException(e);
     } catch (EntityException e) {
@@ -67,6 +113,19 @@ class LeaseAcquirerImpl implements LeaseAcquirer, LeaseReconnectListener, LeaseR
     }
   }
 
+  private long getLeaseLength(LeaseRequestResult leaseRequestResult) throws LeaseException {
+    if (!leaseRequestResult.isConnectionGood()) {
+      throw new LeaseReconnectingException("Attempted to acquire a lease but fail-over occurred");
+    }
+
+    if (!leaseRequestResult.isLeaseGranted()) {
+      throw new LeaseException("Unable to obtain lease, the connection is being closed because the lease was not renewed soon enough");
+    }
+
+    batchServerId = leaseRequestResult.getBatchServerId();
+    return leaseRequestResult.getLeaseLength();
+  }
+
   @Override
   public void close() {
     endpoint.close();
@@ -75,6 +134,8 @@ class LeaseAcquirerImpl implements LeaseAcquirer, LeaseReconnectListener, LeaseR
   @Override
   public void reconnecting() {
     reconnecting = true;
+    // The connection has to register again with the server entity that takes over
+    batchServerId = null;
     connectionSequenceNumber.incrementAndGet();
     reconnectListener.reconnecting();
   }
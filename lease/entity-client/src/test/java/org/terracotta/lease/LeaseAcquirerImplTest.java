@@ -25,7 +25,13 @@ import org.terracotta.entity.EntityClientEndpoint;
 import org.terracotta.entity.InvocationBuilder;
 import org.terracotta.entity.InvokeFuture;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.UUID;
+
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -110,6 +116,42 @@ public class LeaseAcquirerImplTest {
     assertEquals(1, leaseRequest.getConnectionSequenceNumber());
   }
 
+  @Test
+  public void batchedRenewal() throws Exception {
+    UUID batchServerId = UUID.randomUUID();
+    LeaseAcquirerImpl registered = new LeaseAcquirerImpl(endpoint, reconnectListener);
+    LeaseAcquirerImpl unregistered = new LeaseAcquirerImpl(endpoint, reconnectListener);
+
+    when(invokeFuture.get()).thenReturn(LeaseRequestResult.leaseGranted(4000L).withBatchServerId(batchServerId));
+    registered.acquireLease();
+    assertEquals(batchServerId, registered.getBatchKey());
+    assertNull(unregistered.getBatchKey());
+
+    when(invokeFuture.get()).thenReturn(new BatchedLeaseRequestResult(LeaseRequestResult.leaseGranted(4000L).withBatchServerId(batchServerId),
+        Collections.singletonList(LeaseRequestResult.leaseGranted(3000L))));
+    long[] otherLeaseLengths = new long[2];
+    long leaseLength = leaseAcquirer.acquireLeases(Arrays.asList(registered, unregistered), otherLeaseLengths);
+
+    assertEquals(4000L, leaseLength);
+    assertEquals(3000L, otherLeaseLengths[0]);
+    assertEquals(-1L, otherLeaseLengths[1]);
+    assertEquals(batchServerId, leaseAcquirer.getBatchKey());
+
+    BatchedLeaseRequest batchedLeaseRequest = (BatchedLeaseRequest) leaseMessageCaptor.getValue();
+    assertEquals(0, batchedLeaseRequest.getLeaseRequest().getConnectionSequenceNumber());
+    assertEquals(1, batchedLeaseRequest.getRenewals().size());
+  }
+
+  @Test
+  public void reconnectingForgetsTheBatchKey() throws Exception {
+    when(invokeFuture.get()).thenReturn(LeaseRequestResult.leaseGranted(4000L).withBatchServerId(UUID.randomUUID()));
+    leaseAcquirer.acquireLease();
+    assertNotNull(leaseAcquirer.getBatchKey());
+
+    leaseAcquirer.reconnecting();
+    assertNull(leaseAcquirer.getBatchKey());
+  }
+
   @Test
   public void reconnectData() {
     LeaseReconnectData reconnectData = leaseAcquirer.getReconnectData();
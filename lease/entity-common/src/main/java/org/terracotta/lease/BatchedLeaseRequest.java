@@ -0,0 +1,142 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.lease;
+
+import org.terracotta.runnel.Struct;
+import org.terracotta.runnel.StructBuilder;
+import org.terracotta.runnel.decoding.StructArrayDecoder;
+import org.terracotta.runnel.decoding.StructDecoder;
+import org.terracotta.runnel.encoding.StructArrayEncoder;
+import org.terracotta.runnel.encoding.StructEncoder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A message to send from the client entity to the server entity to request a lease for the connection it is sent over,
+ * as a LeaseRequest does, and to renew the leases of other connections of the same process, which were registered with
+ * the same server entity. The server responds with a BatchedLeaseRequestResult.
+ */
+public class BatchedLeaseRequest implements LeaseMessage {
+  private final LeaseRequest leaseRequest;
+  private final List<Renewal> renewals;
+
+  public BatchedLeaseRequest(long connectionSequenceNumber, UUID processId, UUID connectionId, List<Renewal> renewals) {
+    this.leaseRequest = new LeaseRequest(connectionSequenceNumber, processId, connectionId);
+    this.renewals = Collections.unmodifiableList(new ArrayList<>(renewals));
+  }
+
+  /**
+   * @return the request for the lease of the connection this message is sent over
+   */
+  public LeaseRequest getLeaseRequest() {
+    return leaseRequest;
+  }
+
+  /**
+   * @return the leases of the other connections to renew, in the order of the results of the response
+   */
+  public List<Renewal> getRenewals() {
+    return renewals;
+  }
+
+  @Override
+  public LeaseMessageType getType() {
+    return LeaseMessageType.BATCHED_LEASE_REQUEST;
+  }
+
+  public static void addStruct(StructBuilder parentBuilder, int index) {
+    StructBuilder renewalBuilder = StructBuilder.newStructBuilder();
+    renewalBuilder.int64("connectionIdMSB", 10);
+    renewalBuilder.int64("connectionIdLSB", 20);
+    renewalBuilder.int64("connectionSequenceNumber", 30);
+    Struct renewalStruct = renewalBuilder.build();
+
+    StructBuilder builder = StructBuilder.newStructBuilder();
+    builder.int64("connectionSequenceNumber", 10);
+    builder.int64("processIdMSB", 20);
+    builder.int64("processIdLSB", 30);
+    builder.int64("connectionIdMSB", 40);
+    builder.int64("connectionIdLSB", 50);
+    builder.structs("renewals", 60, renewalStruct);
+    Struct struct = builder.build();
+
+    parentBuilder.struct("batchedLeaseRequest", index, struct);
+  }
+
+  @Override
+  public void encode(StructEncoder<Void> parentEncoder) {
+    StructEncoder<StructEncoder<Void>> encoder = parentEncoder.struct("batchedLeaseRequest");
+    encoder.int64("connectionSequenceNumber", leaseRequest.getConnectionSequenceNumber());
+    encoder.int64("processIdMSB", leaseRequest.getProcessId().getMostSignificantBits());
+    encoder.int64("processIdLSB", leaseRequest.getProcessId().getLeastSignificantBits());
+    encoder.int64("connectionIdMSB", leaseRequest.getConnectionId().getMostSignificantBits());
+    encoder.int64("connectionIdLSB", leaseRequest.getConnectionId().getLeastSignificantBits());
+    StructArrayEncoder<StructEncoder<StructEncoder<Void>>> renewalsEncoder = encoder.structs("renewals");
+    for (Renewal renewal : renewals) {
+      renewalsEncoder.add()
+          .int64("connectionIdMSB", renewal.getConnectionId().getMostSignificantBits())
+          .int64("connectionIdLSB", renewal.getConnectionId().getLeastSignificantBits())
+          .int64("connectionSequenceNumber", renewal.getConnectionSequenceNumber())
+          .end();
+    }
+    renewalsEncoder.end();
+    encoder.end();
+  }
+
+  public static LeaseMessage decode(StructDecoder<Void> parentDecoder) {
+    StructDecoder<StructDecoder<Void>> decoder = parentDecoder.struct("batchedLeaseRequest");
+    long connectionSequenceNumber = decoder.int64("connectionSequenceNumber");
+    UUID processId = new UUID(decoder.int64("processIdMSB"), decoder.int64("processIdLSB"));
+    UUID connectionId = new UUID(decoder.int64("connectionIdMSB"), decoder.int64("connectionIdLSB"));
+
+    List<Renewal> renewals = new ArrayList<>();
+    StructArrayDecoder<StructDecoder<StructDecoder<Void>>> renewalsDecoder = decoder.structs("renewals");
+    while (renewalsDecoder.hasNext()) {
+      StructDecoder<StructArrayDecoder<StructDecoder<StructDecoder<Void>>>> renewalDecoder = renewalsDecoder.next();
+      UUID renewedConnectionId = new UUID(renewalDecoder.int64("connectionIdMSB"), renewalDecoder.int64("connectionIdLSB"));
+      long renewedConnectionSequenceNumber = renewalDecoder.int64("connectionSequenceNumber");
+      renewals.add(new Renewal(renewedConnectionId, renewedConnectionSequenceNumber));
+      renewalDecoder.end();
+    }
+    renewalsDecoder.end();
+
+    return new BatchedLeaseRequest(connectionSequenceNumber, processId, connectionId, renewals);
+  }
+
+  /**
+   * The lease of another connection to renew.
+   */
+  public static class Renewal {
+    private final UUID connectionId;
+    private final long connectionSequenceNumber;
+
+    public Renewal(UUID connectionId, long connectionSequenceNumber) {
+      this.connectionId = connectionId;
+      this.connectionSequenceNumber = connectionSequenceNumber;
+    }
+
+    public UUID getConnectionId() {
+      return connectionId;
+    }
+
+    public long getConnectionSequenceNumber() {
+      return connectionSequenceNumber;
+    }
+  }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.lease;
+
+import org.terracotta.runnel.Struct;
+import org.terracotta.runnel.StructBuilder;
+import org.terracotta.runnel.decoding.StructArrayDecoder;
+import org.terracotta.runnel.decoding.StructDecoder;
+import org.terracotta.runnel.encoding.StructArrayEncoder;
+import org.terracotta.runnel.encoding.StructEncoder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A message sent from the the server entity to the client entity to indicate the response to the BatchedLeaseRequest:
+ * the result for the connection the request was sent over, and one result per renewal of the request.
+ */
+public class BatchedLeaseRequestResult implements LeaseResponse {
+  private final LeaseRequestResult leaseRequestResult;
+  private final List<LeaseRequestResult> renewalResults;
+
+  /**
+   * @param leaseRequestResult the result for the connection the request was sent over
+   * @param renewalResults the results of the renewals, null for the connections that are not registered with the server
+   *                       entity, whose leases must then be requested over their own connection
+   */
+  public BatchedLeaseRequestResult(LeaseRequestResult leaseRequestResult, List<LeaseRequestResult> renewalResults) {
+    this.leaseRequestResult = leaseRequestResult;
+    this.renewalResults = Collections.unmodifiableList(new ArrayList<>(renewalResults));
+  }
+
+  public LeaseRequestResult getLeaseRequestResult() {
+    return leaseRequestResult;
+  }
+
+  public List<LeaseRequestResult> getRenewalResults() {
+    return renewalResults;
+  }
+
+  @Override
+  public LeaseResponseType getType() {
+    return LeaseResponseType.BATCHED_LEASE_REQUEST_RESULT;
+  }
+
+  public static void addStruct(StructBuilder parentBuilder, int index) {
+    StructBuilder renewalResultBuilder = StructBuilder.newStructBuilder();
+    renewalResultBuilder.bool("registered", 10);
+    renewalResultBuilder.bool("connectionGood", 20);
+    renewalResultBuilder.bool("leaseGranted", 30);
+    renewalResultBuilder.int64("leaseLength", 40);
+    Struct renewalResultStruct = renewalResultBuilder.build();
+
+    StructBuilder builder = StructBuilder.newStructBuilder();
+    builder.bool("connectionGood", 10);
+    builder.bool("leaseGranted", 20);
+    builder.int64("leaseLength", 30);
+    builder.int64("batchServerIdMSB", 40);
+    builder.int64("batchServerIdLSB", 50);
+    builder.structs("renewalResults", 60, renewalResultStruct);
+    Struct struct = builder.build();
+
+    parentBuilder.struct("batchedLeaseRequestResult", index, struct);
+  }
+
+  @Override
+  public void encode(StructEncoder<Void> parentEncoder) {
+    StructEncoder<StructEncoder<Void>> encoder = parentEncoder.struct("batchedLeaseRequestResult");
+    encoder.bool("connectionGood", leaseRequestResult.isConnectionGood());
+    encoder.bool("leaseGranted", leaseRequestResult.isLeaseGranted());
+    encoder.int64("leaseLength", leaseRequestResult.isLeaseGranted() ? leaseRequestResult.getLeaseLength() : -1L);
+    if (leaseRequestResult.getBatchServerId() != null) {
+      encoder.int64("batchServerIdMSB", leaseRequestResult.getBatchServerId().getMostSignificantBits());
+      encoder.int64("batchServerIdLSB", leaseRequestResult.getBatchServerId().getLeastSignificantBits());
+    }
+    StructArrayEncoder<StructEncoder<StructEncoder<Void>>> renewalResultsEncoder = encoder.structs("renewalResults");
+    for (LeaseRequestResult renewalResult : renewalResults) {
+      StructEncoder<StructArrayEncoder<StructEncoder<StructEncoder<Void>>>> renewalResultEncoder = renewalResultsEncoder.add();
+      if (renewalResult == null) {
+        renewalResultEncoder.bool("registered", false);
+      } else {
+        renewalResultEncoder.bool("registered", true)
+            .bool("connectionGood", renewalResult.isConnectionGood())
+            .bool("leaseGranted", renewalResult.isLeaseGranted())
+            .int64("leaseLength", renewalResult.isLeaseGranted() ? renewalResult.getLeaseLength() : -1L);
+      }
+      renewalResultEncoder.end();
+    }
+    renewalResultsEncoder.end();
+    encoder.end();
+  }
+
+  public static LeaseResponse decode(StructDecoder<Void> parentDecoder) {
+    StructDecoder<StructDecoder<Void>> decoder = parentDecoder.struct("batchedLeaseRequestResult");
+    boolean connectionGood = decoder.bool("connectionGood");
+    boolean leaseGranted = decoder.bool("leaseGranted");
+    long leaseLength = decoder.int64("leaseLength");
+    UUID batchServerId = LeaseRequest.decodeUUID(decoder.int64("batchServerIdMSB"), decoder.int64("batchServerIdLSB"));
+    LeaseRequestResult leaseRequestResult = new LeaseRequestResult(connectionGood, leaseGranted, leaseLength).withBatchServerId(batchServerId);
+
+    List<LeaseRequestResult> renewalResults = new ArrayList<>();
+    StructArrayDecoder<StructDecoder<StructDecoder<Void>>> renewalResultsDecoder = decoder.structs("renewalResults");
+    while (renewalResultsDecoder.hasNext()) {
+      StructDecoder<StructArrayDecoder<StructDecoder<StructDecoder<Void>>>> renewalResultDecoder = renewalResultsDecoder.next();
+      if (renewalResultDecoder.bool("registered")) {
+        boolean renewalConnectionGood = renewalResultDecoder.bool("connectionGood");
+        boolean renewalLeaseGranted = renewalResultDecoder.bool("leaseGranted");
+        long renewalLeaseLength = renewalResultDecoder.int64("leaseLength");
+        renewalResults.add(new LeaseRequestResult(renewalConnectionGood, renewalLeaseGranted, renewalLeaseLength));
+      } else {
+        renewalResults.add(null);
+      }
+      renewalResultDecoder.end();
+    }
+    renewalResultsDecoder.end();
+
+    return new BatchedLeaseRequestResult(leaseRequestResult, renewalResults);
+  }
+}
@@ -69,6 +69,7 @@ public class LeaseAcquirerCodec implements MessageCodec<LeaseMessage, LeaseRespo
     builder.enm("messageType", 10, createMessageTypeMapping());
     LeaseRequest.addStruct(builder, 20);
     LeaseReconnectFinished.addStruct(builder, 30);
+    BatchedLeaseRequest.addStruct(builder, 40);
     return builder.build();
   }
 
@@ -78,6 +79,7 @@ public class LeaseAcquirerCodec implements MessageCodec<LeaseMessage, LeaseRespo
     LeaseRequestResult.addStruct(builder, 20);
     LeaseAcquirerAvailable.addStruct(builder, 30);
     IgnoredLeaseResponse.addStruct(builder, 40);
+    BatchedLeaseRequestResult.addStruct(builder, 50);
     return builder.build();
   }
 
@@ -91,6 +93,7 @@ public class LeaseAcquirerCodec implements MessageCodec<LeaseMessage, LeaseRespo
     EnumMappingBuilder<LeaseMessageType> mapping = EnumMappingBuilder.newEnumMappingBuilder(LeaseMessageType.class);
     mapping.mapping(LeaseMessageType.LEASE_REQUEST, 1);
     mapping.mapping(LeaseMessageType.LEASE_RECONNECT_FINISHED, 2);
+    mapping.mapping(LeaseMessageType.BATCHED_LEASE_REQUEST, 3);
     return mapping.build();
   }
 
@@ -99,6 +102,7 @@ public class LeaseAcquirerCodec implements MessageCodec<LeaseMessage, LeaseRespo
     mapping.mapping(LeaseResponseType.LEASE_REQUEST_RESULT, 1);
     mapping.mapping(LeaseResponseType.LEASE_ACQUIRER_AVAILABLE, 2);
     mapping.mapping(LeaseResponseType.IGNORED_LEASE_RESPONSE, 3);
+    mapping.mapping(LeaseResponseType.BATCHED_LEASE_REQUEST_RESULT, 4);
     return mapping.build();
   }
 }
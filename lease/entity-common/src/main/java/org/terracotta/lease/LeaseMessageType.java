@@ -29,6 +29,12 @@ enum LeaseMessageType {
     public LeaseMessage decode(StructDecoder<Void> parentDecoder) {
       return LeaseReconnectFinished.decode(parentDecoder);
     }
+  }),
+  BATCHED_LEASE_REQUEST(new LeaseMessageDecoder() {
+    @Override
+    public LeaseMessage decode(StructDecoder<Void> parentDecoder) {
+      return BatchedLeaseRequest.decode(parentDecoder);
+    }
   });
 
   private final LeaseMessageDecoder leaseMessageDecoder;
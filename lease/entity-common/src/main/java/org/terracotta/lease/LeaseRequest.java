@@ -20,20 +20,48 @@ import org.terracotta.runnel.StructBuilder;
 import org.terracotta.runnel.decoding.StructDecoder;
 import org.terracotta.runnel.encoding.StructEncoder;
 
+import java.util.UUID;
+
 /**
  * A message to send from the client entity to the server entity to request a lease.
  */
 public class LeaseRequest implements LeaseMessage {
   private final long connectionSequenceNumber;
+  private final UUID processId;
+  private final UUID connectionId;
 
   public LeaseRequest(long connectionSequenceNumber) {
+    this(connectionSequenceNumber, null, null);
+  }
+
+  /**
+   * Creates a lease request that also registers the connection for batched renewals: once registered, the lease of the
+   * connection can be renewed by a BatchedLeaseRequest sent over another connection of the same process.
+   */
+  public LeaseRequest(long connectionSequenceNumber, UUID processId, UUID connectionId) {
     this.connectionSequenceNumber = connectionSequenceNumber;
+    this.processId = processId;
+    this.connectionId = connectionId;
   }
 
   public long getConnectionSequenceNumber() {
     return connectionSequenceNumber;
   }
 
+  /**
+   * @return the identifier of the client process, or null if the connection is not to be registered for batched renewals
+   */
+  public UUID getProcessId() {
+    return processId;
+  }
+
+  /**
+   * @return the identifier of the connection, or null if the connection is not to be registered for batched renewals
+   */
+  public UUID getConnectionId() {
+    return connectionId;
+  }
+
   @Override
   public LeaseMessageType getType() {
     return LeaseMessageType.LEASE_REQUEST;
@@ -42,6 +70,10 @@ public class LeaseRequest implements LeaseMessage {
   public static void addStruct(StructBuilder parentBuilder, int index) {
     StructBuilder builder = StructBuilder.newStructBuilder();
     builder.int64("connectionSequenceNumber", 10);
+    builder.int64("processIdMSB", 20);
+    builder.int64("processIdLSB", 30);
+    builder.int64("connectionIdMSB", 40);
+    builder.int64("connectionIdLSB", 50);
     Struct struct = builder.build();
 
     parentBuilder.struct("leaseRequest", index, struct);
@@ -51,12 +83,28 @@ public class LeaseRequest implements LeaseMessage {
   public void encode(StructEncoder<Void> parentEncoder) {
     StructEncoder<StructEncoder<Void>> encoder = parentEncoder.struct("leaseRequest");
     encoder.int64("connectionSequenceNumber", connectionSequenceNumber);
+    if (processId != null && connectionId != null) {
+      encoder.int64("processIdMSB", processId.getMostSignificantBits());
+      encoder.int64("processIdLSB", processId.getLeastSignificantBits());
+      encoder.int64("connectionIdMSB", connectionId.getMostSignificantBits());
+      encoder.int64("connectionIdLSB", connectionId.getLeastSignificantBits());
+    }
     encoder.end();
   }
 
   public static LeaseMessage decode(StructDecoder<Void> parentDecoder) {
     StructDecoder<StructDecoder<Void>> decoder = parentDecoder.struct("leaseRequest");
     long connectionSequenceNumber = decoder.int64("connectionSequenceNumber");
-    return new LeaseRequest(connectionSequenceNumber);
+    // Absent when sent by clients that do not batch renewals
+    UUID processId = decodeUUID(decoder.int64("processIdMSB"), decoder.int64("processIdLSB"));
+    UUID connectionId = decodeUUID(decoder.int64("connectionIdMSB"), decoder.int64("connectionIdLSB"));
+    return new LeaseRequest(connectionSequenceNumber, processId, connectionId);
+  }
+
+  static UUID decodeUUID(Long msb, Long lsb) {
+    if (msb == null || lsb == null) {
+      return null;
+    }
+    return new UUID(msb, lsb);
   }
 }
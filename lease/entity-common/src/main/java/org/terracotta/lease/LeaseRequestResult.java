@@ -20,6 +20,8 @@ import org.terracotta.runnel.StructBuilder;
 import org.terracotta.runnel.decoding.StructDecoder;
 import org.terracotta.runnel.encoding.StructEncoder;
 
+import java.util.UUID;
+
 /**
  * A message sent from the the server entity to the client entity to indicate the response to the LeaseRequest.
  */
@@ -27,6 +29,7 @@ public class LeaseRequestResult implements LeaseResponse {
   private final boolean connectionGood;
   private final boolean leaseGranted;
   private final long leaseLength;
+  private final UUID batchServerId;
 
   public static LeaseRequestResult leaseNotGranted() {
     return new LeaseRequestResult(true, false, -1L);
@@ -43,10 +46,24 @@ public class LeaseRequestResult implements LeaseResponse {
     return new LeaseRequestResult(false, false, -1L);
   }
 
-  private LeaseRequestResult(boolean connectionGood, boolean leaseGranted, long leaseLength) {
+  LeaseRequestResult(boolean connectionGood, boolean leaseGranted, long leaseLength) {
+    this(connectionGood, leaseGranted, leaseLength, null);
+  }
+
+  private LeaseRequestResult(boolean connectionGood, boolean leaseGranted, long leaseLength, UUID batchServerId) {
     this.connectionGood = connectionGood;
     this.leaseGranted = leaseGranted;
     this.leaseLength = leaseLength;
+    this.batchServerId = batchServerId;
+  }
+
+  /**
+   * @param batchServerId the identifier of the server entity with which the connection is registered for batched renewals
+   * @return a copy of this result telling the client that its lease can be renewed with those of the other connections
+   * registered with the same server entity
+   */
+  public LeaseRequestResult withBatchServerId(UUID batchServerId) {
+    return new LeaseRequestResult(connectionGood, leaseGranted, leaseLength, batchServerId);
   }
 
   public boolean isConnectionGood() {
@@ -63,6 +80,15 @@ public class LeaseRequestResult implements LeaseResponse {
     }
     return leaseLength;
   }
+
+  /**
+   * @return the identifier of the server entity with which the connection is registered for batched renewals, or null
+   * if the connection is not registered, for instance because the server does not support batched renewals
+   */
+  public UUID getBatchServerId() {
+    return batchServerId;
+  }
+
   @Override
   public LeaseResponseType getType() {
     return LeaseResponseType.LEASE_REQUEST_RESULT;
@@ -74,6 +100,8 @@ public class LeaseRequestResult implements LeaseResponse {
     builder.bool("connectionGood", 10);
     builder.bool("leaseGranted", 20);
     builder.int64("leaseLength", 30);
+    builder.int64("batchServerIdMSB", 40);
+    builder.int64("batchServerIdLSB", 50);
     Struct struct = builder.build();
 
     parentBuilder.struct("leaseRequestResult", index, struct);
@@ -85,6 +113,10 @@ public class LeaseRequestResult implements LeaseResponse {
     encoder.bool("connectionGood", connectionGood);
     encoder.bool("leaseGranted", leaseGranted);
     encoder.int64("leaseLength", leaseLength);
+    if (batchServerId != null) {
+      encoder.int64("batchServerIdMSB", batchServerId.getMostSignificantBits());
+      encoder.int64("batchServerIdLSB", batchServerId.getLeastSignificantBits());
+    }
     encoder.end();
   }
 
@@ -93,6 +125,7 @@ public class LeaseRequestResult implements LeaseResponse {
     boolean connectionGood = decoder.bool("connectionGood");
     boolean leaseGranted = decoder.bool("leaseGranted");
     long leaseLength = decoder.int64("leaseLength");
-    return new LeaseRequestResult(connectionGood, leaseGranted, leaseLength);
+    UUID batchServerId = LeaseRequest.decodeUUID(decoder.int64("batchServerIdMSB"), decoder.int64("batchServerIdLSB"));
+    return new LeaseRequestResult(connectionGood, leaseGranted, leaseLength, batchServerId);
   }
 }
@@ -35,6 +35,12 @@ public enum LeaseResponseType {
     public LeaseResponse decode(StructDecoder<Void> parentDecoder) {
       return IgnoredLeaseResponse.decode(parentDecoder);
     }
+  }),
+  BATCHED_LEASE_REQUEST_RESULT(new LeaseResponseDecoder() {
+    @Override
+    public LeaseResponse decode(StructDecoder<Void> parentDecoder) {
+      return BatchedLeaseRequestResult.decode(parentDecoder);
+    }
   });
 
   private final LeaseResponseDecoder leaseResponseDecoder;
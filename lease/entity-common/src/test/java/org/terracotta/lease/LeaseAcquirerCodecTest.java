@@ -17,11 +17,14 @@ package org.terracotta.lease;
 
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.UUID;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 public class LeaseAcquirerCodecTest {
@@ -32,6 +35,43 @@ public class LeaseAcquirerCodecTest {
     byte[] bytes = codec.encodeMessage(message);
     LeaseRequest roundtrippedMessage = (LeaseRequest) codec.decodeMessage(bytes);
     assertEquals(5, roundtrippedMessage.getConnectionSequenceNumber());
+    assertNull(roundtrippedMessage.getProcessId());
+    assertNull(roundtrippedMessage.getConnectionId());
+  }
+
+  @Test
+  public void roundtripRegisteringLeaseRequest() throws Exception {
+    UUID processId = UUID.randomUUID();
+    UUID connectionId = UUID.randomUUID();
+    LeaseRequest message = new LeaseRequest(5, processId, connectionId);
+    LeaseAcquirerCodec codec = new LeaseAcquirerCodec();
+    byte[] bytes = codec.encodeMessage(message);
+    LeaseRequest roundtrippedMessage = (LeaseRequest) codec.decodeMessage(bytes);
+    assertEquals(5, roundtrippedMessage.getConnectionSequenceNumber());
+    assertEquals(processId, roundtrippedMessage.getProcessId());
+    assertEquals(connectionId, roundtrippedMessage.getConnectionId());
+  }
+
+  @Test
+  public void roundtripBatchedLeaseRequest() throws Exception {
+    UUID processId = UUID.randomUUID();
+    UUID connectionId = UUID.randomUUID();
+    UUID otherConnectionId1 = UUID.randomUUID();
+    UUID otherConnectionId2 = UUID.randomUUID();
+    BatchedLeaseRequest message = new BatchedLeaseRequest(5, processId, connectionId, Arrays.asList(
+        new BatchedLeaseRequest.Renewal(otherConnectionId1, 3),
+        new BatchedLeaseRequest.Renewal(otherConnectionId2, 0)));
+    LeaseAcquirerCodec codec = new LeaseAcquirerCodec();
+    byte[] bytes = codec.encodeMessage(message);
+    BatchedLeaseRequest roundtrippedMessage = (BatchedLeaseRequest) codec.decodeMessage(bytes);
+    assertEquals(5, roundtrippedMessage.getLeaseRequest().getConnectionSequenceNumber());
+    assertEquals(processId, roundtrippedMessage.getLeaseRequest().getProcessId());
+    assertEquals(connectionId, roundtrippedMessage.getLeaseRequest().getConnectionId());
+    assertEquals(2, roundtrippedMessage.getRenewals().size());
+    assertEquals(otherConnectionId1, roundtrippedMessage.getRenewals().get(0).getConnectionId());
+    assertEquals(3, roundtrippedMessage.getRenewals().get(0).getConnectionSequenceNumber());
+    assertEquals(otherConnectionId2, roundtrippedMessage.getRenewals().get(1).getConnectionId());
+    assertEquals(0, roundtrippedMessage.getRenewals().get(1).getConnectionSequenceNumber());
   }
 
   @Test
@@ -73,6 +113,39 @@ public class LeaseAcquirerCodecTest {
     assertTrue(roundtrippedResponse.isConnectionGood());
     assertTrue(roundtrippedResponse.isLeaseGranted());
     assertEquals(500L, roundtrippedResponse.getLeaseLength());
+    assertNull(roundtrippedResponse.getBatchServerId());
+  }
+
+  @Test
+  public void roundtripGrantedResponseWithBatchServerId() throws Exception {
+    UUID batchServerId = UUID.randomUUID();
+    LeaseRequestResult response = LeaseRequestResult.leaseGranted(500L).withBatchServerId(batchServerId);
+    LeaseAcquirerCodec codec = new LeaseAcquirerCodec();
+    byte[] bytes = codec.encodeResponse(response);
+    LeaseRequestResult roundtrippedResponse = (LeaseRequestResult) codec.decodeResponse(bytes);
+    assertTrue(roundtrippedResponse.isLeaseGranted());
+    assertEquals(500L, roundtrippedResponse.getLeaseLength());
+    assertEquals(batchServerId, roundtrippedResponse.getBatchServerId());
+  }
+
+  @Test
+  public void roundtripBatchedLeaseRequestResult() throws Exception {
+    UUID batchServerId = UUID.randomUUID();
+    BatchedLeaseRequestResult response = new BatchedLeaseRequestResult(LeaseRequestResult.leaseGranted(500L).withBatchServerId(batchServerId),
+        Arrays.asList(LeaseRequestResult.leaseGranted(400L), null, LeaseRequestResult.oldConnection(), LeaseRequestResult.leaseNotGranted()));
+    LeaseAcquirerCodec codec = new LeaseAcquirerCodec();
+    byte[] bytes = codec.encodeResponse(response);
+    BatchedLeaseRequestResult roundtrippedResponse = (BatchedLeaseRequestResult) codec.decodeResponse(bytes);
+    assertEquals(500L, roundtrippedResponse.getLeaseRequestResult().getLeaseLength());
+    assertEquals(batchServerId, roundtrippedResponse.getLeaseRequestResult().getBatchServerId());
+
+    List<LeaseRequestResult> renewalResults = roundtrippedResponse.getRenewalResults();
+    assertEquals(4, renewalResults.size());
+    assertEquals(400L, renewalResults.get(0).getLeaseLength());
+    assertNull(renewalResults.get(1));
+    assertFalse(renewalResults.get(2).isConnectionGood());
+    assertTrue(renewalResults.get(3).isConnectionGood());
+    assertFalse(renewalResults.get(3).isLeaseGranted());
   }
 
   @Test
@@ -26,11 +26,16 @@ import org.terracotta.entity.PassiveSynchronizationChannel;
 import org.terracotta.lease.service.LeaseResult;
 import org.terracotta.lease.service.LeaseService;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * The active server-side entity for connection leasing. Pretty much just delegates to the LeaseService.
+ * <p>
+ * Connections that identify themselves and their process in their lease requests are registered, so that a
+ * BatchedLeaseRequest sent over any connection of a process can renew the leases of the others.
  */
 public class ActiveLeaseAcquirer implements ActiveServerEntity<LeaseMessage, LeaseResponse> {
   private final LeaseService leaseService;
@@ -38,6 +43,10 @@ public class ActiveLeaseAcquirer implements ActiveServerEntity<LeaseMessage, Lea
   private final IEntityMessenger<LeaseMessage, LeaseResponse> entityMessenger;
   private final ConcurrentHashMap<ClientDescriptor, Long> connectionSequenceNumbers = new ConcurrentHashMap<>();
   private final ConcurrentHashMap<UUID, ClientDescriptor> clientDescriptors = new ConcurrentHashMap<>();
+  // Connections registered for batched renewals, by connection id
+  private final UUID batchServerId = UUID.randomUUID();
+  private final ConcurrentHashMap<UUID, RegisteredConnection> registeredConnections = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<ClientDescriptor, UUID> registeredConnectionIds = new ConcurrentHashMap<>();
 
   public ActiveLeaseAcquirer(LeaseService leaseService, ClientCommunicator clientCommunicator, IEntityMessenger<LeaseMessage, LeaseResponse> entityMessenger) {
     this.leaseService = leaseService;
@@ -53,6 +62,10 @@ public class ActiveLeaseAcquirer implements ActiveServerEntity<LeaseMessage, Lea
   public void disconnected(ClientDescriptor clientDescriptor) {
     leaseService.disconnected(clientDescriptor);
     connectionSequenceNumbers.remove(clientDescriptor);
+    UUID connectionId = registeredConnectionIds.remove(clientDescriptor);
+    if (connectionId != null) {
+      registeredConnections.remove(connectionId);
+    }
   }
 
   @Override
@@ -63,15 +76,17 @@ public class ActiveLeaseAcquirer implements ActiveServerEntity<LeaseMessage, Lea
         return handleLeaseRequest(context, (LeaseRequest) leaseMessage);
       case LEASE_RECONNECT_FINISHED:
         return handleReconnectFinished((LeaseReconnectFinished) leaseMessage);
+      case BATCHED_LEASE_REQUEST:
+        return handleBatchedLeaseRequest(context, (BatchedLeaseRequest) leaseMessage);
       default:
         throw new AssertionError("Unexpected type of LeaseMessage: " + messageType);
     }
   }
 
-  private LeaseResponse handleLeaseRequest(ActiveInvokeContext<LeaseResponse> context, LeaseRequest leaseRequest) {
+  private LeaseRequestResult handleLeaseRequest(ActiveInvokeContext<LeaseResponse> context, LeaseRequest leaseRequest) {
     ClientDescriptor clientDescriptor = context.getClientDescriptor();
 
-    if (!isLatestConnection(clientDescriptor, leaseRequest)) {
+    if (!isLatestConnection(clientDescriptor, leaseRequest.getConnectionSequenceNumber())) {
       return LeaseRequestResult.oldConnection();
     }
 
@@ -79,20 +94,81 @@ public class ActiveLeaseAcquirer implements ActiveServerEntity<LeaseMessage, Lea
 
     if (leaseResult.isLeaseGranted()) {
       long leaseLength = leaseResult.getLeaseLength();
-      return LeaseRequestResult.leaseGranted(leaseLength);
+      LeaseRequestResult leaseRequestResult = LeaseRequestResult.leaseGranted(leaseLength);
+      if (register(clientDescriptor, leaseRequest)) {
+        leaseRequestResult = leaseRequestResult.withBatchServerId(batchServerId);
+      }
+      return leaseRequestResult;
     } else {
       return LeaseRequestResult.leaseNotGranted();
     }
   }
 
-  private boolean isLatestConnection(ClientDescriptor clientDescriptor, LeaseRequest leaseRequest) {
+  private boolean register(ClientDescriptor clientDescriptor, LeaseRequest leaseRequest) {
+    UUID processId = leaseRequest.getProcessId();
+    UUID connectionId = leaseRequest.getConnectionId();
+    if (processId == null || connectionId == null) {
+      return false;
+    }
+
+    long connectionSequenceNumber = leaseRequest.getConnectionSequenceNumber();
+    UUID previousConnectionId = registeredConnectionIds.put(clientDescriptor, connectionId);
+    if (!connectionId.equals(previousConnectionId)) {
+      if (previousConnectionId != null) {
+        registeredConnections.remove(previousConnectionId);
+      }
+      registeredConnections.put(connectionId, new RegisteredConnection(clientDescriptor, processId, connectionSequenceNumber));
+    } else {
+      RegisteredConnection registeredConnection = registeredConnections.get(connectionId);
+      if (registeredConnection == null || registeredConnection.connectionSequenceNumber != connectionSequenceNumber) {
+        registeredConnections.put(connectionId, new RegisteredConnection(clientDescriptor, processId, connectionSequenceNumber));
+      }
+    }
+    return true;
+  }
+
+  private LeaseResponse handleBatchedLeaseRequest(ActiveInvokeContext<LeaseResponse> context, BatchedLeaseRequest batchedLeaseRequest) {
+    LeaseRequest leaseRequest = batchedLeaseRequest.getLeaseRequest();
+    LeaseRequestResult leaseRequestResult = handleLeaseRequest(context, leaseRequest);
+
+    // Only the connections of the process that sent the request can be renewed
+    UUID processId = leaseRequest.getProcessId();
+    List<BatchedLeaseRequest.Renewal> renewals = batchedLeaseRequest.getRenewals();
+    List<LeaseRequestResult> renewalResults = new ArrayList<>(renewals.size());
+    List<ClientDescriptor> renewedClientDescriptors = new ArrayList<>(renewals.size());
+    List<Integer> renewedIndexes = new ArrayList<>(renewals.size());
+
+    for (BatchedLeaseRequest.Renewal renewal : renewals) {
+      RegisteredConnection registeredConnection = registeredConnections.get(renewal.getConnectionId());
+
+      if (registeredConnection == null || !registeredConnection.processId.equals(processId)) {
+        renewalResults.add(null);
+      } else if (!isLatestRenewal(registeredConnection, renewal.getConnectionSequenceNumber())) {
+        renewalResults.add(LeaseRequestResult.oldConnection());
+      } else {
+        renewedIndexes.add(renewalResults.size());
+        renewedClientDescriptors.add(registeredConnection.clientDescriptor);
+        renewalResults.add(null);
+      }
+    }
+
+    List<LeaseResult> leaseResults = leaseService.acquireLeases(renewedClientDescriptors);
+    for (int i = 0; i < leaseResults.size(); i++) {
+      LeaseResult leaseResult = leaseResults.get(i);
+      LeaseRequestResult renewalResult = leaseResult.isLeaseGranted() ? LeaseRequestResult.leaseGranted(leaseResult.getLeaseLength()) : LeaseRequestResult.leaseNotGranted();
+      renewalResults.set(renewedIndexes.get(i), renewalResult);
+    }
+
+    return new BatchedLeaseRequestResult(leaseRequestResult, renewalResults);
+  }
+
+  private boolean isLatestConnection(ClientDescriptor clientDescriptor, long messageConnectionSequenceNumber) {
     Long latestConnectionSequenceNumber = connectionSequenceNumbers.get(clientDescriptor);
 
     if (latestConnectionSequenceNumber == null) {
       return true;
     }
 
-    long messageConnectionSequenceNumber = leaseRequest.getConnectionSequenceNumber();
     if (messageConnectionSequenceNumber > latestConnectionSequenceNumber) {
       throw new AssertionError("Connection sequence numbers should not jump ahead, expected: " + latestConnectionSequenceNumber + " actual: " + messageConnectionSequenceNumber);
     }
@@ -101,6 +177,17 @@ public class ActiveLeaseAcquirer implements ActiveServerEntity<LeaseMessage, Lea
   }
 
 
+  /**
+   * Unlike {@link #isLatestConnection(ClientDescriptor, long)}, the sequence number comes from another connection than
+   * the one it is checked for: it is not trusted, and anything but the latest sequence number of the connection, as
+   * last reconnected or else as registered by its own lease request, makes the renewal one of an old connection.
+   */
+  private boolean isLatestRenewal(RegisteredConnection registeredConnection, long renewalConnectionSequenceNumber) {
+    Long latestConnectionSequenceNumber = connectionSequenceNumbers.get(registeredConnection.clientDescriptor);
+    long expected = latestConnectionSequenceNumber == null ? registeredConnection.connectionSequenceNumber : latestConnectionSequenceNumber;
+    return renewalConnectionSequenceNumber == expected;
+  }
+
   @Override
   public ActiveServerEntity.ReconnectHandler startReconnect() {
     return (ClientDescriptor clientDescriptor, byte[] bytes) -> {
@@ -154,4 +241,16 @@ public class ActiveLeaseAcquirer implements ActiveServerEntity<LeaseMessage, Lea
   @Override
   public void destroy() {
   }
+
+  private static class RegisteredConnection {
+    private final ClientDescriptor clientDescriptor;
+    private final UUID processId;
+    private final long connectionSequenceNumber;
+
+    RegisteredConnection(ClientDescriptor clientDescriptor, UUID processId, long connectionSequenceNumber) {
+      this.clientDescriptor = clientDescriptor;
+      this.processId = processId;
+      this.connectionSequenceNumber = connectionSequenceNumber;
+    }
+  }
 }
@@ -102,6 +102,7 @@ public class LeaseAcquirerServerService implements EntityServerService<LeaseMess
         LeaseMessageType messageType = leaseMessage.getType();
         switch (messageType) {
           case LEASE_REQUEST:
+          case BATCHED_LEASE_REQUEST:
             return ConcurrencyStrategy.UNIVERSAL_KEY;
           case LEASE_RECONNECT_FINISHED:
             return ConcurrencyStrategy.MANAGEMENT_KEY;
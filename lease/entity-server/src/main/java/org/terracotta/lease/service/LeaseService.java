@@ -18,6 +18,8 @@ package org.terracotta.lease.service;
 import com.tc.classloader.CommonComponent;
 import org.terracotta.entity.ClientDescriptor;
 
+import java.util.List;
+
 /**
  * A service that the lease acquiring entity can use to manage the leases. Specifically it spins up a thread to
  * monitor the leases, which the entity should not do.
@@ -26,6 +28,12 @@ import org.terracotta.entity.ClientDescriptor;
 public interface LeaseService {
   LeaseResult acquireLease(ClientDescriptor clientDescriptor);
 
+  /**
+   * Acquires the leases of several clients at once, as a batched renewal does.
+   * @return the results, in the order of the client descriptors
+   */
+  List<LeaseResult> acquireLeases(List<ClientDescriptor> clientDescriptors);
+
   void disconnected(ClientDescriptor clientDescriptor);
 
   void reconnecting(ClientDescriptor clientDescriptor);
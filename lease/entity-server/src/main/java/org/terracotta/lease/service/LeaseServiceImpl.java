@@ -21,6 +21,9 @@ import org.terracotta.entity.ClientDescriptor;
 import org.terracotta.lease.service.config.LeaseConfiguration;
 import org.terracotta.lease.service.monitor.LeaseState;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * The implementation of LeaseService. It uses the LeaseState object to carry out the hard work of correctly issuing
  * leases.
@@ -51,6 +54,24 @@ public class LeaseServiceImpl implements LeaseService {
     }
   }
 
+  @Override
+  public List<LeaseResult> acquireLeases(List<ClientDescriptor> clientDescriptors) {
+    LOGGER.debug("Clients requested leases: " + clientDescriptors);
+    long currentLeaseLength = getLeaseLength();
+    List<LeaseResult> leaseResults = new ArrayList<>(clientDescriptors.size());
+
+    for (ClientDescriptor clientDescriptor : clientDescriptors) {
+      if (leaseState.acquireLease(clientDescriptor, currentLeaseLength)) {
+        leaseResults.add(LeaseResult.leaseGranted(currentLeaseLength));
+      } else {
+        LOGGER.debug("Client lease request rejected because connection is closing: " + clientDescriptor);
+        leaseResults.add(LeaseResult.leaseNotGranted());
+      }
+    }
+
+    return leaseResults;
+  }
+
   @Override
   public void disconnected(ClientDescriptor clientDescriptor) {
     leaseState.disconnected(clientDescriptor);
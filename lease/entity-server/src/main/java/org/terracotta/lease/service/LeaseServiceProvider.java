@@ -29,16 +29,26 @@ import org.terracotta.lease.TimeSourceProvider;
 import org.terracotta.lease.service.closer.ClientConnectionCloser;
 import org.terracotta.lease.service.closer.ProxyClientConnectionCloser;
 import org.terracotta.lease.service.config.LeaseConfiguration;
+import org.terracotta.lease.service.management.LeaseManagement;
+import org.terracotta.lease.service.monitor.LeaseMonitorStatistics;
+import org.terracotta.lease.service.monitor.LeaseMonitorStatisticsMBean;
 import org.terracotta.lease.service.monitor.LeaseMonitorThread;
 import org.terracotta.lease.service.monitor.LeaseState;
+import org.terracotta.management.service.monitoring.ManageableServerComponent;
 
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
 import java.io.Closeable;
+import java.lang.management.ManagementFactory;
 import java.util.Arrays;
 import java.util.Collection;
 
 /**
  * LeaseServiceProvider consumes the LeaseConfiguration objects (generated from XML parsing) and then creates the
  * connection leasing components, such as LeaseState and LeaseMonitorThread.
+ * <p>
+ * The lease statistics are exposed through JMX, and through the server-level management registries by the
+ * ManageableServerComponent this provider gives.
  */
 @BuiltinService
 public class LeaseServiceProvider implements ServiceProvider, Closeable {
@@ -48,6 +58,8 @@ public class LeaseServiceProvider implements ServiceProvider, Closeable {
   private LeaseState leaseState;
   private LeaseMonitorThread leaseMonitorThread;
   private ProxyClientConnectionCloser proxyClientConnectionCloser;
+  private LeaseManagement leaseManagement;
+  private ObjectName statisticsMBeanName;
 
   @Override
   public boolean initialize(ServiceProviderConfiguration configuration, PlatformConfiguration platformConfiguration) {
@@ -60,18 +72,35 @@ public class LeaseServiceProvider implements ServiceProvider, Closeable {
     }
     TimeSource timeSource = TimeSourceProvider.getTimeSource();
     proxyClientConnectionCloser = new ProxyClientConnectionCloser();
-    leaseState = new LeaseState(timeSource, proxyClientConnectionCloser);
+    LeaseMonitorStatistics statistics = new LeaseMonitorStatistics();
+    leaseState = new LeaseState(timeSource, proxyClientConnectionCloser, statistics);
+    leaseManagement = new LeaseManagement(statistics);
+    exposeStatistics(statistics);
     leaseMonitorThread = new LeaseMonitorThread(timeSource, leaseState);
     leaseMonitorThread.start();
     return true;
   }
 
+  private void exposeStatistics(LeaseMonitorStatistics statistics) {
+    try {
+      ObjectName mBeanName = new ObjectName(LeaseMonitorStatistics.MBEAN_NAME);
+      ManagementFactory.getPlatformMBeanServer().registerMBean(new StandardMBean(statistics, LeaseMonitorStatisticsMBean.class), mBeanName);
+      statisticsMBeanName = mBeanName;
+    } catch (Exception e) {
+      LOGGER.warn("LeaseMonitorStatistics MBean not registered", e);
+    }
+  }
+
   @Override
   public <T> T getService(long consumerID, ServiceConfiguration<T> serviceConfiguration) {
     if (serviceConfiguration.getServiceType() == LeaseConfiguration.class) {
       return serviceConfiguration.getServiceType().cast(leaseConfiguration);
     }
 
+    if (serviceConfiguration.getServiceType() == ManageableServerComponent.class) {
+      return serviceConfiguration.getServiceType().cast(leaseManagement);
+    }
+
     if (serviceConfiguration instanceof LeaseServiceConfiguration) {
       LOGGER.info("Creating LeaseService");
 
@@ -95,7 +124,7 @@ public class LeaseServiceProvider implements ServiceProvider, Closeable {
 
   @Override
   public Collection<Class<?>> getProvidedServiceTypes() {
-    return Arrays.asList(LeaseService.class, LeaseConfiguration.class);
+    return Arrays.asList(LeaseService.class, LeaseConfiguration.class, ManageableServerComponent.class);
   }
 
   @Override
@@ -105,6 +134,14 @@ public class LeaseServiceProvider implements ServiceProvider, Closeable {
   @Override
   public void close() {
     leaseMonitorThread.interrupt();
+    if (statisticsMBeanName != null) {
+      try {
+        ManagementFactory.getPlatformMBeanServer().unregisterMBean(statisticsMBeanName);
+      } catch (Exception e) {
+        LOGGER.warn("LeaseMonitorStatistics MBean not unregistered", e);
+      }
+      statisticsMBeanName = null;
+    }
   }
 
   @Override
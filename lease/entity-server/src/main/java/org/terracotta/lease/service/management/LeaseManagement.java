@@ -0,0 +1,73 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.lease.service.management;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.terracotta.lease.service.monitor.LeaseMonitorStatistics;
+import org.terracotta.management.service.monitoring.EntityManagementRegistry;
+import org.terracotta.management.service.monitoring.ManageableServerComponent;
+import org.terracotta.statistics.StatisticType;
+import org.terracotta.statistics.StatisticsManager;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Exposes the lease statistics of this server to the server-level management registries, from which they are
+ * collected along with the other server statistics.
+ */
+public class LeaseManagement implements ManageableServerComponent {
+  private static final Logger LOGGER = LoggerFactory.getLogger(LeaseManagement.class);
+
+  static final String STATISTIC_TAG = "LeaseMonitor";
+
+  private final LeaseMonitorBinding binding;
+
+  public LeaseManagement(LeaseMonitorStatistics statistics) {
+    this.binding = new LeaseMonitorBinding(statistics);
+
+    createStatistic(statistics, "expiredLeases", StatisticType.COUNTER, statistics::getExpiredLeaseCount);
+    createStatistic(statistics, "leaseChecks", StatisticType.COUNTER, statistics::getLeaseCheckCount);
+    createStatistic(statistics, "leaseCheckTimeMaximumMicros", StatisticType.GAUGE, statistics::getLeaseCheckTimeMaximumMicros);
+    createStatistic(statistics, "leaseCheckTime99thPercentileMicros", StatisticType.GAUGE, statistics::getLeaseCheckTime99thPercentileMicros);
+    createStatistic(statistics, "renewals", StatisticType.COUNTER, statistics::getRenewalCount);
+    createStatistic(statistics, "leaseMarginMinimumMillis", StatisticType.GAUGE, statistics::getLeaseMarginMinimumMillis);
+    createStatistic(statistics, "leaseMargin1stPercentileMillis", StatisticType.GAUGE, statistics::getLeaseMargin1stPercentileMillis);
+  }
+
+  private static void createStatistic(LeaseMonitorStatistics statistics, String name, StatisticType type, Supplier<Long> valueSupplier) {
+    Map<String, Object> properties = new HashMap<>();
+    properties.put("discriminator", STATISTIC_TAG);
+    StatisticsManager.createPassThroughStatistic(statistics, name, Collections.singleton(STATISTIC_TAG), properties, type, valueSupplier);
+  }
+
+  @Override
+  public void onManagementRegistryCreated(EntityManagementRegistry registry) {
+    LOGGER.trace("[{}] onManagementRegistryCreated()", registry.getMonitoringService().getConsumerId());
+
+    registry.addManagementProvider(new LeaseStatisticsManagementProvider());
+    registry.register(binding);
+    registry.refresh();
+  }
+
+  @Override
+  public void onManagementRegistryClose(EntityManagementRegistry registry) {
+    LOGGER.trace("[{}] onManagementRegistryClose()", registry.getMonitoringService().getConsumerId());
+  }
+}
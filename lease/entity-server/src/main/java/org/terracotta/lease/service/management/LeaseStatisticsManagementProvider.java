@@ -0,0 +1,56 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.lease.service.management;
+
+import org.terracotta.management.model.context.Context;
+import org.terracotta.management.model.stats.StatisticRegistry;
+import org.terracotta.management.registry.Named;
+import org.terracotta.management.registry.RequiredContext;
+import org.terracotta.management.registry.collect.StatisticProvider;
+import org.terracotta.management.service.monitoring.registry.provider.AbstractExposedStatistics;
+import org.terracotta.management.service.monitoring.registry.provider.AbstractStatisticsManagementProvider;
+
+import static org.terracotta.statistics.registry.ValueStatisticDescriptor.descriptor;
+
+@Named("LeaseStatistics")
+@RequiredContext({@Named("consumerId"), @Named("type"), @Named("alias")})
+@StatisticProvider
+public class LeaseStatisticsManagementProvider extends AbstractStatisticsManagementProvider<LeaseMonitorBinding> {
+
+  public LeaseStatisticsManagementProvider() {
+    super(LeaseMonitorBinding.class);
+  }
+
+  @Override
+  protected AbstractExposedStatistics<LeaseMonitorBinding> internalWrap(Context context, LeaseMonitorBinding managedObject, StatisticRegistry statisticRegistry) {
+    return new LeaseMonitorBindingExposedStatistics(context, managedObject, statisticRegistry);
+  }
+
+  private static class LeaseMonitorBindingExposedStatistics extends AbstractExposedStatistics<LeaseMonitorBinding> {
+    LeaseMonitorBindingExposedStatistics(Context context, LeaseMonitorBinding binding, StatisticRegistry statisticRegistry) {
+      super(context.with("type", "Lease"), binding, statisticRegistry);
+
+      getStatisticRegistry().registerStatistic("Lease:ExpiredLeases", descriptor("expiredLeases", LeaseManagement.STATISTIC_TAG));
+      getStatisticRegistry().registerStatistic("Lease:LeaseChecks", descriptor("leaseChecks", LeaseManagement.STATISTIC_TAG));
+      getStatisticRegistry().registerStatistic("Lease:LeaseCheckTimeMaximumMicros", descriptor("leaseCheckTimeMaximumMicros", LeaseManagement.STATISTIC_TAG));
+      getStatisticRegistry().registerStatistic("Lease:LeaseCheckTime99thPercentileMicros", descriptor("leaseCheckTime99thPercentileMicros", LeaseManagement.STATISTIC_TAG));
+      getStatisticRegistry().registerStatistic("Lease:Renewals", descriptor("renewals", LeaseManagement.STATISTIC_TAG));
+      getStatisticRegistry().registerStatistic("Lease:LeaseMarginMinimumMillis", descriptor("leaseMarginMinimumMillis", LeaseManagement.STATISTIC_TAG));
+      getStatisticRegistry().registerStatistic("Lease:LeaseMargin1stPercentileMillis", descriptor("leaseMargin1stPercentileMillis", LeaseManagement.STATISTIC_TAG));
+    }
+  }
+
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.lease.service.monitor;
+
+import org.terracotta.lease.DurationHistogram;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records the lease expiries, the lease checks and the lease renewals of LeaseState, so that the lease length can be
+ * tuned from the margins that were left on the leases when they were renewed.
+ */
+public class LeaseMonitorStatistics implements LeaseMonitorStatisticsMBean {
+  public static final String MBEAN_NAME = "org.terracotta.lease:type=LeaseMonitorStatistics";
+
+  private final LongAdder expiredLeases = new LongAdder();
+  private final DurationHistogram leaseCheckTimes = new DurationHistogram(TimeUnit.MICROSECONDS);
+  private final DurationHistogram leaseMargins = new DurationHistogram(TimeUnit.MILLISECONDS);
+
+  void leasesChecked(long checkNanos, int expiredLeaseCount) {
+    leaseCheckTimes.record(checkNanos);
+    expiredLeases.add(expiredLeaseCount);
+  }
+
+  void leaseRenewed(long marginNanos) {
+    leaseMargins.record(marginNanos);
+  }
+
+  @Override
+  public long getExpiredLeaseCount() {
+    return expiredLeases.sum();
+  }
+
+  @Override
+  public long getLeaseCheckCount() {
+    return leaseCheckTimes.getCount();
+  }
+
+  @Override
+  public double getLeaseCheckTimeMeanMicros() {
+    return leaseCheckTimes.getMean();
+  }
+
+  @Override
+  public long getLeaseCheckTimeMaximumMicros() {
+    return leaseCheckTimes.getMaximum();
+  }
+
+  @Override
+  public long getLeaseCheckTime99thPercentileMicros() {
+    return leaseCheckTimes.getPercentile(99);
+  }
+
+  @Override
+  public long[] getLeaseCheckTimeHistogram() {
+    return leaseCheckTimes.getBucketCounts();
+  }
+
+  @Override
+  public long getRenewalCount() {
+    return leaseMargins.getCount();
+  }
+
+  @Override
+  public long getLeaseMarginMinimumMillis() {
+    return leaseMargins.getMinimum();
+  }
+
+  @Override
+  public double getLeaseMarginMeanMillis() {
+    return leaseMargins.getMean();
+  }
+
+  @Override
+  public long getLeaseMargin1stPercentileMillis() {
+    return leaseMargins.getPercentile(1);
+  }
+
+  @Override
+  public long[] getLeaseMarginHistogram() {
+    return leaseMargins.getBucketCounts();
+  }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.lease.service.monitor;
+
+/**
+ * The statistics of the leases granted and expired by this server, exposed through JMX under the name
+ * org.terracotta.lease:type=LeaseMonitorStatistics.
+ * <p>
+ * The upper bound of bucket i of the histograms is 2^i, in the unit of the histogram, except for the last bucket which
+ * also counts all the longer durations. Percentiles are interpolated within the bucket holding them, between the
+ * shortest and the longest recorded durations.
+ */
+public interface LeaseMonitorStatisticsMBean {
+  /**
+   * @return the number of client connections closed because their lease expired
+   */
+  long getExpiredLeaseCount();
+
+  /**
+   * @return the number of times the lease monitor checked for expired leases
+   */
+  long getLeaseCheckCount();
+
+  double getLeaseCheckTimeMeanMicros();
+
+  long getLeaseCheckTimeMaximumMicros();
+
+  long getLeaseCheckTime99thPercentileMicros();
+
+  long[] getLeaseCheckTimeHistogram();
+
+  /**
+   * @return the number of leases that replaced a lease of the same client
+   */
+  long getRenewalCount();
+
+  /**
+   * @return the smallest time that was left on a lease when it was renewed, zero if a lease had already expired
+   */
+  long getLeaseMarginMinimumMillis();
+
+  double getLeaseMarginMeanMillis();
+
+  long getLeaseMargin1stPercentileMillis();
+
+  long[] getLeaseMarginHistogram();
+}
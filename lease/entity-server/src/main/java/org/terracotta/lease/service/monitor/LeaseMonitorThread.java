@@ -17,9 +17,11 @@ package org.terracotta.lease.service.monitor;
 
 import org.terracotta.lease.TimeSource;
 
+import java.util.concurrent.TimeUnit;
+
 /**
- * A thread that periodically triggers a check for expired leases. Interrupting the thread permanently stops the checks
- * and the thread dies.
+ * A thread that triggers a check for expired leases at the next lease deadline, and at least every 200ms. Interrupting
+ * the thread permanently stops the checks and the thread dies.
  */
 public class LeaseMonitorThread extends Thread {
   private static final long LEASE_CHECK_INTERVAL_MILLIS = 200L;
@@ -37,10 +39,12 @@ public class LeaseMonitorThread extends Thread {
   @Override
   public void run() {
     while (!Thread.interrupted()) {
-      leaseState.checkLeases();
+      long untilNextDeadline = leaseState.checkLeases();
+      // Rounded up, so that the next deadline has passed when the leases are checked again
+      long sleepMillis = Math.min(LEASE_CHECK_INTERVAL_MILLIS, TimeUnit.NANOSECONDS.toMillis(untilNextDeadline) + 1L);
 
       try {
-        timeSource.sleep(LEASE_CHECK_INTERVAL_MILLIS);
+        timeSource.sleep(sleepMillis);
       } catch (InterruptedException e) {
         Thread.currentThread().interrupt();
         return;
@@ -23,28 +23,54 @@ import org.terracotta.entity.StateDumpable;
 import org.terracotta.lease.TimeSource;
 import org.terracotta.lease.service.closer.ClientConnectionCloser;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 /**
  * The central component of the connection leasing code. This object holds the state of the leases for each client and
  * allows updates to that state in a thread-safe way.
+ * <p>
+ * Leases are checked in the order of their deadlines, so that a check only looks at the leases that may have expired.
  */
 public class LeaseState implements StateDumpable {
   private static Logger LOGGER = LoggerFactory.getLogger(LeaseState.class);
 
   private final TimeSource timeSource;
   private final ClientConnectionCloser clientConnectionCloser;
+  private final LeaseMonitorStatistics statistics;
   private final ConcurrentHashMap<ClientDescriptor, Lease> leases = new ConcurrentHashMap<>();
 
+  // The deadlines at which leases must be checked, at most one per client that is still current. Renewals do not
+  // touch them: when a deadline is due and the lease was renewed, the deadline is moved to the new expiry.
+  private final PriorityQueue<LeaseDeadline> deadlines = new PriorityQueue<>();
+  // guarded by deadlines
+  private final Map<ClientDescriptor, LeaseDeadline> scheduledDeadlines = new HashMap<>();
+
   public LeaseState(TimeSource timeSource, ClientConnectionCloser clientConnectionCloser) {
+    this(timeSource, clientConnectionCloser, new LeaseMonitorStatistics());
+  }
+
+  public LeaseState(TimeSource timeSource, ClientConnectionCloser clientConnectionCloser, LeaseMonitorStatistics statistics) {
     this.timeSource = timeSource;
     this.clientConnectionCloser = clientConnectionCloser;
+    this.statistics = statistics;
+  }
+
+  public LeaseMonitorStatistics getStatistics() {
+    return statistics;
   }
 
   public void disconnected(ClientDescriptor clientDescriptor) {
     leases.remove(clientDescriptor);
+    synchronized (deadlines) {
+      // Left in the queue, the deadline is discarded when due
+      scheduledDeadlines.remove(clientDescriptor);
+    }
   }
 
   public void reconnecting(ClientDescriptor clientDescriptor) {
@@ -59,12 +85,14 @@ public class LeaseState implements StateDumpable {
       throw new AssertionError("Got a reconnected event but the client does not have a ReconnectionLease");
     }
 
-    ValidLease newLease = createLease(leaseLength);
+    ValidLease newLease = createLease(timeSource.nanoTime(), leaseLength);
     leases.put(clientDescriptor, newLease);
+    leaseCreated(clientDescriptor, newLease);
   }
 
   public boolean acquireLease(ClientDescriptor clientDescriptor, long leaseLength) {
-    ValidLease newLease = createLease(leaseLength);
+    long now = timeSource.nanoTime();
+    ValidLease newLease = createLease(now, leaseLength);
 
     while (true) {
       Lease currentLease = leases.get(clientDescriptor);
@@ -72,6 +100,7 @@ public class LeaseState implements StateDumpable {
       if (currentLease == null) {
         Lease existingLease = leases.putIfAbsent(clientDescriptor, newLease);
         if (existingLease == null) {
+          leaseCreated(clientDescriptor, newLease);
           return true;
         }
       } else {
@@ -86,63 +115,117 @@ public class LeaseState implements StateDumpable {
 
         boolean replaced = leases.replace(clientDescriptor, currentLease, newLease);
         if (replaced) {
+          statistics.leaseRenewed(currentValidLease.getLeaseExpiry() - now);
           return true;
         }
       }
     }
   }
 
-  private ValidLease createLease(long leaseLength) {
-    long leaseExpiry = timeSource.nanoTime() + TimeUnit.MILLISECONDS.toNanos(leaseLength);
+  private ValidLease createLease(long now, long leaseLength) {
+    long leaseExpiry = now + TimeUnit.MILLISECONDS.toNanos(leaseLength);
     return new ValidLease(leaseExpiry);
   }
 
-  void checkLeases() {
+  /**
+   * Expires the leases that are due.
+   *
+   * @return the number of nanoseconds until the next lease deadline, or Long.MAX_VALUE if no lease can expire
+   */
+  long checkLeases() {
     LOGGER.debug("Checking leases");
     long now = timeSource.nanoTime();
+    List<ClientDescriptor> expiredClients = new ArrayList<>();
+    long untilNextDeadline;
+
+    synchronized (deadlines) {
+      while (!deadlines.isEmpty() && deadlines.peek().deadline - now < 0) {
+        LeaseDeadline due = deadlines.poll();
+        if (scheduledDeadlines.get(due.clientDescriptor) != due) {
+          continue; // Superseded by the deadline of a newer lease or the client disconnected
+        }
 
-    // The iterator from ConcurrentHashMap.iterator() is guaranteed not to throw a ConcurrentModificationException
-    // We rely on that guarantee here because we may modify the leases map inside the iteration.
-    for (ClientDescriptor clientDescriptor : leases.keySet()) {
-      checkLease(clientDescriptor, now);
+        ValidLease lease = checkLease(due.clientDescriptor, now, expiredClients);
+        if (lease == null) {
+          scheduledDeadlines.remove(due.clientDescriptor);
+        } else {
+          // The lease was renewed since this deadline was scheduled
+          scheduleDeadline(due.clientDescriptor, lease);
+        }
+      }
+
+      untilNextDeadline = deadlines.isEmpty() ? Long.MAX_VALUE : Math.max(0L, deadlines.peek().deadline - now);
     }
+    statistics.leasesChecked(timeSource.nanoTime() - now, expiredClients.size());
+
+    for (ClientDescriptor clientDescriptor : expiredClients) {
+      LOGGER.info("Closing connection to client: " + clientDescriptor + " due to lease expiry");
+      clientConnectionCloser.closeClientConnection(clientDescriptor);
+    }
+
+    return untilNextDeadline;
   }
 
-  private void checkLease(ClientDescriptor clientDescriptor, long now) {
+  /**
+   * @return the lease of the client if it is still valid, null if it does not need to be monitored anymore
+   */
+  private ValidLease checkLease(ClientDescriptor clientDescriptor, long now, List<ClientDescriptor> expiredClients) {
     while (true) {
       Lease lease = leases.get(clientDescriptor);
 
       if (lease == null) {
-        return; // Some other thread called checkLeases() and expired the lease
+        return null; // The client disconnected
       }
 
-      if (lease instanceof ExpiredLease) {
+      if (!(lease instanceof ValidLease)) {
         if (LOGGER.isTraceEnabled()) {
-          LOGGER.trace("Lease for client: " + clientDescriptor + " is an ExpiredLease");
+          LOGGER.trace("Lease for client: " + clientDescriptor + " is not a ValidLease: " + lease);
         }
-        return; // Some other thread is expiring this lease - leave it alone
+        return null; // Either expiring or reconnecting, in which case reconnected() schedules the next deadline
       }
 
       if (!lease.isExpired(now)) {
         if (LOGGER.isTraceEnabled()) {
           LOGGER.trace("Lease for client: " + clientDescriptor + " is still valid: " + lease);
         }
-        return; // The lease is still valid so no change needed
+        return (ValidLease) lease; // The lease is still valid so no change needed
       }
 
       Lease expiredLease = new ExpiredLease();
       boolean replaced = leases.replace(clientDescriptor, lease, expiredLease);
 
       if (replaced) {
-        LOGGER.info("Closing connection to client: " + clientDescriptor + " due to lease expiry");
-        clientConnectionCloser.closeClientConnection(clientDescriptor);
-        return;
+        expiredClients.add(clientDescriptor);
+        return null;
       }
 
       // Otherwise loop because another thread updated the lease whilst we looked at it
     }
   }
 
+  private void leaseCreated(ClientDescriptor clientDescriptor, ValidLease lease) {
+    synchronized (deadlines) {
+      LeaseDeadline scheduled = scheduledDeadlines.get(clientDescriptor);
+      if (scheduled == null || lease.expiresBefore(scheduled.deadline)) {
+        scheduleDeadline(clientDescriptor, lease);
+      }
+      // Otherwise the scheduled deadline comes first and will be moved to the expiry of this lease
+    }
+  }
+
+  // guarded by deadlines
+  private void scheduleDeadline(ClientDescriptor clientDescriptor, ValidLease lease) {
+    LeaseDeadline deadline = new LeaseDeadline(clientDescriptor, lease.getLeaseExpiry());
+    scheduledDeadlines.put(clientDescriptor, deadline);
+    deadlines.add(deadline);
+  }
+
+  int getScheduledDeadlineCount() {
+    synchronized (deadlines) {
+      return deadlines.size();
+    }
+  }
+
   @Override
   public void addStateTo(StateDumpCollector stateDumpCollector) {
     for (Map.Entry<ClientDescriptor, Lease> entry : leases.entrySet()) {
@@ -150,4 +233,19 @@ public class LeaseState implements StateDumpable {
       stateDumpCollector.addState(entry.getKey().toString(), leaseState);
     }
   }
+
+  private static class LeaseDeadline implements Comparable<LeaseDeadline> {
+    private final ClientDescriptor clientDescriptor;
+    private final long deadline;
+
+    LeaseDeadline(ClientDescriptor clientDescriptor, long deadline) {
+      this.clientDescriptor = clientDescriptor;
+      this.deadline = deadline;
+    }
+
+    @Override
+    public int compareTo(LeaseDeadline o) {
+      return Long.signum(deadline - o.deadline);
+    }
+  }
 }
@@ -36,7 +36,15 @@ class ValidLease implements Lease {
   }
 
   boolean expiresBefore(ValidLease newLease) {
-    return leaseExpiry - newLease.leaseExpiry < 0;
+    return expiresBefore(newLease.leaseExpiry);
+  }
+
+  boolean expiresBefore(long time) {
+    return leaseExpiry - time < 0;
+  }
+
+  long getLeaseExpiry() {
+    return leaseExpiry;
   }
 
   @Override
@@ -28,8 +28,14 @@ import org.terracotta.entity.IEntityMessenger;
 import org.terracotta.lease.service.LeaseResult;
 import org.terracotta.lease.service.LeaseService;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.UUID;
+
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
@@ -60,6 +66,12 @@ public class ActiveLeaseAcquirerTest {
   @Mock
   private ActiveInvokeContext serverContext;
 
+  @Mock
+  private ClientDescriptor otherClientDescriptor;
+
+  @Mock
+  private ActiveInvokeContext otherContext;
+
   @Mock
   private LeaseResult leaseResult;
 
@@ -154,4 +166,102 @@ public class ActiveLeaseAcquirerTest {
 
     assertFalse(response.isConnectionGood());
   }
+
+  @Test
+  public void registersConnectionsForBatchedRenewals() throws Exception {
+    when(leaseService.acquireLease(clientDescriptor)).thenReturn(LeaseResult.leaseGranted(300L));
+
+    ActiveLeaseAcquirer leaseAcquirer = new ActiveLeaseAcquirer(leaseService, clientCommunicator, entityMessenger);
+    LeaseRequestResult response = (LeaseRequestResult) leaseAcquirer.invokeActive(context, new LeaseRequest(0));
+    assertNull(response.getBatchServerId());
+
+    response = (LeaseRequestResult) leaseAcquirer.invokeActive(context, new LeaseRequest(0, UUID.randomUUID(), UUID.randomUUID()));
+    assertNotNull(response.getBatchServerId());
+    assertEquals(300L, response.getLeaseLength());
+  }
+
+  @Test
+  public void renewsLeasesOfRegisteredConnectionsOfTheSameProcess() throws Exception {
+    UUID processId = UUID.randomUUID();
+    UUID connectionId = UUID.randomUUID();
+    UUID otherConnectionId = UUID.randomUUID();
+    when(otherContext.getClientDescriptor()).thenReturn(otherClientDescriptor);
+    when(leaseService.acquireLease(clientDescriptor)).thenReturn(LeaseResult.leaseGranted(300L));
+    when(leaseService.acquireLease(otherClientDescriptor)).thenReturn(LeaseResult.leaseGranted(300L));
+    when(leaseService.acquireLeases(Collections.singletonList(otherClientDescriptor))).thenReturn(Collections.singletonList(LeaseResult.leaseGranted(300L)));
+
+    ActiveLeaseAcquirer leaseAcquirer = new ActiveLeaseAcquirer(leaseService, clientCommunicator, entityMessenger);
+    leaseAcquirer.invokeActive(otherContext, new LeaseRequest(0, processId, otherConnectionId));
+
+    BatchedLeaseRequest request = new BatchedLeaseRequest(0, processId, connectionId, Arrays.asList(
+        new BatchedLeaseRequest.Renewal(otherConnectionId, 0),
+        new BatchedLeaseRequest.Renewal(UUID.randomUUID(), 0)));
+    BatchedLeaseRequestResult response = (BatchedLeaseRequestResult) leaseAcquirer.invokeActive(context, request);
+
+    assertEquals(300L, response.getLeaseRequestResult().getLeaseLength());
+    assertNotNull(response.getLeaseRequestResult().getBatchServerId());
+    assertEquals(2, response.getRenewalResults().size());
+    assertEquals(300L, response.getRenewalResults().get(0).getLeaseLength());
+    assertNull(response.getRenewalResults().get(1));
+  }
+
+  @Test
+  public void renewalsWithAnotherSequenceNumberAreOldConnections() throws Exception {
+    UUID processId = UUID.randomUUID();
+    UUID otherConnectionId = UUID.randomUUID();
+    when(otherContext.getClientDescriptor()).thenReturn(otherClientDescriptor);
+    when(leaseService.acquireLease(clientDescriptor)).thenReturn(LeaseResult.leaseGranted(300L));
+    when(leaseService.acquireLease(otherClientDescriptor)).thenReturn(LeaseResult.leaseGranted(300L));
+    when(leaseService.acquireLeases(Collections.emptyList())).thenReturn(Collections.emptyList());
+
+    ActiveLeaseAcquirer leaseAcquirer = new ActiveLeaseAcquirer(leaseService, clientCommunicator, entityMessenger);
+    leaseAcquirer.invokeActive(otherContext, new LeaseRequest(0, processId, otherConnectionId));
+
+    // a sequence number ahead of the connection's one is not trusted, and does not trip the assertion of its own requests
+    BatchedLeaseRequest request = new BatchedLeaseRequest(0, processId, UUID.randomUUID(), Arrays.asList(
+        new BatchedLeaseRequest.Renewal(otherConnectionId, 1),
+        new BatchedLeaseRequest.Renewal(otherConnectionId, -1)));
+    BatchedLeaseRequestResult response = (BatchedLeaseRequestResult) leaseAcquirer.invokeActive(context, request);
+
+    assertFalse(response.getRenewalResults().get(0).isConnectionGood());
+    assertFalse(response.getRenewalResults().get(1).isConnectionGood());
+  }
+
+  @Test
+  public void doesNotRenewLeasesOfOtherProcesses() throws Exception {
+    UUID otherConnectionId = UUID.randomUUID();
+    when(otherContext.getClientDescriptor()).thenReturn(otherClientDescriptor);
+    when(leaseService.acquireLease(clientDescriptor)).thenReturn(LeaseResult.leaseGranted(300L));
+    when(leaseService.acquireLease(otherClientDescriptor)).thenReturn(LeaseResult.leaseGranted(300L));
+    when(leaseService.acquireLeases(Collections.emptyList())).thenReturn(Collections.emptyList());
+
+    ActiveLeaseAcquirer leaseAcquirer = new ActiveLeaseAcquirer(leaseService, clientCommunicator, entityMessenger);
+    leaseAcquirer.invokeActive(otherContext, new LeaseRequest(0, UUID.randomUUID(), otherConnectionId));
+
+    BatchedLeaseRequest request = new BatchedLeaseRequest(0, UUID.randomUUID(), UUID.randomUUID(),
+        Collections.singletonList(new BatchedLeaseRequest.Renewal(otherConnectionId, 0)));
+    BatchedLeaseRequestResult response = (BatchedLeaseRequestResult) leaseAcquirer.invokeActive(context, request);
+
+    assertNull(response.getRenewalResults().get(0));
+  }
+
+  @Test
+  public void doesNotRenewLeasesOfDisconnectedConnections() throws Exception {
+    UUID processId = UUID.randomUUID();
+    UUID otherConnectionId = UUID.randomUUID();
+    when(otherContext.getClientDescriptor()).thenReturn(otherClientDescriptor);
+    when(leaseService.acquireLease(clientDescriptor)).thenReturn(LeaseResult.leaseGranted(300L));
+    when(leaseService.acquireLease(otherClientDescriptor)).thenReturn(LeaseResult.leaseGranted(300L));
+    when(leaseService.acquireLeases(Collections.emptyList())).thenReturn(Collections.emptyList());
+
+    ActiveLeaseAcquirer leaseAcquirer = new ActiveLeaseAcquirer(leaseService, clientCommunicator, entityMessenger);
+    leaseAcquirer.invokeActive(otherContext, new LeaseRequest(0, processId, otherConnectionId));
+    leaseAcquirer.disconnected(otherClientDescriptor);
+
+    BatchedLeaseRequest request = new BatchedLeaseRequest(0, processId, UUID.randomUUID(),
+        Collections.singletonList(new BatchedLeaseRequest.Renewal(otherConnectionId, 0)));
+    BatchedLeaseRequestResult response = (BatchedLeaseRequestResult) leaseAcquirer.invokeActive(context, request);
+
+    assertNull(response.getRenewalResults().get(0));
+  }
 }
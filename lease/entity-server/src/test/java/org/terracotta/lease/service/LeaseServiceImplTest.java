@@ -20,6 +20,9 @@ import org.terracotta.entity.ClientDescriptor;
 import org.terracotta.lease.service.config.LeaseConfiguration;
 import org.terracotta.lease.service.monitor.LeaseState;
 
+import java.util.Arrays;
+import java.util.List;
+
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
@@ -55,6 +58,24 @@ public class LeaseServiceImplTest {
     assertFalse(leaseResult.isLeaseGranted());
   }
 
+  @Test
+  public void acquireLeases() {
+    LeaseState leaseState = mock(LeaseState.class);
+    ClientDescriptor clientDescriptor1 = mock(ClientDescriptor.class);
+    ClientDescriptor clientDescriptor2 = mock(ClientDescriptor.class);
+
+    when(leaseState.acquireLease(clientDescriptor1, 1000L)).thenReturn(true);
+    when(leaseState.acquireLease(clientDescriptor2, 1000L)).thenReturn(false);
+
+    LeaseServiceImpl leaseService = new LeaseServiceImpl(new LeaseConfiguration(1000), leaseState);
+    List<LeaseResult> leaseResults = leaseService.acquireLeases(Arrays.asList(clientDescriptor1, clientDescriptor2));
+
+    assertEquals(2, leaseResults.size());
+    assertTrue(leaseResults.get(0).isLeaseGranted());
+    assertEquals(1000L, leaseResults.get(0).getLeaseLength());
+    assertFalse(leaseResults.get(1).isLeaseGranted());
+  }
+
   @Test
   public void delegatesDisconnected() {
     LeaseState leaseState = mock(LeaseState.class);
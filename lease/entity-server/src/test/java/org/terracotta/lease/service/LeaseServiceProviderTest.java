@@ -17,6 +17,7 @@ package org.terracotta.lease.service;
 
 import com.tc.classloader.BuiltinService;
 import org.junit.Test;
+import org.terracotta.entity.BasicServiceConfiguration;
 import org.terracotta.entity.ClientDescriptor;
 import org.terracotta.entity.PlatformConfiguration;
 import org.terracotta.entity.ServiceConfiguration;
@@ -26,12 +27,19 @@ import org.terracotta.lease.TestTimeSource;
 import org.terracotta.lease.TimeSourceProvider;
 import org.terracotta.lease.service.closer.ClientConnectionCloser;
 import org.terracotta.lease.service.config.LeaseConfiguration;
+import org.terracotta.lease.service.monitor.LeaseMonitorStatistics;
+import org.terracotta.management.service.monitoring.ManageableServerComponent;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
 
 import java.util.Collection;
 
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
@@ -45,7 +53,7 @@ public class LeaseServiceProviderTest {
   public void serviceTypes() {
     LeaseServiceProvider serviceProvider = new LeaseServiceProvider();
     Collection<Class<?>> serviceTypes = serviceProvider.getProvidedServiceTypes();
-    assertEquals(2, serviceTypes.size());
+    assertEquals(3, serviceTypes.size());
     assertEquals(LeaseService.class, serviceTypes.iterator().next());
   }
 
@@ -87,6 +95,28 @@ public class LeaseServiceProviderTest {
     assertNotNull(LeaseServiceProvider.class.getAnnotation(BuiltinService.class));
   }
 
+  @Test
+  public void exposesStatistics() throws Exception {
+    MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+    ObjectName mBeanName = new ObjectName(LeaseMonitorStatistics.MBEAN_NAME);
+    if (mBeanServer.isRegistered(mBeanName)) {
+      // Left by a provider of another test that was not closed
+      mBeanServer.unregisterMBean(mBeanName);
+    }
+
+    TimeSourceProvider.setTimeSource(new TestTimeSource());
+    LeaseServiceProvider serviceProvider = new LeaseServiceProvider();
+    serviceProvider.initialize(new LeaseConfiguration(1500L), mock(PlatformConfiguration.class));
+    try {
+      ManageableServerComponent manageableServerComponent = serviceProvider.getService(1L, new BasicServiceConfiguration<>(ManageableServerComponent.class));
+      assertNotNull(manageableServerComponent);
+      assertEquals(0L, mBeanServer.getAttribute(mBeanName, "ExpiredLeaseCount"));
+    } finally {
+      serviceProvider.close();
+    }
+    assertFalse(mBeanServer.isRegistered(mBeanName));
+  }
+
   @Test
   public void testStateDump() throws Exception {
     TestTimeSource timeSource = spy(new TestTimeSource());
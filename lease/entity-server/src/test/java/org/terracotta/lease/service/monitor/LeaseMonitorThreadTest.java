@@ -21,6 +21,8 @@ import org.mockito.Spy;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.terracotta.lease.TestTimeSource;
 
+import java.util.concurrent.TimeUnit;
+
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
@@ -28,6 +30,7 @@ import static org.mockito.Mockito.atLeast;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
 public class LeaseMonitorThreadTest {
@@ -37,6 +40,7 @@ public class LeaseMonitorThreadTest {
   @Test
   public void callsCheckLeasesPeriodically() throws Exception {
     LeaseState leaseState = mock(LeaseState.class);
+    when(leaseState.checkLeases()).thenReturn(Long.MAX_VALUE);
     LeaseMonitorThread leaseMonitorThread = new LeaseMonitorThread(timeSource, leaseState);
     assertEquals("LeaseMonitorThread", leaseMonitorThread.getName());
     assertTrue(leaseMonitorThread.isDaemon());
@@ -54,4 +58,18 @@ public class LeaseMonitorThreadTest {
     leaseMonitorThread.join(10_000L);
     assertFalse(leaseMonitorThread.isAlive());
   }
+
+  @Test
+  public void sleepsUntilTheNextLeaseDeadline() throws Exception {
+    LeaseState leaseState = mock(LeaseState.class);
+    when(leaseState.checkLeases()).thenReturn(TimeUnit.MICROSECONDS.toNanos(49_500L));
+    LeaseMonitorThread leaseMonitorThread = new LeaseMonitorThread(timeSource, leaseState);
+    leaseMonitorThread.start();
+
+    verify(timeSource, timeout(10_000L).times(1)).sleep(50L);
+
+    leaseMonitorThread.interrupt();
+    leaseMonitorThread.join(10_000L);
+    assertFalse(leaseMonitorThread.isAlive());
+  }
 }
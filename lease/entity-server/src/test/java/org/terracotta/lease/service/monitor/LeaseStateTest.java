@@ -28,6 +28,7 @@ import org.terracotta.lease.service.closer.ClientConnectionCloser;
 import java.util.concurrent.BrokenBarrierException;
 import java.util.concurrent.CyclicBarrier;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -140,6 +141,76 @@ public class LeaseStateTest {
     verify(clientConnectionCloser).closeClientConnection(clientDescriptor1);
   }
 
+  @Test
+  public void checkingTheLeasesGivesTheTimeUntilTheNextDeadline() {
+    assertThat(leaseState.checkLeases(), is(Long.MAX_VALUE));
+
+    assertTrue(leaseState.acquireLease(clientDescriptor1, 30L));
+    assertTrue(leaseState.acquireLease(clientDescriptor2, 10L));
+    assertThat(leaseState.checkLeases(), is(TimeUnit.MILLISECONDS.toNanos(10L)));
+
+    timeSource.tickMillis(5L);
+    assertThat(leaseState.checkLeases(), is(TimeUnit.MILLISECONDS.toNanos(5L)));
+
+    timeSource.tickMillis(10L);
+    assertThat(leaseState.checkLeases(), is(TimeUnit.MILLISECONDS.toNanos(15L)));
+    verify(clientConnectionCloser).closeClientConnection(clientDescriptor2);
+    verifyNoMoreInteractions(clientConnectionCloser);
+  }
+
+  @Test
+  public void renewingALeaseDoesNotAddADeadline() {
+    assertTrue(leaseState.acquireLease(clientDescriptor1, 10L));
+    for (int i = 0; i < 10; i++) {
+      timeSource.tickMillis(5L);
+      assertTrue(leaseState.acquireLease(clientDescriptor1, 10L));
+    }
+    assertThat(leaseState.getScheduledDeadlineCount(), is(1));
+
+    leaseState.checkLeases();
+    verifyNoMoreInteractions(clientConnectionCloser);
+    assertThat(leaseState.getScheduledDeadlineCount(), is(1));
+
+    timeSource.tickMillis(11L);
+    leaseState.checkLeases();
+    verify(clientConnectionCloser).closeClientConnection(clientDescriptor1);
+    assertThat(leaseState.getScheduledDeadlineCount(), is(0));
+  }
+
+  @Test
+  public void leaseAcquiredAfterDisconnectionIsMonitored() {
+    assertTrue(leaseState.acquireLease(clientDescriptor1, 10L));
+    leaseState.disconnected(clientDescriptor1);
+    assertTrue(leaseState.acquireLease(clientDescriptor1, 50L));
+
+    timeSource.tickMillis(20L);
+    leaseState.checkLeases();
+    verifyNoMoreInteractions(clientConnectionCloser);
+    assertThat(leaseState.getScheduledDeadlineCount(), is(1));
+
+    timeSource.tickMillis(40L);
+    leaseState.checkLeases();
+    verify(clientConnectionCloser).closeClientConnection(clientDescriptor1);
+  }
+
+  @Test
+  public void recordsStatistics() {
+    LeaseMonitorStatistics statistics = leaseState.getStatistics();
+    assertTrue(leaseState.acquireLease(clientDescriptor1, 10L));
+    assertTrue(leaseState.acquireLease(clientDescriptor2, 100L));
+
+    timeSource.tickMillis(4L);
+    assertTrue(leaseState.acquireLease(clientDescriptor1, 10L));
+    assertThat(statistics.getRenewalCount(), is(1L));
+    assertThat(statistics.getLeaseMarginMinimumMillis(), is(6L));
+
+    timeSource.tickMillis(11L);
+    leaseState.checkLeases();
+    leaseState.checkLeases();
+    assertThat(statistics.getLeaseCheckCount(), is(2L));
+    assertThat(statistics.getExpiredLeaseCount(), is(1L));
+  }
+
   @Test
   public void testStateDump() {
     MockStateDumpCollector stateDumper = new MockStateDumpCollector();
@@ -39,6 +39,7 @@ public abstract class AbstractManageableNode<P extends Contextual> extends Abstr
   }
 
   public final void setManagementRegistry(ManagementRegistry managementRegistry) {
+    checkWritable();
     this.managementRegistry = managementRegistry;
   }
 
@@ -51,6 +51,27 @@ public abstract class AbstractNode<P extends Contextual> implements Node {
     return parent;
   }
 
+  /**
+   * @return true if this node belongs to a read-only topology (see {@link Cluster#readOnlyCopy()})
+   */
+  final boolean isReadOnly() {
+    P parent = this.parent;
+    if (parent instanceof Cluster) {
+      return ((Cluster) parent).isReadOnly();
+    }
+    return parent instanceof AbstractNode && ((AbstractNode<?>) parent).isReadOnly();
+  }
+
+  final void checkWritable() {
+    if (isReadOnly()) {
+      throw new UnsupportedOperationException("Read-only topology: " + getId());
+    }
+  }
+
+  final <K, V> Map<K, V> view(Map<K, V> map) {
+    return isReadOnly() ? Collections.unmodifiableMap(map) : map;
+  }
+
   @Override
   public final String getId() {
     return id;
@@ -52,7 +52,7 @@ public final class Client extends AbstractManageableNode<Cluster> {
   }
 
   public Collection<String> getTags() {
-    return tags;
+    return isReadOnly() ? Collections.unmodifiableCollection(tags) : tags;
   }
 
   public Client addTag(String tag) {
@@ -60,11 +60,13 @@ public final class Client extends AbstractManageableNode<Cluster> {
   }
 
   public Client addTags(String... tags) {
+    checkWritable();
     Collections.addAll(this.tags, tags);
     return this;
   }
 
   public Client setTags(String[] tags) {
+    checkWritable();
     this.tags.clear();
     Collections.addAll(this.tags, tags);
     return this;
@@ -83,6 +85,7 @@ public final class Client extends AbstractManageableNode<Cluster> {
   }
 
   public Client addProperty(String key, String value) {
+    checkWritable();
     properties.put(key, value);
     return this;
   }
@@ -96,7 +99,7 @@ public final class Client extends AbstractManageableNode<Cluster> {
   }
   
   public Map<String, String> getProperties() {
-    return properties;
+    return view(properties);
   }
 
   public String getHostName() {
@@ -104,6 +107,7 @@ public final class Client extends AbstractManageableNode<Cluster> {
   }
 
   public Client setHostName(String hostName) {
+    checkWritable();
     this.hostName = hostName;
     return this;
   }
@@ -129,7 +133,7 @@ public final class Client extends AbstractManageableNode<Cluster> {
   public String getName() {return clientIdentifier.getName();}
 
   public Map<String, Connection> getConnections() {
-    return connections;
+    return view(connections);
   }
 
   public int getConnectionCount() {
@@ -137,6 +141,7 @@ public final class Client extends AbstractManageableNode<Cluster> {
   }
 
   public boolean addConnection(Connection connection) {
+    checkWritable();
     for (Connection c : connections.values()) {
       if (c.getClientEndpoint().equals(connection.getClientEndpoint())) {
         return false;
@@ -176,6 +181,7 @@ public final class Client extends AbstractManageableNode<Cluster> {
   }
 
   public Optional<Connection> removeConnection(String id) {
+    checkWritable();
     Optional<Connection> connection = getConnection(id);
     connection.ifPresent(c -> {
       if (connections.remove(id, c)) {
@@ -272,6 +278,16 @@ public final class Client extends AbstractManageableNode<Cluster> {
     return map;
   }
 
+  Client copy() {
+    Client copy = new Client(clientIdentifier);
+    copy.tags.addAll(tags);
+    copy.hostName = hostName;
+    copy.properties.putAll(properties);
+    getManagementRegistry().ifPresent(copy::setManagementRegistry);
+    connections.values().forEach(connection -> copy.addConnection(connection.copy()));
+    return copy;
+  }
+
   public static Client create(String clientIdentifier) {
     return create(ClientIdentifier.valueOf(clientIdentifier));
   }
@@ -18,6 +18,7 @@ package org.terracotta.management.model.cluster;
 import org.terracotta.management.model.context.Context;
 import org.terracotta.management.model.context.Contextual;
 
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
@@ -39,9 +40,45 @@ public final class Cluster implements Contextual {
   private final Map<String, Client> clients = new TreeMap<>();
   private final Map<String, Stripe> stripes = new TreeMap<>();
 
+  // not serialized: a deserialized topology can always be modified
+  private transient boolean readOnly;
+
   private Cluster() {
   }
 
+  /**
+   * @return true if this topology cannot be modified
+   */
+  public boolean isReadOnly() {
+    return readOnly;
+  }
+
+  /**
+   * @return a deep copy of this topology, which can be modified. Management registries are shared with this topology.
+   */
+  public Cluster copy() {
+    Cluster copy = new Cluster();
+    stripes.values().forEach(stripe -> copy.addStripe(stripe.copy()));
+    clients.values().forEach(client -> copy.addClient(client.copy()));
+    return copy;
+  }
+
+  /**
+   * @return a deep copy of this topology which cannot be modified: its mutators throw {@link UnsupportedOperationException}
+   * and its maps are unmodifiable. Management registries are shared with this topology.
+   */
+  public Cluster readOnlyCopy() {
+    Cluster copy = copy();
+    copy.readOnly = true;
+    return copy;
+  }
+
+  private void checkWritable() {
+    if (readOnly) {
+      throw new UnsupportedOperationException("Read-only topology");
+    }
+  }
+
   public boolean isEmpty() {
     return stripes.isEmpty();
   }
@@ -55,7 +92,7 @@ public final class Cluster implements Contextual {
   }
 
   public Map<String, Client> getClients() {
-    return clients;
+    return readOnly ? Collections.unmodifiableMap(clients) : clients;
   }
 
   public int getClientCount() {
@@ -63,7 +100,7 @@ public final class Cluster implements Contextual {
   }
 
   public Map<String, Stripe> getStripes() {
-    return stripes;
+    return readOnly ? Collections.unmodifiableMap(stripes) : stripes;
   }
 
   public int getStripeCount() {
@@ -78,11 +115,8 @@ public final class Cluster implements Contextual {
   }
 
   public boolean addClient(Client client) {
-    for (Client c : clients.values()) {
-      if (c.getClientIdentifier().equals(client.getClientIdentifier())) {
-        return false;
-      }
-    }
+    checkWritable();
+    // client ids are derived from their identifier, so the same client cannot be added twice
     if (clients.putIfAbsent(client.getId(), client) != null) {
       return false;
     } else {
@@ -96,7 +130,7 @@ public final class Cluster implements Contextual {
   }
 
   public Optional<Client> getClient(ClientIdentifier clientIdentifier) {
-    return clientStream().filter(client -> client.getClientIdentifier().equals(clientIdentifier)).findAny();
+    return getClient(clientIdentifier.getClientId()).filter(client -> client.getClientIdentifier().equals(clientIdentifier));
   }
 
   public Optional<Client> getClient(String id) {
@@ -104,6 +138,7 @@ public final class Cluster implements Contextual {
   }
 
   public Optional<Client> removeClient(String id) {
+    checkWritable();
     Optional<Client> client = getClient(id);
     client.ifPresent(c -> {
       if (clients.remove(id, c)) {
@@ -114,6 +149,7 @@ public final class Cluster implements Contextual {
   }
 
   public boolean addStripe(Stripe stripe) {
+    checkWritable();
     if (stripes.putIfAbsent(stripe.getId(), stripe) != null) {
       return false;
     } else {
@@ -131,6 +167,7 @@ public final class Cluster implements Contextual {
   }
 
   public Optional<Stripe> removeStripe(String id) {
+    checkWritable();
     Optional<Stripe> stripe = getStripe(id);
     stripe.ifPresent(s -> {
       if (stripes.remove(id, s)) {
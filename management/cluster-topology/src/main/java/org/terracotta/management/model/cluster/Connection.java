@@ -47,6 +47,15 @@ public final class Connection extends AbstractNode<Client> {
     this.stripeId = server.getStripe().getId();
   }
 
+  private Connection(Connection connection) {
+    super(connection.getId());
+    this.logicalConnectionUid = connection.logicalConnectionUid;
+    this.clientEndpoint = connection.clientEndpoint;
+    this.serverId = connection.serverId;
+    this.stripeId = connection.stripeId;
+    this.serverEntityIds.putAll(connection.serverEntityIds);
+  }
+
   public String getLogicalConnectionUid() {
     return logicalConnectionUid;
   }
@@ -141,7 +150,7 @@ public final class Connection extends AbstractNode<Client> {
     map.put("clientEndpoint", clientEndpoint.toMap());
     map.put("stripeId", this.stripeId);
     map.put("serverId", this.serverId);
-    map.put("serverEntityIds", this.serverEntityIds);
+    map.put("serverEntityIds", view(this.serverEntityIds));
     return map;
   }
 
@@ -150,6 +159,7 @@ public final class Connection extends AbstractNode<Client> {
   }
 
   public boolean unfetchServerEntity(ServerEntityIdentifier serverEntityIdentifier) {
+    checkWritable();
     String id = serverEntityIdentifier.getId();
     Long count = serverEntityIds.get(id);
     if (count == null) {
@@ -172,6 +182,7 @@ public final class Connection extends AbstractNode<Client> {
   }
 
   public boolean fetchServerEntity(ServerEntityIdentifier serverEntityIdentifier) {
+    checkWritable();
     String id = serverEntityIdentifier.getId();
     Long count = serverEntityIds.get(id);
     serverEntityIds.put(id, count == null || count <= 0 ? 1L : count + 1);
@@ -198,6 +209,10 @@ public final class Connection extends AbstractNode<Client> {
     return getServer().isPresent();
   }
 
+  Connection copy() {
+    return new Connection(this);
+  }
+
   public static Connection create(String logicalConnectionUid, Server server, Endpoint clientEndpoint) {
     Objects.requireNonNull(logicalConnectionUid);
     Objects.requireNonNull(server);
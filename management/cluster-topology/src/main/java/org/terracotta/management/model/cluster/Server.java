@@ -82,6 +82,7 @@ public final class Server extends AbstractNode<Stripe> {
   }
 
   public Server setBuildId(String buildId) {
+    checkWritable();
     this.buildId = buildId;
     return this;
   }
@@ -103,11 +104,13 @@ public final class Server extends AbstractNode<Stripe> {
   }
 
   public Server setBindAddress(String bindAddress) {
+    checkWritable();
     this.bindAddress = bindAddress;
     return this;
   }
 
   public Server setBindPort(int bindPort) {
+    checkWritable();
     this.bindPort = bindPort;
     return this;
   }
@@ -117,11 +120,13 @@ public final class Server extends AbstractNode<Stripe> {
   }
 
   public Server setGroupPort(int groupPort) {
+    checkWritable();
     this.groupPort = groupPort;
     return this;
   }
 
   public Server setHostName(String hostName) {
+    checkWritable();
     this.hostName = hostName;
     return this;
   }
@@ -131,6 +136,7 @@ public final class Server extends AbstractNode<Stripe> {
   }
 
   public Server setHostAddress(String hostAddress) {
+    checkWritable();
     this.hostAddress = hostAddress;
     return this;
   }
@@ -140,6 +146,7 @@ public final class Server extends AbstractNode<Stripe> {
   }
 
   public Server setStartTime(long startTime) {
+    checkWritable();
     this.startTime = startTime;
     return this;
   }
@@ -149,6 +156,7 @@ public final class Server extends AbstractNode<Stripe> {
   }
 
   public Server setUpTimeSec(long upTimeSec) {
+    checkWritable();
     this.upTimeSec = upTimeSec;
     return this;
   }
@@ -158,6 +166,7 @@ public final class Server extends AbstractNode<Stripe> {
   }
 
   public Server computeUpTime(Clock clock) {
+    checkWritable();
     if (startTime > 0) {
       upTimeSec = (clock.millis() - startTime) / 1000;
     } else {
@@ -167,6 +176,7 @@ public final class Server extends AbstractNode<Stripe> {
   }
 
   public Server setState(State state) {
+    checkWritable();
     this.state = Objects.requireNonNull(state);
     return this;
   }
@@ -176,6 +186,7 @@ public final class Server extends AbstractNode<Stripe> {
   }
 
   public Server setVersion(String version) {
+    checkWritable();
     this.version = version;
     return this;
   }
@@ -185,12 +196,13 @@ public final class Server extends AbstractNode<Stripe> {
   }
 
   public Server setActivateTime(long activateTime) {
+    checkWritable();
     this.activateTime = activateTime > 0 ? activateTime : 0;
     return this;
   }
 
   public final Map<String, ServerEntity> getServerEntities() {
-    return serverEntities;
+    return view(serverEntities);
   }
 
   public final int getServerEntityCount() {
@@ -202,6 +214,7 @@ public final class Server extends AbstractNode<Stripe> {
   }
 
   public final boolean addServerEntity(ServerEntity serverEntity) {
+    checkWritable();
     // ServerEntityId are unique per their ID but also per their combination of (type + name)
     for (ServerEntity m : serverEntities.values()) {
       if (m.is(serverEntity.getType(), serverEntity.getName())) {
@@ -255,6 +268,7 @@ public final class Server extends AbstractNode<Stripe> {
   }
 
   public final Optional<ServerEntity> removeServerEntity(String id) {
+    checkWritable();
     Optional<ServerEntity> serverEntity = getServerEntity(id);
     serverEntity.ifPresent(m -> {
       if (serverEntities.remove(id, m)) {
@@ -336,6 +350,23 @@ public final class Server extends AbstractNode<Stripe> {
     return map;
   }
 
+  Server copy() {
+    Server copy = new Server(getId(), serverName);
+    copy.hostName = hostName;
+    copy.hostAddress = hostAddress;
+    copy.bindAddress = bindAddress;
+    copy.bindPort = bindPort;
+    copy.groupPort = groupPort;
+    copy.state = state;
+    copy.version = version;
+    copy.buildId = buildId;
+    copy.startTime = startTime;
+    copy.upTimeSec = upTimeSec;
+    copy.activateTime = activateTime;
+    serverEntities.values().forEach(serverEntity -> copy.addServerEntity(serverEntity.copy()));
+    return copy;
+  }
+
   public static Server create(String serverName) {
     return new Server(serverName, serverName);
   }
@@ -45,6 +45,7 @@ public final class ServerEntity extends AbstractManageableNode<Server> {
   }
 
   public ServerEntity setConsumerId(long consumerId) {
+    checkWritable();
     this.consumerId = consumerId;
     return this;
   }
@@ -131,6 +132,13 @@ public final class ServerEntity extends AbstractManageableNode<Server> {
     return map;
   }
 
+  ServerEntity copy() {
+    ServerEntity copy = new ServerEntity(identifier);
+    copy.consumerId = consumerId;
+    getManagementRegistry().ifPresent(copy::setManagementRegistry);
+    return copy;
+  }
+
   public static ServerEntity create(String serverEntityName, String type) {
     return create(ServerEntityIdentifier.create(serverEntityName, type));
   }
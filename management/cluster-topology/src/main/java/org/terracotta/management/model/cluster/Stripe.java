@@ -48,7 +48,7 @@ public final class Stripe extends AbstractNode<Cluster> {
   }
 
   public Map<String, Server> getServers() {
-    return servers;
+    return view(servers);
   }
 
   public Stream<Server> serverStream() {
@@ -64,6 +64,7 @@ public final class Stripe extends AbstractNode<Cluster> {
   }
 
   public boolean addServer(Server server) {
+    checkWritable();
     if (servers.putIfAbsent(server.getId(), server) != null) {
       return false;
     } else {
@@ -97,6 +98,7 @@ public final class Stripe extends AbstractNode<Cluster> {
   }
 
   public Optional<Server> removeServerByName(String serverName) {
+    checkWritable();
     Optional<Server> server = getServerByName(serverName);
     server.ifPresent(s -> {
       if (servers.remove(s.getId(), s)) {
@@ -107,6 +109,7 @@ public final class Stripe extends AbstractNode<Cluster> {
   }
 
   public Optional<Server> removeServer(String id) {
+    checkWritable();
     Optional<Server> server = getServer(id);
     server.ifPresent(s -> {
       if (servers.remove(id, s)) {
@@ -175,6 +178,12 @@ public final class Stripe extends AbstractNode<Cluster> {
     return map;
   }
 
+  Stripe copy() {
+    Stripe copy = new Stripe(getName());
+    servers.values().forEach(server -> copy.addServer(server.copy()));
+    return copy;
+  }
+
   public static Stripe create(String name) {
     return new Stripe(name);
   }
@@ -40,6 +40,7 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * @author Mathieu Carbou
@@ -76,6 +77,45 @@ public class ClusterTest extends AbstractTest {
     assertSame(c1_copy, c1_copy.getStripe("stripe-1").get().getServerByName("server-1").get().getStripe().getCluster());
   }
 
+  @Test
+  public void test_copy() {
+    Cluster copy = cluster1.copy();
+    assertEquals(cluster1, copy);
+    assertFalse(copy.isReadOnly());
+
+    // ensure parent ref is the same ref as another node within the copy
+    assertSame(copy.getStripe("stripe-1").get(), copy.getStripe("stripe-1").get().getServerByName("server-1").get().getStripe());
+    assertSame(copy, copy.getStripe("stripe-1").get().getServerByName("server-1").get().getStripe().getCluster());
+    assertSame(copy, copy.getClient("12345@127.0.0.1:ehcache:uid").get().connectionStream().findAny().get().getClient().getCluster());
+
+    // copies are independent
+    copy.getClient("12345@127.0.0.1:ehcache:uid").get().addTag("copied");
+    assertFalse(cluster1.getClient("12345@127.0.0.1:ehcache:uid").get().isTagged("copied"));
+  }
+
+  @Test
+  public void test_read_only_copy() throws IOException, ClassNotFoundException {
+    Cluster readOnly = cluster1.readOnlyCopy();
+    assertEquals(cluster1, readOnly);
+    assertTrue(readOnly.isReadOnly());
+
+    Client client = readOnly.getClient("12345@127.0.0.1:ehcache:uid").get();
+    Server server = readOnly.getStripe("stripe-1").get().getServerByName("server-1").get();
+    assertUnsupported(() -> readOnly.addClient(Client.create("123@127.0.0.1:cluster-client-2:uid")));
+    assertUnsupported(() -> readOnly.getClients().clear());
+    assertUnsupported(() -> client.addTag("tag"));
+    assertUnsupported(() -> client.getTags().clear());
+    assertUnsupported(() -> client.connectionStream().findAny().get().fetchServerEntity("name", "type"));
+    assertUnsupported(() -> server.setState(Server.State.PASSIVE));
+    assertUnsupported(() -> server.getServerEntities().clear());
+    assertUnsupported(() -> server.serverEntityStream().findAny().get().setManagementRegistry(null));
+    assertUnsupported(server::remove);
+
+    // a read-only copy can still be copied and serialized, the result is writable
+    assertTrue(readOnly.copy().addClient(Client.create("123@127.0.0.1:cluster-client-2:uid")));
+    assertFalse(copy(readOnly).isReadOnly());
+  }
+
   @Test
   public void test_equals_hashcode() {
     assertEquals(cluster2, cluster1);
@@ -231,4 +271,14 @@ public class ClusterTest extends AbstractTest {
     ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(baos.toByteArray()));
     return (T) in.readObject();
   }
+
+  private static void assertUnsupported(Runnable mutation) {
+    try {
+      mutation.run();
+      fail();
+    } catch (UnsupportedOperationException e) {
+      // expected
+    }
+  }
+
 }
@@ -15,14 +15,37 @@
  */
 package org.terracotta.management.model.context;
 
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamException;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiConsumer;
 
 /**
+ * An immutable and ordered map of context attributes.
+ * <p>
+ * A context built with {@link #with(String, String)} or {@link #with(Map)} only holds the added attributes and points
+ * to the context it was built from, so that no attribute is copied. A key only appears once along this chain: replacing
+ * the value of an attribute, or building from a too long chain, creates a flat context. Keys are interned and the hash
+ * code is cached.
+ * <p>
+ * The serialized form is the same as when this class was backed by a {@link LinkedHashMap}.
+ *
  * @author Ludovic Orban
  * @author Mathieu Carbou
  */
@@ -30,49 +53,144 @@ public class Context extends AbstractMap<String, String> implements Serializable
 
   private static final long serialVersionUID = 1;
 
-  private final Map<String, String> back = new LinkedHashMap<String, String>();
+  private static final ObjectStreamField[] serialPersistentFields = {new ObjectStreamField("back", Map.class)};
+
+  private static final String[] NO_STRINGS = new String[0];
+  private static final Context EMPTY = new Context(null, NO_STRINGS, NO_STRINGS);
+
+  private static final int MAX_DEPTH = 8;
+  private static final int MAX_INTERNED_KEYS = 1024;
+  private static final ConcurrentMap<String, String> KEYS = new ConcurrentHashMap<>();
 
-  private Context(Map<String, String> back) {
-    this.back.putAll(back);
+  private final transient Context parent;
+  private final transient String[] keys;
+  private final transient String[] vals;
+  private final transient int size;
+  private final transient int depth;
+  // cached, racy but idempotent like String.hash
+  private transient int hash;
+  // only set on the instances read from a stream, which readResolve() replaces by a constructed one
+  private transient Map<String, String> deserialized;
+
+  private Context(Context parent, String[] keys, String[] vals) {
+    this.parent = parent == null || parent.isEmpty() ? null : parent;
+    this.keys = keys;
+    this.vals = vals;
+    this.size = keys.length + (this.parent == null ? 0 : this.parent.size);
+    this.depth = this.parent == null ? 0 : this.parent.depth + 1;
   }
 
   public Map<String, String> toMap() {
-    return Collections.unmodifiableMap(back);
+    return Collections.unmodifiableMap(this);
   }
 
   public Context with(String key, String val) {
     if (val == null) {
       throw new NullPointerException();
     }
-    Context context = new Context(back);
-    context.back.put(key, val);
-    return context;
+    Context owner = owner(key);
+    if (owner == null) {
+      return depth < MAX_DEPTH ?
+          new Context(this, new String[]{intern(key)}, new String[]{val}) :
+          flatten(new String[]{intern(key)}, new String[]{val}, 1);
+    }
+    if (val.equals(owner.vals[owner.indexOf(key)])) {
+      return this;
+    }
+    return flatten(new String[]{intern(key)}, new String[]{val}, 1);
   }
 
   public Context with(Map<String, String> props) {
-    for (String val : props.values()) {
+    if (props.isEmpty()) {
+      return this;
+    }
+    if (props instanceof Context && isEmpty()) {
+      return (Context) props;
+    }
+    String[] newKeys = new String[props.size()];
+    String[] newVals = new String[props.size()];
+    int n = 0;
+    boolean replacing = false;
+    for (Entry<String, String> entry : props.entrySet()) {
+      String key = entry.getKey();
+      String val = entry.getValue();
       if (val == null) {
         throw new NullPointerException();
       }
+      Context owner = owner(key);
+      if (owner == null) {
+        newKeys[n] = intern(key);
+        newVals[n++] = val;
+      } else if (!val.equals(owner.vals[owner.indexOf(key)])) {
+        replacing = true;
+      }
     }
-    Context context = new Context(back);
-    context.back.putAll(props);
-    return context;
+    if (replacing) {
+      // also pass the replaced attributes
+      n = 0;
+      for (Entry<String, String> entry : props.entrySet()) {
+        newKeys[n] = intern(entry.getKey());
+        newVals[n++] = entry.getValue();
+      }
+      return flatten(newKeys, newVals, n);
+    }
+    if (n == 0) {
+      return this;
+    }
+    if (depth >= MAX_DEPTH) {
+      return flatten(newKeys, newVals, n);
+    }
+    return new Context(this, n == newKeys.length ? newKeys : Arrays.copyOf(newKeys, n), n == newVals.length ? newVals : Arrays.copyOf(newVals, n));
   }
 
   public String get(String key) {
-    return back.get(key);
+    for (Context context = this; context != null; context = context.parent) {
+      int i = context.indexOf(key);
+      if (i >= 0) {
+        return context.vals[i];
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public String get(Object key) {
+    return key == null || key instanceof String ? get((String) key) : null;
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return (key == null || key instanceof String) && owner((String) key) != null;
   }
 
   public int size() {
-    return back.size();
+    return size;
   }
 
-  public boolean isEmpty() { return back.isEmpty(); }
+  public boolean isEmpty() { return size == 0; }
 
   @Override
   public Set<Entry<String, String>> entrySet() {
-    return toMap().entrySet();
+    return new AbstractSet<Entry<String, String>>() {
+      @Override
+      public Iterator<Entry<String, String>> iterator() {
+        return new EntryIterator();
+      }
+
+      @Override
+      public int size() {
+        return size;
+      }
+    };
+  }
+
+  @Override
+  public void forEach(BiConsumer<? super String, ? super String> action) {
+    for (Context context : path()) {
+      for (int i = 0; i < context.keys.length; i++) {
+        action.accept(context.keys[i], context.vals[i]);
+      }
+    }
   }
 
   @Override
@@ -80,29 +198,142 @@ public class Context extends AbstractMap<String, String> implements Serializable
     if (this == o) return true;
     if (o == null || getClass() != o.getClass()) return false;
     Context context = (Context) o;
-    return back.equals(context.back);
+    return size == context.size && hashCode() == context.hashCode() && contains(context);
   }
 
   @Override
   public int hashCode() {
-    return back.hashCode();
-  }
-
-  @Override
-  public String toString() {
-    return back.toString();
+    int h = hash;
+    if (h == 0) {
+      for (Context context = this; context != null; context = context.parent) {
+        for (int i = 0; i < context.keys.length; i++) {
+          h += Objects.hashCode(context.keys[i]) ^ Objects.hashCode(context.vals[i]);
+        }
+      }
+      hash = h;
+    }
+    return h;
   }
 
   public boolean contains(Context subCtx) {
-    return back.entrySet().containsAll(subCtx.back.entrySet());
+    if (subCtx.size > size) {
+      return false;
+    }
+    for (Context context = subCtx; context != null; context = context.parent) {
+      for (int i = 0; i < context.keys.length; i++) {
+        if (!contains(context.keys[i], context.vals[i])) {
+          return false;
+        }
+      }
+    }
+    return true;
   }
 
   public boolean contains(String key) {
-    return back.containsKey(key);
+    return owner(key) != null;
   }
 
   public boolean contains(String key, String val) {
-    return back.containsKey(key) && back.get(key).equals(val);
+    Context owner = owner(key);
+    return owner != null && Objects.equals(owner.vals[owner.indexOf(key)], val);
+  }
+
+  private Context owner(String key) {
+    for (Context context = this; context != null; context = context.parent) {
+      if (context.indexOf(key) >= 0) {
+        return context;
+      }
+    }
+    return null;
+  }
+
+  private int indexOf(String key) {
+    String[] keys = this.keys;
+    for (int i = 0; i < keys.length; i++) {
+      String k = keys[i];
+      if (k == key || k != null && k.equals(key)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * @return the contexts of the chain, from the root one
+   */
+  private Context[] path() {
+    Context[] path = new Context[depth + 1];
+    Context context = this;
+    for (int i = depth; i >= 0; i--) {
+      path[i] = context;
+      context = context.parent;
+    }
+    return path;
+  }
+
+  /**
+   * @return a context without parent having the attributes of this context, replaced or followed by the given ones
+   */
+  private Context flatten(String[] moreKeys, String[] moreVals, int n) {
+    String[] keys = new String[size + n];
+    String[] vals = new String[size + n];
+    int count = 0;
+    for (Context context : path()) {
+      System.arraycopy(context.keys, 0, keys, count, context.keys.length);
+      System.arraycopy(context.vals, 0, vals, count, context.vals.length);
+      count += context.keys.length;
+    }
+    next:
+    for (int j = 0; j < n; j++) {
+      for (int i = 0; i < count; i++) {
+        if (Objects.equals(keys[i], moreKeys[j])) {
+          vals[i] = moreVals[j];
+          continue next;
+        }
+      }
+      keys[count] = moreKeys[j];
+      vals[count++] = moreVals[j];
+    }
+    return new Context(null, count == keys.length ? keys : Arrays.copyOf(keys, count), count == vals.length ? vals : Arrays.copyOf(vals, count));
+  }
+
+  private static String intern(String key) {
+    if (key == null) {
+      return null;
+    }
+    String interned = KEYS.get(key);
+    if (interned != null) {
+      return interned;
+    }
+    if (KEYS.size() >= MAX_INTERNED_KEYS) {
+      return key;
+    }
+    interned = KEYS.putIfAbsent(key, key);
+    return interned == null ? key : interned;
+  }
+
+  private void writeObject(ObjectOutputStream out) throws IOException {
+    ObjectOutputStream.PutField fields = out.putFields();
+    fields.put("back", new LinkedHashMap<>(this));
+    out.writeFields();
+  }
+
+  @SuppressWarnings("unchecked")
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    ObjectInputStream.GetField fields = in.readFields();
+    Map<String, String> back = (Map<String, String>) fields.get("back", null);
+    deserialized = back == null ? Collections.<String, String>emptyMap() : back;
+  }
+
+  /**
+   * The final fields cannot be set by {@link #readObject(ObjectInputStream)}: the deserialized instance is replaced by
+   * a constructed one, so that contexts are always safely published.
+   */
+  private Object readResolve() throws ObjectStreamException {
+    if (deserialized == null) {
+      throw new InvalidObjectException("No context attributes");
+    }
+    return create(deserialized);
   }
 
   public static Context create(String key, String val) {
@@ -110,10 +341,46 @@ public class Context extends AbstractMap<String, String> implements Serializable
   }
 
   public static Context create(Map<String, String> map) {
-    return new Context(map);
+    if (map instanceof Context) {
+      return (Context) map;
+    }
+    String[] keys = new String[map.size()];
+    String[] vals = new String[map.size()];
+    int n = 0;
+    for (Entry<String, String> entry : map.entrySet()) {
+      keys[n] = intern(entry.getKey());
+      vals[n++] = entry.getValue();
+    }
+    return n == 0 ? EMPTY : new Context(null, keys, vals);
   }
 
   public static Context empty() {
-    return new Context(Collections.<String, String>emptyMap());
+    return EMPTY;
+  }
+
+  private final class EntryIterator implements Iterator<Entry<String, String>> {
+
+    private final Context[] path = path();
+    private int node;
+    private int index;
+
+    @Override
+    public boolean hasNext() {
+      while (node < path.length && index >= path[node].keys.length) {
+        node++;
+        index = 0;
+      }
+      return node < path.length;
+    }
+
+    @Override
+    public Entry<String, String> next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      Context context = path[node];
+      int i = index++;
+      return new SimpleImmutableEntry<>(context.keys[i], context.vals[i]);
+    }
   }
 }
@@ -0,0 +1,108 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.management.model.message;
+
+import org.terracotta.management.model.context.Contextual;
+import org.terracotta.management.model.stats.ContextualStatistics;
+import org.terracotta.management.model.stats.StatisticsCodec;
+import org.terracotta.management.sequence.Sequence;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Wire form of a {@code STATISTICS} message: the statistics are written with the {@link StatisticsCodec} instead
+ * of the default Java serialization.
+ * <p>
+ * Once deserialized, this message resolves to a {@link DefaultMessage} equal to the one it was created from,
+ * so receivers do not need to know about this format.
+ */
+public final class CompactStatisticsMessage implements Message, Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  public static final String STATISTICS = "STATISTICS";
+
+  private final Sequence sequence;
+  private transient ContextualStatistics[] statistics;
+
+  public CompactStatisticsMessage(Sequence sequence, ContextualStatistics... statistics) {
+    this.sequence = Objects.requireNonNull(sequence);
+    this.statistics = Objects.requireNonNull(statistics);
+  }
+
+  /**
+   * @return the compact form of a {@code STATISTICS} message
+   */
+  public static CompactStatisticsMessage of(Message message) {
+    if (!STATISTICS.equals(message.getType())) {
+      throw new IllegalArgumentException("Not a statistics message: " + message.getType());
+    }
+    List<ContextualStatistics> list = message.unwrap(ContextualStatistics.class);
+    return new CompactStatisticsMessage(message.getSequence(), list.toArray(new ContextualStatistics[list.size()]));
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public <T extends Contextual> List<T> unwrap(Class<T> type) {
+    return (List<T>) Arrays.asList(statistics);
+  }
+
+  @Override
+  public String getType() {
+    return STATISTICS;
+  }
+
+  @Override
+  public Sequence getSequence() {
+    return sequence;
+  }
+
+  @Override
+  public long getTimestamp() {
+    return sequence.getTimestamp();
+  }
+
+  private void writeObject(ObjectOutputStream out) throws IOException {
+    out.defaultWriteObject();
+    StatisticsCodec.write(statistics, out);
+  }
+
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    in.defaultReadObject();
+    statistics = StatisticsCodec.read(in);
+  }
+
+  private Object readResolve() throws ObjectStreamException {
+    return new DefaultMessage(sequence, STATISTICS, (Contextual[]) statistics);
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName() +
+        "{" +
+        "sequence=" + sequence +
+        ", data=" + Arrays.deepToString(statistics) +
+        '}';
+  }
+
+}
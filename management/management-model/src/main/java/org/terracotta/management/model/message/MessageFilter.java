@@ -0,0 +1,191 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.management.model.message;
+
+import org.terracotta.management.model.context.Context;
+import org.terracotta.management.model.context.Contextual;
+import org.terracotta.management.model.stats.ContextualStatistics;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Selects messages by type and selects their contextual elements (notifications, statistics...) by:
+ * <ul>
+ * <li>context: the element context must contain all the context attributes of this filter (i.e. an entity type)</li>
+ * <li>capability: statistics must come from one of the capabilities of this filter</li>
+ * <li>client tags: the element must come from a client having one of the tags of this filter</li>
+ * </ul>
+ * Each criterion is ignored when not set. A message is accepted when its type is accepted and at least one of its
+ * elements is accepted.
+ * <p>
+ * Client tags are not part of the messages: they can only be checked with {@link #accepts(Contextual, Function)},
+ * by the server which knows the topology.
+ * <p>
+ * This class is immutable: the {@code with} methods return a new filter.
+ */
+public final class MessageFilter implements Predicate<Message>, Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private static final MessageFilter ALL = new MessageFilter(Collections.emptySet(), Context.empty(), Collections.emptySet(), Collections.emptySet());
+
+  private final Set<String> types;
+  private final Context context;
+  private final Set<String> capabilities;
+  private final Set<String> clientTags;
+
+  private MessageFilter(Set<String> types, Context context, Set<String> capabilities, Set<String> clientTags) {
+    this.types = types;
+    this.context = context;
+    this.capabilities = capabilities;
+    this.clientTags = clientTags;
+  }
+
+  public static MessageFilter all() {
+    return ALL;
+  }
+
+  public static MessageFilter ofTypes(String... types) {
+    return ALL.withTypes(types);
+  }
+
+  public MessageFilter withTypes(String... types) {
+    return new MessageFilter(union(this.types, types), context, capabilities, clientTags);
+  }
+
+  public MessageFilter withContext(String key, String value) {
+    return new MessageFilter(types, context.with(key, value), capabilities, clientTags);
+  }
+
+  public MessageFilter withContext(Context context) {
+    return new MessageFilter(types, this.context.with(context), capabilities, clientTags);
+  }
+
+  public MessageFilter withCapabilities(String... capabilities) {
+    return new MessageFilter(types, context, union(this.capabilities, capabilities), clientTags);
+  }
+
+  public MessageFilter withClientTags(String... clientTags) {
+    return new MessageFilter(types, context, capabilities, union(this.clientTags, clientTags));
+  }
+
+  public boolean isAll() {
+    return types.isEmpty() && context.isEmpty() && capabilities.isEmpty() && clientTags.isEmpty();
+  }
+
+  public Set<String> getTypes() {
+    return types;
+  }
+
+  public Context getContext() {
+    return context;
+  }
+
+  public Set<String> getCapabilities() {
+    return capabilities;
+  }
+
+  public Set<String> getClientTags() {
+    return clientTags;
+  }
+
+  public boolean acceptsType(String type) {
+    return types.isEmpty() || types.contains(type);
+  }
+
+  public boolean acceptsContext(Context context) {
+    return this.context.isEmpty() || context.contains(this.context);
+  }
+
+  public boolean acceptsCapability(String capability) {
+    return capabilities.isEmpty() || capabilities.contains(capability);
+  }
+
+  /**
+   * @param clientTags gives the tags of the client a context belongs to (null if not a client context),
+   *                   or null to ignore the client tags criterion
+   */
+  public boolean accepts(Contextual contextual, Function<Context, Collection<String>> clientTags) {
+    if (!acceptsContext(contextual.getContext())) {
+      return false;
+    }
+    if (contextual instanceof ContextualStatistics && !acceptsCapability(((ContextualStatistics) contextual).getCapability())) {
+      return false;
+    }
+    if (clientTags != null && !this.clientTags.isEmpty()) {
+      Collection<String> tags = clientTags.apply(contextual.getContext());
+      return tags != null && !Collections.disjoint(tags, this.clientTags);
+    }
+    return true;
+  }
+
+  /**
+   * Tests the message type and its elements, ignoring the client tags
+   */
+  @Override
+  public boolean test(Message message) {
+    if (!acceptsType(message.getType())) {
+      return false;
+    }
+    if (context.isEmpty() && capabilities.isEmpty()) {
+      return true;
+    }
+    for (Contextual contextual : message.unwrap(Contextual.class)) {
+      if (accepts(contextual, null)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+    MessageFilter that = (MessageFilter) o;
+    return types.equals(that.types) && context.equals(that.context) && capabilities.equals(that.capabilities) && clientTags.equals(that.clientTags);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(types, context, capabilities, clientTags);
+  }
+
+  @Override
+  public String toString() {
+    return "MessageFilter{" +
+        "types=" + types +
+        ", context=" + context +
+        ", capabilities=" + capabilities +
+        ", clientTags=" + clientTags +
+        '}';
+  }
+
+  private static Set<String> union(Set<String> set, String[] values) {
+    Set<String> union = new LinkedHashSet<>(set);
+    union.addAll(Arrays.asList(values));
+    return Collections.unmodifiableSet(union);
+  }
+
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.management.model.message;
+
+import org.terracotta.management.model.context.Contextual;
+import org.terracotta.management.sequence.Sequence;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * A versioned topology message, either:
+ * <ul>
+ * <li>{@link #TOPOLOGY}: the whole topology (a single {@code Cluster}) at version {@link #getToVersion()}</li>
+ * <li>{@link #TOPOLOGY_CHANGES}: the topology changes (one notification per change) that moved the topology from
+ * version {@link #getFromVersion()} to version {@link #getToVersion()}</li>
+ * </ul>
+ * Versions are only comparable between messages having the same topology identifier, which changes when another server becomes active.
+ */
+public class TopologyMessage extends DefaultMessage implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  public static final String TOPOLOGY = "TOPOLOGY";
+  public static final String TOPOLOGY_CHANGES = "TOPOLOGY_CHANGES";
+
+  private final String topologyId;
+  private final long fromVersion;
+  private final long toVersion;
+
+  public TopologyMessage(Sequence sequence, String messageType, String topologyId, long fromVersion, long toVersion, Contextual... data) {
+    super(sequence, messageType, data);
+    this.topologyId = Objects.requireNonNull(topologyId);
+    this.fromVersion = fromVersion;
+    this.toVersion = toVersion;
+  }
+
+  public String getTopologyId() {
+    return topologyId;
+  }
+
+  /**
+   * @return the topology version these changes apply on, or the topology version for a {@link #TOPOLOGY} message
+   */
+  public long getFromVersion() {
+    return fromVersion;
+  }
+
+  /**
+   * @return the topology version once these changes are applied, or the topology version for a {@link #TOPOLOGY} message
+   */
+  public long getToVersion() {
+    return toVersion;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+    if (!super.equals(o)) return false;
+
+    TopologyMessage that = (TopologyMessage) o;
+
+    return fromVersion == that.fromVersion
+        && toVersion == that.toVersion
+        && topologyId.equals(that.topologyId);
+  }
+
+  @Override
+  public int hashCode() {
+    int result = super.hashCode();
+    result = 31 * result + topologyId.hashCode();
+    result = 31 * result + (int) (fromVersion ^ (fromVersion >>> 32));
+    result = 31 * result + (int) (toVersion ^ (toVersion >>> 32));
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName() +
+        "{" +
+        "type=" + getType() +
+        ", topologyId=" + topologyId +
+        ", fromVersion=" + fromVersion +
+        ", toVersion=" + toVersion +
+        ", sequence=" + getSequence() +
+        '}';
+  }
+}
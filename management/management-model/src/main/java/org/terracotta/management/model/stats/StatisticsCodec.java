@@ -0,0 +1,403 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.management.model.stats;
+
+import org.terracotta.management.model.context.Context;
+import org.terracotta.statistics.Sample;
+import org.terracotta.statistics.registry.Statistic;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.Serializable;
+import java.io.UTFDataFormatException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary encoding of a batch of {@link ContextualStatistics}, much smaller and cheaper to produce than
+ * the Java serialization of the same object graph:
+ * <ul>
+ * <li>strings (capabilities, statistic names, context keys and values) and contexts are dictionary-encoded:
+ * they are written once, on first use, and then referenced by index. Strings are written as length-prefixed modified
+ * UTF-8 bytes (as by {@link java.io.DataOutput#writeUTF(String)}, without its length limit), so they can be null,
+ * of any length, and hold any char, lone surrogates included</li>
+ * <li>sample timestamps are delta-of-delta encoded in variable-length longs</li>
+ * <li>sample values are packed: delta-encoded variable-length longs or raw doubles, falling back to
+ * Java serialization only for other types</li>
+ * </ul>
+ * Dictionaries are scoped to one encoded batch, so any batch can be decoded on its own.
+ */
+public final class StatisticsCodec {
+
+  private static final byte FORMAT_VERSION = 3;
+
+  private static final byte VALUES_LONG = 0;
+  private static final byte VALUES_DOUBLE = 1;
+  private static final byte VALUES_OBJECT = 2;
+
+  private static final StatisticType[] TYPES = StatisticType.values();
+
+  private StatisticsCodec() {
+  }
+
+  public static void write(ContextualStatistics[] statistics, ObjectOutput out) throws IOException {
+    new Encoder(out).write(statistics);
+  }
+
+  public static ContextualStatistics[] read(ObjectInput in) throws IOException, ClassNotFoundException {
+    return new Decoder(in).read();
+  }
+
+  private static final class Encoder {
+    private final ObjectOutput out;
+    private final Map<String, Integer> strings = new HashMap<>();
+    private final Map<Context, Integer> contexts = new HashMap<>();
+    private long lastTimestamp;
+
+    Encoder(ObjectOutput out) {
+      this.out = out;
+    }
+
+    void write(ContextualStatistics[] statistics) throws IOException {
+      out.writeByte(FORMAT_VERSION);
+      writeVarLong(out, statistics.length);
+      for (ContextualStatistics contextualStatistics : statistics) {
+        writeString(contextualStatistics.getCapability());
+        writeContext(contextualStatistics.getContext());
+        Map<String, Statistic<? extends Serializable>> map = contextualStatistics.getStatistics();
+        writeVarLong(out, map.size());
+        for (Map.Entry<String, Statistic<? extends Serializable>> entry : map.entrySet()) {
+          writeString(entry.getKey());
+          writeStatistic(entry.getValue());
+        }
+      }
+    }
+
+    private void writeStatistic(Statistic<? extends Serializable> statistic) throws IOException {
+      out.writeByte(StatisticType.convert(statistic.getType()).ordinal());
+      List<? extends Sample<? extends Serializable>> samples = statistic.getSamples();
+      int count = samples.size();
+      writeVarLong(out, count);
+      if (count == 0) {
+        return;
+      }
+
+      // timestamps: first one relative to the previous statistic (they are usually collected together),
+      // then delta-of-deltas which are 0 for regularly spaced samples
+      long previous = samples.get(0).getTimestamp();
+      writeVarLong(out, zigZag(previous - lastTimestamp));
+      lastTimestamp = previous;
+      long previousDelta = 0;
+      for (int i = 1; i < count; i++) {
+        long timestamp = samples.get(i).getTimestamp();
+        long delta = timestamp - previous;
+        writeVarLong(out, zigZag(delta - previousDelta));
+        previousDelta = delta;
+        previous = timestamp;
+      }
+
+      byte kind = valueKind(samples);
+      out.writeByte(kind);
+      switch (kind) {
+        case VALUES_LONG: {
+          long previousValue = 0;
+          for (Sample<? extends Serializable> sample : samples) {
+            long value = ((Long) sample.getSample());
+            writeVarLong(out, zigZag(value - previousValue));
+            previousValue = value;
+          }
+          break;
+        }
+        case VALUES_DOUBLE:
+          for (Sample<? extends Serializable> sample : samples) {
+            out.writeDouble((Double) sample.getSample());
+          }
+          break;
+        default:
+          for (Sample<? extends Serializable> sample : samples) {
+            out.writeObject(sample.getSample());
+          }
+      }
+    }
+
+    private void writeContext(Context context) throws IOException {
+      Integer index = contexts.get(context);
+      if (index != null) {
+        writeVarLong(out, index);
+        return;
+      }
+      int next = contexts.size();
+      contexts.put(context, next);
+      writeVarLong(out, next);
+      writeVarLong(out, context.size());
+      for (Map.Entry<String, String> entry : context.entrySet()) {
+        writeString(entry.getKey());
+        writeString(entry.getValue());
+      }
+    }
+
+    private void writeString(String string) throws IOException {
+      Integer index = strings.get(string);
+      if (index != null) {
+        writeVarLong(out, index);
+        return;
+      }
+      int next = strings.size();
+      strings.put(string, next);
+      writeVarLong(out, next);
+      // length + 1, 0 meaning null
+      if (string == null) {
+        writeVarLong(out, 0);
+      } else {
+        byte[] bytes = encodeModifiedUtf(string);
+        writeVarLong(out, bytes.length + 1L);
+        out.write(bytes);
+      }
+    }
+
+    private static byte[] encodeModifiedUtf(String string) throws IOException {
+      long utfLength = 0;
+      for (int i = 0, len = string.length(); i < len; i++) {
+        char c = string.charAt(i);
+        utfLength += c >= 0x0001 && c <= 0x007F ? 1 : c > 0x07FF ? 3 : 2;
+      }
+      if (utfLength >= Integer.MAX_VALUE) {
+        throw new UTFDataFormatException("Encoded string too long: " + utfLength + " bytes");
+      }
+      byte[] bytes = new byte[(int) utfLength];
+      int position = 0;
+      for (int i = 0, len = string.length(); i < len; i++) {
+        char c = string.charAt(i);
+        if (c >= 0x0001 && c <= 0x007F) {
+          bytes[position++] = (byte) c;
+        } else if (c > 0x07FF) {
+          bytes[position++] = (byte) (0xE0 | ((c >> 12) & 0x0F));
+          bytes[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+          bytes[position++] = (byte) (0x80 | (c & 0x3F));
+        } else {
+          bytes[position++] = (byte) (0xC0 | ((c >> 6) & 0x1F));
+          bytes[position++] = (byte) (0x80 | (c & 0x3F));
+        }
+      }
+      return bytes;
+    }
+
+    private static byte valueKind(List<? extends Sample<? extends Serializable>> samples) {
+      Class<?> type = null;
+      for (Sample<? extends Serializable> sample : samples) {
+        Object value = sample.getSample();
+        if (value == null || (type != null && type != value.getClass())) {
+          return VALUES_OBJECT;
+        }
+        type = value.getClass();
+      }
+      return type == Long.class ? VALUES_LONG : type == Double.class ? VALUES_DOUBLE : VALUES_OBJECT;
+    }
+  }
+
+  private static final class Decoder {
+    private final ObjectInput in;
+    private final List<String> strings = new ArrayList<>();
+    private final List<Context> contexts = new ArrayList<>();
+    private long lastTimestamp;
+
+    Decoder(ObjectInput in) {
+      this.in = in;
+    }
+
+    ContextualStatistics[] read() throws IOException, ClassNotFoundException {
+      byte version = in.readByte();
+      if (version != FORMAT_VERSION) {
+        throw new InvalidObjectException("Unsupported statistics format version: " + version);
+      }
+      ContextualStatistics[] statistics = new ContextualStatistics[readCount()];
+      for (int i = 0; i < statistics.length; i++) {
+        String capability = readString();
+        Context context = readContext();
+        int size = readCount();
+        Map<String, Statistic<? extends Serializable>> map = new HashMap<>(size * 4 / 3 + 1);
+        for (int j = 0; j < size; j++) {
+          String name = readString();
+          map.put(name, readStatistic());
+        }
+        statistics[i] = new ContextualStatistics(capability, context, map);
+      }
+      return statistics;
+    }
+
+    private Statistic<Serializable> readStatistic() throws IOException, ClassNotFoundException {
+      int ordinal = in.readByte();
+      if (ordinal < 0 || ordinal >= TYPES.length) {
+        throw new InvalidObjectException("Unknown statistic type: " + ordinal);
+      }
+      org.terracotta.statistics.StatisticType type = StatisticType.convert(TYPES[ordinal]);
+      int count = readCount();
+      List<Sample<Serializable>> samples = new ArrayList<>(count);
+      if (count == 0) {
+        return new Statistic<>(type, samples);
+      }
+
+      long[] timestamps = new long[count];
+      long previous = lastTimestamp + unZigZag(readVarLong(in));
+      lastTimestamp = previous;
+      timestamps[0] = previous;
+      long previousDelta = 0;
+      for (int i = 1; i < count; i++) {
+        long delta = previousDelta + unZigZag(readVarLong(in));
+        previous += delta;
+        timestamps[i] = previous;
+        previousDelta = delta;
+      }
+
+      byte kind = in.readByte();
+      switch (kind) {
+        case VALUES_LONG: {
+          long previousValue = 0;
+          for (long timestamp : timestamps) {
+            previousValue += unZigZag(readVarLong(in));
+            samples.add(new Sample<>(timestamp, previousValue));
+          }
+          break;
+        }
+        case VALUES_DOUBLE:
+          for (long timestamp : timestamps) {
+            samples.add(new Sample<>(timestamp, in.readDouble()));
+          }
+          break;
+        case VALUES_OBJECT:
+          for (long timestamp : timestamps) {
+            samples.add(new Sample<>(timestamp, (Serializable) in.readObject()));
+          }
+          break;
+        default:
+          throw new InvalidObjectException("Unknown sample encoding: " + kind);
+      }
+      return new Statistic<>(type, samples);
+    }
+
+    private Context readContext() throws IOException {
+      int index = readCount();
+      if (index < contexts.size()) {
+        return contexts.get(index);
+      }
+      if (index != contexts.size()) {
+        throw new InvalidObjectException("Bad context reference: " + index);
+      }
+      int size = readCount();
+      Map<String, String> map = new LinkedHashMap<>(size * 4 / 3 + 1);
+      for (int i = 0; i < size; i++) {
+        String key = readString();
+        map.put(key, readString());
+      }
+      // contexts are immutable: decoded statistics on the same context share it
+      Context context = Context.create(map);
+      contexts.add(context);
+      return context;
+    }
+
+    private String readString() throws IOException {
+      int index = readCount();
+      if (index < strings.size()) {
+        return strings.get(index);
+      }
+      if (index != strings.size()) {
+        throw new InvalidObjectException("Bad string reference: " + index);
+      }
+      int length = readCount();
+      String string;
+      if (length == 0) {
+        string = null;
+      } else {
+        byte[] bytes = new byte[length - 1];
+        in.readFully(bytes);
+        string = decodeModifiedUtf(bytes);
+      }
+      strings.add(string);
+      return string;
+    }
+
+    private static String decodeModifiedUtf(byte[] bytes) throws IOException {
+      // a string has at most as many chars as encoded bytes
+      char[] chars = new char[bytes.length];
+      int count = 0;
+      int position = 0;
+      while (position < bytes.length) {
+        int b = bytes[position] & 0xFF;
+        if (b < 0x80) {
+          chars[count++] = (char) b;
+          position++;
+        } else if ((b & 0xE0) == 0xC0) {
+          if (bytes.length - position < 2 || (bytes[position + 1] & 0xC0) != 0x80) {
+            throw new UTFDataFormatException("Malformed input around byte " + position);
+          }
+          chars[count++] = (char) (((b & 0x1F) << 6) | (bytes[position + 1] & 0x3F));
+          position += 2;
+        } else if ((b & 0xF0) == 0xE0) {
+          if (bytes.length - position < 3 || (bytes[position + 1] & 0xC0) != 0x80 || (bytes[position + 2] & 0xC0) != 0x80) {
+            throw new UTFDataFormatException("Malformed input around byte " + position);
+          }
+          chars[count++] = (char) (((b & 0x0F) << 12) | ((bytes[position + 1] & 0x3F) << 6) | (bytes[position + 2] & 0x3F));
+          position += 3;
+        } else {
+          throw new UTFDataFormatException("Malformed input around byte " + position);
+        }
+      }
+      return new String(chars, 0, count);
+    }
+
+    private int readCount() throws IOException {
+      long count = readVarLong(in);
+      if (count < 0 || count > Integer.MAX_VALUE) {
+        throw new InvalidObjectException("Bad count: " + count);
+      }
+      return (int) count;
+    }
+  }
+
+  static long zigZag(long value) {
+    return (value << 1) ^ (value >> 63);
+  }
+
+  static long unZigZag(long value) {
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  static void writeVarLong(ObjectOutput out, long value) throws IOException {
+    while ((value & ~0x7FL) != 0) {
+      out.writeByte((int) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    out.writeByte((int) value);
+  }
+
+  static long readVarLong(ObjectInput in) throws IOException {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      byte b = in.readByte();
+      value |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new InvalidObjectException("Malformed variable-length long");
+  }
+
+}
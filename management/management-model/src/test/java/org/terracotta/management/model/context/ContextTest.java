@@ -0,0 +1,153 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.management.model.context;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+public class ContextTest {
+
+  // Context.create("clientId", "client-1").with("cacheName", "cache-1") serialized when Context was backed by a LinkedHashMap
+  private static final String LEGACY_FORM = "rO0ABXNyAC9vcmcudGVycmFjb3R0YS5tYW5hZ2VtZW50Lm1vZGVsLmNvbnRleHQuQ29udGV4dAAAAAAAAAABAgABTAAEYmFja3QAD0xqYXZhL3V0aWwvTWFwO3hwc3IAF2phdmEudXRpbC5MaW5rZWRIYXNoTWFwNMBOXBBswPsCAAFaAAthY2Nlc3NPcmRlcnhyABFqYXZhLnV0aWwuSGFzaE1hcAUH2sHDFmDRAwACRgAKbG9hZEZhY3RvckkACXRocmVzaG9sZHhwP0AAAAAAAAN3CAAAAAQAAAACdAAIY2xpZW50SWR0AAhjbGllbnQtMXQACWNhY2hlTmFtZXQAB2NhY2hlLTF4AA==";
+
+  @Test
+  public void test_behaves_like_a_linked_hash_map() {
+    Map<String, String> expected = new LinkedHashMap<>();
+    Context context = Context.empty();
+    for (int i = 0; i < 20; i++) {
+      expected.put("key-" + i, "val-" + i);
+      context = context.with("key-" + i, "val-" + i);
+      assertEquals(expected, context);
+      assertEquals(expected.hashCode(), context.hashCode());
+      assertEquals(expected.toString(), context.toString());
+      assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(context.keySet()));
+    }
+
+    // replacing keeps the order
+    expected.put("key-3", "other");
+    context = context.with("key-3", "other");
+    assertEquals(expected.toString(), context.toString());
+    assertEquals(expected.hashCode(), context.hashCode());
+
+    expected.put("key-5", "other");
+    expected.put("new", "val");
+    Map<String, String> props = new LinkedHashMap<>();
+    props.put("key-5", "other");
+    props.put("new", "val");
+    context = context.with(props);
+    assertEquals(expected.toString(), context.toString());
+    assertEquals("val", context.get("new"));
+    assertNull(context.get("unknown"));
+    assertEquals(21, context.size());
+  }
+
+  @Test
+  public void test_equals_and_contains() {
+    Context a = Context.create("clientId", "client-1").with("cacheName", "cache-1");
+    Context b = Context.create("cacheName", "cache-1").with("clientId", "client-1");
+    Context c = Context.create("clientId", "client-1").with("cacheName", "cache-2");
+
+    assertEquals(a, b);
+    assertEquals(a.hashCode(), b.hashCode());
+    assertNotEquals(a, c);
+    assertTrue(a.contains(Context.create("cacheName", "cache-1")));
+    assertFalse(a.contains(c));
+    assertTrue(a.contains("clientId"));
+    assertTrue(a.contains("clientId", "client-1"));
+    assertFalse(a.contains("clientId", "client-2"));
+    assertTrue(a.contains(Context.empty()));
+  }
+
+  @Test
+  public void test_sharing() {
+    Context a = Context.create("clientId", "client-1");
+    assertSame(a, a.with("clientId", "client-1"));
+    assertSame(a, Context.empty().with(a));
+    assertSame(a, a.with(Context.empty()));
+    assertSame(a, Context.create(a));
+    assertEquals(Arrays.asList("clientId", "cacheName"), new ArrayList<>(a.with(Context.create("cacheName", "cache-1")).keySet()));
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void test_null_value() {
+    Context.empty().with("key", null);
+  }
+
+  @Test
+  public void test_reads_legacy_form() throws Exception {
+    Context context = (Context) deserialize(Base64.getDecoder().decode(LEGACY_FORM));
+
+    assertEquals(Context.create("clientId", "client-1").with("cacheName", "cache-1"), context);
+    assertEquals("{clientId=client-1, cacheName=cache-1}", context.toString());
+  }
+
+  @Test
+  public void test_serialization() throws Exception {
+    Context context = Context.create("clientId", "client-1").with("cacheName", "cache-1").with("clientId", "client-2");
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    try (ObjectOutputStream oos = new ObjectOutputStream(baos)) {
+      oos.writeObject(context);
+    }
+    Context read = (Context) deserialize(baos.toByteArray());
+
+    assertEquals(context, read);
+    assertEquals(context.toString(), read.toString());
+    assertEquals(context, read.with("clientId", "client-2"));
+  }
+
+  @Test
+  public void test_deserialized_contexts_are_resolved() throws Exception {
+    Context context = Context.create("clientId", "client-1");
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    try (ObjectOutputStream oos = new ObjectOutputStream(baos)) {
+      oos.writeObject(new Object[]{Context.empty(), context, context});
+    }
+    Object[] read = (Object[]) deserialize(baos.toByteArray());
+
+    // readResolve() builds the contexts through their constructor, and keeps the shared instances shared
+    assertSame(Context.empty(), read[0]);
+    assertEquals(context, read[1]);
+    assertSame(read[1], read[2]);
+    assertEquals(context.with("cacheName", "cache-1"), ((Context) read[1]).with("cacheName", "cache-1"));
+  }
+
+  private static Object deserialize(byte[] bytes) throws Exception {
+    try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+      return ois.readObject();
+    }
+  }
+
+}
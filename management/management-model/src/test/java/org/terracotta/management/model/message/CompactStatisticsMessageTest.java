@@ -0,0 +1,180 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.management.model.message;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.terracotta.management.model.context.Context;
+import org.terracotta.management.model.stats.ContextualStatistics;
+import org.terracotta.management.sequence.BoundaryFlakeSequenceGenerator;
+import org.terracotta.management.sequence.NodeIdSource;
+import org.terracotta.management.sequence.TimeSource;
+import org.terracotta.statistics.Sample;
+import org.terracotta.statistics.StatisticType;
+import org.terracotta.statistics.registry.Statistic;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+public class CompactStatisticsMessageTest {
+
+  private final BoundaryFlakeSequenceGenerator sequenceGenerator = new BoundaryFlakeSequenceGenerator(TimeSource.BEST, NodeIdSource.BEST);
+
+  @Test
+  public void test_round_trip() throws Exception {
+    ContextualStatistics[] statistics = statistics(20);
+    DefaultMessage message = new DefaultMessage(sequenceGenerator.next(), "STATISTICS", statistics);
+
+    Message copy = (Message) copy(CompactStatisticsMessage.of(message));
+
+    assertEquals(DefaultMessage.class, copy.getClass());
+    assertEquals("STATISTICS", copy.getType());
+    assertEquals(message.getSequence(), copy.getSequence());
+    List<ContextualStatistics> decoded = copy.unwrap(ContextualStatistics.class);
+    assertEquals(statistics.length, decoded.size());
+    for (int i = 0; i < statistics.length; i++) {
+      ContextualStatistics expected = statistics[i];
+      ContextualStatistics actual = decoded.get(i);
+      assertEquals(expected.getCapability(), actual.getCapability());
+      assertEquals(expected.getContext(), actual.getContext());
+      assertEquals(expected.getStatistics().keySet(), actual.getStatistics().keySet());
+      for (Map.Entry<String, Statistic<? extends Serializable>> entry : expected.getStatistics().entrySet()) {
+        Statistic<? extends Serializable> statistic = actual.getStatistics().get(entry.getKey());
+        assertEquals(entry.getValue().getType(), statistic.getType());
+        assertEquals(samples(entry.getValue()), samples(statistic));
+      }
+    }
+  }
+
+  @Test
+  public void test_null_and_long_strings() throws Exception {
+    char[] chars = new char[70_000];
+    Arrays.fill(chars, '\u00e9');
+    String longString = new String(chars);
+    Map<String, String> map = new HashMap<>();
+    map.put("cacheName", longString);
+    map.put("alias", null);
+    Map<String, Statistic<? extends Serializable>> statistics = new HashMap<>();
+    statistics.put("Cache:Empty", new Statistic<>(StatisticType.GAUGE));
+    DefaultMessage message = new DefaultMessage(sequenceGenerator.next(), "STATISTICS", new ContextualStatistics("StatisticsCapability", Context.create(map), statistics));
+
+    Message copy = (Message) copy(CompactStatisticsMessage.of(message));
+
+    Context context = copy.unwrap(ContextualStatistics.class).get(0).getContext();
+    assertEquals(longString, context.get("cacheName"));
+    assertTrue(context.contains("alias"));
+    assertNull(context.get("alias"));
+  }
+
+  @Test
+  public void test_strings_with_lone_surrogates() throws Exception {
+    String[] strings = {"\ud800", "a\udc00b", "\u0000", "\ud83d\ude00"};
+    Map<String, String> map = new HashMap<>();
+    for (int i = 0; i < strings.length; i++) {
+      map.put("key" + strings[i], strings[i]);
+    }
+    Map<String, Statistic<? extends Serializable>> statistics = new HashMap<>();
+    statistics.put("Cache:\udbff", new Statistic<>(StatisticType.GAUGE));
+    DefaultMessage message = new DefaultMessage(sequenceGenerator.next(), "STATISTICS", new ContextualStatistics("Statistics\udfffCapability", Context.create(map), statistics));
+
+    Message copy = (Message) copy(CompactStatisticsMessage.of(message));
+
+    ContextualStatistics decoded = copy.unwrap(ContextualStatistics.class).get(0);
+    assertEquals("Statistics\udfffCapability", decoded.getCapability());
+    assertEquals(statistics.keySet(), decoded.getStatistics().keySet());
+    assertEquals(Context.create(map), decoded.getContext());
+  }
+
+  @Test
+  public void test_smaller_than_java_serialization() throws Exception {
+    DefaultMessage message = new DefaultMessage(sequenceGenerator.next(), "STATISTICS", statistics(100));
+
+    int javaSize = serialize(message).length;
+    int compactSize = serialize(CompactStatisticsMessage.of(message)).length;
+
+    assertTrue(compactSize + " vs " + javaSize, compactSize * 4 < javaSize);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void test_only_statistics() {
+    CompactStatisticsMessage.of(new DefaultMessage(sequenceGenerator.next(), "NOTIFICATION"));
+  }
+
+  private static ContextualStatistics[] statistics(int count) {
+    long now = System.currentTimeMillis();
+    ContextualStatistics[] statistics = new ContextualStatistics[count];
+    for (int i = 0; i < count; i++) {
+      int base = i * 100;
+      Context context = Context.create("clientId", "12345@127.0.0.1:ehcache:uid")
+          .with("cacheManagerName", "cache-manager-" + (i / 10))
+          .with("cacheName", "cache-" + i);
+      Map<String, Statistic<? extends Serializable>> map = new HashMap<>();
+      map.put("Cache:HitCount", new Statistic<>(StatisticType.COUNTER, samples(now, 10, j -> (long) (base + j * 3))));
+      map.put("Cache:HitRatio", new Statistic<>(StatisticType.RATIO, samples(now, 10, j -> j / 10d)));
+      map.put("Cache:OccupiedByteSize", new Statistic<>(StatisticType.GAUGE, samples(now - 7, 3, j -> j % 2 == 0 ? (Serializable) 12L : "n/a")));
+      map.put("Cache:Empty", new Statistic<>(StatisticType.GAUGE));
+      statistics[i] = new ContextualStatistics("StatisticsCapability", context, map);
+    }
+    return statistics;
+  }
+
+  private static <T extends Serializable> List<Sample<T>> samples(long from, int count, IntFunction<T> value) {
+    List<Sample<T>> samples = new ArrayList<>(count);
+    for (int j = 0; j < count; j++) {
+      samples.add(new Sample<>(from + j * 1000 + (j == 5 ? 3 : 0), value.apply(j)));
+    }
+    return samples;
+  }
+
+  private static List<List<Object>> samples(Statistic<? extends Serializable> statistic) {
+    List<List<Object>> samples = new ArrayList<>();
+    for (Sample<? extends Serializable> sample : statistic.getSamples()) {
+      samples.add(Arrays.asList(sample.getTimestamp(), sample.getSample()));
+    }
+    return samples;
+  }
+
+  private static byte[] serialize(Object o) throws IOException {
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    try (ObjectOutputStream oos = new ObjectOutputStream(baos)) {
+      oos.writeObject(o);
+    }
+    return baos.toByteArray();
+  }
+
+  private static Object copy(Object o) throws IOException, ClassNotFoundException {
+    try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(serialize(o)))) {
+      return ois.readObject();
+    }
+  }
+
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.management.model.message;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.terracotta.management.model.context.Context;
+import org.terracotta.management.model.notification.ContextualNotification;
+import org.terracotta.management.model.stats.ContextualStatistics;
+import org.terracotta.management.sequence.BoundaryFlakeSequenceGenerator;
+import org.terracotta.management.sequence.NodeIdSource;
+import org.terracotta.management.sequence.TimeSource;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+public class MessageFilterTest {
+
+  private final BoundaryFlakeSequenceGenerator sequenceGenerator = new BoundaryFlakeSequenceGenerator(TimeSource.BEST, NodeIdSource.BEST);
+
+  private final Message notification = new DefaultMessage(sequenceGenerator.next(), "NOTIFICATION",
+      new ContextualNotification(Context.create("clientId", "client-1").with("cacheName", "cache-1"), "CACHE_CLEARED"),
+      new ContextualNotification(Context.create("clientId", "client-2"), "CLIENT_CONNECTED"));
+
+  @Test
+  public void test_all() {
+    assertTrue(MessageFilter.all().test(notification));
+  }
+
+  @Test
+  public void test_types() {
+    assertTrue(MessageFilter.ofTypes("STATISTICS", "NOTIFICATION").test(notification));
+    assertFalse(MessageFilter.ofTypes("STATISTICS").test(notification));
+  }
+
+  @Test
+  public void test_context() {
+    assertTrue(MessageFilter.all().withContext("clientId", "client-2").test(notification));
+    assertTrue(MessageFilter.all().withContext("clientId", "client-1").withContext("cacheName", "cache-1").test(notification));
+    assertFalse(MessageFilter.all().withContext("clientId", "client-2").withContext("cacheName", "cache-1").test(notification));
+    assertFalse(MessageFilter.ofTypes("STATISTICS").withContext("clientId", "client-2").test(notification));
+  }
+
+  @Test
+  public void test_capabilities() {
+    ContextualStatistics statistics = new ContextualStatistics("CacheStatistics", Context.create("clientId", "client-1"), Collections.emptyMap());
+    Message message = new DefaultMessage(sequenceGenerator.next(), "STATISTICS", statistics);
+
+    assertTrue(MessageFilter.all().withCapabilities("PoolStatistics", "CacheStatistics").test(message));
+    assertFalse(MessageFilter.all().withCapabilities("PoolStatistics").test(message));
+    // notifications do not have any capability
+    assertTrue(MessageFilter.all().withCapabilities("PoolStatistics").test(notification));
+  }
+
+  @Test
+  public void test_client_tags() {
+    ContextualNotification contextual = notification.unwrap(ContextualNotification.class).get(0);
+    MessageFilter filter = MessageFilter.all().withClientTags("webapp", "batch");
+
+    assertTrue(filter.accepts(contextual, context -> Arrays.asList("batch", "other")));
+    assertFalse(filter.accepts(contextual, context -> Collections.singletonList("other")));
+    assertFalse(filter.accepts(contextual, context -> null));
+    // client tags are only known by the server
+    assertTrue(filter.test(notification));
+    assertFalse(filter.isAll());
+  }
+
+  @Test
+  public void test_immutable() {
+    MessageFilter filter = MessageFilter.ofTypes("NOTIFICATION");
+    filter.withContext("clientId", "client-3");
+    assertTrue(filter.test(notification));
+    assertEquals(MessageFilter.ofTypes("NOTIFICATION"), filter);
+  }
+
+}
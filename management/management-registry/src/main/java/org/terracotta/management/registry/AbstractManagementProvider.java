@@ -26,13 +26,18 @@ import org.terracotta.management.model.stats.Statistic;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * @author Mathieu Carbou
@@ -48,6 +53,11 @@ public abstract class AbstractManagementProvider<T> implements ManagementProvide
 
   private final Queue<ExposedObject<T>> exposedObjects = new ConcurrentLinkedQueue<ExposedObject<T>>();
 
+  // exposed objects indexed by the values of their required context attributes, in registration order
+  private final ConcurrentMap<List<String>, Queue<ExposedObject<T>>> exposedObjectIndex = new ConcurrentHashMap<List<String>, Queue<ExposedObject<T>>>();
+  // number of exposed objects not having all the required context attributes: they cannot be indexed
+  private final AtomicInteger unindexedExposedObjects = new AtomicInteger();
+
   private final String capabilityName;
   private final Class<? extends T> managedType;
   private final CapabilityContext capabilityContext;
@@ -82,6 +92,7 @@ public abstract class AbstractManagementProvider<T> implements ManagementProvide
   public void register(T managedObject) {
     ExposedObject<T> exposedObject = wrap(managedObject);
     this.exposedObjects.add(exposedObject);
+    index(exposedObject);
   }
 
   @Override
@@ -89,6 +100,7 @@ public abstract class AbstractManagementProvider<T> implements ManagementProvide
     for (ExposedObject<T> exposedObject : exposedObjects) {
       if (exposedObject.getTarget().equals(managedObject)) {
         if (this.exposedObjects.remove(exposedObject)) {
+          unIndex(exposedObject);
           dispose(exposedObject);
           return;
         }
@@ -99,7 +111,11 @@ public abstract class AbstractManagementProvider<T> implements ManagementProvide
   @Override
   public void close() {
     while (!exposedObjects.isEmpty()) {
-      dispose(exposedObjects.poll());
+      ExposedObject<T> exposedObject = exposedObjects.poll();
+      if (exposedObject != null) {
+        unIndex(exposedObject);
+        dispose(exposedObject);
+      }
     }
   }
 
@@ -170,9 +186,13 @@ public abstract class AbstractManagementProvider<T> implements ManagementProvide
     if (!contextValid(context)) {
       return null;
     }
-    for (ExposedObject<T> exposedObject : exposedObjects) {
-      if (context.contains(exposedObject.getContext())) {
-        return exposedObject;
+    // an exposed object lacking some required attributes could match any context: only a full scan keeps the first match
+    Iterable<ExposedObject<T>> candidates = unindexedExposedObjects.get() > 0 ? exposedObjects : exposedObjectIndex.get(indexKey(context));
+    if (candidates != null) {
+      for (ExposedObject<T> exposedObject : candidates) {
+        if (context.contains(exposedObject.getContext())) {
+          return exposedObject;
+        }
       }
     }
     return null;
@@ -188,6 +208,47 @@ public abstract class AbstractManagementProvider<T> implements ManagementProvide
     return null;
   }
 
+  private void index(ExposedObject<T> exposedObject) {
+    List<String> key = indexKey(exposedObject.getContext());
+    if (key == null) {
+      unindexedExposedObjects.incrementAndGet();
+    } else {
+      exposedObjectIndex.compute(key, (k, bucket) -> {
+        if (bucket == null) {
+          bucket = new ConcurrentLinkedQueue<ExposedObject<T>>();
+        }
+        bucket.add(exposedObject);
+        return bucket;
+      });
+    }
+  }
+
+  private void unIndex(ExposedObject<T> exposedObject) {
+    List<String> key = indexKey(exposedObject.getContext());
+    if (key == null) {
+      unindexedExposedObjects.decrementAndGet();
+    } else {
+      exposedObjectIndex.computeIfPresent(key, (k, bucket) -> bucket.remove(exposedObject) && bucket.isEmpty() ? null : bucket);
+    }
+  }
+
+  /**
+   * @return the values of the required context attributes, or null if one is missing
+   */
+  private List<String> indexKey(Context context) {
+    Collection<CapabilityContext.Attribute> attributes = getCapabilityContext().getAttributes();
+    String[] values = new String[attributes.size()];
+    int i = 0;
+    for (CapabilityContext.Attribute attribute : attributes) {
+      String value = context.get(attribute.getName());
+      if (value == null) {
+        return null;
+      }
+      values[i++] = value;
+    }
+    return Arrays.asList(values);
+  }
+
   private boolean contextValid(Context context) {
     if (context == null) {
       return false;
@@ -24,6 +24,9 @@ import org.terracotta.management.registry.ExposedObject;
 import org.terracotta.management.registry.Named;
 
 import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
@@ -50,6 +53,14 @@ public abstract class AbstractActionManagementProvider<T> extends AbstractManage
     }
   };
 
+  // @Exposed methods and their descriptors, computed once per exposed object class
+  private static final ClassValue<ExposedMethods> EXPOSED_METHODS = new ClassValue<ExposedMethods>() {
+    @Override
+    protected ExposedMethods computeValue(Class<?> type) {
+      return new ExposedMethods(type);
+    }
+  };
+
   static {
     for (Class<?> c : new Class<?>[]{
         void.class, boolean.class, byte.class,
@@ -66,15 +77,7 @@ public abstract class AbstractActionManagementProvider<T> extends AbstractManage
   public final Collection<? extends Descriptor> getDescriptors() {
     Collection<CallDescriptor> descriptors = new HashSet<CallDescriptor>();
     for (ExposedObject<T> o : getExposedObjects()) {
-      for (Method method : o.getClass().getMethods()) {
-        if (method.isAnnotationPresent(Exposed.class)) {
-          List<CallDescriptor.Parameter> parameters = new ArrayList<CallDescriptor.Parameter>();
-          for (MethodParameter parameter : getParameters(method)) {
-            parameters.add(new CallDescriptor.Parameter(parameter.getName(), parameter.getType().getName()));
-          }
-          descriptors.add(new CallDescriptor(method.getName(), method.getReturnType().getName(), parameters));
-        }
-      }
+      descriptors.addAll(EXPOSED_METHODS.get(o.getClass()).descriptors);
     }
     List<CallDescriptor> list = new ArrayList<CallDescriptor>(descriptors);
     Collections.sort(list, CALL_DESCRIPTOR_COMPARATOR);
@@ -96,6 +99,19 @@ public abstract class AbstractActionManagementProvider<T> extends AbstractManage
       args[i] = parameters[i].getValue();
     }
 
+    ExposedMethod exposedMethod = EXPOSED_METHODS.get(managedObject.getClass()).get(methodName, argClassNames);
+    if (exposedMethod != null && exposedMethod.accepts(args)) {
+      Object result;
+      try {
+        // the arguments were checked, so whatever is thrown comes from the method, as an InvocationTargetException cause
+        result = (Object) exposedMethod.invoker.invokeExact((Object) managedObject, args);
+      } catch (Throwable e) {
+        throw executionException(e);
+      }
+      return returnType.isPrimitive() ? (V) result : returnType.cast(result);
+    }
+
+    // reflective path: not an accessible @Exposed method, or arguments needing a conversion
     try {
       Method method = managedObject.getClass().getMethod(methodName, toClasses(managedObject.getClassLoader(), argClassNames));
 
@@ -109,10 +125,20 @@ public abstract class AbstractActionManagementProvider<T> extends AbstractManage
     } catch (IllegalAccessException e) {
       throw new RuntimeException(e);
     } catch (InvocationTargetException e) {
-      throw new ExecutionException(e.getTargetException());
+      throw executionException(e.getTargetException());
     }
   }
 
+  /**
+   * Errors thrown by an action are rethrown as is, whichever path invoked it
+   */
+  private static ExecutionException executionException(Throwable thrownByAction) {
+    if (thrownByAction instanceof Error) {
+      throw (Error) thrownByAction;
+    }
+    return new ExecutionException(thrownByAction);
+  }
+
   private static Class<?>[] toClasses(ClassLoader classLoader, String[] classNames) {
     Class<?>[] classes = new Class<?>[classNames.length];
     for (int i = 0; i < classNames.length; i++) {
@@ -138,6 +164,99 @@ public abstract class AbstractActionManagementProvider<T> extends AbstractManage
     return parameters;
   }
 
+  private static String signature(String methodName, String[] parameterTypeNames) {
+    StringBuilder sb = new StringBuilder(methodName).append('(');
+    for (int i = 0; i < parameterTypeNames.length; i++) {
+      if (i > 0) {
+        sb.append(',');
+      }
+      sb.append(parameterTypeNames[i]);
+    }
+    return sb.append(')').toString();
+  }
+
+  private static final class ExposedMethods {
+
+    private final Collection<CallDescriptor> descriptors = new ArrayList<CallDescriptor>();
+    private final Map<String, ExposedMethod> methods = new HashMap<String, ExposedMethod>();
+
+    ExposedMethods(Class<?> type) {
+      for (Method method : type.getMethods()) {
+        if (method.isAnnotationPresent(Exposed.class)) {
+          List<CallDescriptor.Parameter> parameters = new ArrayList<CallDescriptor.Parameter>();
+          String[] parameterTypeNames = new String[method.getParameterTypes().length];
+          for (MethodParameter parameter : getParameters(method)) {
+            parameters.add(new CallDescriptor.Parameter(parameter.getName(), parameter.getType().getName()));
+            parameterTypeNames[parameter.idx] = parameter.getType().getName();
+          }
+          descriptors.add(new CallDescriptor(method.getName(), method.getReturnType().getName(), parameters));
+
+          // a covariant override also shows up as a bridge method with the same signature
+          String signature = signature(method.getName(), parameterTypeNames);
+          ExposedMethod previous = methods.get(signature);
+          if (previous == null || previous.bridge) {
+            ExposedMethod exposedMethod = ExposedMethod.create(method);
+            if (exposedMethod != null) {
+              methods.put(signature, exposedMethod);
+            }
+          }
+        }
+      }
+    }
+
+    ExposedMethod get(String methodName, String[] parameterTypeNames) {
+      return methods.get(signature(methodName, parameterTypeNames));
+    }
+  }
+
+  private static final class ExposedMethod {
+
+    private final MethodHandle invoker;
+    private final Class<?>[] parameterTypes;
+    private final Class<?>[] boxedParameterTypes;
+    private final boolean bridge;
+
+    private ExposedMethod(MethodHandle invoker, Class<?>[] parameterTypes, boolean bridge) {
+      this.invoker = invoker;
+      this.parameterTypes = parameterTypes;
+      this.boxedParameterTypes = new Class<?>[parameterTypes.length];
+      for (int i = 0; i < parameterTypes.length; i++) {
+        boxedParameterTypes[i] = MethodType.methodType(parameterTypes[i]).wrap().returnType();
+      }
+      this.bridge = bridge;
+    }
+
+    /**
+     * @return the method with an invoker of type (Object target, Object[] args)Object, or null if the method cannot be accessed
+     */
+    static ExposedMethod create(Method method) {
+      MethodHandle handle;
+      try {
+        handle = MethodHandles.publicLookup().unreflect(method);
+      } catch (IllegalAccessException e) {
+        return null;
+      }
+      Class<?>[] parameterTypes = method.getParameterTypes();
+      MethodHandle invoker = handle
+          .asType(MethodType.genericMethodType(parameterTypes.length + 1))
+          .asSpreader(Object[].class, parameterTypes.length);
+      return new ExposedMethod(invoker, parameterTypes, method.isBridge());
+    }
+
+    /**
+     * @return true if these arguments can be passed to the method without any conversion
+     */
+    boolean accepts(Object[] args) {
+      for (int i = 0; i < args.length; i++) {
+        Object arg = args[i];
+        if (arg == null ? parameterTypes[i].isPrimitive() : !boxedParameterTypes[i].isInstance(arg)) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
   private static class MethodParameter {
 
     private Method m;
@@ -27,79 +27,94 @@ import org.terracotta.management.registry.ResultSet;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.LongSupplier;
 
 /**
+ * Collects the statistics of all the capabilities of a registry at a fixed delay.
+ * <p>
+ * By default, capabilities are queried one after the other on the scheduler thread. When a collection executor is given,
+ * capabilities are queried in parallel on this executor, and the statistics of a capability which are not returned within
+ * the collection time budget are skipped for this collection. Such a capability is not queried again until its pending query completes.
+ *
  * @author Mathieu Carbou
  */
 public class DefaultStatisticCollector implements StatisticCollector {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(DefaultStatisticCollector.class);
 
+  private final CapabilityManagementSupport managementRegistry;
   private final ScheduledExecutorService scheduledExecutorService;
+  private final Collector collector;
+  private final LongSupplier systemTimeSupplier;
+  private final Executor collectionExecutor;
+  private final long collectionTimeBudgetNanos;
   private final Runnable runnable;
 
+  // only accessed from the collection task
+  private final Map<String, Long> lastCollectTimes = new HashMap<>();
+  private final Map<String, CompletableFuture<List<ContextualStatistics>>> pendingQueries = new HashMap<>();
+  private final Set<String> slowCapabilities = new HashSet<>();
+
+  private final AtomicLong collections = new AtomicLong();
+  private final AtomicLong overruns = new AtomicLong();
+  private final AtomicLong skippedQueries = new AtomicLong();
+  private volatile long lastCollectionDurationNanos;
+  private volatile long maxCollectionDurationNanos;
+
   private volatile boolean running;
   private ScheduledFuture<?> task;
-  private long intervalMs;
-  private volatile long lastCollectTime;
+  private volatile long intervalMs;
 
   public DefaultStatisticCollector(final CapabilityManagementSupport managementRegistry,
                                    ScheduledExecutorService scheduledExecutorService,
                                    final Collector collector,
                                    LongSupplier systemTimeSupplier) {
+    this(managementRegistry, scheduledExecutorService, collector, systemTimeSupplier, null, 0, TimeUnit.MILLISECONDS);
+  }
 
+  /**
+   * @param collectionExecutor   the executor running the capability queries in parallel
+   * @param collectionTimeBudget the maximum time to wait for the capability queries of a collection,
+   *                             or 0 to use the collection interval
+   */
+  public DefaultStatisticCollector(final CapabilityManagementSupport managementRegistry,
+                                   ScheduledExecutorService scheduledExecutorService,
+                                   final Collector collector,
+                                   LongSupplier systemTimeSupplier,
+                                   Executor collectionExecutor,
+                                   long collectionTimeBudget,
+                                   TimeUnit unit) {
+    if (collectionTimeBudget < 0) {
+      throw new IllegalArgumentException("Bad time budget: " + collectionTimeBudget);
+    }
+    this.managementRegistry = Objects.requireNonNull(managementRegistry);
     this.scheduledExecutorService = Objects.requireNonNull(scheduledExecutorService);
-
-    Objects.requireNonNull(managementRegistry);
-    Objects.requireNonNull(collector);
+    this.collector = Objects.requireNonNull(collector);
+    this.systemTimeSupplier = Objects.requireNonNull(systemTimeSupplier);
+    this.collectionExecutor = collectionExecutor;
+    this.collectionTimeBudgetNanos = unit.toNanos(collectionTimeBudget);
 
     this.runnable = () -> {
       try {
         if (running) {
-          Collection<ContextualStatistics> statistics = new ArrayList<>();
-
-          for (String capabilityName : managementRegistry.getCapabilityNames()) {
-
-            Set<Context> allContexts = new LinkedHashSet<>();
-
-            for (ManagementProvider<?> managementProvider : managementRegistry.getManagementProvidersByCapability(capabilityName)) {
-              if (managementProvider.getClass().isAnnotationPresent(StatisticProvider.class)) {
-                for (ExposedObject<?> exposedObject : managementProvider.getExposedObjects()) {
-                  allContexts.add(exposedObject.getContext());
-                }
-              }
-            }
-
-            if (!allContexts.isEmpty()) {
-              CapabilityManagement capabilityManagement = managementRegistry.withCapability(capabilityName);
-              ResultSet<ContextualStatistics> resultSet = capabilityManagement
-                  .queryAllStatistics()
-                  .on(allContexts)
-                  .since(lastCollectTime)
-                  .build()
-                  .execute();
-              for (ContextualStatistics contextualStatistics : resultSet) {
-                statistics.add(contextualStatistics);
-              }
-            }
-          }
-
-          if (running && !statistics.isEmpty()) {
-            collector.onStatistics(statistics);
-
-            // We set the time of last collect after the collector is called.
-            // Thus, if any exception occurs (such as temporary network failure),
-            // the next sending of stat will contains the samples of the last collect.
-            lastCollectTime = systemTimeSupplier.getAsLong();
-          }
+          collect();
         }
       } catch (RuntimeException e) {
         LOGGER.warn("StatisticCollector failed: " + e.getMessage(), e);
@@ -153,4 +168,139 @@ public class DefaultStatisticCollector implements StatisticCollector {
     return running;
   }
 
+  @Override
+  public Map<String, Long> getCollectionMetrics() {
+    Map<String, Long> metrics = new LinkedHashMap<>();
+    metrics.put("collections", collections.get());
+    metrics.put("lastCollectionDurationMs", TimeUnit.NANOSECONDS.toMillis(lastCollectionDurationNanos));
+    metrics.put("maxCollectionDurationMs", TimeUnit.NANOSECONDS.toMillis(maxCollectionDurationNanos));
+    metrics.put("overruns", overruns.get());
+    metrics.put("skippedQueries", skippedQueries.get());
+    return metrics;
+  }
+
+  private void collect() {
+    long start = System.nanoTime();
+    Collection<String> capabilityNames = managementRegistry.getCapabilityNames();
+    lastCollectTimes.keySet().retainAll(capabilityNames);
+    Map<String, List<ContextualStatistics>> results = collectionExecutor == null ?
+        querySequentially(capabilityNames) :
+        queryInParallel(capabilityNames, start);
+
+    List<ContextualStatistics> statistics = new ArrayList<>();
+    results.values().forEach(statistics::addAll);
+
+    if (running && !statistics.isEmpty()) {
+      collector.onStatistics(statistics);
+
+      // We set the time of last collect after the collector is called.
+      // Thus, if any exception occurs (such as temporary network failure),
+      // the next sending of stat will contains the samples of the last collect.
+      // Capabilities skipped during this collection will get their samples since their own last collect.
+      long now = systemTimeSupplier.getAsLong();
+      for (String capabilityName : results.keySet()) {
+        lastCollectTimes.put(capabilityName, now);
+      }
+    }
+
+    long duration = System.nanoTime() - start;
+    lastCollectionDurationNanos = duration;
+    if (duration > maxCollectionDurationNanos) {
+      maxCollectionDurationNanos = duration;
+    }
+    collections.incrementAndGet();
+    if (duration > TimeUnit.MILLISECONDS.toNanos(intervalMs)) {
+      overruns.incrementAndGet();
+      LOGGER.debug("Statistic collection took {} ms, more than the collection interval of {} ms", TimeUnit.NANOSECONDS.toMillis(duration), intervalMs);
+    }
+  }
+
+  private Map<String, List<ContextualStatistics>> querySequentially(Collection<String> capabilityNames) {
+    Map<String, List<ContextualStatistics>> results = new LinkedHashMap<>();
+    for (String capabilityName : capabilityNames) {
+      Set<Context> allContexts = getStatisticContexts(capabilityName);
+      if (!allContexts.isEmpty()) {
+        results.put(capabilityName, query(capabilityName, allContexts, lastCollectTimes.getOrDefault(capabilityName, 0L)));
+      }
+    }
+    return results;
+  }
+
+  private Map<String, List<ContextualStatistics>> queryInParallel(Collection<String> capabilityNames, long start) {
+    pendingQueries.keySet().retainAll(capabilityNames);
+
+    Map<String, CompletableFuture<List<ContextualStatistics>>> queries = new LinkedHashMap<>();
+    for (String capabilityName : capabilityNames) {
+      CompletableFuture<List<ContextualStatistics>> pending = pendingQueries.get(capabilityName);
+      if (pending != null && !pending.isDone()) {
+        // the query of a previous collection is still running
+        skippedQueries.incrementAndGet();
+        continue;
+      }
+      Set<Context> allContexts = getStatisticContexts(capabilityName);
+      if (!allContexts.isEmpty()) {
+        long since = lastCollectTimes.getOrDefault(capabilityName, 0L);
+        try {
+          CompletableFuture<List<ContextualStatistics>> query = CompletableFuture.supplyAsync(() -> query(capabilityName, allContexts, since), collectionExecutor);
+          pendingQueries.put(capabilityName, query);
+          queries.put(capabilityName, query);
+        } catch (RejectedExecutionException e) {
+          skippedQueries.incrementAndGet();
+          LOGGER.debug("Statistic query of capability {} rejected: {}", capabilityName, e.getMessage());
+        }
+      }
+    }
+
+    long budget = collectionTimeBudgetNanos > 0 ? collectionTimeBudgetNanos : TimeUnit.MILLISECONDS.toNanos(intervalMs);
+    long deadline = start + budget;
+    Map<String, List<ContextualStatistics>> results = new LinkedHashMap<>();
+    for (Map.Entry<String, CompletableFuture<List<ContextualStatistics>>> entry : queries.entrySet()) {
+      String capabilityName = entry.getKey();
+      try {
+        results.put(capabilityName, entry.getValue().get(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+        if (slowCapabilities.remove(capabilityName)) {
+          LOGGER.info("Statistics of capability {} are collected in time again", capabilityName);
+        }
+      } catch (TimeoutException e) {
+        skippedQueries.incrementAndGet();
+        if (slowCapabilities.add(capabilityName)) {
+          LOGGER.warn("Statistics of capability {} took more than {} ms to collect: skipping them until they are available", capabilityName, TimeUnit.NANOSECONDS.toMillis(budget));
+        }
+      } catch (ExecutionException e) {
+        LOGGER.warn("Statistic query of capability " + capabilityName + " failed: " + e.getCause().getMessage(), e.getCause());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        break;
+      }
+    }
+    return results;
+  }
+
+  private Set<Context> getStatisticContexts(String capabilityName) {
+    Set<Context> allContexts = new LinkedHashSet<>();
+    for (ManagementProvider<?> managementProvider : managementRegistry.getManagementProvidersByCapability(capabilityName)) {
+      if (managementProvider.getClass().isAnnotationPresent(StatisticProvider.class)) {
+        for (ExposedObject<?> exposedObject : managementProvider.getExposedObjects()) {
+          allContexts.add(exposedObject.getContext());
+        }
+      }
+    }
+    return allContexts;
+  }
+
+  private List<ContextualStatistics> query(String capabilityName, Set<Context> contexts, long since) {
+    CapabilityManagement capabilityManagement = managementRegistry.withCapability(capabilityName);
+    ResultSet<ContextualStatistics> resultSet = capabilityManagement
+        .queryAllStatistics()
+        .on(contexts)
+        .since(since)
+        .build()
+        .execute();
+    List<ContextualStatistics> statistics = new ArrayList<>(resultSet.size());
+    for (ContextualStatistics contextualStatistics : resultSet) {
+      statistics.add(contextualStatistics);
+    }
+    return statistics;
+  }
+
 }
@@ -18,6 +18,8 @@ package org.terracotta.management.registry.collect;
 import org.terracotta.management.model.stats.ContextualStatistics;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -34,6 +36,13 @@ public interface StatisticCollector {
 
   boolean isRunning();
 
+  /**
+   * @return metrics about the collections done so far, such as their count and duration
+   */
+  default Map<String, Long> getCollectionMetrics() {
+    return Collections.emptyMap();
+  }
+
   interface Collector {
     void onStatistics(Collection<ContextualStatistics> statistics);
   }
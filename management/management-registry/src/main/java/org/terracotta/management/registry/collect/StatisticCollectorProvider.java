@@ -24,6 +24,7 @@ import org.terracotta.management.registry.ExposedObject;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -68,6 +69,11 @@ public class StatisticCollectorProvider extends AbstractActionManagementProvider
     public boolean isRunning() {
       return collectorService.isRunning();
     }
+
+    @Exposed
+    public Map<String, Long> getCollectionMetrics() {
+      return collectorService.getCollectionMetrics();
+    }
     
     @Exposed
     public void startStatisticCollector(@Named("interval") long interval,
@@ -28,6 +28,7 @@ import org.terracotta.management.registry.ManagementProvider;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.concurrent.ExecutionException;
 
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.instanceOf;
@@ -79,6 +80,31 @@ public class ActionProviderTest {
     assertThat(next.isRequired(), is(true));
   }
 
+  @Test
+  public void testSupports() throws Exception {
+    MyObject cache1 = new MyObject("myCacheManagerName", "myCacheName1");
+    managementProvider.register(cache1);
+    managementProvider.register(new MyObject("myCacheManagerName", "myCacheName2"));
+
+    Context context = Context.empty()
+        .with("cacheManagerName", "myCacheManagerName")
+        .with("cacheName", "myCacheName1");
+
+    assertThat(managementProvider.supports(context), is(true));
+    assertThat(managementProvider.supports(context.with("instanceId", "1")), is(true));
+    assertThat(managementProvider.supports(context.with("cacheName", "myCacheName3")), is(false));
+    assertThat(managementProvider.supports(Context.create("cacheManagerName", "myCacheManagerName")), is(false));
+
+    managementProvider.unregister(cache1);
+
+    assertThat(managementProvider.supports(context), is(false));
+    assertThat(managementProvider.supports(context.with("cacheName", "myCacheName2")), is(true));
+
+    managementProvider.close();
+
+    assertThat(managementProvider.supports(context.with("cacheName", "myCacheName2")), is(false));
+  }
+
   @Test
   public void testCollectStatistics() throws Exception {
     try {
@@ -102,6 +128,66 @@ public class ActionProviderTest {
     assertThat(n, equalTo(2));
   }
 
+  @Test
+  public void testCallAction_exception() throws Exception {
+    managementProvider.register(new MyObject("cache-manager-0", "cache-0"));
+
+    Context context = Context.empty()
+        .with("cacheManagerName", "cache-manager-0")
+        .with("cacheName", "cache-0");
+
+    try {
+      managementProvider.callAction(context, "incr", int.class, new Parameter(Integer.MAX_VALUE, "int"));
+      fail("expected ExecutionException");
+    } catch (ExecutionException e) {
+      assertThat(e.getCause(), is(instanceOf(IllegalArgumentException.class)));
+    }
+  }
+
+  @Test
+  public void testCallAction_same_exceptions_on_both_paths() throws Exception {
+    managementProvider.register(new MyObject("cache-manager-0", "cache-0"));
+
+    Context context = Context.empty()
+        .with("cacheManagerName", "cache-manager-0")
+        .with("cacheName", "cache-0");
+
+    // an Integer is passed as is through a method handle, a Short needs the widening conversion of the reflective call
+    for (Object n : new Object[]{-1, (short) -1}) {
+      try {
+        managementProvider.callAction(context, "incr", int.class, new Parameter(n, "int"));
+        fail("expected ExecutionException");
+      } catch (ExecutionException e) {
+        assertThat(e.getCause(), is(instanceOf(IllegalArgumentException.class)));
+      }
+    }
+    for (Object n : new Object[]{-2, (short) -2}) {
+      try {
+        managementProvider.callAction(context, "incr", int.class, new Parameter(n, "int"));
+        fail("expected AssertionError");
+      } catch (AssertionError e) {
+        assertThat(e.getMessage(), equalTo("n: -2"));
+      }
+    }
+    assertThat(managementProvider.callAction(context, "incr", int.class, new Parameter((short) 1, "int")), equalTo(2));
+  }
+
+  @Test
+  public void testCallAction_not_exposed() throws Exception {
+    managementProvider.register(new MyObject("cache-manager-0", "cache-0"));
+
+    Context context = Context.empty()
+        .with("cacheManagerName", "cache-manager-0")
+        .with("cacheName", "cache-0");
+
+    try {
+      managementProvider.callAction(context, "getTarget", MyObject.class);
+      fail("expected IllegalArgumentException");
+    } catch (IllegalArgumentException iae) {
+      // expected
+    }
+  }
+
   @Test
   public void testCallAction_bad_context() throws Exception {
     managementProvider.register(new MyObject("cache-manager-0", "cache-0"));
@@ -38,9 +38,12 @@ public class MyObject implements ExposedObject<MyObject> {
 
   @Exposed
   public int incr(@Named("n") int n) {
-    if (n == Integer.MAX_VALUE) {
+    if (n == Integer.MAX_VALUE || n == -1) {
       throw new IllegalArgumentException();
     }
+    if (n == -2) {
+      throw new AssertionError("n: " + n);
+    }
     return n + 1;
   }
 
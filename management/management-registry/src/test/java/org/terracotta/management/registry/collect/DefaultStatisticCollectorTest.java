@@ -0,0 +1,152 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.management.registry.collect;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.terracotta.management.model.context.Context;
+import org.terracotta.management.model.context.ContextContainer;
+import org.terracotta.management.model.stats.ContextualStatistics;
+import org.terracotta.management.model.stats.Statistic;
+import org.terracotta.management.registry.AbstractManagementProvider;
+import org.terracotta.management.registry.DefaultExposedObject;
+import org.terracotta.management.registry.DefaultManagementRegistry;
+import org.terracotta.management.registry.ExposedObject;
+import org.terracotta.management.registry.Named;
+import org.terracotta.management.registry.RequiredContext;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class DefaultStatisticCollectorTest {
+
+  private final CountDownLatch slowStatistics = new CountDownLatch(1);
+  private final BlockingQueue<Collection<ContextualStatistics>> collected = new LinkedBlockingQueue<>();
+  private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+  private final ExecutorService collectionExecutor = Executors.newFixedThreadPool(2);
+  private final DefaultManagementRegistry registry = new DefaultManagementRegistry(new ContextContainer("cacheManagerName", "cm"));
+
+  @Before
+  public void setUp() throws Exception {
+    registry.addManagementProvider(new FastStatisticsProvider());
+    registry.addManagementProvider(new SlowStatisticsProvider(slowStatistics));
+    registry.register("cache-1");
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    slowStatistics.countDown();
+    scheduler.shutdownNow();
+    collectionExecutor.shutdownNow();
+  }
+
+  @Test
+  public void test_sequential_collection() throws Exception {
+    slowStatistics.countDown();
+    DefaultStatisticCollector statisticCollector = new DefaultStatisticCollector(registry, scheduler, collected::offer, System::currentTimeMillis);
+
+    statisticCollector.startStatisticCollector(1, TimeUnit.SECONDS);
+
+    assertThat(capabilities(collected.poll(5, TimeUnit.SECONDS)), equalTo(asList("FastStatistics", "SlowStatistics")));
+    statisticCollector.stopStatisticCollector();
+  }
+
+  @Test
+  public void test_parallel_collection_skips_slow_capabilities() throws Exception {
+    DefaultStatisticCollector statisticCollector = new DefaultStatisticCollector(registry, scheduler, collected::offer, System::currentTimeMillis,
+        collectionExecutor, 50, TimeUnit.MILLISECONDS);
+
+    statisticCollector.startStatisticCollector(100, TimeUnit.MILLISECONDS);
+
+    // slow statistics are not waited for
+    assertThat(capabilities(collected.poll(5, TimeUnit.SECONDS)), equalTo(asList("FastStatistics")));
+    assertThat(capabilities(collected.poll(5, TimeUnit.SECONDS)), equalTo(asList("FastStatistics")));
+    assertTrue(statisticCollector.getCollectionMetrics().get("skippedQueries") >= 2L);
+
+    // until they are available
+    slowStatistics.countDown();
+    boolean slowCollected = false;
+    for (int i = 0; i < 10 && !slowCollected; i++) {
+      slowCollected = capabilities(collected.poll(5, TimeUnit.SECONDS)).contains("SlowStatistics");
+    }
+    assertTrue(slowCollected);
+    statisticCollector.stopStatisticCollector();
+  }
+
+  private static List<String> capabilities(Collection<ContextualStatistics> statistics) {
+    return statistics.stream().map(ContextualStatistics::getCapability).collect(Collectors.toList());
+  }
+
+  @Named("FastStatistics")
+  @RequiredContext({@Named("cacheName")})
+  @StatisticProvider
+  public static class FastStatisticsProvider extends AbstractManagementProvider<String> {
+
+    public FastStatisticsProvider() {
+      super(String.class);
+    }
+
+    @Override
+    protected ExposedObject<String> wrap(String managedObject) {
+      return new DefaultExposedObject<>(managedObject, Context.create("cacheName", managedObject));
+    }
+
+    @Override
+    public Map<String, Statistic<? extends Serializable>> collectStatistics(Context context, Collection<String> statisticNames, long since) {
+      return Collections.emptyMap();
+    }
+  }
+
+  @Named("SlowStatistics")
+  @RequiredContext({@Named("cacheName")})
+  @StatisticProvider
+  public static class SlowStatisticsProvider extends FastStatisticsProvider {
+
+    private final CountDownLatch latch;
+
+    SlowStatisticsProvider(CountDownLatch latch) {
+      this.latch = latch;
+    }
+
+    @Override
+    public Map<String, Statistic<? extends Serializable>> collectStatistics(Context context, Collection<String> statisticNames, long since) {
+      try {
+        latch.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return super.collectStatistics(context, statisticNames, since);
+    }
+  }
+
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.management.service.monitoring;
+
+/**
+ * Makes the monitoring service fire notifications and statistics asynchronously.
+ * <p>
+ * When this configuration is part of the extended configuration of the platform, notifications and statistics are
+ * queued and sent in batches to the management services from a dedicated thread. Otherwise, they are sent from the
+ * thread firing them. Management calls and their answers are always sent from the calling thread.
+ */
+public class FiringConfiguration {
+
+  public static final int DEFAULT_CAPACITY = 8192;
+  public static final int DEFAULT_MAX_BATCH_SIZE = 256;
+  public static final long DEFAULT_MAX_BLOCKING_MILLIS = 1000;
+
+  public enum OverflowPolicy {
+    /**
+     * The thread queuing the event waits until there is room, for at most {@link #getMaxBlockingMillis()}. The event
+     * is then dropped and counted.
+     */
+    BLOCK,
+    /**
+     * The event is dropped and counted
+     */
+    DROP
+  }
+
+  private final int capacity;
+  private final int maxBatchSize;
+  private final OverflowPolicy overflowPolicy;
+  private final long maxBlockingMillis;
+
+  public FiringConfiguration() {
+    this(DEFAULT_CAPACITY, DEFAULT_MAX_BATCH_SIZE, OverflowPolicy.DROP, DEFAULT_MAX_BLOCKING_MILLIS);
+  }
+
+  /**
+   * @param capacity          the maximum number of notifications and statistics waiting to be sent
+   * @param maxBatchSize      the maximum number of notifications and statistics sent at once
+   * @param overflowPolicy    what to do with a notification or statistics fired when the capacity is reached
+   * @param maxBlockingMillis how long a thread firing a notification or statistics waits for room with {@link OverflowPolicy#BLOCK}
+   */
+  public FiringConfiguration(int capacity, int maxBatchSize, OverflowPolicy overflowPolicy, long maxBlockingMillis) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Bad capacity: " + capacity);
+    }
+    if (maxBatchSize <= 0) {
+      throw new IllegalArgumentException("Bad batch size: " + maxBatchSize);
+    }
+    if (overflowPolicy == null) {
+      throw new NullPointerException("Overflow policy is null");
+    }
+    if (maxBlockingMillis < 0) {
+      throw new IllegalArgumentException("Bad blocking time: " + maxBlockingMillis);
+    }
+    this.capacity = capacity;
+    this.maxBatchSize = maxBatchSize;
+    this.overflowPolicy = overflowPolicy;
+    this.maxBlockingMillis = maxBlockingMillis;
+  }
+
+  public int getCapacity() {
+    return capacity;
+  }
+
+  public int getMaxBatchSize() {
+    return maxBatchSize;
+  }
+
+  public OverflowPolicy getOverflowPolicy() {
+    return overflowPolicy;
+  }
+
+  public long getMaxBlockingMillis() {
+    return maxBlockingMillis;
+  }
+
+  @Override
+  public String toString() {
+    return "FiringConfiguration{" +
+        "capacity=" + capacity +
+        ", maxBatchSize=" + maxBatchSize +
+        ", overflowPolicy=" + overflowPolicy +
+        ", maxBlockingMillis=" + maxBlockingMillis +
+        '}';
+  }
+
+}
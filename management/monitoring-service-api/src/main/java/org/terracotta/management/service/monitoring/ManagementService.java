@@ -20,8 +20,13 @@ import org.terracotta.entity.CommonServerEntity;
 import org.terracotta.management.model.call.Parameter;
 import org.terracotta.management.model.cluster.Cluster;
 import org.terracotta.management.model.context.Context;
+import org.terracotta.management.model.message.Message;
+import org.terracotta.management.model.message.MessageFilter;
+import org.terracotta.management.model.message.TopologyMessage;
 
 import java.io.Closeable;
+import java.util.List;
+import java.util.Optional;
 
 /**
  * Class used by the active NMS Entity to monitor the stripe ans send management calls
@@ -33,14 +38,65 @@ public interface ManagementService extends Closeable {
   void setManagementExecutor(ManagementExecutor managementExecutor);
     
   /**
-   * @return the current topology. You must not apply any mutation to the returned object.
+   * @return the current topology. The returned object is read-only (see {@link Cluster#readOnlyCopy()}): use {@link Cluster#copy()} to modify it.
    * A cluster is a composition of several clients and stripes, but the returned cluster will only have one stripe: the one we are currently on.
-   * The stripe name can be configured.
+   * The stripe name can be configured with {@link ManagementServiceConfiguration#ManagementServiceConfiguration(String)}.
    * <p>
    * Can be called from active entity only
    */
   Cluster readTopology();
 
+  /**
+   * @return the current topology snapshot, with its version. Same as {@link #readTopology()} but also gives the
+   * version to use with {@link #readTopologyChanges(long)} afterwards.
+   * <p>
+   * Can be called from active entity only
+   */
+  TopologySnapshot readTopologySnapshot();
+
+  /**
+   * @return the topology changes that happened after the given topology version, in version order,
+   * or nothing if they are not available anymore, in which case the topology must be read again.
+   * <p>
+   * Can be called from active entity only
+   */
+  Optional<List<TopologyChange>> readTopologyChanges(long sinceVersion);
+
+  /**
+   * Subscribes a client of the entity to the topology changes. Each change will then be sent to this client through
+   * {@link ManagementExecutor#sendMessageToClient(Message, ClientDescriptor)} as a {@link TopologyMessage#TOPOLOGY_CHANGES} message.
+   * <p>
+   * Changes are pushed as soon as the client is subscribed, so the client can receive changes that are also contained
+   * in the returned message: it must ignore the changes it already has, according to their version.
+   * <p>
+   * Can be called from active entity only
+   *
+   * @param topologyId   the topology identifier of the last topology message received by this client, or null
+   * @param sinceVersion the version of the last topology message received by this client
+   * @return the changes that happened after this version ({@link TopologyMessage#TOPOLOGY_CHANGES}), or the whole topology
+   * ({@link TopologyMessage#TOPOLOGY}) if they are not available anymore or if the topology identifier does not match the current one
+   */
+  TopologyMessage subscribeTopologyChanges(ClientDescriptor subscriber, String topologyId, long sinceVersion);
+
+  /**
+   * Stops sending topology changes to this client. This is automatically done when the client disconnects.
+   * <p>
+   * Can be called from active entity only
+   */
+  void unsubscribeTopologyChanges(ClientDescriptor subscriber);
+
+  /**
+   * Sets the filter selecting the notifications and statistics sent to this client. Other messages are not filtered.
+   * Elements of a message that are not accepted are removed from the message sent to this client, and nothing is sent
+   * if no element is accepted. A filter set before the fetch of the client is seen (i.e. restored on reconnect) is kept and
+   * applied from the fetch on. The filter is removed when the client disconnects.
+   * <p>
+   * Can be called from active entity only
+   *
+   * @param filter the filter to use, or null to receive everything
+   */
+  void setMessageFilter(ClientDescriptor subscriber, MessageFilter filter);
+
   /**
    * Request a management call from an entity client to another client of the same entity
    * <p>
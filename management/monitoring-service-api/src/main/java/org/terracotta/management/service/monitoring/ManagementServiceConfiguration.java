@@ -22,6 +22,23 @@ import org.terracotta.entity.ServiceConfiguration;
  */
 public class ManagementServiceConfiguration implements ServiceConfiguration<ManagementService> {
 
+  private final String stripeName;
+
+  public ManagementServiceConfiguration() {
+    this(null);
+  }
+
+  /**
+   * @param stripeName the name to give to the stripe in the topology read from the service, or null to keep the default one
+   */
+  public ManagementServiceConfiguration(String stripeName) {
+    this.stripeName = stripeName;
+  }
+
+  public String getStripeName() {
+    return stripeName;
+  }
+
   @Override
   public Class<ManagementService> getServiceType() {
     return ManagementService.class;
@@ -0,0 +1,92 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.management.service.monitoring;
+
+import org.terracotta.management.model.context.Context;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A topology change (client connected, entity fetched, server state changed...) that moved the topology from
+ * {@code version - 1} to {@code version}.
+ * The type is the name of the topology notification, and the context the context of the node that changed.
+ */
+public final class TopologyChange implements Serializable {
+
+  private static final long serialVersionUID = 1;
+
+  private final long version;
+  private final String type;
+  private final Context context;
+  private final Map<String, String> attributes;
+
+  public TopologyChange(long version, String type, Context context, Map<String, String> attributes) {
+    this.version = version;
+    this.type = Objects.requireNonNull(type);
+    this.context = Objects.requireNonNull(context);
+    this.attributes = Collections.unmodifiableMap(new HashMap<>(attributes));
+  }
+
+  public long getVersion() {
+    return version;
+  }
+
+  public String getType() {
+    return type;
+  }
+
+  public Context getContext() {
+    return context;
+  }
+
+  public Map<String, String> getAttributes() {
+    return attributes;
+  }
+
+  @Override
+  public String toString() {
+    return "TopologyChange{" +
+        "version=" + version +
+        ", type='" + type + '\'' +
+        ", context=" + context +
+        ", attributes=" + attributes +
+        '}';
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+    TopologyChange that = (TopologyChange) o;
+    return version == that.version
+        && type.equals(that.type)
+        && context.equals(that.context)
+        && attributes.equals(that.attributes);
+  }
+
+  @Override
+  public int hashCode() {
+    int result = (int) (version ^ (version >>> 32));
+    result = 31 * result + type.hashCode();
+    result = 31 * result + context.hashCode();
+    result = 31 * result + attributes.hashCode();
+    return result;
+  }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.management.service.monitoring;
+
+import org.terracotta.management.model.cluster.Cluster;
+
+/**
+ * An immutable view of the topology at a given version, shared between all the readers of this version.
+ */
+public final class TopologySnapshot {
+
+  private final long version;
+  private final Cluster cluster;
+
+  /**
+   * @param cluster the topology at this version, which is copied if it can be modified
+   */
+  public TopologySnapshot(long version, Cluster cluster) {
+    this.version = version;
+    this.cluster = cluster.isReadOnly() ? cluster : cluster.readOnlyCopy();
+  }
+
+  /**
+   * @return the topology version of this snapshot. It is increased on each topology change.
+   */
+  public long getVersion() {
+    return version;
+  }
+
+  /**
+   * @return the topology at this version. This object is shared and read-only: use {@link Cluster#copy()} to modify it.
+   */
+  public Cluster getCluster() {
+    return cluster;
+  }
+
+  @Override
+  public String toString() {
+    return "TopologySnapshot{" +
+        "version=" + version +
+        ", cluster=" + cluster +
+        '}';
+  }
+}
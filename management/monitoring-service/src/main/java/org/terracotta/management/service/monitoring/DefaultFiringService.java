@@ -20,37 +20,51 @@ import org.terracotta.management.model.call.ContextualReturn;
 import org.terracotta.management.model.cluster.Client;
 import org.terracotta.management.model.message.DefaultManagementCallMessage;
 import org.terracotta.management.model.message.DefaultMessage;
+import org.terracotta.management.model.message.Message;
 import org.terracotta.management.model.notification.ContextualNotification;
 import org.terracotta.management.model.stats.ContextualStatistics;
+import org.terracotta.management.sequence.Sequence;
 import org.terracotta.management.sequence.SequenceGenerator;
 
+import java.io.Closeable;
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
+ * Notifications and statistics are either sent to the management services in the calling thread,
+ * or, when a {@link FiringPipeline} is used, queued and sent in batches from the pipeline thread.
+ * Management calls and their answers are always sent in the calling thread.
+ *
  * @author Mathieu Carbou
  */
-class DefaultFiringService implements FiringService {
+class DefaultFiringService implements FiringService, Closeable {
 
   private final SequenceGenerator sequenceGenerator;
   private final List<DefaultManagementService> managementServices = new CopyOnWriteArrayList<>();
   private final List<DefaultClientMonitoringService> clientMonitoringServices = new CopyOnWriteArrayList<>();
+  private final FiringPipeline<Message> pipeline;
 
   DefaultFiringService(SequenceGenerator sequenceGenerator) {
     this.sequenceGenerator = Objects.requireNonNull(sequenceGenerator);
+    this.pipeline = null;
+  }
+
+  DefaultFiringService(SequenceGenerator sequenceGenerator, FiringConfiguration configuration) {
+    this.sequenceGenerator = Objects.requireNonNull(sequenceGenerator);
+    this.pipeline = new FiringPipeline<>("ManagementFiring", configuration,
+        batch -> managementServices.forEach(managementService -> managementService.onMessagesToSend(batch)));
   }
 
   @Override
   public void fireNotification(ContextualNotification notification) {
-    DefaultMessage message = new DefaultMessage(sequenceGenerator.next(), "NOTIFICATION", notification);
-    managementServices.forEach(managementService -> managementService.onMessageToSend(message));
+    fire(new DefaultMessage(sequenceGenerator.next(), "NOTIFICATION", notification));
   }
 
   @Override
   public void fireStatistics(ContextualStatistics[] statistics) {
-    DefaultMessage message = new DefaultMessage(sequenceGenerator.next(), "STATISTICS", statistics);
-    managementServices.forEach(managementService -> managementService.onMessageToSend(message));
+    fire(new DefaultMessage(sequenceGenerator.next(), "STATISTICS", statistics));
   }
 
   @Override
@@ -69,6 +83,21 @@ class DefaultFiringService implements FiringService {
     }
   }
 
+  @Override
+  public void close() {
+    if (pipeline != null) {
+      pipeline.close();
+    }
+  }
+
+  Optional<FiringPipeline<Message>> getPipeline() {
+    return Optional.ofNullable(pipeline);
+  }
+
+  Sequence nextSequence() {
+    return sequenceGenerator.next();
+  }
+
   void addClientMonitoringService(DefaultClientMonitoringService clientMonitoringService) {
     clientMonitoringServices.add(clientMonitoringService);
   }
@@ -84,4 +113,16 @@ class DefaultFiringService implements FiringService {
   void removeManagementService(DefaultManagementService managementService) {
     managementServices.remove(managementService);
   }
+
+  List<DefaultManagementService> getManagementServices() {
+    return managementServices;
+  }
+
+  private void fire(Message message) {
+    if (pipeline == null) {
+      managementServices.forEach(managementService -> managementService.onMessageToSend(message));
+    } else {
+      pipeline.offer(message);
+    }
+  }
 }
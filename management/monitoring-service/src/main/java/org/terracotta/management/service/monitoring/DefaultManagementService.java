@@ -27,16 +27,27 @@ import org.terracotta.management.model.cluster.Server;
 import org.terracotta.management.model.cluster.ServerEntity;
 import org.terracotta.management.model.context.Context;
 import org.terracotta.management.model.context.Contextual;
+import org.terracotta.management.model.message.DefaultMessage;
 import org.terracotta.management.model.message.ManagementCallMessage;
 import org.terracotta.management.model.message.Message;
+import org.terracotta.management.model.message.MessageFilter;
+import org.terracotta.management.model.message.TopologyMessage;
+import org.terracotta.management.model.notification.ContextualNotification;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
 
 /**
  * @author Mathieu Carbou
@@ -48,14 +59,26 @@ class DefaultManagementService implements ManagementService, TopologyEventListen
   private final long consumerId;
   private final DefaultFiringService firingService;
   private final TopologyService topologyService;
-  private final Map<ClientDescriptor, Collection<String>> managementCallRequests = new ConcurrentHashMap<>();
+  private final String stripeName;
+  private final ManagementCallTracker managementCallTracker = new ManagementCallTracker();
+  private final Set<ClientDescriptor> topologySubscribers = ConcurrentHashMap.newKeySet();
+  // filters of the fetching clients, which are the ones messages are sent to. Updated under this.
+  private final ConcurrentMap<ClientDescriptor, MessageFilter> messageFilters = new ConcurrentHashMap<>();
+  // filters set (or restored on reconnect) before the fetch of the client is seen, registered with the fetch. Guarded by this.
+  private final Map<ClientDescriptor, MessageFilter> pendingMessageFilters = new HashMap<>();
 
   private volatile ManagementExecutor managementExecutor;
 
-  DefaultManagementService(long consumerId, TopologyService topologyService, DefaultFiringService firingService) {
+  // true when at least one client has a filter: messages are then sent client per client
+  private volatile boolean filtering;
+  // message types at least one client is interested in, or null for all types
+  private volatile Set<String> interestedTypes;
+
+  DefaultManagementService(long consumerId, TopologyService topologyService, DefaultFiringService firingService, String stripeName) {
     this.consumerId = consumerId;
     this.topologyService = Objects.requireNonNull(topologyService);
     this.firingService = Objects.requireNonNull(firingService);
+    this.stripeName = stripeName;
 
     topologyService.addTopologyEventListener(this);
     firingService.addManagementService(this);
@@ -70,7 +93,54 @@ class DefaultManagementService implements ManagementService, TopologyEventListen
   @Override
   public Cluster readTopology() {
     LOGGER.trace("[{}] readTopology()", consumerId);
-    return topologyService.getClusterCopy();
+    return topologyService.getTopologySnapshot(stripeName).getCluster();
+  }
+
+  @Override
+  public TopologySnapshot readTopologySnapshot() {
+    LOGGER.trace("[{}] readTopologySnapshot()", consumerId);
+    return topologyService.getTopologySnapshot(stripeName);
+  }
+
+  @Override
+  public Optional<List<TopologyChange>> readTopologyChanges(long sinceVersion) {
+    LOGGER.trace("[{}] readTopologyChanges({})", consumerId, sinceVersion);
+    return topologyService.getTopologyChanges(sinceVersion);
+  }
+
+  @Override
+  public TopologyMessage subscribeTopologyChanges(ClientDescriptor subscriber, String topologyId, long sinceVersion) {
+    LOGGER.trace("[{}] subscribeTopologyChanges({}, {}, {})", consumerId, subscriber, topologyId, sinceVersion);
+    // subscribe first so that no change can be missed between the read below and the next pushed change
+    topologySubscribers.add(Objects.requireNonNull(subscriber));
+    String currentTopologyId = topologyService.getTopologyId();
+    if (currentTopologyId.equals(topologyId)) {
+      Optional<List<TopologyChange>> changes = topologyService.getTopologyChanges(sinceVersion);
+      if (changes.isPresent()) {
+        return toMessage(currentTopologyId, sinceVersion, changes.get());
+      }
+    }
+    TopologySnapshot snapshot = topologyService.getTopologySnapshot(stripeName);
+    return new TopologyMessage(firingService.nextSequence(), TopologyMessage.TOPOLOGY, currentTopologyId, snapshot.getVersion(), snapshot.getVersion(), snapshot.getCluster());
+  }
+
+  @Override
+  public void unsubscribeTopologyChanges(ClientDescriptor subscriber) {
+    LOGGER.trace("[{}] unsubscribeTopologyChanges({})", consumerId, subscriber);
+    topologySubscribers.remove(subscriber);
+  }
+
+  @Override
+  public synchronized void setMessageFilter(ClientDescriptor subscriber, MessageFilter filter) {
+    LOGGER.trace("[{}] setMessageFilter({}, {})", consumerId, subscriber, filter);
+    Objects.requireNonNull(subscriber);
+    filter = filter == null ? MessageFilter.all() : filter;
+    if (messageFilters.replace(subscriber, filter) != null) {
+      updateFiltering();
+    } else {
+      // fetch not seen yet: i.e. the onFetch event is still queued, or the filter is restored before the fetch is replayed
+      pendingMessageFilters.put(subscriber, filter);
+    }
   }
 
   @Override
@@ -103,7 +173,7 @@ class DefaultManagementService implements ManagementService, TopologyEventListen
       throw new IllegalArgumentException(context.toString());
     }
 
-    track(caller, managementCallIdentifier);
+    managementCallTracker.track(caller, managementCallIdentifier);
 
     firingService.fireManagementCallRequest(managementCallIdentifier, new ContextualCall<>(fullContext, capabilityName, methodName, returnType, parameters));
 
@@ -113,47 +183,190 @@ class DefaultManagementService implements ManagementService, TopologyEventListen
   @Override
   public void onBecomeActive(String serverName) {
     LOGGER.trace("[{}] onBecomeActive()", this.consumerId);
-    managementCallRequests.clear();
+    managementCallTracker.clear();
+    topologySubscribers.clear();
+    synchronized (this) {
+      messageFilters.clear();
+      pendingMessageFilters.clear();
+      updateFiltering();
+    }
+  }
+
+  @Override
+  public void onFetch(long consumerId, ClientDescriptor clientDescriptor) {
+    if (consumerId == this.consumerId) {
+      LOGGER.trace("[{}] onFetch({})", this.consumerId, clientDescriptor);
+      synchronized (this) {
+        // the client is only sent messages once registered with its filter
+        MessageFilter pending = pendingMessageFilters.remove(clientDescriptor);
+        messageFilters.put(clientDescriptor, pending == null ? messageFilters.getOrDefault(clientDescriptor, MessageFilter.all()) : pending);
+        updateFiltering();
+      }
+    }
   }
 
   @Override
   public void onUnfetch(long consumerId, ClientDescriptor clientDescriptor) {
     if (consumerId == this.consumerId) {
-      if (managementCallRequests.remove(clientDescriptor) != null) {
-        LOGGER.trace("[{}] onUnfetch({})", this.consumerId, clientDescriptor);
+      LOGGER.trace("[{}] onUnfetch({})", this.consumerId, clientDescriptor);
+      managementCallTracker.unTrackAll(clientDescriptor);
+      topologySubscribers.remove(clientDescriptor);
+      synchronized (this) {
+        pendingMessageFilters.remove(clientDescriptor);
+        if (messageFilters.remove(clientDescriptor) != null) {
+          updateFiltering();
+        }
       }
     }
   }
 
+  @Override
+  public void onTopologyChange(TopologyChange change) {
+    ManagementExecutor managementExecutor = this.managementExecutor;
+    if (managementExecutor != null && !topologySubscribers.isEmpty()) {
+      TopologyMessage message = toMessage(topologyService.getTopologyId(), change.getVersion() - 1, Collections.singletonList(change));
+      topologySubscribers.forEach(subscriber -> managementExecutor.sendMessageToClient(message, subscriber));
+    }
+  }
+
+  /**
+   * Sends a batch of messages in their order, each one with its own sequence.
+   * The tags of the clients used to filter notifications and statistics are resolved once for the whole batch.
+   */
+  void onMessagesToSend(List<Message> messages) {
+    ManagementExecutor managementExecutor = this.managementExecutor;
+    if (managementExecutor == null) {
+      return;
+    }
+    Function<Context, Collection<String>> clientTags = clientTagsResolver();
+    for (Message message : messages) {
+      switch (message.getType()) {
+        case "NOTIFICATION":
+          if (isInterestedIn(message.getType())) {
+            sendToClients(managementExecutor, message, clientTags);
+          }
+          break;
+        case "STATISTICS":
+          if (isInterestedIn(message.getType()) && acceptStatistics(message)) {
+            sendToClients(managementExecutor, message, clientTags);
+          }
+          break;
+        default:
+          onMessageToSend(message);
+      }
+    }
+  }
+
+  /**
+   * Broadcasts the message when no client has a filter, otherwise sends to each client the part of the message it accepts.
+   */
+  private void sendToClients(ManagementExecutor managementExecutor, Message message, Function<Context, Collection<String>> clientTags) {
+    if (!filtering) {
+      managementExecutor.sendMessageToClients(message);
+      return;
+    }
+    List<Contextual> contextuals = message.unwrap(Contextual.class);
+    for (Map.Entry<ClientDescriptor, MessageFilter> entry : messageFilters.entrySet()) {
+      MessageFilter filter = entry.getValue();
+      if (filter.isAll()) {
+        managementExecutor.sendMessageToClient(message, entry.getKey());
+      } else if (filter.acceptsType(message.getType())) {
+        List<Contextual> accepted = new ArrayList<>(contextuals.size());
+        for (Contextual contextual : contextuals) {
+          if (filter.accepts(contextual, clientTags)) {
+            accepted.add(contextual);
+          }
+        }
+        if (accepted.size() == contextuals.size()) {
+          managementExecutor.sendMessageToClient(message, entry.getKey());
+        } else if (!accepted.isEmpty()) {
+          managementExecutor.sendMessageToClient(new DefaultMessage(message.getSequence(), message.getType(), accepted.toArray(new Contextual[accepted.size()])), entry.getKey());
+        }
+      }
+    }
+  }
+
+  /**
+   * Resolves the tags of the client a context belongs to, reading the topology at most once
+   */
+  private Function<Context, Collection<String>> clientTagsResolver() {
+    Cluster[] cluster = new Cluster[1];
+    return context -> {
+      if (!context.contains(Client.KEY)) {
+        return null;
+      }
+      if (cluster[0] == null) {
+        cluster[0] = topologyService.getTopologySnapshot().getCluster();
+      }
+      return cluster[0].getClient(context).map(Client::getTags).orElse(null);
+    };
+  }
+
+  private boolean isInterestedIn(String type) {
+    Set<String> interestedTypes = this.interestedTypes;
+    return interestedTypes == null || interestedTypes.contains(type);
+  }
+
+  // guarded by this
+  private void updateFiltering() {
+    boolean filtering = false;
+    Set<String> interestedTypes = new HashSet<>();
+    for (MessageFilter filter : messageFilters.values()) {
+      if (!filter.isAll()) {
+        filtering = true;
+      }
+      if (interestedTypes != null) {
+        if (filter.getTypes().isEmpty()) {
+          interestedTypes = null;
+        } else {
+          interestedTypes.addAll(filter.getTypes());
+        }
+      }
+    }
+    // without any known client (i.e. fetches not yet replayed), nothing is skipped
+    this.interestedTypes = messageFilters.isEmpty() ? null : interestedTypes;
+    this.filtering = filtering;
+  }
+
+  private boolean acceptStatistics(Message message) {
+    String cid = "" + consumerId;
+    // The statistic collector collects all statistics from the shared management registry (entities)
+    // plus 1 management entity (which contains this collector).
+    // Here, we only accept groups of stats that are collected by the collector that have the same
+    // consumerId (same NMS entity)
+    return message.unwrap(Contextual.class).stream()
+        .map(Contextual::getContext)
+        .anyMatch(context -> context.contains(Client.KEY) || context.contains("collectorId", cid));
+  }
+
+  private TopologyMessage toMessage(String topologyId, long fromVersion, List<TopologyChange> changes) {
+    ContextualNotification[] notifications = new ContextualNotification[changes.size()];
+    for (int i = 0; i < notifications.length; i++) {
+      TopologyChange change = changes.get(i);
+      notifications[i] = new ContextualNotification(change.getContext(), change.getType(), change.getAttributes());
+    }
+    return new TopologyMessage(firingService.nextSequence(), TopologyMessage.TOPOLOGY_CHANGES, topologyId, fromVersion, fromVersion + notifications.length, notifications);
+  }
+
   void onMessageToSend(Message message) {
     switch (message.getType()) {
 
       case "NOTIFICATION":
-        if (managementExecutor != null) {
-          managementExecutor.sendMessageToClients(message);
+        if (managementExecutor != null && isInterestedIn(message.getType())) {
+          sendToClients(managementExecutor, message, clientTagsResolver());
         }
         break;
 
       case "STATISTICS":
-        if (managementExecutor != null) {
-          String cid = "" + consumerId;
-          // The statistic collector collects all statistics from the shared management registry (entities)
-          // plus 1 management entity (which contains this collector).
-          // Here, we only accept groups of stats that are collected by the collector that have the same 
-          // consumerId (same NMS entity)
-          boolean accepted = message.unwrap(Contextual.class).stream()
-              .map(Contextual::getContext)
-              .anyMatch(context -> context.contains(Client.KEY) || context.contains("collectorId", cid));
-          if (accepted) {
-            managementExecutor.sendMessageToClients(message);
-          }
+        if (managementExecutor != null && isInterestedIn(message.getType()) && acceptStatistics(message)) {
+          sendToClients(managementExecutor, message, clientTagsResolver());
         }
         break;
 
       case "MANAGEMENT_CALL":
         ManagementCallMessage managementCallMessage = (ManagementCallMessage) message;
         String managementCallIdentifier = managementCallMessage.getManagementCallIdentifier();
-        if (isTracked(managementCallIdentifier)) {
+        if (managementCallTracker.isTracked(managementCallIdentifier)) {
           ContextualCall<?> call = managementCallMessage.unwrap(ContextualCall.class).get(0);
           if (managementExecutor != null) {
             managementExecutor.executeManagementCallOnServer(managementCallIdentifier, call);
@@ -163,7 +376,7 @@ class DefaultManagementService implements ManagementService, TopologyEventListen
 
       case "MANAGEMENT_CALL_RETURN":
         ManagementCallMessage managementCallResultMessage = (ManagementCallMessage) message;
-        unTrack(managementCallResultMessage.getManagementCallIdentifier()).ifPresent(clientDescriptor -> {
+        managementCallTracker.unTrack(managementCallResultMessage.getManagementCallIdentifier()).ifPresent(clientDescriptor -> {
           if (managementExecutor != null) {
             managementExecutor.sendMessageToClient(message, clientDescriptor);
           }
@@ -175,34 +388,24 @@ class DefaultManagementService implements ManagementService, TopologyEventListen
     }
   }
 
-  private void track(ClientDescriptor caller, String managementCallIdentifier) {
-    managementCallRequests
-        .computeIfAbsent(caller, clientDescriptor -> new ConcurrentSkipListSet<>())
-        .add(managementCallIdentifier);
-  }
-
-  private Optional<ClientDescriptor> unTrack(String managementCallIdentifier) {
-    for (Map.Entry<ClientDescriptor, Collection<String>> entry : managementCallRequests.entrySet()) {
-      if (entry.getValue().remove(managementCallIdentifier)) {
-        return Optional.of(entry.getKey());
-      }
-    }
-    return Optional.empty();
+  long getConsumerId() {
+    return consumerId;
   }
 
-  private boolean isTracked(String managementCallIdentifier) {
-    for (Map.Entry<ClientDescriptor, Collection<String>> entry : managementCallRequests.entrySet()) {
-      if (entry.getValue().contains(managementCallIdentifier)) {
-        return true;
-      }
-    }
-    return false;
+  ManagementCallTracker getManagementCallTracker() {
+    return managementCallTracker;
   }
 
   @Override
   public void close() {
     LOGGER.info("[{}] Closing management service", this.consumerId);
-    managementCallRequests.clear();
+    managementCallTracker.clear();
+    topologySubscribers.clear();
+    synchronized (this) {
+      messageFilters.clear();
+      pendingMessageFilters.clear();
+      updateFiltering();
+    }
     topologyService.removeTopologyEventListener(this);
     firingService.removeManagementService(this);
   }
@@ -211,6 +414,7 @@ class DefaultManagementService implements ManagementService, TopologyEventListen
   public String toString() {
     final StringBuilder sb = new StringBuilder("DefaultManagementService{");
     sb.append("consumerId=").append(consumerId);
+    sb.append(", managementCalls=").append(managementCallTracker);
     sb.append('}');
     return sb.toString();
   }
@@ -28,10 +28,13 @@ import org.terracotta.management.service.monitoring.registry.provider.StatisticC
 
 import java.io.Closeable;
 import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
@@ -44,6 +47,12 @@ class DefaultStatisticService implements StatisticService, Closeable {
   private static final Logger LOGGER = LoggerFactory.getLogger(DefaultStatisticService.class);
 
   private static final AtomicLong managementSchedulerCount = new AtomicLong();
+  private static final AtomicLong managementCollectorCount = new AtomicLong();
+
+  // when greater than 1, the capabilities are queried in parallel on a dedicated pool during a collection
+  private static final int COLLECTOR_THREADS = Integer.getInteger("terracotta.management.statistics.collectorThreads", 1);
+  // maximum time to wait for the capabilities to be queried in parallel, defaults to the collection interval
+  private static final long COLLECTION_BUDGET_MS = Long.getLong("terracotta.management.statistics.collectionBudgetMs", 0L);
 
   private final ScheduledExecutorService managementScheduler = Executors.unconfigurableScheduledExecutorService(new ScheduledThreadPoolExecutor(
       1,
@@ -57,6 +66,21 @@ class DefaultStatisticService implements StatisticService, Closeable {
       new ThreadPoolExecutor.AbortPolicy()
   ));
 
+  private final ExecutorService collectionExecutor = COLLECTOR_THREADS <= 1 ? null : new ThreadPoolExecutor(
+      COLLECTOR_THREADS,
+      COLLECTOR_THREADS,
+      0L, TimeUnit.MILLISECONDS,
+      new ArrayBlockingQueue<>(1024),
+      r -> {
+        Thread t = Executors.defaultThreadFactory().newThread(r);
+        t.setDaemon(true);
+        t.setName("ManagementCollector-" + managementCollectorCount.incrementAndGet());
+        t.setUncaughtExceptionHandler((thread, err) -> LOGGER.error("UncaughtException in thread " + thread.getName() + ": " + err.getMessage(), err));
+        return t;
+      },
+      new ThreadPoolExecutor.AbortPolicy()
+  );
+
   private final SharedEntityManagementRegistry sharedEntityManagementRegistry;
   private final TimeSource timeSource;
 
@@ -90,7 +114,10 @@ class DefaultStatisticService implements StatisticService, Closeable {
           list.forEach(stats -> stats.setContext(stats.getContext().with("collectorId", "" + consumerId)));
           monitoringService.pushStatistics(list.toArray(new ContextualStatistics[list.size()]));
         },
-        timeSource::getTimestamp
+        timeSource::getTimestamp,
+        collectionExecutor,
+        COLLECTION_BUDGET_MS,
+        TimeUnit.MILLISECONDS
     );
 
     // add a collector service, not started by default, but that can be started through a remote management call
@@ -103,6 +130,9 @@ class DefaultStatisticService implements StatisticService, Closeable {
   public void close() {
     LOGGER.info("Closing statistic service");
     ExecutorUtil.shutdownNow(managementScheduler);
+    if (collectionExecutor != null) {
+      collectionExecutor.shutdownNow();
+    }
   }
 
 }
@@ -15,21 +15,68 @@
  */
 package org.terracotta.management.service.monitoring;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Objects;
-import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
+import java.util.function.LongSupplier;
 
 /**
+ * Delays executions until a value is known.
+ * <p>
+ * The delayed executions are kept in insertion order in a linked list. Tagged executions are also indexed by tag so
+ * that replacing one is done in constant time. The list is bounded (the oldest executions are dropped) and executions
+ * that waited longer than the TTL are discarded.
+ *
  * @author Mathieu Carbou
  */
 class ExecutionChain<T> {
 
-  private final Queue<TaggedConsumer<T>> chain = new ConcurrentLinkedQueue<>();
+  private static final Logger LOGGER = LoggerFactory.getLogger(ExecutionChain.class);
+
+  static final int DEFAULT_CAPACITY = Integer.getInteger("terracotta.management.executionChain.capacity", 1024);
+  static final long DEFAULT_TTL_MS = Long.getLong("terracotta.management.executionChain.ttlMs", 5 * 60 * 1000L);
+
+  private final int capacity;
+  private final long ttlNanos;
+  private final LongSupplier nanoClock;
+
+  // guarded by this
+  private long lastActivityNanos;
+  private Node<T> head;
+  private Node<T> tail;
+  private int size;
+  private Map<String, Node<T>> tagged;
+  private long dropped;
+  private long expired;
 
   private volatile boolean done;
   private volatile T value;
 
+  ExecutionChain() {
+    this(DEFAULT_CAPACITY, DEFAULT_TTL_MS, TimeUnit.MILLISECONDS, System::nanoTime);
+  }
+
+  /**
+   * @param ttl executions delayed longer than this are discarded, 0 to keep them forever
+   */
+  ExecutionChain(int capacity, long ttl, TimeUnit unit, LongSupplier nanoClock) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Bad capacity: " + capacity);
+    }
+    if (ttl < 0) {
+      throw new IllegalArgumentException("Bad TTL: " + ttl);
+    }
+    this.capacity = capacity;
+    this.ttlNanos = unit.toNanos(ttl);
+    this.nanoClock = Objects.requireNonNull(nanoClock);
+    this.lastActivityNanos = nanoClock.getAsLong();
+  }
+
   // execute if possible or discard the execution
   void executeOrDiscard(Consumer<T> consumer) {
     if (done) {
@@ -39,44 +86,151 @@ class ExecutionChain<T> {
 
   // enqueue future executions
   void executeOrDelay(Consumer<T> consumer) {
-    if (done) {
+    if (!delay(null, Objects.requireNonNull(consumer))) {
       consumer.accept(value);
-    } else {
-      chain.offer(new TaggedConsumer<>(consumer));
     }
   }
 
   // enqueue future execution but remove those with the same tag that were there before
   void executeOrDelay(String tag, Consumer<T> consumer) {
-    if (done) {
+    if (!delay(Objects.requireNonNull(tag), Objects.requireNonNull(consumer))) {
       consumer.accept(value);
-    } else {
-      TaggedConsumer<T> tc = new TaggedConsumer<>(tag, consumer);
-      chain.removeIf(taggedConsumer -> tag.equals(taggedConsumer.tag));
-      chain.offer(tc);
     }
   }
 
   void complete(T t) {
-    value = t; // we allow the value to be reset
-    done = true;
-    while (!chain.isEmpty()) {
-      chain.poll().consumer.accept(t);
+    Node<T> node;
+    synchronized (this) {
+      value = t; // we allow the value to be reset
+      done = true;
+      node = head;
+      clear();
+    }
+    // executions are run outside the lock: they can take other locks
+    for (; node != null; node = node.next) {
+      node.consumer.accept(t);
     }
   }
 
-  private static final class TaggedConsumer<T> {
-    final String tag;
-    final Consumer<T> consumer;
+  boolean isDone() {
+    return done;
+  }
+
+  synchronized int size() {
+    return size;
+  }
+
+  synchronized long getDroppedCount() {
+    return dropped;
+  }
+
+  synchronized long getExpiredCount() {
+    return expired;
+  }
+
+  /**
+   * Discards the expired executions
+   *
+   * @return true if this chain is not completed, does not hold any execution anymore and was not used for longer than the TTL, so that it can be forgotten
+   */
+  synchronized boolean purge() {
+    if (done || ttlNanos == 0) {
+      return false;
+    }
+    long now = nanoClock.getAsLong();
+    purgeExpired(now);
+    return head == null && now - lastActivityNanos > ttlNanos;
+  }
+
+  /**
+   * @return false if the chain is already completed
+   */
+  private synchronized boolean delay(String tag, Consumer<T> consumer) {
+    if (done) {
+      return false;
+    }
+    long now = nanoClock.getAsLong();
+    lastActivityNanos = now;
+    purgeExpired(now);
+    if (tag != null && tagged != null) {
+      Node<T> replaced = tagged.remove(tag);
+      if (replaced != null) {
+        unlink(replaced);
+      }
+    }
+    if (size == capacity) {
+      if (dropped++ == 0) {
+        LOGGER.warn("Too many delayed executions (capacity: {}): dropping the oldest ones", capacity);
+      }
+      remove(head);
+    }
+    Node<T> node = new Node<>(tag, consumer, now);
+    if (tail == null) {
+      head = tail = node;
+    } else {
+      node.prev = tail;
+      tail.next = node;
+      tail = node;
+    }
+    size++;
+    if (tag != null) {
+      if (tagged == null) {
+        tagged = new HashMap<>();
+      }
+      tagged.put(tag, node);
+    }
+    return true;
+  }
+
+  private void purgeExpired(long now) {
+    if (ttlNanos > 0) {
+      // nodes are sorted by time
+      while (head != null && now - head.time > ttlNanos) {
+        expired++;
+        remove(head);
+      }
+    }
+  }
+
+  private void remove(Node<T> node) {
+    if (node.tag != null) {
+      tagged.remove(node.tag);
+    }
+    unlink(node);
+  }
 
-    TaggedConsumer(Consumer<T> consumer) {
-      this.tag = null;
-      this.consumer = Objects.requireNonNull(consumer);
+  private void unlink(Node<T> node) {
+    if (node.prev == null) {
+      head = node.next;
+    } else {
+      node.prev.next = node.next;
+    }
+    if (node.next == null) {
+      tail = node.prev;
+    } else {
+      node.next.prev = node.prev;
     }
+    node.prev = node.next = null;
+    size--;
+  }
+
+  private void clear() {
+    head = tail = null;
+    size = 0;
+    tagged = null;
+  }
+
+  private static final class Node<T> {
+    final String tag;
+    final Consumer<T> consumer;
+    final long time;
+    Node<T> prev;
+    Node<T> next;
 
-    TaggedConsumer(String tag, Consumer<T> consumer) {
-      this.tag = Objects.requireNonNull(tag);
-      this.consumer = Objects.requireNonNull(consumer);
+    Node(String tag, Consumer<T> consumer, long time) {
+      this.tag = tag;
+      this.consumer = consumer;
+      this.time = time;
     }
   }
 }
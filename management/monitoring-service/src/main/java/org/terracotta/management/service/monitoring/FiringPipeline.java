@@ -0,0 +1,210 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.management.service.monitoring;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * A bounded queue of events drained by a dedicated thread, which hands them over in batches (in order) to a consumer.
+ * <p>
+ * The thread queuing the event never runs the consumer. When the queue is full, the {@link FiringConfiguration.OverflowPolicy}
+ * decides whether this thread waits (for a bounded time) or the event is dropped.
+ */
+class FiringPipeline<E> implements Closeable {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(FiringPipeline.class);
+
+  // queued by close() after the last event, so that the pipeline thread can wait for events without polling
+  private static final Object END = new Object();
+
+  private final BlockingQueue<Object> queue;
+  private final FiringConfiguration configuration;
+  private final Consumer<List<E>> consumer;
+  private final Thread thread;
+  private final AtomicLong fired = new AtomicLong();
+  private final AtomicLong batches = new AtomicLong();
+  private final AtomicLong dropped = new AtomicLong();
+
+  private volatile boolean closed;
+
+  FiringPipeline(String name, FiringConfiguration configuration, Consumer<List<E>> consumer) {
+    this.configuration = Objects.requireNonNull(configuration);
+    this.consumer = Objects.requireNonNull(consumer);
+    this.queue = new ArrayBlockingQueue<>(configuration.getCapacity());
+    this.thread = new Thread(this::drain, name);
+    this.thread.setDaemon(true);
+    this.thread.setUncaughtExceptionHandler((thread, err) -> LOGGER.error("UncaughtException in thread " + thread.getName() + ": " + err.getMessage(), err));
+    this.thread.start();
+  }
+
+  /**
+   * @return true if the event was queued, false if it was dropped
+   */
+  boolean offer(E event) {
+    Objects.requireNonNull(event);
+    boolean queued = !closed && enqueue(event);
+    if (!queued) {
+      long count = dropped.incrementAndGet();
+      LOGGER.debug("Dropped event: {} events dropped so far", count);
+    }
+    return queued;
+  }
+
+  int getQueueDepth() {
+    return queue.size();
+  }
+
+  FiringConfiguration.OverflowPolicy getOverflowPolicy() {
+    return configuration.getOverflowPolicy();
+  }
+
+  /**
+   * @return the number of events handed over to the consumer
+   */
+  long getFiredCount() {
+    return fired.get();
+  }
+
+  long getBatchCount() {
+    return batches.get();
+  }
+
+  /**
+   * @return the number of events dropped because the queue was full or the pipeline closed
+   */
+  long getDroppedCount() {
+    return dropped.get();
+  }
+
+  /**
+   * Stops queuing new events and waits for the queued ones to be fired
+   */
+  @Override
+  public void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    boolean interrupted = false;
+    while (true) {
+      try {
+        // the pipeline thread keeps draining, and the threads which passed the closed check before wait for a bounded time
+        queue.put(END);
+        break;
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    while (thread.isAlive()) {
+      try {
+        thread.join();
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    // events queued by the threads which passed the closed check after the pipeline thread was done
+    int late = queue.size();
+    if (late > 0) {
+      queue.clear();
+      dropped.addAndGet(late);
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "FiringPipeline{" +
+        "queueDepth=" + getQueueDepth() +
+        ", overflowPolicy=" + getOverflowPolicy() +
+        ", fired=" + fired +
+        ", batches=" + batches +
+        ", dropped=" + dropped +
+        '}';
+  }
+
+  private boolean enqueue(E event) {
+    switch (configuration.getOverflowPolicy()) {
+      case DROP:
+        return queue.offer(event);
+      case BLOCK:
+        try {
+          return queue.offer(event, configuration.getMaxBlockingMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return false;
+        }
+      default:
+        throw new AssertionError(configuration.getOverflowPolicy());
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private void drain() {
+    int maxBatchSize = configuration.getMaxBatchSize();
+    List<Object> queued = new ArrayList<>(Math.min(maxBatchSize, 1024));
+    List<E> batch = new ArrayList<>(Math.min(maxBatchSize, 1024));
+    boolean end = false;
+    // once END is reached, the events queued after it by the threads which passed the closed check are still fired
+    while (!end || !queue.isEmpty()) {
+      if (end) {
+        queue.drainTo(queued, maxBatchSize);
+      } else {
+        try {
+          queued.add(queue.take());
+        } catch (InterruptedException e) {
+          continue;
+        }
+        queue.drainTo(queued, maxBatchSize - 1);
+      }
+      for (Object o : queued) {
+        if (o == END) {
+          end = true;
+        } else {
+          batch.add((E) o);
+        }
+      }
+      queued.clear();
+      if (!batch.isEmpty()) {
+        fire(batch);
+      }
+    }
+  }
+
+  private void fire(List<E> batch) {
+    try {
+      consumer.accept(batch);
+    } catch (RuntimeException e) {
+      LOGGER.error("Error firing " + batch.size() + " events: " + e.getMessage(), e);
+    }
+    fired.addAndGet(batch.size());
+    batches.incrementAndGet();
+    batch.clear();
+  }
+
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.management.service.monitoring;
+
+import org.terracotta.entity.ClientDescriptor;
+
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Keeps track of the management calls sent by the clients of an NMS entity, until their answer is sent back.
+ * <p>
+ * Calls are indexed by identifier and by caller. A call not answered within the timeout is considered abandoned and forgotten.
+ * Abandoned calls are purged whenever the tracker is used or read, so even when no new call comes in. An answered call
+ * is only marked as done, and dropped from the deadline queue once it reaches its head.
+ */
+class ManagementCallTracker {
+
+  static final long DEFAULT_TIMEOUT_MS = Long.getLong("terracotta.management.managementCall.timeoutMs", TimeUnit.MINUTES.toMillis(5));
+
+  private final ConcurrentMap<String, TrackedCall> calls = new ConcurrentHashMap<>();
+  private final ConcurrentMap<ClientDescriptor, Set<String>> callsByCaller = new ConcurrentHashMap<>();
+  // calls in tracking order, thus in deadline order. Only polled by the thread holding the expiring lock.
+  private final Queue<TrackedCall> deadlines = new ConcurrentLinkedQueue<>();
+  private final ReentrantLock expiring = new ReentrantLock();
+  private final long timeoutNanos;
+  private final LongSupplier nanoTime;
+  private final AtomicLong tracked = new AtomicLong();
+  private final AtomicLong answered = new AtomicLong();
+  private final AtomicLong expired = new AtomicLong();
+
+  ManagementCallTracker() {
+    this(DEFAULT_TIMEOUT_MS, TimeUnit.MILLISECONDS, System::nanoTime);
+  }
+
+  ManagementCallTracker(long timeout, TimeUnit unit, LongSupplier nanoTime) {
+    if (timeout <= 0) {
+      throw new IllegalArgumentException("Bad timeout: " + timeout);
+    }
+    this.timeoutNanos = unit.toNanos(timeout);
+    this.nanoTime = Objects.requireNonNull(nanoTime);
+  }
+
+  void track(ClientDescriptor caller, String managementCallIdentifier) {
+    long now = nanoTime.getAsLong();
+    expire(now);
+    TrackedCall call = new TrackedCall(managementCallIdentifier, caller, now + timeoutNanos);
+    callsByCaller.compute(caller, (c, identifiers) -> {
+      if (identifiers == null) {
+        identifiers = ConcurrentHashMap.newKeySet();
+      }
+      identifiers.add(managementCallIdentifier);
+      return identifiers;
+    });
+    calls.put(managementCallIdentifier, call);
+    deadlines.offer(call);
+    tracked.incrementAndGet();
+  }
+
+  boolean isTracked(String managementCallIdentifier) {
+    long now = nanoTime.getAsLong();
+    expire(now);
+    TrackedCall call = calls.get(managementCallIdentifier);
+    return call != null && !call.isExpired(now);
+  }
+
+  /**
+   * @return the caller of this management call if it was still tracked
+   */
+  Optional<ClientDescriptor> unTrack(String managementCallIdentifier) {
+    long now = nanoTime.getAsLong();
+    expire(now);
+    TrackedCall call = calls.remove(managementCallIdentifier);
+    if (call == null) {
+      return Optional.empty();
+    }
+    forget(call);
+    if (call.isExpired(now)) {
+      expired.incrementAndGet();
+      return Optional.empty();
+    }
+    answered.incrementAndGet();
+    return Optional.of(call.caller);
+  }
+
+  /**
+   * Forgets all the calls of a caller, i.e. when it disconnects
+   */
+  void unTrackAll(ClientDescriptor caller) {
+    Set<String> identifiers = callsByCaller.remove(caller);
+    if (identifiers != null) {
+      for (String identifier : identifiers) {
+        TrackedCall call = calls.remove(identifier);
+        if (call != null) {
+          call.done = true;
+        }
+      }
+    }
+  }
+
+  void clear() {
+    expiring.lock();
+    try {
+      calls.clear();
+      callsByCaller.clear();
+      deadlines.clear();
+    } finally {
+      expiring.unlock();
+    }
+  }
+
+  /**
+   * Forgets the calls which have not been answered in time, and drops the answered ones from the head of the deadline
+   * queue. Does nothing if another thread is already doing it.
+   */
+  void expire(long now) {
+    if (!expiring.tryLock()) {
+      return;
+    }
+    try {
+      TrackedCall call;
+      while ((call = deadlines.peek()) != null && (call.done || call.isExpired(now))) {
+        deadlines.poll();
+        if (!call.done && calls.remove(call.managementCallIdentifier, call)) {
+          forget(call);
+          expired.incrementAndGet();
+        }
+      }
+    } finally {
+      expiring.unlock();
+    }
+  }
+
+  /**
+   * @return the number of calls waiting for an answer
+   */
+  int getOutstandingCount() {
+    expire(nanoTime.getAsLong());
+    return calls.size();
+  }
+
+  /**
+   * @return the number of calls in the deadline queue, answered ones included until they reach its head
+   */
+  int getDeadlineQueueSize() {
+    return deadlines.size();
+  }
+
+  long getTrackedCount() {
+    return tracked.get();
+  }
+
+  long getAnsweredCount() {
+    return answered.get();
+  }
+
+  /**
+   * @return the number of calls forgotten because they were not answered in time
+   */
+  long getExpiredCount() {
+    return expired.get();
+  }
+
+  @Override
+  public String toString() {
+    return "ManagementCallTracker{" +
+        "outstanding=" + getOutstandingCount() +
+        ", tracked=" + tracked +
+        ", answered=" + answered +
+        ", expired=" + expired +
+        '}';
+  }
+
+  private void forget(TrackedCall call) {
+    call.done = true;
+    callsByCaller.computeIfPresent(call.caller, (caller, identifiers) -> {
+      identifiers.remove(call.managementCallIdentifier);
+      return identifiers.isEmpty() ? null : identifiers;
+    });
+  }
+
+  private static final class TrackedCall {
+    final String managementCallIdentifier;
+    final ClientDescriptor caller;
+    final long deadline;
+    volatile boolean done;
+
+    TrackedCall(String managementCallIdentifier, ClientDescriptor caller, long deadline) {
+      this.managementCallIdentifier = managementCallIdentifier;
+      this.caller = Objects.requireNonNull(caller);
+      this.deadline = deadline;
+    }
+
+    boolean isExpired(long now) {
+      return now - deadline >= 0;
+    }
+  }
+
+}
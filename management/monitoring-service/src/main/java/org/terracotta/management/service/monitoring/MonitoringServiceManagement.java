@@ -0,0 +1,47 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.management.service.monitoring;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Exposes the statistics of the monitoring service itself (management calls tracked by the consumers of this server,
+ * asynchronous firing of notifications and statistics) to the server-level management registries, from which they are collected along with the other server statistics.
+ */
+class MonitoringServiceManagement implements ManageableServerComponent {
+  private static final Logger LOGGER = LoggerFactory.getLogger(MonitoringServiceManagement.class);
+
+  private final MonitoringServiceBinding binding;
+
+  MonitoringServiceManagement(DefaultFiringService firingService) {
+    this.binding = new MonitoringServiceBinding(firingService);
+  }
+
+  @Override
+  public void onManagementRegistryCreated(EntityManagementRegistry registry) {
+    LOGGER.trace("[{}] onManagementRegistryCreated()", registry.getMonitoringService().getConsumerId());
+
+    registry.addManagementProvider(new MonitoringServiceStatisticsManagementProvider());
+    registry.register(binding);
+    registry.refresh();
+  }
+
+  @Override
+  public void onManagementRegistryClose(EntityManagementRegistry registry) {
+    LOGGER.trace("[{}] onManagementRegistryClose()", registry.getMonitoringService().getConsumerId());
+  }
+}
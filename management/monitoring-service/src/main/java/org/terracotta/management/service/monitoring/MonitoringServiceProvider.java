@@ -25,6 +25,7 @@ import org.terracotta.entity.ServiceProviderConfiguration;
 import org.terracotta.entity.StateDumpCollector;
 import org.terracotta.management.sequence.BoundaryFlakeSequenceGenerator;
 import org.terracotta.management.sequence.NodeIdSource;
+import org.terracotta.management.sequence.SequenceGenerator;
 import org.terracotta.management.sequence.TimeSource;
 import org.terracotta.monitoring.IMonitoringProducer;
 import org.terracotta.monitoring.IStripeMonitoring;
@@ -57,8 +58,8 @@ public class MonitoringServiceProvider implements ServiceProvider, Closeable {
   private final DefaultSharedEntityManagementRegistry sharedManagementRegistry = new DefaultSharedEntityManagementRegistry();
   private final BoundaryFlakeSequenceGenerator sequenceGenerator = new BoundaryFlakeSequenceGenerator(timeSource, NodeIdSource.BEST);
   private final DefaultStatisticService statisticService = new DefaultStatisticService(sharedManagementRegistry, timeSource);
-  private final DefaultFiringService firingService = new DefaultFiringService(sequenceGenerator);
 
+  private DefaultFiringService firingService;
   private TopologyService topologyService;
   private IStripeMonitoring platformListenerAdapter;
   private DefaultManagementDataListener managementDataListener;
@@ -76,6 +77,7 @@ public class MonitoringServiceProvider implements ServiceProvider, Closeable {
   @Override
   public boolean initialize(ServiceProviderConfiguration configuration, PlatformConfiguration platformConfiguration) {
     this.manageablePlugins = platformConfiguration.getExtendedConfiguration(ManageableServerComponent.class);
+    this.firingService = createFiringService(sequenceGenerator, platformConfiguration);
     this.topologyService = new TopologyService(firingService, platformConfiguration);
     this.platformListenerAdapter = new IStripeMonitoringPlatformListenerAdapter(topologyService);
     this.managementDataListener = new DefaultManagementDataListener(topologyService, firingService);
@@ -92,8 +94,26 @@ public class MonitoringServiceProvider implements ServiceProvider, Closeable {
       return;
     }
 
+    firingService.getPipeline().ifPresent(pipeline -> {
+      StateDumpCollector firing = dump.subStateDumpCollector("firing");
+      firing.addState("overflowPolicy", pipeline.getOverflowPolicy().name());
+      firing.addState("queueDepth", String.valueOf(pipeline.getQueueDepth()));
+      firing.addState("fired", String.valueOf(pipeline.getFiredCount()));
+      firing.addState("batches", String.valueOf(pipeline.getBatchCount()));
+      firing.addState("dropped", String.valueOf(pipeline.getDroppedCount()));
+    });
+
+    for (DefaultManagementService managementService : firingService.getManagementServices()) {
+      ManagementCallTracker tracker = managementService.getManagementCallTracker();
+      StateDumpCollector calls = dump.subStateDumpCollector("managementCalls-" + managementService.getConsumerId());
+      calls.addState("outstanding", String.valueOf(tracker.getOutstandingCount()));
+      calls.addState("tracked", String.valueOf(tracker.getTrackedCount()));
+      calls.addState("answered", String.valueOf(tracker.getAnsweredCount()));
+      calls.addState("expired", String.valueOf(tracker.getExpiredCount()));
+    }
+
     if (topologyService.isCurrentServerActive()) {
-      dump.addState("cluster", topologyService.getClusterCopy().toMap());
+      dump.addState("cluster", topologyService.getTopologySnapshot().getCluster().toMap());
     } else {
       dump.addState("status", "This is a passive server, so it is unaware of connected clients and other stripe members.");
     }
@@ -102,6 +122,9 @@ public class MonitoringServiceProvider implements ServiceProvider, Closeable {
   @Override
   public void close() {
     this.statisticService.close();
+    if (this.firingService != null) {
+      this.firingService.close();
+    }
   }
 
   @SuppressWarnings("unchecked")
@@ -144,7 +167,7 @@ public class MonitoringServiceProvider implements ServiceProvider, Closeable {
     if (ManagementService.class == serviceType) {
       if (configuration instanceof ManagementServiceConfiguration) {
         LOGGER.info("[{}] getService({})", consumerID, ManagementService.class.getSimpleName());
-        DefaultManagementService managementService = new DefaultManagementService(consumerID, topologyService, firingService);
+        DefaultManagementService managementService = new DefaultManagementService(consumerID, topologyService, firingService, ((ManagementServiceConfiguration) configuration).getStripeName());
         return serviceType.cast(managementService);
       } else {
         throw new IllegalArgumentException("Missing configuration " + ManagementServiceConfiguration.class.getSimpleName() + " when requesting service " + serviceType.getName());
@@ -193,6 +216,7 @@ public class MonitoringServiceProvider implements ServiceProvider, Closeable {
           ServerManagementRegistryConfiguration serverManagementRegistryConfiguration = (ServerManagementRegistryConfiguration) configuration;
           manageableVoltronComponents.addAll(serverManagementRegistryConfiguration.getManageableVoltronComponents());
           manageableVoltronComponents.addAll(manageablePlugins);
+          manageableVoltronComponents.add(new MonitoringServiceManagement(firingService));
           manageableVoltronComponents.forEach(manageableServerComponent -> manageableServerComponent.onManagementRegistryCreated(managementRegistry));
           managementRegistry.onClose(() -> manageableVoltronComponents.forEach(manageableServerComponent -> manageableServerComponent.onManagementRegistryClose(managementRegistry)));
 
@@ -214,4 +238,18 @@ public class MonitoringServiceProvider implements ServiceProvider, Closeable {
 
     throw new IllegalStateException("Unable to provide service " + serviceType.getName() + " to consumerID: " + consumerID);
   }
+
+  private static DefaultFiringService createFiringService(SequenceGenerator sequenceGenerator, PlatformConfiguration platformConfiguration) {
+    Collection<FiringConfiguration> configurations = platformConfiguration.getExtendedConfiguration(FiringConfiguration.class);
+    if (configurations == null || configurations.isEmpty()) {
+      return new DefaultFiringService(sequenceGenerator);
+    }
+    if (configurations.size() > 1) {
+      throw new IllegalStateException("Only one " + FiringConfiguration.class.getSimpleName() + " can be configured: " + configurations);
+    }
+    FiringConfiguration configuration = configurations.iterator().next();
+    LOGGER.info("Firing notifications and statistics asynchronously: {}", configuration);
+    return new DefaultFiringService(sequenceGenerator, configuration);
+  }
+
 }
@@ -0,0 +1,71 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.management.service.monitoring;
+
+import org.terracotta.management.model.context.Context;
+import org.terracotta.management.model.stats.StatisticRegistry;
+import org.terracotta.management.registry.Named;
+import org.terracotta.management.registry.RequiredContext;
+import org.terracotta.management.registry.collect.StatisticProvider;
+import org.terracotta.management.service.monitoring.registry.provider.AbstractExposedStatistics;
+import org.terracotta.management.service.monitoring.registry.provider.AbstractStatisticsManagementProvider;
+
+import java.util.function.ToLongFunction;
+
+import static org.terracotta.statistics.ValueStatistics.counter;
+import static org.terracotta.statistics.ValueStatistics.gauge;
+
+@Named("MonitoringServiceStatistics")
+@RequiredContext({@Named("consumerId"), @Named("type"), @Named("alias")})
+@StatisticProvider
+class MonitoringServiceStatisticsManagementProvider extends AbstractStatisticsManagementProvider<MonitoringServiceBinding> {
+
+  MonitoringServiceStatisticsManagementProvider() {
+    super(MonitoringServiceBinding.class);
+  }
+
+  @Override
+  protected AbstractExposedStatistics<MonitoringServiceBinding> internalWrap(Context context, MonitoringServiceBinding managedObject, StatisticRegistry statisticRegistry) {
+    return new MonitoringServiceBindingExposedStatistics(context, managedObject, statisticRegistry);
+  }
+
+  private static class MonitoringServiceBindingExposedStatistics extends AbstractExposedStatistics<MonitoringServiceBinding> {
+    MonitoringServiceBindingExposedStatistics(Context context, MonitoringServiceBinding binding, StatisticRegistry statisticRegistry) {
+      super(context.with("type", "MonitoringService"), binding, statisticRegistry);
+
+      DefaultFiringService firingService = binding.getValue();
+      getStatisticRegistry().registerStatistic("ManagementCall:Outstanding", gauge(() -> sum(firingService, ManagementCallTracker::getOutstandingCount)));
+      getStatisticRegistry().registerStatistic("ManagementCall:Tracked", counter(() -> sum(firingService, ManagementCallTracker::getTrackedCount)));
+      getStatisticRegistry().registerStatistic("ManagementCall:Answered", counter(() -> sum(firingService, ManagementCallTracker::getAnsweredCount)));
+      getStatisticRegistry().registerStatistic("ManagementCall:Expired", counter(() -> sum(firingService, ManagementCallTracker::getExpiredCount)));
+
+      firingService.getPipeline().ifPresent(pipeline -> {
+        getStatisticRegistry().registerStatistic("Firing:QueueDepth", gauge(() -> (long) pipeline.getQueueDepth()));
+        getStatisticRegistry().registerStatistic("Firing:Fired", counter(pipeline::getFiredCount));
+        getStatisticRegistry().registerStatistic("Firing:Batches", counter(pipeline::getBatchCount));
+        getStatisticRegistry().registerStatistic("Firing:Dropped", counter(pipeline::getDroppedCount));
+      });
+    }
+
+    private static long sum(DefaultFiringService firingService, ToLongFunction<ManagementCallTracker> metric) {
+      return firingService.getManagementServices().stream()
+          .map(DefaultManagementService::getManagementCallTracker)
+          .mapToLong(metric)
+          .sum();
+    }
+  }
+
+}
@@ -40,5 +40,9 @@ enum Notification {
 
   ENTITY_REGISTRY_AVAILABLE,
   
-  CLIENT_PROPERTY_ADDED
+  CLIENT_PROPERTY_ADDED,
+
+  // only recorded as topology changes, not fired
+  CLIENT_REGISTRY_UPDATED,
+  ENTITY_REGISTRY_UPDATED
 }
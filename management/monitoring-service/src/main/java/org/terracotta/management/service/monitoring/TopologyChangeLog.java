@@ -0,0 +1,89 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.management.service.monitoring;
+
+import org.terracotta.management.model.context.Context;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Versions the topology and keeps the last topology changes, so that readers can catch up from a version
+ * without having to read the whole topology again.
+ */
+class TopologyChangeLog {
+
+  static final int DEFAULT_CAPACITY = 4096;
+
+  private final int capacity;
+  private final Deque<TopologyChange> changes;
+
+  private volatile long version;
+
+  TopologyChangeLog() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  TopologyChangeLog(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Bad capacity: " + capacity);
+    }
+    this.capacity = capacity;
+    this.changes = new ArrayDeque<>(Math.min(capacity, 256));
+  }
+
+  long getVersion() {
+    return version;
+  }
+
+  synchronized TopologyChange record(String type, Context context, Map<String, String> attributes) {
+    TopologyChange change = new TopologyChange(version + 1, type, context, attributes);
+    if (changes.size() == capacity) {
+      changes.removeFirst();
+    }
+    changes.addLast(change);
+    version = change.getVersion();
+    return change;
+  }
+
+  synchronized Optional<List<TopologyChange>> since(long sinceVersion) {
+    if (sinceVersion > version) {
+      // unknown version (i.e. read from another server before a failover)
+      return Optional.empty();
+    }
+    if (sinceVersion == version) {
+      return Optional.of(Collections.emptyList());
+    }
+    long oldest = changes.isEmpty() ? version + 1 : changes.getFirst().getVersion();
+    if (sinceVersion + 1 < oldest) {
+      // some changes are not in the log anymore
+      return Optional.empty();
+    }
+    // versions are contiguous: the changes to return are the last ones
+    TopologyChange[] list = new TopologyChange[(int) (version - sinceVersion)];
+    Iterator<TopologyChange> it = changes.descendingIterator();
+    for (int i = list.length - 1; i >= 0; i--) {
+      list[i] = it.next();
+    }
+    return Optional.of(Arrays.asList(list));
+  }
+}
@@ -47,4 +47,9 @@ interface TopologyEventListener {
    */
   default void onEntityCreated(long consumerId) {}
 
+  /**
+   * Callback called each time the topology changed, in version order
+   */
+  default void onTopologyChange(TopologyChange change) {}
+
 }
@@ -38,12 +38,7 @@ import org.terracotta.monitoring.PlatformEntity;
 import org.terracotta.monitoring.PlatformServer;
 import org.terracotta.monitoring.ServerState;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.lang.reflect.Field;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
@@ -52,11 +47,16 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Queue;
 import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -87,14 +87,25 @@ class TopologyService implements PlatformListener {
   private final FiringService firingService;
   private final PlatformConfiguration platformConfiguration;
   private final List<TopologyEventListener> topologyEventListeners = new CopyOnWriteArrayList<>();
+  private final TopologyChangeLog changeLog = new TopologyChangeLog();
+  // versions are only meaningful for this topology service instance: they restart on another active server
+  private final String topologyId = UUID.randomUUID().toString();
+  // events queued while holding the topology lock, fired once the lock is released
+  private final Queue<Runnable> pendingEvents = new ConcurrentLinkedQueue<>();
+  private final AtomicBoolean firing = new AtomicBoolean();
 
   private volatile Server currentActive;
+  // read-only copy of the topology at its last version, re-created on each topology change
+  private volatile TopologySnapshot snapshot;
+  // last topology snapshots with a renamed stripe, per stripe name
+  private final ConcurrentMap<String, TopologySnapshot> namedSnapshots = new ConcurrentHashMap<>();
 
   TopologyService(FiringService firingService, PlatformConfiguration platformConfiguration) {
     this.firingService = Objects.requireNonNull(firingService);
     this.platformConfiguration = platformConfiguration;
     this.cluster = Cluster.create();
     this.cluster.addStripe(stripe = Stripe.create("SINGLE"));
+    this.snapshot = new TopologySnapshot(0, cluster.readOnlyCopy());
   }
 
   // ================================================
@@ -103,95 +114,109 @@ class TopologyService implements PlatformListener {
 
   @SuppressWarnings("OptionalGetWithoutIsPresent")
   @Override
-  public synchronized void serverDidBecomeActive(PlatformServer self) {
+  public void serverDidBecomeActive(PlatformServer self) {
     LOGGER.trace("[0] serverDidBecomeActive({})", self.getServerName());
 
-    Server server = Server.create(self.getServerName())
-        .setBindAddress(self.getBindAddress())
-        .setBindPort(self.getBindPort())
-        .setBuildId(self.getBuild())
-        .setGroupPort(self.getGroupPort())
-        .setHostName(self.getHostName())
-        .setStartTime(self.getStartTime())
-        .setHostAddress(self.getHostAddress())
-        .setVersion(self.getVersion())
-        .computeUpTime();
+    synchronized (this) {
+      Server server = Server.create(self.getServerName())
+          .setBindAddress(self.getBindAddress())
+          .setBindPort(self.getBindPort())
+          .setBuildId(self.getBuild())
+          .setGroupPort(self.getGroupPort())
+          .setHostName(self.getHostName())
+          .setStartTime(self.getStartTime())
+          .setHostAddress(self.getHostAddress())
+          .setVersion(self.getVersion())
+          .computeUpTime();
 
-    if (stripe.addServer(server)) {
-      currentActive = stripe.getServerByName(self.getServerName()).get();
+      if (stripe.addServer(server)) {
+        currentActive = stripe.getServerByName(self.getServerName()).get();
 
-      topologyEventListeners.forEach(listener -> listener.onBecomeActive(platformConfiguration.getServerName()));
+        fireTopologyEvent(listener -> listener.onBecomeActive(platformConfiguration.getServerName()));
 
-      firingService.fireNotification(new ContextualNotification(server.getContext(), SERVER_JOINED.name()));
+        fireTopologyChange(new ContextualNotification(server.getContext(), SERVER_JOINED.name()));
 
-      // we assume server.getStartTime() == activate time, but this will be fixed after into serverStateChanged() call by platform
-      serverStateChanged(self, new ServerState("ACTIVE", server.getStartTime(), server.getStartTime()));
+        // we assume server.getStartTime() == activate time, but this will be fixed after into serverStateChanged() call by platform
+        updateServerState(self, new ServerState("ACTIVE", server.getStartTime(), server.getStartTime()));
+      }
     }
+    fireEvents();
   }
 
   @Override
-  public synchronized void serverDidJoinStripe(PlatformServer platformServer) {
+  public void serverDidJoinStripe(PlatformServer platformServer) {
     LOGGER.trace("[0] serverDidJoinStripe({})", platformServer.getServerName());
 
-    Server server = Server.create(platformServer.getServerName())
-        .setBindAddress(platformServer.getBindAddress())
-        .setBindPort(platformServer.getBindPort())
-        .setBuildId(platformServer.getBuild())
-        .setGroupPort(platformServer.getGroupPort())
-        .setHostName(platformServer.getHostName())
-        .setStartTime(platformServer.getStartTime())
-        .setHostAddress(platformServer.getHostAddress())
-        .setVersion(platformServer.getVersion())
-        .computeUpTime();
-
-    if (stripe.addServer(server)) {
-      firingService.fireNotification(new ContextualNotification(server.getContext(), SERVER_JOINED.name()));
+    synchronized (this) {
+      Server server = Server.create(platformServer.getServerName())
+          .setBindAddress(platformServer.getBindAddress())
+          .setBindPort(platformServer.getBindPort())
+          .setBuildId(platformServer.getBuild())
+          .setGroupPort(platformServer.getGroupPort())
+          .setHostName(platformServer.getHostName())
+          .setStartTime(platformServer.getStartTime())
+          .setHostAddress(platformServer.getHostAddress())
+          .setVersion(platformServer.getVersion())
+          .computeUpTime();
+
+      if (stripe.addServer(server)) {
+        fireTopologyChange(new ContextualNotification(server.getContext(), SERVER_JOINED.name()));
+      }
     }
+    fireEvents();
   }
 
   @Override
-  public synchronized void serverDidLeaveStripe(PlatformServer platformServer) {
+  public void serverDidLeaveStripe(PlatformServer platformServer) {
     LOGGER.trace("[0] serverDidLeaveStripe({})", platformServer.getServerName());
 
-    stripe.getServerByName(platformServer.getServerName()).ifPresent(server -> {
-      Context context = server.getContext();
-      server.remove();
+    synchronized (this) {
+      stripe.getServerByName(platformServer.getServerName()).ifPresent(server -> {
+        Context context = server.getContext();
+        server.remove();
 
-      serverEntities.remove(platformServer.getServerName());
+        serverEntities.remove(platformServer.getServerName());
 
-      firingService.fireNotification(new ContextualNotification(context, SERVER_LEFT.name()));
-    });
+        fireTopologyChange(new ContextualNotification(context, SERVER_LEFT.name()));
+      });
+    }
+    fireEvents();
   }
 
   @Override
-  public synchronized void serverEntityCreated(PlatformServer sender, PlatformEntity platformEntity) {
+  public void serverEntityCreated(PlatformServer sender, PlatformEntity platformEntity) {
     LOGGER.trace("[0] serverEntityCreated({}, {})", sender.getServerName(), platformEntity);
 
-    if (platformEntity.isActive && !sender.getServerName().equals(getActiveServer().getServerName())) {
-      Utils.warnOrAssert(LOGGER, "[0] serverEntityCreated({}, {}): Server is not current active server but it created an active entity", sender.getServerName(), platformEntity);
-      return;
-    }
+    synchronized (this) {
+      if (platformEntity.isActive && !sender.getServerName().equals(getActiveServer().getServerName())) {
+        Utils.warnOrAssert(LOGGER, "[0] serverEntityCreated({}, {}): Server is not current active server but it created an active entity", sender.getServerName(), platformEntity);
+        return;
+      }
 
-    if (!platformEntity.isActive && sender.getServerName().equals(getActiveServer().getServerName())) {
-      Utils.warnOrAssert(LOGGER, "[0] serverEntityCreated({}, {}): Server is the current active server but it created a passive entity", sender.getServerName(), platformEntity);
-      return;
-    }
+      if (!platformEntity.isActive && sender.getServerName().equals(getActiveServer().getServerName())) {
+        Utils.warnOrAssert(LOGGER, "[0] serverEntityCreated({}, {}): Server is the current active server but it created a passive entity", sender.getServerName(), platformEntity);
+        return;
+      }
 
-    stripe.getServerByName(sender.getServerName()).ifPresent(server -> {
-      ServerEntityIdentifier identifier = ServerEntityIdentifier.create(platformEntity.name, platformEntity.typeName);
-      ServerEntity entity = ServerEntity.create(identifier)
-          .setConsumerId(platformEntity.consumerID);
+      stripe.getServerByName(sender.getServerName()).ifPresent(server -> {
+        ServerEntityIdentifier identifier = ServerEntityIdentifier.create(platformEntity.name, platformEntity.typeName);
+        ServerEntity entity = ServerEntity.create(identifier)
+            .setConsumerId(platformEntity.consumerID);
 
-      if (server.addServerEntity(entity)) {
-        firingService.fireNotification(new ContextualNotification(entity.getContext(), SERVER_ENTITY_CREATED.name()));
+        if (server.addServerEntity(entity)) {
+          fireTopologyChange(new ContextualNotification(entity.getContext(), SERVER_ENTITY_CREATED.name()));
 
-        whenServerEntity(platformEntity.consumerID, sender.getServerName()).complete(entity);
+          // the delayed executions take the topology lock: they are run once it is released
+          ExecutionChain<ServerEntity> chain = whenServerEntity(platformEntity.consumerID, sender.getServerName());
+          pendingEvents.offer(() -> chain.complete(entity));
 
-        if (sender.getServerName().equals(getServerName())) {
-          topologyEventListeners.forEach(listener -> listener.onEntityCreated(platformEntity.consumerID));
+          if (sender.getServerName().equals(getServerName())) {
+            fireTopologyEvent(listener -> listener.onEntityCreated(platformEntity.consumerID));
+          }
         }
-      }
-    });
+      });
+    }
+    fireEvents();
   }
 
   @Override
@@ -206,140 +231,184 @@ class TopologyService implements PlatformListener {
   }
 
   @Override
-  public synchronized void serverEntityDestroyed(PlatformServer sender, PlatformEntity platformEntity) {
+  public void serverEntityDestroyed(PlatformServer sender, PlatformEntity platformEntity) {
     LOGGER.trace("[0] serverEntityDestroyed({}, {})", sender.getServerName(), platformEntity);
 
-    if (platformEntity.isActive && !sender.getServerName().equals(getActiveServer().getServerName())) {
-      Utils.warnOrAssert(LOGGER, "[0] serverEntityDestroyed({}, {}): Server is not current active server but it destroyed an active entity", sender.getServerName(), platformEntity);
-      return;
-    }
+    synchronized (this) {
+      if (platformEntity.isActive && !sender.getServerName().equals(getActiveServer().getServerName())) {
+        Utils.warnOrAssert(LOGGER, "[0] serverEntityDestroyed({}, {}): Server is not current active server but it destroyed an active entity", sender.getServerName(), platformEntity);
+        return;
+      }
 
-    if (!platformEntity.isActive && sender.getServerName().equals(getActiveServer().getServerName())) {
-      Utils.warnOrAssert(LOGGER, "[0] serverEntityDestroyed({}, {}): Server is the current active server but it destroyed a passive entity", sender.getServerName(), platformEntity);
-      return;
-    }
+      if (!platformEntity.isActive && sender.getServerName().equals(getActiveServer().getServerName())) {
+        Utils.warnOrAssert(LOGGER, "[0] serverEntityDestroyed({}, {}): Server is the current active server but it destroyed a passive entity", sender.getServerName(), platformEntity);
+        return;
+      }
 
-    stripe.getServerByName(sender.getServerName()).ifPresent(server -> {
-      server.getServerEntity(platformEntity.name, platformEntity.typeName).ifPresent(entity -> {
-        Context context = entity.getContext();
-        entity.remove();
+      stripe.getServerByName(sender.getServerName()).ifPresent(server -> {
+        server.getServerEntity(platformEntity.name, platformEntity.typeName).ifPresent(entity -> {
+          Context context = entity.getContext();
+          entity.remove();
 
-        serverEntities.get(sender.getServerName()).remove(platformEntity.consumerID);
+          ConcurrentMap<Long, ExecutionChain<ServerEntity>> entities = serverEntities.get(sender.getServerName());
+          if (entities != null) {
+            entities.remove(platformEntity.consumerID);
+          }
 
-        if (isCurrentServerActive() && sender.getServerName().equals(currentActive.getServerName())) {
-          entityFetches.remove(platformEntity.consumerID);
-        }
+          if (isCurrentServerActive() && sender.getServerName().equals(currentActive.getServerName())) {
+            entityFetches.remove(platformEntity.consumerID);
+          }
 
-        if (sender.getServerName().equals(getServerName())) {
-          topologyEventListeners.forEach(listener -> listener.onEntityDestroyed(platformEntity.consumerID));
-        }
+          if (sender.getServerName().equals(getServerName())) {
+            fireTopologyEvent(listener -> listener.onEntityDestroyed(platformEntity.consumerID));
+          }
 
-        firingService.fireNotification(new ContextualNotification(context, SERVER_ENTITY_DESTROYED.name()));
+          fireTopologyChange(new ContextualNotification(context, SERVER_ENTITY_DESTROYED.name()));
+        });
       });
-    });
+    }
+    fireEvents();
   }
 
   @Override
-  public synchronized void clientConnected(PlatformServer currentActive, PlatformConnectedClient platformConnectedClient) {
+  public void clientConnected(PlatformServer currentActive, PlatformConnectedClient platformConnectedClient) {
     LOGGER.trace("[0] clientConnected({})", platformConnectedClient);
 
-    stripe.getServerByName(currentActive.getServerName())
-        .ifPresent(server -> {
+    // host name resolution can be slow: do it before taking the topology lock
+    ClientIdentifier clientIdentifier = toClientIdentifier(platformConnectedClient);
+    Endpoint endpoint = Endpoint.create(platformConnectedClient.remoteAddress.getHostAddress(), platformConnectedClient.remotePort);
+    String hostName = platformConnectedClient.remoteAddress.getHostName();
 
-          ClientIdentifier clientIdentifier = toClientIdentifier(platformConnectedClient);
-          Endpoint endpoint = Endpoint.create(platformConnectedClient.remoteAddress.getHostAddress(), platformConnectedClient.remotePort);
+    synchronized (this) {
+      stripe.getServerByName(currentActive.getServerName())
+          .ifPresent(server -> {
 
-          Client client = Client.create(clientIdentifier)
-              .setHostName(platformConnectedClient.remoteAddress.getHostName());
+            Client client = Client.create(clientIdentifier)
+                .setHostName(hostName);
 
-          cluster.addClient(client);
+            cluster.addClient(client);
 
-          if (client.addConnection(Connection.create(clientIdentifier.getConnectionUid(), getActiveServer(), endpoint))) {
-            firingService.fireNotification(new ContextualNotification(server.getContext(), CLIENT_CONNECTED.name(), client.getContext()));
-          }
-        });
+            if (client.addConnection(Connection.create(clientIdentifier.getConnectionUid(), getActiveServer(), endpoint))) {
+              fireTopologyChange(new ContextualNotification(server.getContext(), CLIENT_CONNECTED.name(), client.getContext()));
+            }
+          });
+    }
+    fireEvents();
   }
 
   @Override
-  public synchronized void clientAddProperty(PlatformConnectedClient platformClient, String key, String value) {
+  public void clientAddProperty(PlatformConnectedClient platformClient, String key, String value) {
     LOGGER.trace("[0] client property added ({}, key:{}, value:{})", platformClient, key, value);
 
-    stripe.getServerByName(currentActive.getServerName())
-        .ifPresent(server -> {
+    ClientIdentifier clientIdentifier = toClientIdentifier(platformClient);
 
-          ClientIdentifier clientIdentifier = toClientIdentifier(platformClient);
-          cluster.getClient(clientIdentifier)
-              .ifPresent(client -> {
-                client.addProperty(key, value);
-                firingService.fireNotification(new ContextualNotification(client.getContext(), Notification.CLIENT_PROPERTY_ADDED.name(), Collections.singletonMap(key, value)));
-              });
-        });
+    synchronized (this) {
+      stripe.getServerByName(currentActive.getServerName())
+          .ifPresent(server -> {
+
+            cluster.getClient(clientIdentifier)
+                .ifPresent(client -> {
+                  client.addProperty(key, value);
+                  fireTopologyChange(new ContextualNotification(client.getContext(), Notification.CLIENT_PROPERTY_ADDED.name(), Collections.singletonMap(key, value)));
+                });
+          });
+    }
+    fireEvents();
   }
 
   @Override
-  public synchronized void clientDisconnected(PlatformServer currentActive, PlatformConnectedClient platformConnectedClient) {
+  public void clientDisconnected(PlatformServer currentActive, PlatformConnectedClient platformConnectedClient) {
     LOGGER.trace("[0] clientDisconnected({})", platformConnectedClient);
 
-    stripe.getServerByName(currentActive.getServerName())
-        .ifPresent(server -> {
+    ClientIdentifier clientIdentifier = toClientIdentifier(platformConnectedClient);
 
-          ClientIdentifier clientIdentifier = toClientIdentifier(platformConnectedClient);
-          cluster.getClient(clientIdentifier)
-              .ifPresent(client -> {
-                Context clientContext = client.getContext();
+    synchronized (this) {
+      stripe.getServerByName(currentActive.getServerName())
+          .ifPresent(server -> {
 
-                client.remove();
+            cluster.getClient(clientIdentifier)
+                .ifPresent(client -> {
+                  Context clientContext = client.getContext();
 
-                firingService.fireNotification(new ContextualNotification(server.getContext(), CLIENT_DISCONNECTED.name(), clientContext));
-              });
-        });
+                  client.remove();
+
+                  fireTopologyChange(new ContextualNotification(server.getContext(), CLIENT_DISCONNECTED.name(), clientContext));
+                });
+          });
+    }
+    // executions delayed for a fetch that never came
+    purgeExecutionChains();
+    fireEvents();
   }
 
   @Override
-  public synchronized void clientFetch(PlatformConnectedClient platformConnectedClient, PlatformEntity platformEntity, ClientDescriptor clientDescriptor) {
+  public void clientFetch(PlatformConnectedClient platformConnectedClient, PlatformEntity platformEntity, ClientDescriptor clientDescriptor) {
     LOGGER.trace("[0] clientFetch({}, {})", platformConnectedClient, platformEntity);
 
-    Server currentActive = getActiveServer();
     ClientIdentifier clientIdentifier = toClientIdentifier(platformConnectedClient);
     Endpoint endpoint = Endpoint.create(platformConnectedClient.remoteAddress.getHostAddress(), platformConnectedClient.remotePort);
 
-    cluster.getClient(clientIdentifier).ifPresent(client -> {
-      client.getConnection(currentActive, endpoint).ifPresent(connection -> {
-        currentActive.getServerEntity(platformEntity.name, platformEntity.typeName).ifPresent(entity -> {
-          connection.fetchServerEntity(platformEntity.name, platformEntity.typeName);
-          firingService.fireNotification(new ContextualNotification(entity.getContext(), SERVER_ENTITY_FETCHED.name(), client.getContext()));
-          whenFetchClient(platformEntity.consumerID, clientDescriptor).complete(client);
-          topologyEventListeners.forEach(listener -> listener.onFetch(platformEntity.consumerID, clientDescriptor));
+    synchronized (this) {
+      Server currentActive = getActiveServer();
+
+      cluster.getClient(clientIdentifier).ifPresent(client -> {
+        client.getConnection(currentActive, endpoint).ifPresent(connection -> {
+          currentActive.getServerEntity(platformEntity.name, platformEntity.typeName).ifPresent(entity -> {
+            connection.fetchServerEntity(platformEntity.name, platformEntity.typeName);
+            fireTopologyChange(new ContextualNotification(entity.getContext(), SERVER_ENTITY_FETCHED.name(), client.getContext()));
+            // the delayed executions take the topology lock: they are run once it is released
+            ExecutionChain<Client> chain = whenFetchClient(platformEntity.consumerID, clientDescriptor);
+            pendingEvents.offer(() -> chain.complete(client));
+            fireTopologyEvent(listener -> listener.onFetch(platformEntity.consumerID, clientDescriptor));
+          });
         });
       });
-    });
+    }
+    fireEvents();
   }
 
   @Override
-  public synchronized void clientUnfetch(PlatformConnectedClient platformConnectedClient, PlatformEntity platformEntity, ClientDescriptor clientDescriptor) {
+  public void clientUnfetch(PlatformConnectedClient platformConnectedClient, PlatformEntity platformEntity, ClientDescriptor clientDescriptor) {
     LOGGER.trace("[0] clientUnfetch({}, {})", platformConnectedClient, platformEntity);
 
-    Server currentActive = getActiveServer();
     ClientIdentifier clientIdentifier = toClientIdentifier(platformConnectedClient);
     Endpoint endpoint = Endpoint.create(platformConnectedClient.remoteAddress.getHostAddress(), platformConnectedClient.remotePort);
 
-    currentActive.getServerEntity(platformEntity.name, platformEntity.typeName).ifPresent(entity -> {
-      cluster.getClient(clientIdentifier).ifPresent(client -> {
-        client.getConnection(currentActive, endpoint).ifPresent(connection -> {
-          entityFetches.get(platformEntity.consumerID).remove(clientDescriptor);
-          if (connection.unfetchServerEntity(platformEntity.name, platformEntity.typeName)) {
-            firingService.fireNotification(new ContextualNotification(entity.getContext(), SERVER_ENTITY_UNFETCHED.name(), client.getContext()));
-          }
-          topologyEventListeners.forEach(listener -> listener.onUnfetch(platformEntity.consumerID, clientDescriptor));
+    synchronized (this) {
+      Server currentActive = getActiveServer();
+
+      // always forget the delayed executions, even if the fetch was never seen
+      ConcurrentMap<ClientDescriptor, ExecutionChain<Client>> fetches = entityFetches.get(platformEntity.consumerID);
+      if (fetches != null) {
+        fetches.remove(clientDescriptor);
+      }
+
+      currentActive.getServerEntity(platformEntity.name, platformEntity.typeName).ifPresent(entity -> {
+        cluster.getClient(clientIdentifier).ifPresent(client -> {
+          client.getConnection(currentActive, endpoint).ifPresent(connection -> {
+            if (connection.unfetchServerEntity(platformEntity.name, platformEntity.typeName)) {
+              fireTopologyChange(new ContextualNotification(entity.getContext(), SERVER_ENTITY_UNFETCHED.name(), client.getContext()));
+            }
+            fireTopologyEvent(listener -> listener.onUnfetch(platformEntity.consumerID, clientDescriptor));
+          });
         });
       });
-    });
+    }
+    fireEvents();
   }
 
   @Override
-  public synchronized void serverStateChanged(PlatformServer sender, ServerState serverState) {
+  public void serverStateChanged(PlatformServer sender, ServerState serverState) {
     LOGGER.trace("[0] serverStateChanged({}, {})", sender.getServerName(), serverState.getState());
 
+    synchronized (this) {
+      updateServerState(sender, serverState);
+    }
+    fireEvents();
+  }
+
+  // must be called while holding the topology lock
+  private void updateServerState(PlatformServer sender, ServerState serverState) {
     stripe.getServerByName(sender.getServerName()).ifPresent(server -> {
       Server.State oldState = server.getState();
 
@@ -359,7 +428,7 @@ class TopologyService implements PlatformListener {
         attrs.put("state", serverState.getState());
         attrs.put("activateTime", serverState.getActivate() > 0 ? String.valueOf(serverState.getActivate()) : "0");
 
-        firingService.fireNotification(new ContextualNotification(server.getContext(), SERVER_STATE_CHANGED.name(), attrs));
+        fireTopologyChange(new ContextualNotification(server.getContext(), SERVER_STATE_CHANGED.name(), attrs));
       }
     });
   }
@@ -372,7 +441,7 @@ class TopologyService implements PlatformListener {
    * Records stats that needs to be sent in future (or now) when the client fetch info will have arrived
    */
   void willPushClientStatistics(long consumerId, ClientDescriptor from, ContextualStatistics... statistics) {
-    whenFetchClient(consumerId, from).executeOrDiscard(client -> {
+    ifFetchedClient(consumerId, from, client -> {
       Context context = client.getContext();
       for (ContextualStatistics statistic : statistics) {
         statistic.setContext(statistic.getContext().with(context));
@@ -390,7 +459,8 @@ class TopologyService implements PlatformListener {
       Context context = client.getContext();
       notification.setContext(notification.getContext().with(context));
       LOGGER.trace("[{}] willPushClientNotification({}, {})", consumerId, from, notification);
-      firingService.fireNotification(notification);
+      pendingEvents.offer(() -> firingService.fireNotification(notification));
+      fireEvents();
     });
   }
 
@@ -399,13 +469,18 @@ class TopologyService implements PlatformListener {
    */
   void willSetClientManagementRegistry(long consumerId, ClientDescriptor clientDescriptor, ManagementRegistry newRegistry) {
     whenFetchClient(consumerId, clientDescriptor).executeOrDelay("client-registry", client -> {
-      boolean hadRegistry = client.getManagementRegistry().isPresent();
-      LOGGER.trace("[{}] willSetClientManagementRegistry({}, {})", consumerId, clientDescriptor, newRegistry);
-      client.setManagementRegistry(newRegistry);
-      if (!hadRegistry) {
-        LOGGER.info("[{}] New management registry received from client {}", consumerId, clientDescriptor);
-        firingService.fireNotification(new ContextualNotification(client.getContext(), Notification.CLIENT_REGISTRY_AVAILABLE.name()));
+      synchronized (this) {
+        boolean hadRegistry = client.getManagementRegistry().isPresent();
+        LOGGER.trace("[{}] willSetClientManagementRegistry({}, {})", consumerId, clientDescriptor, newRegistry);
+        client.setManagementRegistry(newRegistry);
+        if (!hadRegistry) {
+          LOGGER.info("[{}] New management registry received from client {}", consumerId, clientDescriptor);
+          fireTopologyChange(new ContextualNotification(client.getContext(), Notification.CLIENT_REGISTRY_AVAILABLE.name()));
+        } else {
+          recordTopologyChange(client.getContext(), Notification.CLIENT_REGISTRY_UPDATED.name(), Collections.emptyMap());
+        }
       }
+      fireEvents();
     });
   }
 
@@ -414,13 +489,16 @@ class TopologyService implements PlatformListener {
    */
   void willSetClientTags(long consumerId, ClientDescriptor clientDescriptor, String[] tags) {
     whenFetchClient(consumerId, clientDescriptor).executeOrDelay("client-tags", client -> {
-      Set<String> currtags = new HashSet<>(client.getTags());
-      Set<String> newTags = new HashSet<>(Arrays.asList(tags));
-      if (!currtags.equals(newTags)) {
-        LOGGER.trace("[{}] willSetClientTags({}, {})", consumerId, clientDescriptor, Arrays.toString(tags));
-        client.setTags(tags);
-        firingService.fireNotification(new ContextualNotification(client.getContext(), Notification.CLIENT_TAGS_UPDATED.name()));
+      synchronized (this) {
+        Set<String> currtags = new HashSet<>(client.getTags());
+        Set<String> newTags = new HashSet<>(Arrays.asList(tags));
+        if (!currtags.equals(newTags)) {
+          LOGGER.trace("[{}] willSetClientTags({}, {})", consumerId, clientDescriptor, Arrays.toString(tags));
+          client.setTags(tags);
+          fireTopologyChange(new ContextualNotification(client.getContext(), Notification.CLIENT_TAGS_UPDATED.name()));
+        }
       }
+      fireEvents();
     });
   }
 
@@ -433,7 +511,7 @@ class TopologyService implements PlatformListener {
     // context that is hold in the stat results
     Stream.of(statistics)
         .collect(Collectors.groupingBy(o -> Long.parseLong(o.getContext().getOrDefault(ServerEntity.CONSUMER_ID, String.valueOf(consumerId)))))
-        .forEach((cid, cid_stats) -> whenServerEntity(cid, serverName).executeOrDiscard(serverEntity -> {
+        .forEach((cid, cid_stats) -> ifServerEntity(cid, serverName, serverEntity -> {
           Context context = serverEntity.getContext();
           for (ContextualStatistics statistic : cid_stats) {
             statistic.setContext(statistic.getContext().with(context));
@@ -453,7 +531,8 @@ class TopologyService implements PlatformListener {
       Context context = serverEntity.getContext();
       notification.setContext(notification.getContext().with(context));
       LOGGER.trace("[{}] willPushEntityNotification({}, {})", cid, serverName, notification);
-      firingService.fireNotification(notification);
+      pendingEvents.offer(() -> firingService.fireNotification(notification));
+      fireEvents();
     });
   }
 
@@ -470,11 +549,16 @@ class TopologyService implements PlatformListener {
         List<String> names = newRegistry.getCapabilities().stream().map(Capability::getName).collect(Collectors.toList());
         LOGGER.trace("[{}] setManagementRegistry({}, {})", consumerId, serverName, names);
       }
-      boolean hadRegistry = serverEntity.getManagementRegistry().isPresent();
-      serverEntity.setManagementRegistry(newRegistry);
-      if (!hadRegistry) {
-        firingService.fireNotification(new ContextualNotification(serverEntity.getContext(), Notification.ENTITY_REGISTRY_AVAILABLE.name()));
+      synchronized (this) {
+        boolean hadRegistry = serverEntity.getManagementRegistry().isPresent();
+        serverEntity.setManagementRegistry(newRegistry);
+        if (!hadRegistry) {
+          fireTopologyChange(new ContextualNotification(serverEntity.getContext(), Notification.ENTITY_REGISTRY_AVAILABLE.name()));
+        } else {
+          recordTopologyChange(serverEntity.getContext(), Notification.ENTITY_REGISTRY_UPDATED.name(), Collections.emptyMap());
+        }
       }
+      fireEvents();
     });
   }
 
@@ -508,18 +592,43 @@ class TopologyService implements PlatformListener {
         .map(Client::getContext);
   }
 
-  synchronized Cluster getClusterCopy() {
-    try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-      try (ObjectOutputStream oos = new ObjectOutputStream(baos)) {
-        oos.writeObject(cluster);
-        oos.flush();
-      }
-      try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(baos.toByteArray()))) {
-        return (Cluster) ois.readObject();
-      }
-    } catch (IOException | ClassNotFoundException e) {
-      throw new RuntimeException(e);
+  /**
+   * @return the topology at its current version. The snapshot is copied once per version, when the topology changes,
+   * so readers do not lock nor copy anything.
+   */
+  TopologySnapshot getTopologySnapshot() {
+    return snapshot;
+  }
+
+  /**
+   * Same as {@link #getTopologySnapshot()}, but with the stripe renamed. The renamed copy is made from the current
+   * snapshot, at most once per version and stripe name, without locking the topology.
+   *
+   * @param stripeName the stripe name, or null to keep the current one
+   */
+  TopologySnapshot getTopologySnapshot(String stripeName) {
+    TopologySnapshot snapshot = this.snapshot;
+    if (stripeName == null || stripeName.equals(stripe.getName())) {
+      return snapshot;
+    }
+    TopologySnapshot named = namedSnapshots.get(stripeName);
+    if (named != null && named.getVersion() >= snapshot.getVersion()) {
+      return named;
     }
+    TopologySnapshot renamed = new TopologySnapshot(snapshot.getVersion(), renameStripe(snapshot.getCluster().copy(), stripeName));
+    // concurrent readers might have renamed a more recent version
+    return namedSnapshots.merge(stripeName, renamed, (current, candidate) -> current.getVersion() >= candidate.getVersion() ? current : candidate);
+  }
+
+  /**
+   * @return the topology changes after the given version, or nothing if the changes are not available anymore
+   */
+  Optional<List<TopologyChange>> getTopologyChanges(long sinceVersion) {
+    return changeLog.since(sinceVersion);
+  }
+
+  String getTopologyId() {
+    return topologyId;
   }
 
   void addTopologyEventListener(TopologyEventListener topologyEventListener) {
@@ -548,6 +657,85 @@ class TopologyService implements PlatformListener {
     return isServerActive(getServerName());
   }
 
+  // must be called while holding the topology lock: the listeners are only called by fireEvents(), once the lock is released
+  private void fireTopologyEvent(Consumer<TopologyEventListener> event) {
+    pendingEvents.offer(() -> topologyEventListeners.forEach(event));
+  }
+
+  // must be called while holding the topology lock: the notification is only fired by fireEvents(), once the lock is released
+  private void fireTopologyChange(ContextualNotification notification) {
+    recordTopologyChange(notification.getContext(), notification.getType(), notification.getAttributes());
+    pendingEvents.offer(() -> firingService.fireNotification(notification));
+  }
+
+  // must be called while holding the topology lock, right after the topology has been updated
+  private void recordTopologyChange(Context context, String type, Map<String, String> attributes) {
+    TopologyChange change = changeLog.record(type, context, attributes);
+    snapshot = new TopologySnapshot(change.getVersion(), cluster.readOnlyCopy());
+    LOGGER.trace("[0] topology version {}: {} {}", change.getVersion(), type, context);
+    fireTopologyEvent(listener -> listener.onTopologyChange(change));
+  }
+
+  /**
+   * Fires the events queued while the topology was updated, in the order they were queued: notifications, listener
+   * callbacks and delayed executions waiting for a fetch or an entity.
+   * <p>
+   * Must be called once the topology lock is released, so that no event is ever fired while holding it.
+   * Only one thread fires at a time: a thread finding another one firing (possibly itself, when an event changes the
+   * topology again) leaves its events to it.
+   */
+  private void fireEvents() {
+    assert !Thread.holdsLock(this) : "Topology events must be fired outside the topology lock";
+    while (!pendingEvents.isEmpty() && firing.compareAndSet(false, true)) {
+      try {
+        Runnable event;
+        while ((event = pendingEvents.poll()) != null) {
+          try {
+            event.run();
+          } catch (RuntimeException e) {
+            LOGGER.error("[0] Error firing topology event: " + e.getMessage(), e);
+          }
+        }
+      } finally {
+        firing.set(false);
+      }
+    }
+  }
+
+  private static Cluster renameStripe(Cluster cluster, String stripeName) {
+    Stripe namedStripe = Stripe.create(stripeName);
+    Stripe currentStripe = cluster.getSingleStripe();
+
+    // move servers
+    currentStripe.serverStream().forEach(namedStripe::addServer);
+
+    // add stripe
+    cluster.addStripe(namedStripe);
+
+    cluster.clientStream().forEach(client -> {
+      // hole a list of connections to delete after
+      List<Connection> toDelete = new ArrayList<>(client.getConnectionCount());
+      List<Connection> toAdd = new ArrayList<>(client.getConnectionCount());
+
+      client.connectionStream().forEach(currentConn -> {
+        toDelete.add(currentConn);
+        namedStripe.getServer(currentConn.getServerId())
+            .ifPresent(server -> {
+              Connection newConnection = Connection.create(currentConn.getLogicalConnectionUid(), server, currentConn.getClientEndpoint());
+              currentConn.fetchedServerEntityStream().forEach(serverEntity -> newConnection.fetchServerEntity(serverEntity.getServerEntityIdentifier()));
+              toAdd.add(newConnection);
+            });
+      });
+
+      toDelete.forEach(Connection::remove);
+      toAdd.forEach(client::addConnection);
+    });
+
+    // remove current stripe and add new one
+    cluster.removeStripe(currentStripe.getId());
+    return cluster;
+  }
+
   private ExecutionChain<Client> whenFetchClient(long consumerId, ClientDescriptor clientDescriptor) {
     ConcurrentMap<ClientDescriptor, ExecutionChain<Client>> fetches = entityFetches.computeIfAbsent(consumerId, cid -> new ConcurrentHashMap<>());
     return fetches.computeIfAbsent(clientDescriptor, key -> new ExecutionChain<>());
@@ -558,6 +746,37 @@ class TopologyService implements PlatformListener {
     return entities.computeIfAbsent(consumerId, key -> new ExecutionChain<>());
   }
 
+  // same as whenFetchClient(consumerId, clientDescriptor).executeOrDiscard(consumer), without creating a chain
+  private void ifFetchedClient(long consumerId, ClientDescriptor clientDescriptor, Consumer<Client> consumer) {
+    ConcurrentMap<ClientDescriptor, ExecutionChain<Client>> fetches = entityFetches.get(consumerId);
+    ExecutionChain<Client> chain = fetches == null ? null : fetches.get(clientDescriptor);
+    if (chain != null) {
+      chain.executeOrDiscard(consumer);
+    }
+  }
+
+  // same as whenServerEntity(consumerId, serverName).executeOrDiscard(consumer), without creating a chain
+  private void ifServerEntity(long consumerId, String serverName, Consumer<ServerEntity> consumer) {
+    ConcurrentMap<Long, ExecutionChain<ServerEntity>> entities = serverEntities.get(serverName);
+    ExecutionChain<ServerEntity> chain = entities == null ? null : entities.get(consumerId);
+    if (chain != null) {
+      chain.executeOrDiscard(consumer);
+    }
+  }
+
+  /**
+   * Discards the expired delayed executions and forgets the chains that are still waiting for a fetch or an entity
+   * but do not hold any execution anymore
+   */
+  void purgeExecutionChains() {
+    entityFetches.values().forEach(fetches -> fetches.values().removeIf(ExecutionChain::purge));
+    serverEntities.values().forEach(entities -> entities.values().removeIf(ExecutionChain::purge));
+  }
+
+  int getExecutionChainCount() {
+    return entityFetches.values().stream().mapToInt(Map::size).sum() + serverEntities.values().stream().mapToInt(Map::size).sum();
+  }
+
   private static ClientIdentifier toClientIdentifier(PlatformConnectedClient connection) {
     return ClientIdentifier.create(
         connection.clientPID,
@@ -0,0 +1,242 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.management.service.monitoring;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.terracotta.entity.ClientDescriptor;
+import org.terracotta.management.model.call.ContextualReturn;
+import org.terracotta.management.model.cluster.Cluster;
+import org.terracotta.management.model.context.Context;
+import org.terracotta.management.model.message.DefaultManagementCallMessage;
+import org.terracotta.management.model.message.DefaultMessage;
+import org.terracotta.management.model.message.Message;
+import org.terracotta.management.model.message.MessageFilter;
+import org.terracotta.management.model.message.TopologyMessage;
+import org.terracotta.management.model.notification.ContextualNotification;
+import org.terracotta.management.model.stats.ContextualStatistics;
+import org.terracotta.management.sequence.BoundaryFlakeSequenceGenerator;
+import org.terracotta.management.sequence.NodeIdSource;
+import org.terracotta.management.sequence.TimeSource;
+import org.terracotta.monitoring.PlatformConnectedClient;
+import org.terracotta.monitoring.PlatformServer;
+
+import java.net.InetAddress;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class DefaultManagementServiceTest {
+
+  private final PlatformServer active = new PlatformServer("server-1", "localhost", "127.0.0.1", "0.0.0.0", 9510, 9610, "v1", "b1", System.currentTimeMillis());
+  private final List<Message> sent = new CopyOnWriteArrayList<>();
+  private final List<Message> broadcast = new CopyOnWriteArrayList<>();
+  private final List<Message> all = new CopyOnWriteArrayList<>();
+  private final ClientDescriptor subscriber = mock(ClientDescriptor.class);
+
+  private DefaultFiringService firingService;
+  private TopologyService topologyService;
+  private DefaultManagementService managementService;
+
+  @Before
+  public void setUp() throws Exception {
+    firingService = new DefaultFiringService(new BoundaryFlakeSequenceGenerator(TimeSource.BEST, NodeIdSource.BEST));
+    topologyService = new TopologyService(firingService, new MyPlatformConfiguration("server-1", "localhost", 9510));
+    topologyService.serverDidBecomeActive(active);
+    managementService = new DefaultManagementService(1, topologyService, firingService, null);
+    managementService.setManagementExecutor(new ManagementExecutorAdapter() {
+      @Override
+      public void sendMessageToClient(Message message, ClientDescriptor to) {
+        assertThat(to, is(subscriber));
+        sent.add(message);
+        all.add(message);
+      }
+
+      @Override
+      public void sendMessageToClients(Message message) {
+        broadcast.add(message);
+        all.add(message);
+      }
+    });
+  }
+
+  @Test
+  public void test_subscribe_returns_whole_topology_first() throws Exception {
+    TopologyMessage message = managementService.subscribeTopologyChanges(subscriber, null, -1);
+
+    assertThat(message.getType(), equalTo(TopologyMessage.TOPOLOGY));
+    assertThat(message.getTopologyId(), equalTo(topologyService.getTopologyId()));
+    assertThat(message.getFromVersion(), is(2L));
+    assertThat(message.getToVersion(), is(2L));
+    assertThat(message.unwrap(Cluster.class).get(0).getSingleStripe().getServerCount(), is(1));
+
+    // unknown topology, i.e. from another active server
+    assertThat(managementService.subscribeTopologyChanges(subscriber, "other", 2).getType(), equalTo(TopologyMessage.TOPOLOGY));
+  }
+
+  @Test
+  public void test_changes_are_pushed_to_subscribers() throws Exception {
+    topologyService.clientConnected(active, client("uuid-1", 1234));
+    assertThat(sent.size(), is(0));
+
+    TopologyMessage first = managementService.subscribeTopologyChanges(subscriber, null, -1);
+    topologyService.clientConnected(active, client("uuid-2", 1235));
+    topologyService.clientDisconnected(active, client("uuid-1", 1234));
+
+    assertThat(sent.size(), is(2));
+    TopologyMessage pushed = (TopologyMessage) sent.get(0);
+    assertThat(pushed.getType(), equalTo(TopologyMessage.TOPOLOGY_CHANGES));
+    assertThat(pushed.getTopologyId(), equalTo(first.getTopologyId()));
+    assertThat(pushed.getFromVersion(), is(first.getToVersion()));
+    assertThat(pushed.getToVersion(), is(first.getToVersion() + 1));
+    assertThat(types(sent.get(1)), equalTo(asList("CLIENT_DISCONNECTED")));
+
+    managementService.unsubscribeTopologyChanges(subscriber);
+    topologyService.clientDisconnected(active, client("uuid-2", 1235));
+    assertThat(sent.size(), is(2));
+  }
+
+  @Test
+  public void test_resubscribe_returns_missed_changes() throws Exception {
+    TopologyMessage first = managementService.subscribeTopologyChanges(subscriber, null, -1);
+    managementService.onUnfetch(1, subscriber);
+
+    topologyService.clientConnected(active, client("uuid-1", 1234));
+    topologyService.clientConnected(active, client("uuid-2", 1235));
+    assertThat(sent.size(), is(0));
+
+    TopologyMessage missed = managementService.subscribeTopologyChanges(subscriber, first.getTopologyId(), first.getToVersion());
+    assertThat(missed.getType(), equalTo(TopologyMessage.TOPOLOGY_CHANGES));
+    assertThat(missed.getFromVersion(), is(first.getToVersion()));
+    assertThat(missed.getToVersion(), is(first.getToVersion() + 2));
+    assertThat(types(missed), equalTo(asList("CLIENT_CONNECTED", "CLIENT_CONNECTED")));
+  }
+
+  @Test
+  public void test_batch_keeps_one_sequence_per_message() throws Exception {
+    Context context = topologyService.getActiveServer().getContext();
+    Message notification1 = new DefaultMessage(firingService.nextSequence(), "NOTIFICATION", new ContextualNotification(context, "A"));
+    Message statistics1 = new DefaultMessage(firingService.nextSequence(), "STATISTICS", statistics(context.with("collectorId", "1")));
+    Message statistics2 = new DefaultMessage(firingService.nextSequence(), "STATISTICS", statistics(context.with("collectorId", "2")));
+    Message notification2 = new DefaultMessage(firingService.nextSequence(), "NOTIFICATION", new ContextualNotification(context, "B"));
+    broadcast.clear();
+
+    managementService.onMessagesToSend(asList(notification1, statistics1, statistics2, notification2));
+
+    // statistics collected by another NMS entity are filtered out
+    assertThat(broadcast.size(), is(3));
+    assertThat(broadcast.get(0), is(notification1));
+    assertThat(broadcast.get(1), is(statistics1));
+    assertThat(broadcast.get(2), is(notification2));
+  }
+
+  @Test
+  public void test_batch_order_kept_around_management_calls() throws Exception {
+    Context context = topologyService.getActiveServer().getContext();
+    Message notification1 = new DefaultMessage(firingService.nextSequence(), "NOTIFICATION", new ContextualNotification(context, "A"));
+    Message answer = new DefaultManagementCallMessage("call-1", firingService.nextSequence(), "MANAGEMENT_CALL_RETURN", ContextualReturn.of("capability", context, "method", "result"));
+    Message notification2 = new DefaultMessage(firingService.nextSequence(), "NOTIFICATION", new ContextualNotification(context, "B"));
+    managementService.getManagementCallTracker().track(subscriber, "call-1");
+    all.clear();
+
+    managementService.onMessagesToSend(asList(notification1, answer, notification2));
+
+    assertThat(all.size(), is(3));
+    assertThat(types(all.get(0)), equalTo(asList("A")));
+    assertThat(all.get(1), is(answer));
+    assertThat(types(all.get(2)), equalTo(asList("B")));
+  }
+
+  @Test
+  public void test_filtered_messages_sent_per_client() throws Exception {
+    Context context = topologyService.getActiveServer().getContext().with("collectorId", "1");
+    Message notification = new DefaultMessage(firingService.nextSequence(), "NOTIFICATION", new ContextualNotification(context, "A"));
+    Message statistics = new DefaultMessage(firingService.nextSequence(), "STATISTICS",
+        new ContextualStatistics("PoolStatistics", context, Collections.emptyMap()),
+        new ContextualStatistics("CacheStatistics", context, Collections.emptyMap()));
+    managementService.onFetch(1, subscriber);
+    broadcast.clear();
+
+    managementService.onMessagesToSend(asList(notification, statistics));
+    assertThat(broadcast.size(), is(2));
+    assertThat(sent.size(), is(0));
+
+    managementService.setMessageFilter(subscriber, MessageFilter.ofTypes("STATISTICS").withCapabilities("CacheStatistics"));
+    managementService.onMessageToSend(notification);
+    managementService.onMessageToSend(statistics);
+
+    assertThat(broadcast.size(), is(2));
+    assertThat(sent.size(), is(1));
+    assertThat(sent.get(0).getSequence(), equalTo(statistics.getSequence()));
+    assertThat(sent.get(0).unwrap(ContextualStatistics.class).size(), is(1));
+    assertThat(sent.get(0).unwrap(ContextualStatistics.class).get(0).getCapability(), equalTo("CacheStatistics"));
+
+    // back to broadcast once the client is gone
+    managementService.onUnfetch(1, subscriber);
+    managementService.onMessageToSend(notification);
+    assertThat(broadcast.size(), is(3));
+  }
+
+  @Test
+  public void test_filter_set_before_fetch_registered_with_it() throws Exception {
+    Context context = topologyService.getActiveServer().getContext().with("collectorId", "1");
+    Message notification = new DefaultMessage(firingService.nextSequence(), "NOTIFICATION", new ContextualNotification(context, "A"));
+    Message statistics = new DefaultMessage(firingService.nextSequence(), "STATISTICS", statistics(context));
+    broadcast.clear();
+
+    // i.e. restored on reconnect, or set while the fetch event is still queued
+    managementService.setMessageFilter(subscriber, MessageFilter.ofTypes("STATISTICS"));
+    managementService.onMessageToSend(notification);
+    assertThat(broadcast.size(), is(1));
+    assertThat(sent.size(), is(0));
+
+    // the fetch does not replace the filter, even when seen twice
+    managementService.onFetch(1, subscriber);
+    managementService.onFetch(1, subscriber);
+    managementService.onMessageToSend(notification);
+    managementService.onMessageToSend(statistics);
+    assertThat(broadcast.size(), is(1));
+    assertThat(sent, equalTo(asList(statistics)));
+
+    // a filter of a client gone before its fetch is seen is forgotten
+    managementService.onUnfetch(1, subscriber);
+    managementService.setMessageFilter(subscriber, MessageFilter.ofTypes("STATISTICS"));
+    managementService.onUnfetch(1, subscriber);
+    managementService.onFetch(1, subscriber);
+    managementService.onMessageToSend(notification);
+    assertThat(broadcast.size(), is(2));
+  }
+
+  private static ContextualStatistics statistics(Context context) {
+    return new ContextualStatistics("capability", context, Collections.emptyMap());
+  }
+
+  private static List<String> types(Message message) {
+    return message.unwrap(ContextualNotification.class).stream().map(ContextualNotification::getType).collect(Collectors.toList());
+  }
+
+  private static PlatformConnectedClient client(String uuid, int port) throws Exception {
+    return new PlatformConnectedClient(uuid, "name", InetAddress.getByName("localhost"), port, InetAddress.getByName("localhost"), port + 1000, 111);
+  }
+
+}
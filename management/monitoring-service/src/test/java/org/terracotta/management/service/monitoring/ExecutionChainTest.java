@@ -0,0 +1,113 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.management.service.monitoring;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class ExecutionChainTest {
+
+  private final AtomicLong nanos = new AtomicLong();
+  private final List<String> executed = new ArrayList<>();
+
+  @Test
+  public void test_delayed_until_completed() {
+    ExecutionChain<String> chain = new ExecutionChain<>(10, 0, TimeUnit.SECONDS, nanos::get);
+    chain.executeOrDiscard(v -> executed.add("discarded"));
+    chain.executeOrDelay(v -> executed.add("a" + v));
+    chain.executeOrDelay(v -> executed.add("b" + v));
+    assertThat(executed.size(), is(0));
+    assertThat(chain.size(), is(2));
+
+    chain.complete("1");
+    assertThat(executed, equalTo(asList("a1", "b1")));
+
+    chain.executeOrDelay(v -> executed.add("c" + v));
+    chain.executeOrDiscard(v -> executed.add("d" + v));
+    assertThat(executed, equalTo(asList("a1", "b1", "c1", "d1")));
+    assertThat(chain.size(), is(0));
+  }
+
+  @Test
+  public void test_tagged_replacement_keeps_order() {
+    ExecutionChain<String> chain = new ExecutionChain<>(10, 0, TimeUnit.SECONDS, nanos::get);
+    chain.executeOrDelay("tags", v -> executed.add("tags-1"));
+    chain.executeOrDelay(v -> executed.add("a"));
+    chain.executeOrDelay("registry", v -> executed.add("registry-1"));
+    for (int i = 2; i <= 1000; i++) {
+      int n = i;
+      chain.executeOrDelay("tags", v -> executed.add("tags-" + n));
+    }
+    assertThat(chain.size(), is(3));
+
+    chain.complete("");
+    assertThat(executed, equalTo(asList("a", "registry-1", "tags-1000")));
+  }
+
+  @Test
+  public void test_capacity() {
+    ExecutionChain<String> chain = new ExecutionChain<>(3, 0, TimeUnit.SECONDS, nanos::get);
+    chain.executeOrDelay("tags", v -> executed.add("tags"));
+    for (int i = 0; i < 5; i++) {
+      int n = i;
+      chain.executeOrDelay(v -> executed.add("" + n));
+    }
+    assertThat(chain.size(), is(3));
+    assertThat(chain.getDroppedCount(), is(3L));
+
+    // the index does not reference the dropped execution anymore
+    chain.executeOrDelay("tags", v -> executed.add("tags"));
+    chain.complete("");
+    assertThat(executed, equalTo(asList("3", "4", "tags")));
+  }
+
+  @Test
+  public void test_ttl() {
+    ExecutionChain<String> chain = new ExecutionChain<>(10, 1, TimeUnit.SECONDS, nanos::get);
+    chain.executeOrDelay("tags", v -> executed.add("tags"));
+    nanos.set(TimeUnit.MILLISECONDS.toNanos(600));
+    chain.executeOrDelay(v -> executed.add("a"));
+    assertThat(chain.purge(), is(false));
+
+    nanos.set(TimeUnit.MILLISECONDS.toNanos(1200));
+    assertThat(chain.purge(), is(false));
+    assertThat(chain.size(), is(1));
+    assertThat(chain.getExpiredCount(), is(1L));
+
+    nanos.set(TimeUnit.MILLISECONDS.toNanos(1700));
+    assertThat(chain.purge(), is(true));
+    assertThat(chain.size(), is(0));
+
+    chain.complete("");
+    assertThat(executed.size(), is(0));
+    assertThat(chain.purge(), is(false));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void test_bad_capacity() {
+    new ExecutionChain<String>(0, 0, TimeUnit.SECONDS, nanos::get);
+  }
+
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.management.service.monitoring;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.terracotta.management.service.monitoring.FiringConfiguration.OverflowPolicy.BLOCK;
+import static org.terracotta.management.service.monitoring.FiringConfiguration.OverflowPolicy.DROP;
+
+public class FiringPipelineTest {
+
+  @Test
+  public void test_events_fired_in_order_and_in_batches() throws Exception {
+    List<List<Integer>> batches = new CopyOnWriteArrayList<>();
+    CountDownLatch firstBatch = new CountDownLatch(1);
+    CountDownLatch blocked = new CountDownLatch(1);
+    FiringPipeline<Integer> pipeline = new FiringPipeline<>("test", new FiringConfiguration(100, 10, BLOCK, 1000), batch -> {
+      batches.add(new ArrayList<>(batch));
+      firstBatch.countDown();
+      await(blocked);
+    });
+
+    pipeline.offer(0);
+    assertTrue(firstBatch.await(5, TimeUnit.SECONDS));
+    // the pipeline thread is blocked: these ones accumulate
+    for (int i = 1; i < 26; i++) {
+      assertThat(pipeline.offer(i), is(true));
+    }
+    assertThat(pipeline.getQueueDepth(), is(25));
+    blocked.countDown();
+    pipeline.close();
+
+    assertThat(batches.stream().map(List::size).collect(Collectors.toList()), equalTo(asList(1, 10, 10, 5)));
+    assertThat(batches.stream().flatMap(List::stream).collect(Collectors.toList()), equalTo(IntStream.range(0, 26).boxed().collect(Collectors.toList())));
+    assertThat(pipeline.getFiredCount(), is(26L));
+    assertThat(pipeline.getBatchCount(), is(4L));
+    assertThat(pipeline.getDroppedCount(), is(0L));
+  }
+
+  @Test
+  public void test_drop_when_full() throws Exception {
+    CountDownLatch firstBatch = new CountDownLatch(1);
+    CountDownLatch blocked = new CountDownLatch(1);
+    FiringPipeline<Integer> pipeline = new FiringPipeline<>("test", new FiringConfiguration(2, 10, DROP, 1000), batch -> {
+      firstBatch.countDown();
+      await(blocked);
+    });
+
+    pipeline.offer(0);
+    assertTrue(firstBatch.await(5, TimeUnit.SECONDS));
+    assertThat(pipeline.offer(1), is(true));
+    assertThat(pipeline.offer(2), is(true));
+    assertThat(pipeline.offer(3), is(false));
+    assertThat(pipeline.getDroppedCount(), is(1L));
+
+    blocked.countDown();
+    pipeline.close();
+    assertThat(pipeline.getFiredCount(), is(3L));
+
+    // closed
+    assertThat(pipeline.offer(4), is(false));
+    assertThat(pipeline.getDroppedCount(), is(2L));
+  }
+
+  @Test
+  public void test_block_for_a_bounded_time_when_full() throws Exception {
+    CountDownLatch firstBatch = new CountDownLatch(1);
+    CountDownLatch blocked = new CountDownLatch(1);
+    FiringPipeline<Integer> pipeline = new FiringPipeline<>("test", new FiringConfiguration(1, 10, BLOCK, 50), batch -> {
+      firstBatch.countDown();
+      await(blocked);
+    });
+
+    pipeline.offer(0);
+    assertTrue(firstBatch.await(5, TimeUnit.SECONDS));
+    assertThat(pipeline.offer(1), is(true));
+    long start = System.nanoTime();
+    assertThat(pipeline.offer(2), is(false));
+    assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+    assertThat(pipeline.getDroppedCount(), is(1L));
+
+    blocked.countDown();
+    pipeline.close();
+    assertThat(pipeline.getFiredCount(), is(2L));
+  }
+
+  @Test
+  public void test_close_idle_pipeline() throws Exception {
+    FiringPipeline<Integer> pipeline = new FiringPipeline<>("test", new FiringConfiguration(), batch -> {
+    });
+
+    pipeline.close();
+    pipeline.close();
+
+    assertThat(pipeline.getFiredCount(), is(0L));
+    assertThat(pipeline.getBatchCount(), is(0L));
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      throw new AssertionError(e);
+    }
+  }
+
+}
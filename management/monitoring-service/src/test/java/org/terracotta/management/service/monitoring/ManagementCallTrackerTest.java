@@ -0,0 +1,112 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.management.service.monitoring;
+
+import org.junit.Test;
+import org.terracotta.entity.ClientDescriptor;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class ManagementCallTrackerTest {
+
+  private final AtomicLong time = new AtomicLong();
+  private final ManagementCallTracker tracker = new ManagementCallTracker(10, TimeUnit.NANOSECONDS, time::get);
+  private final ClientDescriptor caller1 = mock(ClientDescriptor.class);
+  private final ClientDescriptor caller2 = mock(ClientDescriptor.class);
+
+  @Test
+  public void test_track_and_untrack() throws Exception {
+    tracker.track(caller1, "call-1");
+    tracker.track(caller2, "call-2");
+    assertThat(tracker.isTracked("call-1"), is(true));
+    assertThat(tracker.getOutstandingCount(), is(2));
+
+    assertThat(tracker.unTrack("call-2"), equalTo(Optional.of(caller2)));
+    assertThat(tracker.unTrack("call-2"), equalTo(Optional.empty()));
+    assertThat(tracker.isTracked("call-2"), is(false));
+    assertThat(tracker.getOutstandingCount(), is(1));
+    assertThat(tracker.getTrackedCount(), is(2L));
+    assertThat(tracker.getAnsweredCount(), is(1L));
+  }
+
+  @Test
+  public void test_untrack_all_calls_of_caller() throws Exception {
+    tracker.track(caller1, "call-1");
+    tracker.track(caller1, "call-2");
+    tracker.track(caller2, "call-3");
+
+    tracker.unTrackAll(caller1);
+
+    assertThat(tracker.isTracked("call-1"), is(false));
+    assertThat(tracker.isTracked("call-2"), is(false));
+    assertThat(tracker.unTrack("call-3"), equalTo(Optional.of(caller2)));
+    assertThat(tracker.getOutstandingCount(), is(0));
+  }
+
+  @Test
+  public void test_abandoned_calls_expire() throws Exception {
+    tracker.track(caller1, "call-1");
+    time.set(5);
+    tracker.track(caller1, "call-2");
+
+    time.set(10);
+    // not answered in time
+    assertThat(tracker.isTracked("call-1"), is(false));
+    assertThat(tracker.unTrack("call-1"), equalTo(Optional.empty()));
+    assertThat(tracker.getExpiredCount(), is(1L));
+
+    // purged when tracking new calls
+    time.set(15);
+    tracker.track(caller2, "call-3");
+    assertThat(tracker.getOutstandingCount(), is(1));
+    assertThat(tracker.getExpiredCount(), is(2L));
+    assertThat(tracker.unTrack("call-3"), equalTo(Optional.of(caller2)));
+  }
+
+  @Test
+  public void test_abandoned_calls_expire_without_new_calls() throws Exception {
+    tracker.track(caller1, "call-1");
+    tracker.track(caller2, "call-2");
+
+    time.set(10);
+    assertThat(tracker.getOutstandingCount(), is(0));
+    assertThat(tracker.getExpiredCount(), is(2L));
+    assertThat(tracker.getDeadlineQueueSize(), is(0));
+  }
+
+  @Test
+  public void test_answered_calls_leave_the_deadline_queue() throws Exception {
+    for (int i = 0; i < 100; i++) {
+      tracker.track(caller1, "call-" + i);
+      tracker.unTrack("call-" + i);
+    }
+    assertThat(tracker.getAnsweredCount(), is(100L));
+
+    // answered calls are only dropped once they reach the head of the queue, without being counted as expired
+    time.set(10);
+    assertThat(tracker.getOutstandingCount(), is(0));
+    assertThat(tracker.getDeadlineQueueSize(), is(0));
+    assertThat(tracker.getExpiredCount(), is(0L));
+  }
+
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.management.service.monitoring;
+
+import org.junit.Ignore;
+import org.junit.Test;
+import org.terracotta.entity.ClientDescriptor;
+import org.terracotta.management.model.call.ContextualCall;
+import org.terracotta.management.model.call.ContextualReturn;
+import org.terracotta.management.model.notification.ContextualNotification;
+import org.terracotta.management.model.stats.ContextualStatistics;
+import org.terracotta.monitoring.PlatformConnectedClient;
+import org.terracotta.monitoring.PlatformEntity;
+import org.terracotta.monitoring.PlatformServer;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Simulates a storm of 10k clients connecting and fetching an entity (i.e. a mass reconnect after failover)
+ * from several platform threads, with a firing service that takes some time to send each notification.
+ * <p>
+ * TIP: run with: -server -Xmx512M -Xms512M
+ */
+public class TopologyServicePerfTest {
+
+  private static final int CLIENTS = 10_000;
+  private static final int ROUNDS = 5;
+  private static final long FIRING_COST_NS = 20_000;
+
+  @Test
+  @Ignore
+  public void connectAndFetchStorm() throws Exception {
+    for (int threads : new int[]{1, 2, 4, 8}) {
+      for (int round = 0; round < ROUNDS; round++) {
+        run(threads, round);
+      }
+    }
+  }
+
+  private static void run(int threads, int round) throws Exception {
+    PlatformServer active = new PlatformServer("server-1", "localhost", "127.0.0.1", "0.0.0.0", 9510, 9610, "v1", "b1", System.currentTimeMillis());
+    PlatformEntity entity = new PlatformEntity("entityType", "entityName", 1, true);
+    AtomicLong fired = new AtomicLong();
+    TopologyService topologyService = new TopologyService(new SlowFiringService(fired), new MyPlatformConfiguration("server-1", "localhost", 9510));
+    topologyService.serverDidBecomeActive(active);
+    topologyService.serverEntityCreated(active, entity);
+
+    List<PlatformConnectedClient> clients = new ArrayList<>(CLIENTS);
+    List<ClientDescriptor> descriptors = new ArrayList<>(CLIENTS);
+    InetAddress localhost = InetAddress.getByName("localhost");
+    for (int i = 0; i < CLIENTS; i++) {
+      clients.add(new PlatformConnectedClient("uuid-" + i, "name", localhost, 10_000 + i, localhost, 9510, i));
+      descriptors.add(mock(ClientDescriptor.class));
+    }
+
+    ExecutorService executorService = Executors.newFixedThreadPool(threads);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<?>> futures = new ArrayList<>(threads);
+    for (int t = 0; t < threads; t++) {
+      int thread = t;
+      futures.add(executorService.submit(() -> {
+        start.await();
+        for (int i = thread; i < CLIENTS; i += threads) {
+          topologyService.clientConnected(active, clients.get(i));
+          topologyService.clientFetch(clients.get(i), entity, descriptors.get(i));
+        }
+        return null;
+      }));
+    }
+
+    long time = System.nanoTime();
+    start.countDown();
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    time = System.nanoTime() - time;
+    executorService.shutdown();
+    executorService.awaitTermination(10, TimeUnit.SECONDS);
+
+    assertThat(topologyService.getTopologySnapshot().getCluster().getClientCount(), is(CLIENTS));
+    assertThat(fired.get(), is(3L + 2 * CLIENTS));
+
+    System.out.println(round + ". " + threads + " thread(s): " + (time / (2 * CLIENTS)) + " ns/event, "
+        + (TimeUnit.NANOSECONDS.toMillis(time)) + " ms for " + CLIENTS + " clients");
+  }
+
+  private static class SlowFiringService implements FiringService {
+
+    private final AtomicLong fired;
+
+    SlowFiringService(AtomicLong fired) {
+      this.fired = fired;
+    }
+
+    @Override
+    public void fireNotification(ContextualNotification notification) {
+      // simulates the encoding and sending of the message to the NMS clients
+      long end = System.nanoTime() + FIRING_COST_NS;
+      while (System.nanoTime() < end) ;
+      fired.incrementAndGet();
+    }
+
+    @Override
+    public void fireStatistics(ContextualStatistics[] statistics) {
+    }
+
+    @Override
+    public void fireManagementCallAnswer(String managementCallIdentifier, ContextualReturn<?> answer) {
+    }
+
+    @Override
+    public void fireManagementCallRequest(String managementCallIdentifier, ContextualCall<?> call) {
+    }
+  }
+
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.management.service.monitoring;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.terracotta.entity.ClientDescriptor;
+import org.terracotta.management.model.call.ContextualCall;
+import org.terracotta.management.model.call.ContextualReturn;
+import org.terracotta.management.model.cluster.ManagementRegistry;
+import org.terracotta.management.model.context.ContextContainer;
+import org.terracotta.management.model.notification.ContextualNotification;
+import org.terracotta.management.model.stats.ContextualStatistics;
+import org.terracotta.monitoring.PlatformConnectedClient;
+import org.terracotta.monitoring.PlatformEntity;
+import org.terracotta.monitoring.PlatformServer;
+
+import java.net.InetAddress;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+
+public class TopologyServiceTest {
+
+  private final List<ContextualNotification> notifications = new CopyOnWriteArrayList<>();
+  private final PlatformServer active = new PlatformServer("server-1", "localhost", "127.0.0.1", "0.0.0.0", 9510, 9610, "v1", "b1", System.currentTimeMillis());
+
+  private TopologyService topologyService;
+
+  @Before
+  public void setUp() throws Exception {
+    topologyService = new TopologyService(new RecordingFiringService(), new MyPlatformConfiguration("server-1", "localhost", 9510));
+    topologyService.serverDidBecomeActive(active);
+  }
+
+  @Test
+  public void test_snapshot_shared_until_topology_changes() throws Exception {
+    TopologySnapshot snapshot = topologyService.getTopologySnapshot();
+    assertThat(snapshot.getVersion(), is(2L)); // SERVER_JOINED, SERVER_STATE_CHANGED
+    assertThat(topologyService.getTopologySnapshot(), sameInstance(snapshot));
+    assertThat(snapshot.getCluster().getClientCount(), is(0));
+
+    topologyService.clientConnected(active, client("uuid-1", 1234));
+
+    TopologySnapshot next = topologyService.getTopologySnapshot();
+    assertThat(next, not(sameInstance(snapshot)));
+    assertThat(next.getVersion(), is(3L));
+    assertThat(next.getCluster().getClientCount(), is(1));
+    // older snapshots are not affected
+    assertThat(snapshot.getCluster().getClientCount(), is(0));
+    // and cannot be modified by readers
+    assertThat(next.getCluster().isReadOnly(), is(true));
+    try {
+      next.getCluster().getClients().clear();
+      fail();
+    } catch (UnsupportedOperationException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void test_named_snapshot_renamed_once_per_version() throws Exception {
+    assertThat(topologyService.getTopologySnapshot("SINGLE"), sameInstance(topologyService.getTopologySnapshot()));
+
+    TopologySnapshot snapshot = topologyService.getTopologySnapshot("stripe-1");
+    assertThat(snapshot.getVersion(), is(2L));
+    assertThat(snapshot.getCluster().getSingleStripe().getName(), equalTo("stripe-1"));
+    assertThat(snapshot.getCluster().getSingleStripe().getServerByName("server-1").isPresent(), is(true));
+    assertThat(topologyService.getTopologySnapshot("stripe-1"), sameInstance(snapshot));
+    // the shared snapshot is not renamed
+    assertThat(topologyService.getTopologySnapshot().getCluster().getSingleStripe().getName(), equalTo("SINGLE"));
+
+    topologyService.clientConnected(active, client("uuid-1", 1234));
+
+    TopologySnapshot next = topologyService.getTopologySnapshot("stripe-1");
+    assertThat(next.getVersion(), is(3L));
+    assertThat(next.getCluster().getSingleStripe().getName(), equalTo("stripe-1"));
+    assertThat(next.getCluster().getClientCount(), is(1));
+  }
+
+  @Test
+  public void test_changes_since_version() throws Exception {
+    topologyService.clientConnected(active, client("uuid-1", 1234));
+    topologyService.clientConnected(active, client("uuid-2", 1235));
+    topologyService.clientDisconnected(active, client("uuid-1", 1234));
+
+    assertThat(types(topologyService.getTopologyChanges(0).get()), equalTo(asList("SERVER_JOINED", "SERVER_STATE_CHANGED", "CLIENT_CONNECTED", "CLIENT_CONNECTED", "CLIENT_DISCONNECTED")));
+    assertThat(types(topologyService.getTopologyChanges(3).get()), equalTo(asList("CLIENT_CONNECTED", "CLIENT_DISCONNECTED")));
+    assertThat(topologyService.getTopologyChanges(5).get().size(), is(0));
+    assertThat(topologyService.getTopologyChanges(6), equalTo(Optional.empty()));
+
+    // changes are the topology notifications that were fired
+    assertThat(notifications.stream().map(ContextualNotification::getType).collect(Collectors.toList()), equalTo(types(topologyService.getTopologyChanges(0).get())));
+  }
+
+  @Test
+  public void test_events_fired_outside_topology_lock() throws Exception {
+    List<String> events = new CopyOnWriteArrayList<>();
+    topologyService.addTopologyEventListener(new TopologyEventListener() {
+      @Override
+      public void onFetch(long consumerId, ClientDescriptor clientDescriptor) {
+        record("fetch");
+      }
+
+      @Override
+      public void onEntityCreated(long consumerId) {
+        record("created");
+      }
+
+      @Override
+      public void onTopologyChange(TopologyChange change) {
+        record(change.getType());
+      }
+
+      private void record(String event) {
+        events.add(Thread.holdsLock(topologyService) ? "locked " + event : event);
+      }
+    });
+    ClientDescriptor clientDescriptor = mock(ClientDescriptor.class);
+    PlatformConnectedClient client = client("uuid-1", 1234);
+    PlatformEntity entity = new PlatformEntity("entityType", "entityName", 1, true);
+    // delayed until the fetch, which completes it once the topology lock is released
+    topologyService.willSetClientManagementRegistry(1, clientDescriptor, ManagementRegistry.create(new ContextContainer("name", "value")));
+
+    topologyService.serverEntityCreated(active, entity);
+    topologyService.clientConnected(active, client);
+    topologyService.clientFetch(client, entity, clientDescriptor);
+
+    assertThat(events, equalTo(asList("SERVER_ENTITY_CREATED", "created", "CLIENT_CONNECTED", "SERVER_ENTITY_FETCHED", "fetch", "CLIENT_REGISTRY_AVAILABLE")));
+  }
+
+  @Test
+  public void test_change_log_capacity() throws Exception {
+    TopologyChangeLog changeLog = new TopologyChangeLog(2);
+    changeLog.record("A", topologyService.getActiveServer().getContext(), Collections.emptyMap());
+    changeLog.record("B", topologyService.getActiveServer().getContext(), Collections.emptyMap());
+    changeLog.record("C", topologyService.getActiveServer().getContext(), Collections.emptyMap());
+
+    assertThat(changeLog.getVersion(), is(3L));
+    assertThat(types(changeLog.since(1).get()), equalTo(asList("B", "C")));
+    assertThat(changeLog.since(0), equalTo(Optional.empty()));
+  }
+
+  private static List<String> types(List<TopologyChange> changes) {
+    return changes.stream().map(TopologyChange::getType).collect(Collectors.toList());
+  }
+
+  private static PlatformConnectedClient client(String uuid, int port) throws Exception {
+    return new PlatformConnectedClient(uuid, "name", InetAddress.getByName("localhost"), port, InetAddress.getByName("localhost"), port + 1000, 111);
+  }
+
+  private class RecordingFiringService implements FiringService {
+    @Override
+    public void fireNotification(ContextualNotification notification) {
+      notifications.add(notification);
+    }
+
+    @Override
+    public void fireStatistics(ContextualStatistics[] statistics) {
+    }
+
+    @Override
+    public void fireManagementCallAnswer(String managementCallIdentifier, ContextualReturn<?> answer) {
+    }
+
+    @Override
+    public void fireManagementCallRequest(String managementCallIdentifier, ContextualCall<?> call) {
+    }
+  }
+}
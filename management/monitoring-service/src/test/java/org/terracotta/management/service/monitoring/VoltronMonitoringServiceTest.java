@@ -429,7 +429,8 @@ public class VoltronMonitoringServiceTest {
   }
 
   private void assertTopologyEquals(String file) throws Exception {
-    Cluster cluster = managementService.readTopology();
+    // the topology is read-only
+    Cluster cluster = managementService.readTopology().copy();
     cluster.serverStream().forEach(server -> {
       server.setUpTimeSec(0);
     });
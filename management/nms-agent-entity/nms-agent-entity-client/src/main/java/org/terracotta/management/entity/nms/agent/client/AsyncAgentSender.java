@@ -0,0 +1,324 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.management.entity.nms.agent.client;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.terracotta.management.model.stats.ContextualStatistics;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Sends the management traffic of an agent from a dedicated thread, so that the threads producing it never wait on the server.
+ * <ul>
+ * <li>operations (notifications, management call answers) are sent in order from a bounded queue</li>
+ * <li>statistics are buffered and sent in one batch per batch interval</li>
+ * <li>state updates (capabilities, tags) are debounced: only the latest update of each kind is sent, after the
+ * operations submitted before it</li>
+ * </ul>
+ * Operations and statistics that do not fit in the queue are dropped and counted. Operations that must not be dropped
+ * (i.e. management call answers) are queued regardless of the capacity. Every operation or statistics batch that is not
+ * sent, because the queue is full or the sender is closed, is given to the drop handler. Once closed, the traffic already
+ * taken by the sender thread is not sent either.
+ */
+class AsyncAgentSender implements Closeable {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(AsyncAgentSender.class);
+
+  private final int capacity;
+  private final long batchIntervalNanos;
+  private final Consumer<ContextualStatistics[]> statisticsSender;
+  private final Consumer<Runnable> dropHandler;
+  private final Thread thread;
+
+  // operations and state updates in submission order, keyed by their kind for the state updates. Guarded by this.
+  private final Map<Object, Runnable> queue = new LinkedHashMap<>();
+  private final List<ContextualStatistics> statistics = new ArrayList<>();
+  // guarded by this
+  private int stateUpdateCount;
+  private long statisticsFlushTime;
+  private long oldestPendingTime;
+  // written under this, also read by the sender thread between two operations
+  private volatile boolean closed;
+
+  // metrics, guarded by this
+  private long sent;
+  private long statisticsBatches;
+  private long dropped;
+  private long coalesced;
+  private long lastLagNanos;
+  private long maxLagNanos;
+
+  AsyncAgentSender(String name, int capacity, long batchInterval, TimeUnit unit, Consumer<ContextualStatistics[]> statisticsSender, Consumer<Runnable> dropHandler) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Bad capacity: " + capacity);
+    }
+    if (batchInterval < 0) {
+      throw new IllegalArgumentException("Bad batch interval: " + batchInterval);
+    }
+    this.capacity = capacity;
+    this.batchIntervalNanos = unit.toNanos(batchInterval);
+    this.statisticsSender = Objects.requireNonNull(statisticsSender);
+    this.dropHandler = Objects.requireNonNull(dropHandler);
+    this.thread = new Thread(this::run, name);
+    this.thread.setDaemon(true);
+    this.thread.setUncaughtExceptionHandler((thread, err) -> LOGGER.error("UncaughtException in thread " + thread.getName() + ": " + err.getMessage(), err));
+    this.thread.start();
+  }
+
+  boolean isSenderThread() {
+    return Thread.currentThread() == thread;
+  }
+
+  /**
+   * Replaces any pending state update of the same kind: the update is moved at the end of the queue
+   */
+  synchronized void updateState(String kind, Runnable update) {
+    Objects.requireNonNull(update);
+    if (closed) {
+      return;
+    }
+    if (queue.remove(kind) != null) {
+      coalesced++;
+    } else {
+      stateUpdateCount++;
+    }
+    queue.put(kind, update);
+    pending();
+  }
+
+  /**
+   * Queues an operation that is dropped if the queue is full
+   *
+   * @return false if the operation was dropped
+   */
+  boolean send(Runnable operation) {
+    return send(operation, true);
+  }
+
+  /**
+   * @param droppable false if the operation must be queued even if the queue is full
+   * @return false if the operation was dropped
+   */
+  boolean send(Runnable operation, boolean droppable) {
+    Objects.requireNonNull(operation);
+    synchronized (this) {
+      if (!closed && (!droppable || queue.size() - stateUpdateCount < capacity)) {
+        queue.put(new Object(), operation);
+        pending();
+        return true;
+      }
+      dropped++;
+    }
+    drop(operation);
+    return false;
+  }
+
+  /**
+   * @return the number of statistics dropped
+   */
+  int send(ContextualStatistics... statistics) {
+    int accepted;
+    synchronized (this) {
+      int room = closed ? 0 : capacity - this.statistics.size();
+      accepted = Math.max(0, Math.min(room, statistics.length));
+      if (accepted > 0) {
+        if (this.statistics.isEmpty()) {
+          statisticsFlushTime = System.nanoTime() + batchIntervalNanos;
+        }
+        this.statistics.addAll(Arrays.asList(statistics).subList(0, accepted));
+        pending();
+      }
+      dropped += statistics.length - accepted;
+    }
+    if (accepted < statistics.length) {
+      drop(statisticsBatch(Arrays.copyOfRange(statistics, accepted, statistics.length)));
+    }
+    return statistics.length - accepted;
+  }
+
+  synchronized Map<String, Long> getMetrics() {
+    Map<String, Long> metrics = new LinkedHashMap<>();
+    metrics.put("pendingOperations", (long) (queue.size() - stateUpdateCount));
+    metrics.put("pendingStatistics", (long) statistics.size());
+    metrics.put("pendingStateUpdates", (long) stateUpdateCount);
+    metrics.put("sent", sent);
+    metrics.put("statisticsBatches", statisticsBatches);
+    metrics.put("dropped", dropped);
+    metrics.put("coalesced", coalesced);
+    metrics.put("lastLagMs", TimeUnit.NANOSECONDS.toMillis(lastLagNanos));
+    metrics.put("maxLagMs", TimeUnit.NANOSECONDS.toMillis(maxLagNanos));
+    return metrics;
+  }
+
+  /**
+   * Stops the sender thread: pending traffic is discarded, and the pending operations and statistics are given to the
+   * drop handler. The operation being sent when closing completes, but the next ones are discarded.
+   */
+  @Override
+  public void close() {
+    List<Runnable> discarded = new ArrayList<>();
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      queue.forEach((key, runnable) -> {
+        if (!(key instanceof String)) {
+          discarded.add(runnable);
+        }
+      });
+      dropped += discarded.size() + statistics.size();
+      if (!statistics.isEmpty()) {
+        discarded.add(statisticsBatch(statistics.toArray(new ContextualStatistics[statistics.size()])));
+      }
+      queue.clear();
+      stateUpdateCount = 0;
+      statistics.clear();
+      notifyAll();
+    }
+    discarded.forEach(this::drop);
+    if (!isSenderThread()) {
+      boolean interrupted = false;
+      while (thread.isAlive()) {
+        try {
+          thread.join();
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "AsyncAgentSender" + getMetrics();
+  }
+
+  // guarded by this
+  private void pending() {
+    if (oldestPendingTime == 0) {
+      oldestPendingTime = System.nanoTime();
+    }
+    notifyAll();
+  }
+
+  private void run() {
+    List<Object> keys = new ArrayList<>();
+    List<Runnable> toSend = new ArrayList<>();
+    while (true) {
+      ContextualStatistics[] batch = null;
+      synchronized (this) {
+        long now = System.nanoTime();
+        while (!closed && !ready(now)) {
+          try {
+            if (statistics.isEmpty()) {
+              wait();
+            } else {
+              TimeUnit.NANOSECONDS.timedWait(this, statisticsFlushTime - now);
+            }
+          } catch (InterruptedException e) {
+            // only close() stops this thread
+          }
+          now = System.nanoTime();
+        }
+        if (closed) {
+          return;
+        }
+        keys.addAll(queue.keySet());
+        toSend.addAll(queue.values());
+        queue.clear();
+        stateUpdateCount = 0;
+        if (!statistics.isEmpty() && now - statisticsFlushTime >= 0) {
+          batch = statistics.toArray(new ContextualStatistics[statistics.size()]);
+          statistics.clear();
+        }
+        lastLagNanos = now - oldestPendingTime;
+        maxLagNanos = Math.max(maxLagNanos, lastLagNanos);
+        oldestPendingTime = statistics.isEmpty() ? 0 : now;
+      }
+
+      int count = 0;
+      while (count < toSend.size() && !closed) {
+        run(toSend.get(count++));
+      }
+      boolean batchSent = batch != null && !closed;
+      if (batchSent) {
+        run(statisticsBatch(batch));
+      }
+
+      // closed meanwhile: the traffic not sent yet is discarded like the pending one
+      List<Runnable> discarded = new ArrayList<>();
+      for (int i = count; i < toSend.size(); i++) {
+        if (!(keys.get(i) instanceof String)) {
+          discarded.add(toSend.get(i));
+        }
+      }
+      int droppedCount = discarded.size();
+      if (batch != null && !batchSent) {
+        discarded.add(statisticsBatch(batch));
+        droppedCount += batch.length;
+      }
+      synchronized (this) {
+        sent += count + (batchSent ? batch.length : 0);
+        if (batchSent) {
+          statisticsBatches++;
+        }
+        dropped += droppedCount;
+      }
+      discarded.forEach(this::drop);
+      keys.clear();
+      toSend.clear();
+    }
+  }
+
+  private Runnable statisticsBatch(ContextualStatistics[] statistics) {
+    return () -> statisticsSender.accept(statistics);
+  }
+
+  // guarded by this
+  private boolean ready(long now) {
+    return !queue.isEmpty() || (!statistics.isEmpty() && now - statisticsFlushTime >= 0);
+  }
+
+  private void drop(Runnable operation) {
+    try {
+      dropHandler.accept(operation);
+    } catch (RuntimeException e) {
+      LOGGER.warn("Failed to handle dropped management traffic: " + e.getMessage(), e);
+    }
+  }
+
+  private static void run(Runnable runnable) {
+    try {
+      runnable.run();
+    } catch (RuntimeException e) {
+      LOGGER.warn("Failed to send management traffic: " + e.getMessage(), e);
+    }
+  }
+
+}
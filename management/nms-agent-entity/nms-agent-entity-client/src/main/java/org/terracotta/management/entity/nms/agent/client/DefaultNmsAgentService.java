@@ -41,10 +41,12 @@ import org.terracotta.voltron.proxy.client.EndpointListener;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.function.BiConsumer;
@@ -64,6 +66,7 @@ public class DefaultNmsAgentService implements EndpointListener, MessageListener
   private volatile NmsAgentEntity entity;
   private volatile ManagementRegistry registry;
   private volatile String[] previouslyExposedTags;
+  private volatile AsyncAgentSender asyncSender;
 
   private long timeoutMs = 5000;
   private Executor managementCallExecutor = Runnable::run;
@@ -139,18 +142,28 @@ public class DefaultNmsAgentService implements EndpointListener, MessageListener
   // Closeable
 
   @Override
-  public synchronized void close() {
-    if (!closed) {
+  public void close() {
+    AsyncAgentSender asyncSender;
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
       LOGGER.info("Closing management agent service");
+      // set first so that the operations still queued by the asynchronous sender are not sent
+      closed = true;
       ManagementRegistry registry = getRegistry();
       // disable bridging
       if (registry != null) {
         registry.removeManagementProvider(managementProvider);
         this.registry = null;
       }
-      flushEntity();
-      closed = true;
+      asyncSender = this.asyncSender;
     }
+    // joins the sender thread, which can be sending an operation: not under the monitor
+    if (asyncSender != null) {
+      asyncSender.close();
+    }
+    flushEntity();
   }
 
   // NmsAgentService
@@ -220,6 +233,39 @@ public class DefaultNmsAgentService implements EndpointListener, MessageListener
     this.onOperationError = onOperationError;
   }
 
+  /**
+   * Switches this agent to an asynchronous mode where the calling threads never wait for the server: the management traffic
+   * is sent by a dedicated thread. Notifications and management call answers are queued (at most {@code capacity} of them),
+   * statistics are buffered (at most {@code capacity} of them) and sent in one batch per {@code statisticsBatchInterval},
+   * and only the latest capabilities and tags are sent. Traffic not fitting in the queue is dropped, except the management
+   * call answers. Dropped notifications, answers and statistics are reported to the operation error handler.
+   *
+   * @see #getAsyncMetrics()
+   */
+  public synchronized NmsAgentService enableAsyncMode(int capacity, long statisticsBatchInterval, TimeUnit unit) {
+    if (closed) {
+      throw new IllegalStateException("closed");
+    }
+    if (asyncSender != null) {
+      throw new IllegalStateException("Asynchronous mode already enabled");
+    }
+    asyncSender = new AsyncAgentSender("ManagementAgentSender", capacity, statisticsBatchInterval, unit, this::pushStatistics,
+        op -> onOperationError.accept(op::run, new RejectedExecutionException("Management traffic dropped by the asynchronous sender")));
+    return this;
+  }
+
+  public boolean isAsyncModeEnabled() {
+    return asyncSender != null;
+  }
+
+  /**
+   * @return the queue and lag metrics of the asynchronous mode, or an empty map if not enabled
+   */
+  public Map<String, Long> getAsyncMetrics() {
+    AsyncAgentSender asyncSender = this.asyncSender;
+    return asyncSender == null ? Collections.emptyMap() : asyncSender.getMetrics();
+  }
+
   // features
 
   @Override
@@ -230,6 +276,11 @@ public class DefaultNmsAgentService implements EndpointListener, MessageListener
   @Override
   public void setCapabilities(ContextContainer contextContainer, Capability... capabilities) {
     LOGGER.trace("exposeManagementMetadata({})", contextContainer.getValue());
+    AsyncAgentSender asyncSender = this.asyncSender;
+    if (asyncSender != null && !asyncSender.isSenderThread()) {
+      asyncSender.updateState("capabilities", () -> setCapabilities(contextContainer, capabilities));
+      return;
+    }
     runOperation(() -> getEntity().exposeManagementMetadata(null, contextContainer, capabilities));
   }
 
@@ -241,6 +292,12 @@ public class DefaultNmsAgentService implements EndpointListener, MessageListener
   @Override
   public void setTags(String... tags) {
     LOGGER.trace("setTags({})", Arrays.asList(tags));
+    AsyncAgentSender asyncSender = this.asyncSender;
+    if (asyncSender != null && !asyncSender.isSenderThread()) {
+      previouslyExposedTags = tags;
+      asyncSender.updateState("tags", () -> setTags(tags));
+      return;
+    }
     runOperation(() -> getEntity().exposeTags(null, tags));
     previouslyExposedTags = tags;
   }
@@ -249,7 +306,13 @@ public class DefaultNmsAgentService implements EndpointListener, MessageListener
   public void pushNotification(ContextualNotification notification) {
     if (notification != null) {
       LOGGER.trace("pushNotification({})", notification);
-      runOperation(() -> getEntity().pushNotification(null, notification));
+      AsyncAgentSender asyncSender = this.asyncSender;
+      Runnable op = () -> runOperation(() -> getEntity().pushNotification(null, notification));
+      if (asyncSender != null && !asyncSender.isSenderThread()) {
+        asyncSender.send(op);
+        return;
+      }
+      op.run();
     }
   }
 
@@ -262,6 +325,11 @@ public class DefaultNmsAgentService implements EndpointListener, MessageListener
   public void pushStatistics(ContextualStatistics... statistics) {
     if (statistics.length > 0) {
       LOGGER.trace("pushStatistics({})", statistics.length);
+      AsyncAgentSender asyncSender = this.asyncSender;
+      if (asyncSender != null && !asyncSender.isSenderThread()) {
+        asyncSender.send(statistics);
+        return;
+      }
       runOperation(() -> getEntity().pushStatistics(null, statistics));
     }
   }
@@ -288,6 +356,12 @@ public class DefaultNmsAgentService implements EndpointListener, MessageListener
   public void refreshManagementRegistry() {
     // expose the registry each time a new object is registered in the management registry
     if (isManagementRegistryBridged()) {
+      AsyncAgentSender asyncSender = this.asyncSender;
+      if (asyncSender != null && !asyncSender.isSenderThread()) {
+        // capabilities are only computed by the sender thread, once for all the registrations made meanwhile
+        asyncSender.updateState("capabilities", this::refreshManagementRegistry);
+        return;
+      }
       ManagementRegistry registry = getRegistry();
       setCapabilities(registry.getContextContainer(), registry.getCapabilities());
     }
@@ -307,7 +381,14 @@ public class DefaultNmsAgentService implements EndpointListener, MessageListener
 
   protected void answerManagementCall(String managementCallIdentifier, ContextualReturn<?> aReturn) {
     LOGGER.trace("answerManagementCall({}, {})", managementCallIdentifier, aReturn);
-    runOperation(() -> getEntity().answerManagementCall(null, managementCallIdentifier, aReturn));
+    AsyncAgentSender asyncSender = this.asyncSender;
+    Runnable op = () -> runOperation(() -> getEntity().answerManagementCall(null, managementCallIdentifier, aReturn));
+    if (asyncSender != null && !asyncSender.isSenderThread()) {
+      // the caller is waiting for the answer: never dropped because of the queue capacity
+      asyncSender.send(op, false);
+      return;
+    }
+    op.run();
   }
 
   protected void runOperation(Supplier<Future<?>> op) {
@@ -0,0 +1,196 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.management.entity.nms.agent.client;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.terracotta.management.model.stats.ContextualStatistics;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class AsyncAgentSenderTest {
+
+  private final List<String> sent = new CopyOnWriteArrayList<>();
+  private final List<Runnable> dropped = new CopyOnWriteArrayList<>();
+  private final CountDownLatch blocked = new CountDownLatch(1);
+  private final CountDownLatch release = new CountDownLatch(1);
+
+  private AsyncAgentSender sender;
+
+  @Before
+  public void setUp() {
+    sender = new AsyncAgentSender("test", 2, 0, TimeUnit.MILLISECONDS, statistics -> sent.add("statistics"), dropped::add);
+  }
+
+  @After
+  public void tearDown() {
+    release.countDown();
+    sender.close();
+  }
+
+  @Test
+  public void test_submission_order_kept() throws Exception {
+    blockSender();
+
+    sender.updateState("tags", record("tags-1"));
+    sender.send(record("notification-1"));
+    sender.updateState("capabilities", record("capabilities"));
+    sender.send(record("notification-2"));
+    // replaces the first tags update, which was submitted before the notifications
+    sender.updateState("tags", record("tags-2"));
+
+    CountDownLatch done = new CountDownLatch(1);
+    sender.send(done::countDown, false);
+    release.countDown();
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+
+    assertThat(sent, equalTo(asList("notification-1", "capabilities", "notification-2", "tags-2")));
+    assertThat(sender.getMetrics().get("coalesced"), is(1L));
+  }
+
+  @Test
+  public void test_overflow_drops_operations_but_not_answers() throws Exception {
+    blockSender();
+
+    assertThat(sender.send(record("notification-1")), is(true));
+    assertThat(sender.send(record("notification-2")), is(true));
+    // state updates do not take room in the queue
+    sender.updateState("tags", record("tags"));
+
+    Runnable notification3 = record("notification-3");
+    assertThat(sender.send(notification3), is(false));
+    assertThat(dropped, equalTo(asList(notification3)));
+    assertThat(sender.send(record("answer"), false), is(true));
+
+    CountDownLatch done = new CountDownLatch(1);
+    sender.send(done::countDown, false);
+    release.countDown();
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+
+    assertThat(sent, equalTo(asList("notification-1", "notification-2", "tags", "answer")));
+    assertThat(sender.getMetrics().get("dropped"), is(1L));
+  }
+
+  @Test
+  public void test_close_reports_pending_operations() throws Exception {
+    blockSender();
+
+    Runnable notification = record("notification");
+    Runnable answer = record("answer");
+    sender.send(notification);
+    sender.updateState("tags", record("tags"));
+    sender.send(answer, false);
+
+    Thread closing = new Thread(sender::close);
+    closing.start();
+    // wait for the sender to be closed: new operations are then rejected
+    Runnable late = record("late");
+    while (sender.send(late, false)) {
+      Thread.sleep(10);
+    }
+    release.countDown();
+    closing.join(10_000);
+
+    assertThat(closing.isAlive(), is(false));
+    assertThat(sent.size(), is(0));
+    assertTrue(dropped.containsAll(asList(notification, answer, late)));
+    assertTrue(dropped.indexOf(notification) < dropped.indexOf(answer));
+  }
+
+  @Test
+  public void test_close_discards_operations_taken_by_sender() throws Exception {
+    blockSender();
+
+    // sent together once the sender is released
+    CountDownLatch sending = new CountDownLatch(1);
+    CountDownLatch closing = new CountDownLatch(1);
+    sender.send(() -> {
+      sending.countDown();
+      try {
+        closing.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    Runnable notification = record("notification");
+    sender.send(notification);
+    release.countDown();
+    assertTrue(sending.await(10, TimeUnit.SECONDS));
+
+    Thread closer = new Thread(sender::close);
+    closer.start();
+    while (sender.send(record("late"), false)) {
+      Thread.sleep(10);
+    }
+    closing.countDown();
+    closer.join(10_000);
+
+    assertThat(closer.isAlive(), is(false));
+    assertThat(sent.size(), is(0));
+    assertTrue(dropped.contains(notification));
+  }
+
+  @Test
+  public void test_dropped_statistics_reported() throws Exception {
+    blockSender();
+
+    assertThat(sender.send(new ContextualStatistics[3]), is(1));
+    assertThat(dropped.size(), is(1));
+    // the dropped statistics can be sent again
+    dropped.get(0).run();
+    assertThat(sent, equalTo(asList("statistics")));
+
+    // pending statistics are reported when closing
+    Thread closer = new Thread(sender::close);
+    closer.start();
+    while (sender.send(record("late"), false)) {
+      Thread.sleep(10);
+    }
+    release.countDown();
+    closer.join(10_000);
+
+    sent.clear();
+    dropped.subList(1, dropped.size()).forEach(Runnable::run);
+    assertThat(sent.stream().filter("statistics"::equals).count(), is(1L));
+  }
+
+  private void blockSender() throws InterruptedException {
+    sender.send(() -> {
+      blocked.countDown();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    assertTrue(blocked.await(10, TimeUnit.SECONDS));
+  }
+
+  private Runnable record(String name) {
+    return () -> sent.add(name);
+  }
+
+}
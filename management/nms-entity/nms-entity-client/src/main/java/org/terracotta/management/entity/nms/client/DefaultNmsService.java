@@ -17,15 +17,20 @@ package org.terracotta.management.entity.nms.client;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.terracotta.management.entity.nms.ReconnectData;
 import org.terracotta.management.model.call.ContextualReturn;
 import org.terracotta.management.model.call.Parameter;
 import org.terracotta.management.model.cluster.Cluster;
 import org.terracotta.management.model.context.Context;
 import org.terracotta.management.model.message.ManagementCallMessage;
 import org.terracotta.management.model.message.Message;
+import org.terracotta.management.model.message.MessageFilter;
+import org.terracotta.management.model.message.TopologyMessage;
+import org.terracotta.voltron.proxy.client.EndpointListener;
 
 import java.io.Closeable;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Objects;
@@ -34,12 +39,20 @@ import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 /**
@@ -52,21 +65,59 @@ public class DefaultNmsService implements NmsService, Closeable {
   private final NmsEntity entity;
   private final BlockingQueue<Optional<Message>> incomingMessageQueue;
   private final ConcurrentMap<String, CompletableFuture<ContextualReturn<?>>> managementCallAnswers = new ConcurrentHashMap<>();
+  private final List<DefaultSubscription> subscriptions = new CopyOnWriteArrayList<>();
+  private final Consumer<Message> sink;
+  // pushes the messages to the subscribers, off the thread receiving them
+  private final ExecutorService defaultSubscriptionExecutor = Executors.newCachedThreadPool(r -> {
+    Thread thread = new Thread(r, "NmsServiceSubscriptions");
+    thread.setDaemon(true);
+    return thread;
+  });
+  private volatile Executor subscriptionExecutor = defaultSubscriptionExecutor;
 
   private long timeout = 5000;
+  private int subscriptionCapacity = 8192;
+  private volatile Predicate<? super Message> messageFilter = message -> true;
+  // server-side filter, sent again when reconnecting
+  private volatile MessageFilter serverMessageFilter;
+
+  // last topology message applied
+  private String topologyId;
+  private long topologyVersion = -1;
+  // topology subscription calls in flight, and the changes received meanwhile, replayed once they return
+  private int topologySubscriptions;
+  private final List<TopologyMessage> pendingTopologyChanges = new ArrayList<>();
 
   public DefaultNmsService(final NmsEntity entity) {
     this(entity, new LinkedBlockingQueue<>());
   }
 
+  /**
+   * Creates a service keeping at most {@code capacity} received messages, ordered by sequence as they arrive
+   */
+  public DefaultNmsService(final NmsEntity entity, int capacity) {
+    this(entity, new SortedMessageQueue(capacity));
+  }
+
   public DefaultNmsService(final NmsEntity entity, BlockingQueue<Optional<Message>> incomingMessageQueue) {
     this(entity, incomingMessageQueue, message -> LOGGER.warn("Queue is full - Message lost: ", message));
   }
 
   public DefaultNmsService(final NmsEntity entity, BlockingQueue<Optional<Message>> incomingMessageQueue, Consumer<Message> sink) {
-    Objects.requireNonNull(sink);
+    this.sink = Objects.requireNonNull(sink);
     this.entity = Objects.requireNonNull(entity);
     this.incomingMessageQueue = Objects.requireNonNull(incomingMessageQueue);
+    this.entity.setEndpointListener(new EndpointListener() {
+      @Override
+      public Object onReconnect() {
+        MessageFilter filter = serverMessageFilter;
+        return filter == null ? null : new ReconnectData(filter);
+      }
+
+      @Override
+      public void onDisconnectUnexpectedly() {
+      }
+    });
     this.entity.registerMessageListener(Message.class, message -> {
       LOGGER.trace("onMessage({})", message);
 
@@ -78,12 +129,15 @@ public class DefaultNmsService implements NmsService, Closeable {
           getManagementAnswerFor(managementCallIdentifier).complete(contextualReturn);
           break;
 
+        case "TOPOLOGY_CHANGES":
+          if (onTopologyChanges((TopologyMessage) message)) {
+            deliver(message);
+          }
+          break;
+
         case "NOTIFICATION":
         case "STATISTICS":
-          boolean offered = incomingMessageQueue.offer(Optional.of(message));
-          if (!offered) {
-            sink.accept(message);
-          }
+          deliver(message);
           break;
 
         default:
@@ -100,6 +154,11 @@ public class DefaultNmsService implements NmsService, Closeable {
   @Override
   public void close() {
     cancelAllManagementCalls();
+    for (DefaultSubscription subscription : subscriptions) {
+      subscription.complete();
+    }
+    // the completions already submitted are still run
+    defaultSubscriptionExecutor.shutdown();
     // This close call is important.
     // We have to close as much as possible the nms entities we have fetched.
     // If we do not, then, when connection closes, the server can keep some "phantom" fetches
@@ -118,11 +177,69 @@ public class DefaultNmsService implements NmsService, Closeable {
     return this;
   }
 
+  /**
+   * Only queue the received messages accepted by this filter, i.e. a {@link org.terracotta.management.model.message.MessageFilter}.
+   * Subscribers not reading the queue can use a filter rejecting all the messages so that the queue does not grow.
+   */
+  public DefaultNmsService setMessageFilter(Predicate<? super Message> messageFilter) {
+    this.messageFilter = Objects.requireNonNull(messageFilter);
+    return this;
+  }
+
+  /**
+   * Sets the maximum number of messages buffered per subscription, for the next subscriptions
+   */
+  public DefaultNmsService setSubscriptionCapacity(int subscriptionCapacity) {
+    if (subscriptionCapacity <= 0) {
+      throw new IllegalArgumentException("Bad capacity: " + subscriptionCapacity);
+    }
+    this.subscriptionCapacity = subscriptionCapacity;
+    return this;
+  }
+
+  /**
+   * Sets the executor pushing the messages to the subscribers. A subscription only uses one of its threads at a time.
+   * By default, a dedicated pool of daemon threads, stopped on {@link #close()}.
+   */
+  public DefaultNmsService setSubscriptionExecutor(Executor subscriptionExecutor) {
+    this.subscriptionExecutor = Objects.requireNonNull(subscriptionExecutor);
+    return this;
+  }
+
+  @Override
+  public void subscribe(Predicate<? super Message> filter, MessageSubscriber subscriber) {
+    DefaultSubscription subscription = new DefaultSubscription(filter, subscriber, subscriptionCapacity);
+    subscriber.onSubscribe(subscription);
+    if (!subscription.cancelled) {
+      subscriptions.add(subscription);
+    }
+  }
+
   @Override
   public Cluster readTopology() throws TimeoutException, InterruptedException, ExecutionException {
     return get(entity.readTopology());
   }
 
+  @Override
+  public TopologyMessage subscribeTopologyChanges() throws TimeoutException, InterruptedException, ExecutionException {
+    synchronized (this) {
+      topologySubscriptions++;
+    }
+    return requestTopologyChanges(false);
+  }
+
+  @Override
+  public void unsubscribeTopologyChanges() throws TimeoutException, InterruptedException, ExecutionException {
+    get(entity.unsubscribeTopologyChanges(null));
+  }
+
+  @Override
+  public void setServerMessageFilter(MessageFilter filter) throws TimeoutException, InterruptedException, ExecutionException {
+    // kept first so that a reconnection during this call also restores it
+    serverMessageFilter = filter;
+    get(entity.setMessageFilter(null, filter));
+  }
+
   @Override
   public Message waitForMessage() throws InterruptedException {
     Optional<Message> o = incomingMessageQueue.take();
@@ -149,7 +266,8 @@ public class DefaultNmsService implements NmsService, Closeable {
     List<Optional<Message>> optionals = new ArrayList<>(incomingMessageQueue.size());
     incomingMessageQueue.drainTo(optionals);
     List<Message> messages = optionals.stream().filter(Optional::isPresent).map(Optional::get).collect(Collectors.toList());
-    if (!messages.isEmpty()) {
+    // a sorted queue is drained in order
+    if (!messages.isEmpty() && !(incomingMessageQueue instanceof SortedMessageQueue)) {
       messages.sort(MESSAGE_COMPARATOR);
     }
     return messages;
@@ -201,6 +319,210 @@ public class DefaultNmsService implements NmsService, Closeable {
     }
   }
 
+  private void deliver(Message message) {
+    // pushed to the subscribers and also queued for the readers of the queue
+    for (DefaultSubscription subscription : subscriptions) {
+      subscription.onMessage(message);
+    }
+    if (messageFilter.test(message)) {
+      boolean offered = incomingMessageQueue.offer(Optional.of(message));
+      if (!offered) {
+        sink.accept(message);
+      }
+    }
+  }
+
+  /**
+   * Asks the server for the topology changes since the last applied version, or the whole topology.
+   * The changes received until the answer arrives, counted in {@link #topologySubscriptions}, are replayed afterwards.
+   */
+  private TopologyMessage requestTopologyChanges(boolean resynchronizing) throws TimeoutException, InterruptedException, ExecutionException {
+    String topologyId;
+    long topologyVersion;
+    synchronized (this) {
+      topologyId = this.topologyId;
+      topologyVersion = this.topologyVersion;
+    }
+    TopologyMessage message = null;
+    try {
+      message = get(entity.subscribeTopologyChanges(null, topologyId, topologyVersion));
+      return message;
+    } finally {
+      List<TopologyMessage> pending = onTopologySubscribed(message);
+      if (resynchronizing && message != null) {
+        deliver(message);
+      }
+      for (TopologyMessage changes : pending) {
+        deliver(changes);
+      }
+    }
+  }
+
+  private synchronized List<TopologyMessage> onTopologySubscribed(TopologyMessage message) {
+    topologySubscriptions--;
+    if (message != null && (!message.getTopologyId().equals(topologyId) || message.getToVersion() > topologyVersion)) {
+      // either the whole topology or the changes from the version asked, while the next changes were kept pending
+      topologyId = message.getTopologyId();
+      topologyVersion = message.getToVersion();
+    }
+    if (topologySubscriptions > 0) {
+      return Collections.emptyList();
+    }
+    List<TopologyMessage> pending = new ArrayList<>(pendingTopologyChanges);
+    pendingTopologyChanges.clear();
+    if (message == null) {
+      // the call failed: the next change will detect the gap again
+      LOGGER.debug("Topology subscription failed - Dropping {} pending changes", pending.size());
+      return Collections.emptyList();
+    }
+    List<TopologyMessage> applied = new ArrayList<>(pending.size());
+    for (TopologyMessage changes : pending) {
+      if (onTopologyChanges(changes)) {
+        applied.add(changes);
+      }
+    }
+    return applied;
+  }
+
+  /**
+   * @return true if these changes apply on the last applied version and must be delivered
+   */
+  private synchronized boolean onTopologyChanges(TopologyMessage changes) {
+    if (topologySubscriptions > 0) {
+      pendingTopologyChanges.add(changes);
+      return false;
+    }
+    if (changes.getTopologyId().equals(topologyId)) {
+      if (changes.getFromVersion() == topologyVersion) {
+        topologyVersion = changes.getToVersion();
+        return true;
+      }
+      if (changes.getToVersion() <= topologyVersion) {
+        LOGGER.trace("Ignoring already applied topology changes: {}", changes);
+        return false;
+      }
+    }
+    // some changes were missed, or another server became active: resynchronize instead of applying these ones
+    LOGGER.debug("Topology changes {} do not apply on version {} of {} - Resynchronizing", changes, topologyVersion, topologyId);
+    pendingTopologyChanges.add(changes);
+    topologySubscriptions++;
+    CompletableFuture.runAsync(this::resynchronizeTopology);
+    return false;
+  }
+
+  private void resynchronizeTopology() {
+    try {
+      requestTopologyChanges(true);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException | TimeoutException | RuntimeException e) {
+      LOGGER.warn("Unable to resynchronize the topology: " + e.getMessage(), e);
+    }
+  }
+
+  private final class DefaultSubscription implements MessageSubscriber.Subscription {
+
+    private final Predicate<? super Message> filter;
+    private final MessageSubscriber subscriber;
+    private final SortedMessageQueue buffer;
+    private final AtomicLong demand = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    // number of drain requests: only the thread bringing it from 0 drains, so the subscriber is never called concurrently
+    private final AtomicInteger drainRequests = new AtomicInteger();
+
+    private volatile boolean cancelled;
+    private volatile boolean completed;
+    // delivered by the draining thread, before any other signal
+    private volatile Throwable error;
+
+    DefaultSubscription(Predicate<? super Message> filter, MessageSubscriber subscriber, int capacity) {
+      this.filter = Objects.requireNonNull(filter);
+      this.subscriber = Objects.requireNonNull(subscriber);
+      this.buffer = new SortedMessageQueue(capacity);
+    }
+
+    @Override
+    public void request(long n) {
+      if (n <= 0) {
+        error = new IllegalArgumentException("Bad number of requested messages: " + n);
+        drain();
+        return;
+      }
+      demand.accumulateAndGet(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+      drain();
+    }
+
+    @Override
+    public void cancel() {
+      cancelled = true;
+      subscriptions.remove(this);
+      buffer.clear();
+    }
+
+    @Override
+    public long getDroppedCount() {
+      return dropped.get();
+    }
+
+    void onMessage(Message message) {
+      if (cancelled || !filter.test(message)) {
+        return;
+      }
+      if (!buffer.offer(Optional.of(message))) {
+        long count = dropped.incrementAndGet();
+        LOGGER.debug("Subscription buffer is full - Message lost ({} so far): {}", count, message);
+      }
+      drain();
+    }
+
+    void complete() {
+      completed = true;
+      drain();
+    }
+
+    private void drain() {
+      if (drainRequests.getAndIncrement() != 0) {
+        return;
+      }
+      try {
+        subscriptionExecutor.execute(this::drainLoop);
+      } catch (RejectedExecutionException e) {
+        // service closed: the final signals are given by the caller
+        drainLoop();
+      }
+    }
+
+    private void drainLoop() {
+      int requests = 1;
+      do {
+        Throwable error = this.error;
+        if (!cancelled && error != null) {
+          cancel();
+          subscriber.onError(error);
+        }
+        while (!cancelled && demand.get() > 0) {
+          Optional<Message> message = buffer.poll();
+          if (message == null) {
+            break;
+          }
+          demand.getAndUpdate(current -> current == Long.MAX_VALUE ? current : current - 1);
+          try {
+            subscriber.onNext(message.get());
+          } catch (RuntimeException e) {
+            cancel();
+            subscriber.onError(e);
+          }
+        }
+        // completed once the buffered messages are pushed
+        if (!cancelled && completed && buffer.isEmpty()) {
+          cancel();
+          subscriber.onComplete();
+        }
+        requests = drainRequests.addAndGet(-requests);
+      } while (requests != 0);
+    }
+  }
+
   private <V> V get(Future<V> future) throws ExecutionException, TimeoutException, InterruptedException {
     return future.get(timeout, TimeUnit.MILLISECONDS);
   }
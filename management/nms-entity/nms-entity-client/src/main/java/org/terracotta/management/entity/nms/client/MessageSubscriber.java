@@ -0,0 +1,60 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.management.entity.nms.client;
+
+import org.terracotta.management.model.message.Message;
+
+/**
+ * Receives the messages pushed by a {@link NmsService}, at the pace it requests them.
+ * <p>
+ * Modelled after the reactive streams subscriber: no message is pushed before being requested through the
+ * {@link Subscription} given to {@link #onSubscribe(Subscription)}. Messages arriving meanwhile are kept in a bounded
+ * buffer, ordered by sequence. The methods of a subscriber are never called concurrently, and are called from the
+ * subscription executor of the service, not from the thread receiving the messages or requesting them.
+ */
+public interface MessageSubscriber {
+
+  void onSubscribe(Subscription subscription);
+
+  void onNext(Message message);
+
+  /**
+   * Called when the subscription fails, i.e. when {@link #onNext(Message)} throws or when a bad number of messages is
+   * requested: no more messages will be pushed
+   */
+  void onError(Throwable error);
+
+  /**
+   * Called when the service is closed, once the buffered messages are pushed: no more messages will be pushed
+   */
+  void onComplete();
+
+  interface Subscription {
+
+    /**
+     * Asks for {@code n} more messages
+     */
+    void request(long n);
+
+    void cancel();
+
+    /**
+     * @return the number of messages dropped because the buffer of this subscription was full
+     */
+    long getDroppedCount();
+  }
+
+}
@@ -19,6 +19,8 @@ import org.terracotta.management.model.call.Parameter;
 import org.terracotta.management.model.cluster.Cluster;
 import org.terracotta.management.model.context.Context;
 import org.terracotta.management.model.message.Message;
+import org.terracotta.management.model.message.MessageFilter;
+import org.terracotta.management.model.message.TopologyMessage;
 
 import java.util.ArrayList;
 import java.util.Comparator;
@@ -39,6 +41,28 @@ public interface NmsService {
 
   Cluster readTopology() throws TimeoutException, InterruptedException, ExecutionException;
 
+  /**
+   * Subscribes to the topology changes, which will then be received in the message queue as {@link TopologyMessage#TOPOLOGY_CHANGES} messages.
+   * <p>
+   * The returned message either contains the whole topology ({@link TopologyMessage#TOPOLOGY}) or, when this service was
+   * already subscribed, the changes missed since the last topology message received. Call this method again after a
+   * reconnection or a failover to resynchronize.
+   * <p>
+   * Only the changes applying on the last applied version of the same {@link TopologyMessage#getTopologyId()} are
+   * received: the ones already applied are ignored and, when some changes were missed, the missed changes (or the whole
+   * topology) are asked again to the server and received instead.
+   */
+  TopologyMessage subscribeTopologyChanges() throws TimeoutException, InterruptedException, ExecutionException;
+
+  void unsubscribeTopologyChanges() throws TimeoutException, InterruptedException, ExecutionException;
+
+  /**
+   * Asks the server to only send to this service the notifications and statistics accepted by this filter, or everything
+   * if null. Unlike a local filter, this also filters on the tags of the clients the elements come from, and saves the
+   * bandwidth of the messages not accepted. The filter is set again on the server after a reconnection or a failover.
+   */
+  void setServerMessageFilter(MessageFilter filter) throws TimeoutException, InterruptedException, ExecutionException;
+
   /**
    * Wait for a message to arrive in the queue
    */
@@ -54,6 +78,19 @@ public interface NmsService {
    */
   List<Message> readMessages();
 
+  /**
+   * Pushes the received messages to this subscriber. They are still queued for {@link #readMessages()} and {@link #waitForMessage()}.
+   */
+  default void subscribe(MessageSubscriber subscriber) {
+    subscribe(message -> true, subscriber);
+  }
+
+  /**
+   * Pushes the received messages accepted by the filter (i.e. a {@link org.terracotta.management.model.message.MessageFilter})
+   * to this subscriber. Received messages are still queued for {@link #readMessages()} and {@link #waitForMessage()}.
+   */
+  void subscribe(Predicate<? super Message> filter, MessageSubscriber subscriber);
+
   /**
    * Wait for a message until the predicate returns true and returns the collected messages during this time, sorted by sequence
    *
@@ -0,0 +1,258 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.management.entity.nms.client;
+
+import org.terracotta.management.model.message.Message;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bounded blocking queue of messages backed by a ring buffer and kept ordered by message sequence.
+ * <p>
+ * Each message is inserted at its place when it arrives: messages mostly arrive in order so this is usually an append,
+ * and draining the queue never needs to sort. Empty elements (used to wake up the readers) are kept after all the messages.
+ * <p>
+ * Like any bounded {@link BlockingQueue}, {@link #offer(Object)} returns false when the queue is full.
+ */
+public class SortedMessageQueue extends AbstractQueue<Optional<Message>> implements BlockingQueue<Optional<Message>> {
+
+  private final Optional<Message>[] ring;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition notEmpty = lock.newCondition();
+  private final Condition notFull = lock.newCondition();
+
+  // guarded by lock
+  private int head;
+  private int count;
+
+  @SuppressWarnings("unchecked")
+  public SortedMessageQueue(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Bad capacity: " + capacity);
+    }
+    this.ring = (Optional<Message>[]) new Optional<?>[capacity];
+  }
+
+  public int capacity() {
+    return ring.length;
+  }
+
+  @Override
+  public boolean offer(Optional<Message> message) {
+    Objects.requireNonNull(message);
+    lock.lock();
+    try {
+      if (count == ring.length) {
+        return false;
+      }
+      insert(message);
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public boolean offer(Optional<Message> message, long timeout, TimeUnit unit) throws InterruptedException {
+    Objects.requireNonNull(message);
+    long nanos = unit.toNanos(timeout);
+    lock.lockInterruptibly();
+    try {
+      while (count == ring.length) {
+        if (nanos <= 0) {
+          return false;
+        }
+        nanos = notFull.awaitNanos(nanos);
+      }
+      insert(message);
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void put(Optional<Message> message) throws InterruptedException {
+    Objects.requireNonNull(message);
+    lock.lockInterruptibly();
+    try {
+      while (count == ring.length) {
+        notFull.await();
+      }
+      insert(message);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public Optional<Message> poll() {
+    lock.lock();
+    try {
+      return count == 0 ? null : removeFirst();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public Optional<Message> poll(long timeout, TimeUnit unit) throws InterruptedException {
+    long nanos = unit.toNanos(timeout);
+    lock.lockInterruptibly();
+    try {
+      while (count == 0) {
+        if (nanos <= 0) {
+          return null;
+        }
+        nanos = notEmpty.awaitNanos(nanos);
+      }
+      return removeFirst();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public Optional<Message> take() throws InterruptedException {
+    lock.lockInterruptibly();
+    try {
+      while (count == 0) {
+        notEmpty.await();
+      }
+      return removeFirst();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public Optional<Message> peek() {
+    lock.lock();
+    try {
+      return count == 0 ? null : ring[head];
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public int size() {
+    lock.lock();
+    try {
+      return count;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public int remainingCapacity() {
+    lock.lock();
+    try {
+      return ring.length - count;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public int drainTo(Collection<? super Optional<Message>> c) {
+    return drainTo(c, Integer.MAX_VALUE);
+  }
+
+  @Override
+  public int drainTo(Collection<? super Optional<Message>> c, int maxElements) {
+    Objects.requireNonNull(c);
+    if (c == this) {
+      throw new IllegalArgumentException();
+    }
+    lock.lock();
+    try {
+      int n = Math.min(maxElements, count);
+      for (int i = 0; i < n; i++) {
+        c.add(removeFirst());
+      }
+      return n;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return a read-only snapshot iterator, in sequence order
+   */
+  @Override
+  public Iterator<Optional<Message>> iterator() {
+    List<Optional<Message>> snapshot;
+    lock.lock();
+    try {
+      snapshot = new ArrayList<>(count);
+      for (int i = 0; i < count; i++) {
+        snapshot.add(ring[index(i)]);
+      }
+    } finally {
+      lock.unlock();
+    }
+    return Collections.unmodifiableList(snapshot).iterator();
+  }
+
+  // guarded by lock
+  private void insert(Optional<Message> message) {
+    // walk back from the tail to find the place of this message
+    int i = count;
+    if (message.isPresent()) {
+      Message m = message.get();
+      while (i > 0 && after(ring[index(i - 1)], m)) {
+        ring[index(i)] = ring[index(i - 1)];
+        i--;
+      }
+    }
+    ring[index(i)] = message;
+    count++;
+    notEmpty.signal();
+  }
+
+  // guarded by lock
+  private Optional<Message> removeFirst() {
+    Optional<Message> first = ring[head];
+    ring[head] = null;
+    head = index(1);
+    count--;
+    notFull.signal();
+    return first;
+  }
+
+  private static boolean after(Optional<Message> queued, Message message) {
+    return !queued.isPresent() || NmsService.MESSAGE_COMPARATOR.compare(queued.get(), message) > 0;
+  }
+
+  private int index(int offset) {
+    int i = head + offset;
+    return i >= ring.length ? i - ring.length : i;
+  }
+
+}
@@ -0,0 +1,311 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.management.entity.nms.client;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.terracotta.management.entity.nms.ReconnectData;
+import org.terracotta.management.model.message.DefaultMessage;
+import org.terracotta.management.model.message.Message;
+import org.terracotta.management.model.message.MessageFilter;
+import org.terracotta.management.model.message.TopologyMessage;
+import org.terracotta.management.sequence.BoundaryFlakeSequenceGenerator;
+import org.terracotta.management.sequence.NodeIdSource;
+import org.terracotta.management.sequence.TimeSource;
+import org.terracotta.voltron.proxy.MessageListener;
+import org.terracotta.voltron.proxy.client.EndpointListener;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class DefaultNmsServiceTest {
+
+  private final BoundaryFlakeSequenceGenerator sequenceGenerator = new BoundaryFlakeSequenceGenerator(TimeSource.BEST, NodeIdSource.BEST);
+
+  // answers of the server to the topology subscriptions, and the versions asked
+  private final Queue<TopologyMessage> topologyAnswers = new ConcurrentLinkedQueue<>();
+  private final List<Long> subscribedVersions = new CopyOnWriteArrayList<>();
+  // deliveries to the subscribers, run by the test
+  private final Queue<Runnable> deliveries = new ConcurrentLinkedQueue<>();
+
+  private MessageListener<Message> listener;
+  private EndpointListener endpointListener;
+  private DefaultNmsService service;
+
+  @Before
+  @SuppressWarnings("unchecked")
+  public void setUp() {
+    // an entity only recording the listeners of the service
+    NmsEntity entity = (NmsEntity) Proxy.newProxyInstance(NmsEntity.class.getClassLoader(), new Class<?>[]{NmsEntity.class}, (proxy, method, args) -> {
+      if (method.getName().equals("registerMessageListener")) {
+        listener = (MessageListener<Message>) args[1];
+      } else if (method.getName().equals("setEndpointListener")) {
+        endpointListener = (EndpointListener) args[0];
+      } else if (method.getName().equals("subscribeTopologyChanges")) {
+        subscribedVersions.add((Long) args[2]);
+        return CompletableFuture.completedFuture(topologyAnswers.poll());
+      }
+      return method.getReturnType() == Future.class ? CompletableFuture.completedFuture(null) : null;
+    });
+    service = new DefaultNmsService(entity, 16).setSubscriptionExecutor(Runnable::run);
+  }
+
+  @Test
+  public void test_messages_pushed_on_demand() {
+    RecordingSubscriber subscriber = new RecordingSubscriber();
+    service.subscribe(subscriber);
+    List<Message> messages = receive(3);
+
+    // nothing pushed before being requested
+    assertThat(subscriber.received.size(), is(0));
+
+    subscriber.subscription.request(2);
+    assertThat(subscriber.received, equalTo(messages.subList(0, 2)));
+
+    subscriber.subscription.request(Long.MAX_VALUE);
+    assertThat(subscriber.received, equalTo(messages));
+
+    // unbounded demand: pushed as received
+    List<Message> next = receive(2);
+    assertThat(subscriber.received.subList(3, 5), equalTo(next));
+  }
+
+  @Test
+  public void test_messages_also_queued() {
+    RecordingSubscriber subscriber = new RecordingSubscriber();
+    service.subscribe(subscriber);
+    subscriber.subscription.request(Long.MAX_VALUE);
+
+    List<Message> messages = receive(2);
+
+    assertThat(subscriber.received, equalTo(messages));
+    assertThat(service.readMessages(), equalTo(messages));
+  }
+
+  @Test
+  public void test_subscription_filter_and_buffer() {
+    service.setSubscriptionCapacity(2);
+    RecordingSubscriber subscriber = new RecordingSubscriber();
+    service.subscribe(message -> message.getType().equals("NOTIFICATION"), subscriber);
+
+    Message statistics = new DefaultMessage(sequenceGenerator.next(), "STATISTICS");
+    listener.onMessage(statistics);
+    List<Message> messages = receive(3);
+
+    // the last notification did not fit in the buffer
+    assertThat(subscriber.subscription.getDroppedCount(), is(1L));
+    subscriber.subscription.request(Long.MAX_VALUE);
+    assertThat(subscriber.received, equalTo(messages.subList(0, 2)));
+  }
+
+  @Test
+  public void test_cancel() {
+    RecordingSubscriber subscriber = new RecordingSubscriber();
+    service.subscribe(subscriber);
+    subscriber.subscription.request(Long.MAX_VALUE);
+    receive(1);
+
+    subscriber.subscription.cancel();
+    receive(1);
+
+    assertThat(subscriber.received.size(), is(1));
+  }
+
+  @Test
+  public void test_failing_subscriber() {
+    RecordingSubscriber subscriber = new RecordingSubscriber() {
+      @Override
+      public void onNext(Message message) {
+        super.onNext(message);
+        throw new IllegalStateException("failing");
+      }
+    };
+    service.subscribe(subscriber);
+    subscriber.subscription.request(Long.MAX_VALUE);
+    receive(2);
+
+    assertThat(subscriber.received.size(), is(1));
+    assertThat(subscriber.error, instanceOf(IllegalStateException.class));
+  }
+
+  @Test
+  public void test_bad_request() {
+    RecordingSubscriber subscriber = new RecordingSubscriber();
+    service.subscribe(subscriber);
+    subscriber.subscription.request(0);
+    receive(1);
+
+    assertThat(subscriber.error, instanceOf(IllegalArgumentException.class));
+    assertThat(subscriber.received.size(), is(0));
+  }
+
+  @Test
+  public void test_pushed_off_the_receiving_thread() {
+    service.setSubscriptionExecutor(deliveries::add);
+    RecordingSubscriber subscriber = new RecordingSubscriber();
+    service.subscribe(subscriber);
+    subscriber.subscription.request(Long.MAX_VALUE);
+    List<Message> messages = receive(2);
+
+    assertThat(subscriber.received.size(), is(0));
+    runDeliveries();
+    assertThat(subscriber.received, equalTo(messages));
+  }
+
+  @Test
+  public void test_bad_request_signalled_when_draining() {
+    service.setSubscriptionExecutor(deliveries::add);
+    RecordingSubscriber subscriber = new RecordingSubscriber();
+    service.subscribe(subscriber);
+    subscriber.subscription.request(-1);
+
+    // not on the requesting thread
+    assertThat(subscriber.error, is(nullValue()));
+    runDeliveries();
+    assertThat(subscriber.error, instanceOf(IllegalArgumentException.class));
+  }
+
+  @Test
+  public void test_buffered_messages_pushed_before_completion() {
+    RecordingSubscriber subscriber = new RecordingSubscriber();
+    service.subscribe(subscriber);
+    List<Message> messages = receive(2);
+
+    service.close();
+    assertThat(subscriber.completed, is(false));
+
+    subscriber.subscription.request(1);
+    assertThat(subscriber.completed, is(false));
+    subscriber.subscription.request(1);
+    assertThat(subscriber.received, equalTo(messages));
+    assertThat(subscriber.completed, is(true));
+  }
+
+  @Test
+  public void test_completed_on_close() {
+    RecordingSubscriber subscriber = new RecordingSubscriber();
+    service.subscribe(subscriber);
+    subscriber.subscription.request(Long.MAX_VALUE);
+    receive(1);
+
+    service.close();
+    receive(1);
+
+    assertThat(subscriber.completed, is(true));
+    assertThat(subscriber.received.size(), is(1));
+  }
+
+  @Test
+  public void test_server_message_filter_restored_on_reconnect() throws Exception {
+    assertThat(endpointListener.onReconnect(), is(nullValue()));
+
+    MessageFilter filter = MessageFilter.ofTypes("STATISTICS");
+    service.setServerMessageFilter(filter);
+
+    ReconnectData reconnectData = (ReconnectData) endpointListener.onReconnect();
+    assertThat(reconnectData.messageFilter, is(filter));
+  }
+
+  @Test
+  public void test_missed_topology_changes_resynchronized() throws Exception {
+    topologyAnswers.add(new TopologyMessage(sequenceGenerator.next(), TopologyMessage.TOPOLOGY, "topology", 1, 1));
+    service.subscribeTopologyChanges();
+
+    TopologyMessage first = topologyChanges(1, 2);
+    listener.onMessage(first);
+    // received twice: only applied once
+    listener.onMessage(first);
+
+    // 2 -> 3 is lost: the next changes do not apply and the missed ones are asked again
+    topologyChanges(2, 3);
+    TopologyMessage next = topologyChanges(3, 4);
+    TopologyMessage missed = topologyChanges(2, 4);
+    topologyAnswers.add(missed);
+    listener.onMessage(next);
+
+    assertThat(service.waitForMessage(5, TimeUnit.SECONDS), is(first));
+    assertThat(service.waitForMessage(5, TimeUnit.SECONDS), is(missed));
+    assertThat(subscribedVersions, equalTo(Arrays.asList(-1L, 2L)));
+
+    TopologyMessage last = topologyChanges(4, 5);
+    listener.onMessage(last);
+    assertThat(service.readMessages(), equalTo(Collections.singletonList(last)));
+  }
+
+  private void runDeliveries() {
+    Runnable delivery;
+    while ((delivery = deliveries.poll()) != null) {
+      delivery.run();
+    }
+  }
+
+  private TopologyMessage topologyChanges(long fromVersion, long toVersion) {
+    return new TopologyMessage(sequenceGenerator.next(), TopologyMessage.TOPOLOGY_CHANGES, "topology", fromVersion, toVersion);
+  }
+
+  private List<Message> receive(int count) {
+    List<Message> messages = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      Message message = new DefaultMessage(sequenceGenerator.next(), "NOTIFICATION");
+      messages.add(message);
+      listener.onMessage(message);
+    }
+    return messages;
+  }
+
+  private static class RecordingSubscriber implements MessageSubscriber {
+    final List<Message> received = new ArrayList<>();
+    Subscription subscription;
+    Throwable error;
+    boolean completed;
+
+    @Override
+    public void onSubscribe(Subscription subscription) {
+      this.subscription = subscription;
+    }
+
+    @Override
+    public void onNext(Message message) {
+      received.add(message);
+    }
+
+    @Override
+    public void onError(Throwable error) {
+      this.error = error;
+    }
+
+    @Override
+    public void onComplete() {
+      completed = true;
+    }
+  }
+
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.management.entity.nms.client;
+
+import org.junit.Test;
+import org.terracotta.management.model.message.DefaultMessage;
+import org.terracotta.management.model.message.Message;
+import org.terracotta.management.sequence.BoundaryFlakeSequenceGenerator;
+import org.terracotta.management.sequence.NodeIdSource;
+import org.terracotta.management.sequence.TimeSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class SortedMessageQueueTest {
+
+  private final BoundaryFlakeSequenceGenerator sequenceGenerator = new BoundaryFlakeSequenceGenerator(TimeSource.BEST, NodeIdSource.BEST);
+
+  @Test
+  public void test_messages_kept_in_sequence_order() {
+    List<Message> messages = messages(5);
+    SortedMessageQueue queue = new SortedMessageQueue(5);
+
+    queue.offer(Optional.of(messages.get(1)));
+    queue.offer(Optional.of(messages.get(3)));
+    queue.offer(Optional.of(messages.get(0)));
+    queue.offer(Optional.of(messages.get(4)));
+    queue.offer(Optional.of(messages.get(2)));
+
+    assertThat(drain(queue), equalTo(messages));
+  }
+
+  @Test
+  public void test_sorted_insert_across_ring_end() {
+    List<Message> messages = messages(6);
+    SortedMessageQueue queue = new SortedMessageQueue(4);
+
+    // move the head so that the next inserts wrap around the end of the ring
+    queue.offer(Optional.of(messages.get(0)));
+    queue.offer(Optional.of(messages.get(1)));
+    queue.offer(Optional.of(messages.get(2)));
+    assertThat(queue.poll().get(), is(messages.get(0)));
+    assertThat(queue.poll().get(), is(messages.get(1)));
+
+    queue.offer(Optional.of(messages.get(5)));
+    queue.offer(Optional.of(messages.get(3)));
+    queue.offer(Optional.of(messages.get(4)));
+
+    assertThat(queue.size(), is(4));
+    assertThat(drain(queue), equalTo(messages.subList(2, 6)));
+  }
+
+  @Test
+  public void test_empty_elements_kept_last() {
+    List<Message> messages = messages(2);
+    SortedMessageQueue queue = new SortedMessageQueue(3);
+
+    queue.offer(Optional.of(messages.get(1)));
+    queue.offer(Optional.empty());
+    queue.offer(Optional.of(messages.get(0)));
+
+    assertThat(queue.poll().get(), is(messages.get(0)));
+    assertThat(queue.poll().get(), is(messages.get(1)));
+    assertThat(queue.poll().isPresent(), is(false));
+  }
+
+  @Test
+  public void test_bounded() throws Exception {
+    List<Message> messages = messages(3);
+    SortedMessageQueue queue = new SortedMessageQueue(2);
+
+    assertThat(queue.offer(Optional.of(messages.get(0))), is(true));
+    assertThat(queue.offer(Optional.of(messages.get(1))), is(true));
+    assertThat(queue.offer(Optional.of(messages.get(2))), is(false));
+    assertThat(queue.offer(Optional.of(messages.get(2)), 10, TimeUnit.MILLISECONDS), is(false));
+    assertThat(queue.remainingCapacity(), is(0));
+  }
+
+  @Test
+  public void test_blocking_reads() throws Exception {
+    Message message = messages(1).get(0);
+    SortedMessageQueue queue = new SortedMessageQueue(2);
+
+    assertThat(queue.poll(10, TimeUnit.MILLISECONDS), is(nullValue()));
+
+    AtomicReference<Optional<Message>> taken = new AtomicReference<>();
+    CountDownLatch done = new CountDownLatch(1);
+    Thread reader = new Thread(() -> {
+      try {
+        taken.set(queue.take());
+        done.countDown();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    reader.start();
+    assertThat(done.await(50, TimeUnit.MILLISECONDS), is(false));
+
+    queue.offer(Optional.of(message));
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+    assertThat(taken.get().get(), is(message));
+  }
+
+  @Test
+  public void test_blocking_put() throws Exception {
+    List<Message> messages = messages(2);
+    SortedMessageQueue queue = new SortedMessageQueue(1);
+    queue.put(Optional.of(messages.get(1)));
+
+    CountDownLatch done = new CountDownLatch(1);
+    Thread writer = new Thread(() -> {
+      try {
+        queue.put(Optional.of(messages.get(0)));
+        done.countDown();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    writer.start();
+    assertThat(done.await(50, TimeUnit.MILLISECONDS), is(false));
+
+    assertThat(queue.take().get(), is(messages.get(1)));
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+    assertThat(queue.take().get(), is(messages.get(0)));
+  }
+
+  private List<Message> messages(int count) {
+    List<Message> messages = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      messages.add(new DefaultMessage(sequenceGenerator.next(), "NOTIFICATION"));
+    }
+    return messages;
+  }
+
+  private static List<Message> drain(SortedMessageQueue queue) {
+    List<Optional<Message>> drained = new ArrayList<>();
+    queue.drainTo(drained);
+    List<Message> messages = new ArrayList<>(drained.size());
+    drained.forEach(message -> messages.add(message.get()));
+    return messages;
+  }
+
+}
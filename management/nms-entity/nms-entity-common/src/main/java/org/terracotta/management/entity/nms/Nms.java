@@ -18,6 +18,8 @@ package org.terracotta.management.entity.nms;
 import org.terracotta.management.model.call.Parameter;
 import org.terracotta.management.model.cluster.Cluster;
 import org.terracotta.management.model.context.Context;
+import org.terracotta.management.model.message.MessageFilter;
+import org.terracotta.management.model.message.TopologyMessage;
 import org.terracotta.voltron.proxy.Async;
 import org.terracotta.voltron.proxy.ClientId;
 import org.terracotta.voltron.proxy.ConcurrencyStrategy;
@@ -37,6 +39,28 @@ public interface Nms {
   @ExecutionStrategy(location = ACTIVE)
   Future<Cluster> readTopology();
 
+  /**
+   * Subscribes the caller to the topology changes and returns the changes since the given version, or the whole topology
+   * if these changes cannot be computed anymore.
+   */
+  @Async(Async.Ack.NONE)
+  @ConcurrencyStrategy(key = ConcurrencyStrategy.UNIVERSAL_KEY)
+  @ExecutionStrategy(location = ACTIVE)
+  Future<TopologyMessage> subscribeTopologyChanges(@ClientId Object subscriberDescriptor, String topologyId, long sinceVersion);
+
+  @Async(Async.Ack.NONE)
+  @ConcurrencyStrategy(key = ConcurrencyStrategy.UNIVERSAL_KEY)
+  @ExecutionStrategy(location = ACTIVE)
+  Future<Void> unsubscribeTopologyChanges(@ClientId Object subscriberDescriptor);
+
+  /**
+   * Sets the filter selecting the notifications and statistics sent to the caller, or null to receive everything.
+   */
+  @Async(Async.Ack.NONE)
+  @ConcurrencyStrategy(key = ConcurrencyStrategy.UNIVERSAL_KEY)
+  @ExecutionStrategy(location = ACTIVE)
+  Future<Void> setMessageFilter(@ClientId Object subscriberDescriptor, MessageFilter filter);
+
   /**
    * Execute a management call on the server and returns the results
    */
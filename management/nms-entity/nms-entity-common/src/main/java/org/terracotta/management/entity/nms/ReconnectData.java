@@ -0,0 +1,34 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.management.entity.nms;
+
+import org.terracotta.management.model.message.MessageFilter;
+
+import java.io.Serializable;
+
+/**
+ * The state of a NMS client that the server must restore when this client reconnects, i.e. after a failover
+ */
+public class ReconnectData implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  public final MessageFilter messageFilter;
+
+  public ReconnectData(MessageFilter messageFilter) {
+    this.messageFilter = messageFilter;
+  }
+}
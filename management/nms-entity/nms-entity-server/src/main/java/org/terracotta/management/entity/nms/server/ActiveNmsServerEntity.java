@@ -21,17 +21,20 @@ import org.terracotta.entity.ClientDescriptor;
 import org.terracotta.entity.StateDumpCollector;
 import org.terracotta.management.entity.nms.Nms;
 import org.terracotta.management.entity.nms.NmsConfig;
+import org.terracotta.management.entity.nms.ReconnectData;
 import org.terracotta.management.model.call.ContextualCall;
 import org.terracotta.management.model.call.ContextualReturn;
 import org.terracotta.management.model.call.Parameter;
 import org.terracotta.management.model.cluster.Client;
 import org.terracotta.management.model.cluster.Cluster;
-import org.terracotta.management.model.cluster.Connection;
 import org.terracotta.management.model.cluster.Server;
 import org.terracotta.management.model.cluster.Stripe;
 import org.terracotta.management.model.context.Context;
 import org.terracotta.management.model.context.Contextual;
+import org.terracotta.management.model.message.CompactStatisticsMessage;
 import org.terracotta.management.model.message.Message;
+import org.terracotta.management.model.message.MessageFilter;
+import org.terracotta.management.model.message.TopologyMessage;
 import org.terracotta.management.registry.CapabilityManagementSupport;
 import org.terracotta.management.registry.CombiningCapabilityManagementSupport;
 import org.terracotta.management.service.monitoring.EntityManagementRegistry;
@@ -41,8 +44,6 @@ import org.terracotta.management.service.monitoring.SharedEntityManagementRegist
 import org.terracotta.voltron.proxy.ClientId;
 import org.terracotta.voltron.proxy.server.ActiveProxiedServerEntity;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Future;
@@ -50,10 +51,13 @@ import java.util.concurrent.Future;
 /**
  * @author Mathieu Carbou
  */
-class ActiveNmsServerEntity extends ActiveProxiedServerEntity<Void, Void, NmsCallback> implements Nms, ManagementExecutor {
+class ActiveNmsServerEntity extends ActiveProxiedServerEntity<Void, ReconnectData, NmsCallback> implements Nms, ManagementExecutor {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(ActiveNmsServerEntity.class);
 
+  // statistics are sent to the NMS clients in their compact form only when enabled: older NMS clients cannot read it
+  private static final boolean COMPACT_STATISTICS = Boolean.getBoolean("terracotta.management.nms.statistics.compact");
+
   private final ManagementService managementService;
   private final String stripeName;
   private final EntityManagementRegistry entityManagementRegistry;
@@ -94,6 +98,15 @@ class ActiveNmsServerEntity extends ActiveProxiedServerEntity<Void, Void, NmsCal
     entityManagementRegistry.refresh();
   }
 
+  @Override
+  protected void onReconnect(ClientDescriptor clientDescriptor, ReconnectData reconnectData) {
+    // the filters of the clients are lost on failover
+    if (reconnectData != null && reconnectData.messageFilter != null) {
+      LOGGER.trace("[{}] onReconnect({}, {})", consumerId, clientDescriptor, reconnectData.messageFilter);
+      managementService.setMessageFilter(clientDescriptor, reconnectData.messageFilter);
+    }
+  }
+
   @Override
   protected void dumpState(StateDumpCollector dump) {
     dump.addState("consumerId", String.valueOf(consumerId));
@@ -104,54 +117,37 @@ class ActiveNmsServerEntity extends ActiveProxiedServerEntity<Void, Void, NmsCal
 
   @Override
   public Future<Cluster> readTopology() {
-    return CompletableFuture.completedFuture(readCluster());
+    return CompletableFuture.completedFuture(managementService.readTopology());
   }
 
   @Override
-  public Future<String> call(@ClientId Object callerDescriptor, Context context, String capabilityName, String methodName, Class<?> returnType, Parameter... parameters) {
-    if (context.contains(Stripe.KEY)) {
-      context = context.with(Stripe.KEY, "SINGLE");
+  public Future<TopologyMessage> subscribeTopologyChanges(@ClientId Object subscriberDescriptor, String topologyId, long sinceVersion) {
+    // the topology is already read with our stripe name
+    TopologyMessage message = managementService.subscribeTopologyChanges((ClientDescriptor) subscriberDescriptor, topologyId, sinceVersion);
+    if (!TopologyMessage.TOPOLOGY.equals(message.getType())) {
+      addStripeName(message);
     }
-    return CompletableFuture.completedFuture(managementService.sendManagementCallRequest((ClientDescriptor) callerDescriptor, context, capabilityName, methodName, returnType, parameters));
+    return CompletableFuture.completedFuture(message);
   }
 
-  private Cluster readCluster() {
-    Cluster cluster = managementService.readTopology();
-    // if we want a specific name for our stripe, just rename it
-    if (!stripeName.equals(cluster.getSingleStripe().getName())) {
-
-      Stripe namedStripe = Stripe.create(stripeName);
-      Stripe currentStripe = cluster.getSingleStripe();
-
-      // move servers
-      currentStripe.serverStream().forEach(namedStripe::addServer);
-
-      // add stripe
-      cluster.addStripe(namedStripe);
-
-      cluster.clientStream().forEach(client -> {
-        // hole a list of connections to delete after
-        List<Connection> toDelete = new ArrayList<>(client.getConnectionCount());
-        List<Connection> toAdd = new ArrayList<>(client.getConnectionCount());
-
-        client.connectionStream().forEach(currentConn -> {
-          toDelete.add(currentConn);
-          namedStripe.getServer(currentConn.getServerId())
-              .ifPresent(server -> {
-                Connection newConnection = Connection.create(currentConn.getLogicalConnectionUid(), server, currentConn.getClientEndpoint());
-                currentConn.fetchedServerEntityStream().forEach(serverEntity -> newConnection.fetchServerEntity(serverEntity.getServerEntityIdentifier()));
-                toAdd.add(newConnection);
-              });
-        });
+  @Override
+  public Future<Void> unsubscribeTopologyChanges(@ClientId Object subscriberDescriptor) {
+    managementService.unsubscribeTopologyChanges((ClientDescriptor) subscriberDescriptor);
+    return CompletableFuture.completedFuture(null);
+  }
 
-        toDelete.forEach(Connection::remove);
-        toAdd.forEach(client::addConnection);
-      });
+  @Override
+  public Future<Void> setMessageFilter(@ClientId Object subscriberDescriptor, MessageFilter filter) {
+    managementService.setMessageFilter((ClientDescriptor) subscriberDescriptor, filter);
+    return CompletableFuture.completedFuture(null);
+  }
 
-      // remove current stripe and add new one
-      cluster.removeStripe(currentStripe.getId());
+  @Override
+  public Future<String> call(@ClientId Object callerDescriptor, Context context, String capabilityName, String methodName, Class<?> returnType, Parameter... parameters) {
+    if (context.contains(Stripe.KEY)) {
+      context = context.with(Stripe.KEY, "SINGLE");
     }
-    return cluster;
+    return CompletableFuture.completedFuture(managementService.sendManagementCallRequest((ClientDescriptor) callerDescriptor, context, capabilityName, methodName, returnType, parameters));
   }
 
   // ManagementExecutor
@@ -186,7 +182,7 @@ class ActiveNmsServerEntity extends ActiveProxiedServerEntity<Void, Void, NmsCal
     // add stripe info to the message
     addStripeName(message);
     // send message
-    fireMessage(Message.class, message, false);
+    fireMessage(Message.class, wireForm(message), false);
   }
 
   @Override
@@ -196,10 +192,14 @@ class ActiveNmsServerEntity extends ActiveProxiedServerEntity<Void, Void, NmsCal
       // add stripe info to the message
       addStripeName(message);
       // send message
-      fireMessage(Message.class, message, to);
+      fireMessage(Message.class, wireForm(message), to);
     }
   }
 
+  private static Message wireForm(Message message) {
+    return COMPACT_STATISTICS && CompactStatisticsMessage.STATISTICS.equals(message.getType()) ? CompactStatisticsMessage.of(message) : message;
+  }
+
   private void addStripeName(Message message) {
     message.unwrap(Contextual.class)
         .stream()
@@ -24,6 +24,7 @@ import org.terracotta.entity.ServiceRegistry;
 import org.terracotta.management.entity.nms.Nms;
 import org.terracotta.management.entity.nms.NmsConfig;
 import org.terracotta.management.entity.nms.NmsVersion;
+import org.terracotta.management.entity.nms.ReconnectData;
 import org.terracotta.management.model.message.Message;
 import org.terracotta.management.service.monitoring.EntityManagementRegistry;
 import org.terracotta.management.service.monitoring.ManagementService;
@@ -40,12 +41,12 @@ import static java.util.regex.Pattern.compile;
 /**
  * @author Mathieu Carbou
  */
-public class NmsEntityServerService extends ProxyServerEntityService<NmsConfig, Void, Void, NmsCallback> {
+public class NmsEntityServerService extends ProxyServerEntityService<NmsConfig, Void, ReconnectData, NmsCallback> {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(NmsEntityServerService.class);
 
   public NmsEntityServerService() {
-    super(Nms.class, NmsConfig.class, new Class<?>[]{Message.class}, null, null, NmsCallback.class);
+    super(Nms.class, NmsConfig.class, new Class<?>[]{Message.class}, null, ReconnectData.class, NmsCallback.class);
     setCodec(new SerializationCodec(compile("^(?:org\\.ehcache\\.shadow|com\\.terracottatech\\.shadow)\\.(org\\.terracotta\\.statistics\\..*)$")));
   }
 
@@ -54,7 +55,7 @@ public class NmsEntityServerService extends ProxyServerEntityService<NmsConfig,
     LOGGER.trace("createActiveEntity()");
     // get services
     try {
-      ManagementService managementService = Objects.requireNonNull(registry.getService(new ManagementServiceConfiguration()));
+      ManagementService managementService = Objects.requireNonNull(registry.getService(new ManagementServiceConfiguration(configuration.getStripeName())));
       EntityManagementRegistry entityManagementRegistry = Objects.requireNonNull(registry.getService(new ServerManagementRegistryConfiguration(registry, true)));
       SharedEntityManagementRegistry sharedEntityManagementRegistry = Objects.requireNonNull(registry.getService(new BasicServiceConfiguration<>(SharedEntityManagementRegistry.class)));
       ActiveNmsServerEntity entity = new ActiveNmsServerEntity(configuration, managementService, entityManagementRegistry, sharedEntityManagementRegistry);
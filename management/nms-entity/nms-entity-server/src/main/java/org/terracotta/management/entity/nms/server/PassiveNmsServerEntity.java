@@ -25,6 +25,8 @@ import org.terracotta.management.model.call.Parameter;
 import org.terracotta.management.model.cluster.Cluster;
 import org.terracotta.management.model.cluster.Server;
 import org.terracotta.management.model.context.Context;
+import org.terracotta.management.model.message.MessageFilter;
+import org.terracotta.management.model.message.TopologyMessage;
 import org.terracotta.management.registry.CapabilityManagementSupport;
 import org.terracotta.management.registry.CombiningCapabilityManagementSupport;
 import org.terracotta.management.service.monitoring.EntityManagementRegistry;
@@ -97,6 +99,21 @@ class PassiveNmsServerEntity extends PassiveProxiedServerEntity implements Nms,
     throw new UnsupportedOperationException("Cannot be called on a passive server");
   }
 
+  @Override
+  public Future<TopologyMessage> subscribeTopologyChanges(@ClientId Object subscriberDescriptor, String topologyId, long sinceVersion) {
+    throw new UnsupportedOperationException("Cannot be called on a passive server");
+  }
+
+  @Override
+  public Future<Void> unsubscribeTopologyChanges(@ClientId Object subscriberDescriptor) {
+    throw new UnsupportedOperationException("Cannot be called on a passive server");
+  }
+
+  @Override
+  public Future<Void> setMessageFilter(@ClientId Object subscriberDescriptor, MessageFilter filter) {
+    throw new UnsupportedOperationException("Cannot be called on a passive server");
+  }
+
   @Override
   public Future<String> call(@ClientId Object callerDescriptor, Context context, String capabilityName, String methodName, Class<?> returnType, Parameter... parameters) {
     throw new UnsupportedOperationException("Cannot be called on a passive server");
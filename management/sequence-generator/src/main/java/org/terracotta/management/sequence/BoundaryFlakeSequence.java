@@ -25,10 +25,14 @@ public final class BoundaryFlakeSequence implements Sequence, Serializable {
 
   private static final long serialVersionUID = 1;
 
+  private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
   private final long timestamp;
   private final long nodeId;
   private final long sequence;
 
+  private transient String hex; // lazily computed
+
   BoundaryFlakeSequence(long timestamp, long nodeId, long sequence) {
     this.timestamp = timestamp;
     this.nodeId = nodeId;
@@ -52,13 +56,11 @@ public final class BoundaryFlakeSequence implements Sequence, Serializable {
 
   @Override
   public String toHexString() {
-    byte[] bytes = toBytes();
-    StringBuilder r = new StringBuilder(bytes.length * 2);
-    for (byte b : bytes) {
-      r.append(Integer.toHexString((b >> 4) & 0xF));
-      r.append(Integer.toHexString(b & 0xF));
+    String hex = this.hex;
+    if (hex == null) {
+      this.hex = hex = toHexString(timestamp, nodeId, sequence);
     }
-    return r.toString();
+    return hex;
   }
 
   @Override
@@ -112,12 +114,47 @@ public final class BoundaryFlakeSequence implements Sequence, Serializable {
   }
 
   public static BoundaryFlakeSequence fromHexString(String hex) {
-    final int len = hex.length();
-    byte[] bytes = new byte[len >>> 1];
+    if (hex.length() != 48) {
+      // not a sequence generated by this class: keep the previous leniency
+      final int len = hex.length();
+      byte[] bytes = new byte[len >>> 1];
+
+      for (int i = 0; i < len; i += 2) {
+        bytes[i >>> 1] = (byte) Integer.parseInt(hex.substring(i, i + 2), 16);
+      }
+      return fromBytes(bytes);
+    }
+    return new BoundaryFlakeSequence(parseHex(hex, 0), parseHex(hex, 16), parseHex(hex, 32));
+  }
 
-    for (int i = 0; i < len; i += 2) {
-      bytes[i >>> 1] = (byte) Integer.parseInt(hex.substring(i, i + 2), 16);
+  /**
+   * Same as {@link #toHexString()} for a sequence made of these 3 longs, i.e. written by
+   * {@link BoundaryFlakeSequenceGenerator#next(long[], int)}
+   */
+  public static String toHexString(long timestamp, long nodeId, long sequence) {
+    char[] chars = new char[48];
+    writeHex(chars, 0, timestamp);
+    writeHex(chars, 16, nodeId);
+    writeHex(chars, 32, sequence);
+    return new String(chars);
+  }
+
+  private static void writeHex(char[] chars, int offset, long value) {
+    for (int i = offset + 15; i >= offset; i--) {
+      chars[i] = HEX_DIGITS[(int) value & 0xF];
+      value >>>= 4;
+    }
+  }
+
+  private static long parseHex(String hex, int offset) {
+    long value = 0;
+    for (int i = offset; i < offset + 16; i++) {
+      int digit = Character.digit(hex.charAt(i), 16);
+      if (digit < 0) {
+        throw new NumberFormatException("For input string: \"" + hex + "\"");
+      }
+      value = (value << 4) | digit;
     }
-    return fromBytes(bytes);
+    return value;
   }
 }
@@ -16,6 +16,7 @@
 package org.terracotta.management.sequence;
 
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 import static org.terracotta.management.sequence.Defaults.INSTANCE_BITLENGTH;
 import static org.terracotta.management.sequence.Defaults.INSTANCE_BITMASK;
@@ -51,6 +52,12 @@ import static org.terracotta.management.sequence.Defaults.SEQ_BITMASK;
  * <p>
  * This generator will generate a maximum of about 262,144 sequence numbers / millisecond / instance / classloader / JVM / machine,
  * with high probability to be unique if node id is unique.
+ * <p>
+ * By default, all threads share the same counter, so that the sequences are ordered the same way they were generated.
+ * When contention matters more than this ordering within a millisecond, the generator can be striped: the SEQUENCE_MS
+ * space is then split in as many sub-ranges as stripes, and each thread increments the counter of its stripe. Sequences
+ * generated in different milliseconds are still ordered, but within the same millisecond they are only ordered per stripe.
+ * Each stripe can generate 262,144 / stripes sequence numbers per millisecond.
  *
  * @author Mathieu Carbou
  */
@@ -58,20 +65,44 @@ public final class BoundaryFlakeSequenceGenerator implements SequenceGenerator {
 
   private static final IntCyclicRangeCounter INSTANCE_ID = new IntCyclicRangeCounter(0, INSTANCE_BITMASK);
 
+  // stripe counters are spaced by 128 bytes to not share cache lines
+  private static final int STRIPE_PADDING_SHIFT = 4;
+  private static final int MAX_STRIPES = 1024;
+
   private final TimeSource timeSource;
   private final long nodeId;
   private final long instanceId;
   private final AtomicLong timeAndSeq = new AtomicLong(); // 44 bits TS + 20 bits sequence
 
+  private final int stripes;
+  private final int stripeSeqBitLength;
+  private final long stripeSeqBitMask;
+  private final AtomicLongArray stripeTimeAndSeqs; // per stripe: TS + stripeSeqBitLength bits sequence
+  private final AtomicLong lastTimestamp = new AtomicLong(); // greatest TS used by a stripe
+
   public BoundaryFlakeSequenceGenerator() {
     this(TimeSource.BEST, NodeIdSource.BEST);
   }
 
   public BoundaryFlakeSequenceGenerator(TimeSource timeSource, NodeIdSource nodeIdSource) {
+    this(timeSource, nodeIdSource, 1);
+  }
+
+  /**
+   * @param stripes the number of stripes: a power of 2, up to 1024. 1 means not striped.
+   */
+  public BoundaryFlakeSequenceGenerator(TimeSource timeSource, NodeIdSource nodeIdSource, int stripes) {
+    if (stripes < 1 || stripes > MAX_STRIPES || Integer.bitCount(stripes) != 1) {
+      throw new IllegalArgumentException("Bad number of stripes: " + stripes);
+    }
     long clId = getClass().getClassLoader().hashCode();
     this.timeSource = timeSource;
     this.nodeId = nodeIdSource.getNodeId();
     this.instanceId = ((clId << INSTANCE_BITLENGTH) | (INSTANCE_ID.getAndIncrement() & INSTANCE_BITMASK)) << SEQ_BITLENGTH;
+    this.stripes = stripes;
+    this.stripeSeqBitLength = SEQ_BITLENGTH - Integer.numberOfTrailingZeros(stripes);
+    this.stripeSeqBitMask = (1L << stripeSeqBitLength) - 1;
+    this.stripeTimeAndSeqs = stripes == 1 ? null : new AtomicLongArray(stripes << STRIPE_PADDING_SHIFT);
   }
 
   @Override
@@ -79,8 +110,40 @@ public final class BoundaryFlakeSequenceGenerator implements SequenceGenerator {
     return timeSource;
   }
 
+  public int getStripes() {
+    return stripes;
+  }
+
   @Override
   public Sequence next() {
+    long update = nextTimeAndSeq();
+    return new BoundaryFlakeSequence(
+        update >>> SEQ_BITLENGTH,
+        nodeId,
+        instanceId | (update & SEQ_BITMASK));
+  }
+
+  /**
+   * Generates a sequence without allocating it: its timestamp, node id and sequence id are written in this order
+   * in the buffer, from the offset.
+   */
+  public void next(long[] buffer, int offset) {
+    if (offset < 0 || offset + 3 > buffer.length) {
+      throw new ArrayIndexOutOfBoundsException(offset);
+    }
+    long update = nextTimeAndSeq();
+    buffer[offset] = update >>> SEQ_BITLENGTH;
+    buffer[offset + 1] = nodeId;
+    buffer[offset + 2] = instanceId | (update & SEQ_BITMASK);
+  }
+
+  /**
+   * @return TS + 18 bits sequence
+   */
+  private long nextTimeAndSeq() {
+    if (stripes > 1) {
+      return nextStripedTimeAndSeq();
+    }
     while (true) {
       long min = timeSource.getTimestamp() << SEQ_BITLENGTH;
       long max = min + SEQ_BITMASK;
@@ -88,11 +151,34 @@ public final class BoundaryFlakeSequenceGenerator implements SequenceGenerator {
            update < max;
            current = timeAndSeq.get(), update = Math.max(min, current + 1)) {
         if (timeAndSeq.compareAndSet(current, update)) {
-          return new BoundaryFlakeSequence(
-              update >>> SEQ_BITLENGTH,
-              nodeId,
-              instanceId | (update & SEQ_BITMASK));
+          return update;
+        }
+      }
+    }
+  }
+
+  private long nextStripedTimeAndSeq() {
+    long stripe = Thread.currentThread().getId() & (stripes - 1);
+    int slot = (int) stripe << STRIPE_PADDING_SHIFT;
+    while (true) {
+      long current = stripeTimeAndSeqs.get(slot);
+      // never go back in time, even if the clock does or if another stripe is ahead
+      long timestamp = Math.max(timeSource.getTimestamp(), lastTimestamp.get());
+      long update;
+      if ((current >>> stripeSeqBitLength) < timestamp) {
+        update = timestamp << stripeSeqBitLength;
+      } else if ((current & stripeSeqBitMask) != stripeSeqBitMask) {
+        update = current + 1;
+      } else {
+        // sub-range exhausted for this millisecond: wait for the next one
+        continue;
+      }
+      if (stripeTimeAndSeqs.compareAndSet(slot, current, update)) {
+        timestamp = update >>> stripeSeqBitLength;
+        for (long last = lastTimestamp.get(); last < timestamp && !lastTimestamp.compareAndSet(last, timestamp); ) {
+          last = lastTimestamp.get();
         }
+        return (timestamp << SEQ_BITLENGTH) | (stripe << stripeSeqBitLength) | (update & stripeSeqBitMask);
       }
     }
   }
@@ -15,93 +15,125 @@
  */
 package org.terracotta.management.sequence.perf;
 
+import org.terracotta.management.sequence.BoundaryFlakeSequence;
 import org.terracotta.management.sequence.BoundaryFlakeSequenceGenerator;
 import org.terracotta.management.sequence.NodeIdSource;
 import org.terracotta.management.sequence.TimeSource;
 
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
 import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
+ * Measures the throughput of the sequence generator for an increasing number of threads (contention curve),
+ * with a shared counter and with a striped one, through the allocating API and through the buffer API.
+ * <p>
+ * Arguments: [measure duration in ms, default 2000] [max thread count, default 2 x CPU count] [stripes, default CPU count rounded up to a power of 2]
+ * <p>
  * TIP: run with: -ea -server -Xmx512M -Xms512M -verbose:gc
  *
  * @author Mathieu Carbou
  */
 public class PerfTest {
 
-  private static BoundaryFlakeSequenceGenerator generator = new BoundaryFlakeSequenceGenerator(TimeSource.BEST, NodeIdSource.BEST);
+  private static final int WARMUP_MS = 500;
 
-  public static void main(String[] args) throws InterruptedException {
-    {
-      int[] counts = new int[10];
-      for (int i = 0; i < counts.length; i++) {
-        counts[i] = genMs(1000);
-      }
-      System.out.println("Number of generated sequence per ms: " + toStat(counts) + "\n" + Arrays.toString(counts));
-    }
-    {
-      final CyclicBarrier barrier = new CyclicBarrier(Runtime.getRuntime().availableProcessors());
-      final int[][] counts = new int[barrier.getParties()][];
-      Thread[] threads = new Thread[barrier.getParties()];
-      for (int i = 0; i < barrier.getParties(); i++) {
-        final int tid = i;
-        counts[i] = new int[10];
-        threads[i] = new Thread("thread-" + tid) {
-          @Override
-          public void run() {
-            try {
-              barrier.await();
-            } catch (Exception ignored) {
-              return;
-            }
-            for (int i = 0; i < counts[tid].length; i++) {
-              counts[tid][i] = genMs(1000);
-            }
-          }
-        };
-        threads[i].start();
-      }
-      for (Thread thread : threads) {
-        thread.join();
-      }
-      for (int i = 0; i < counts.length; i++) {
-        System.out.println("{thread-" + i + "}\nNumber of generated sequence per ms: " + toStat(counts[i]) + "\n" + Arrays.toString(counts[i]));
-      }
+  // what the measured loops compute ends up here, so that the JIT cannot drop the generation as dead code
+  private static final LongAdder SINK = new LongAdder();
+
+  public static void main(String[] args) throws Exception {
+    int durationMs = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+    int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : 2 * Runtime.getRuntime().availableProcessors();
+    int stripes = args.length > 2 ? Integer.parseInt(args[2]) : Math.min(1024, Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1)));
+
+    List<Integer> threadCounts = new ArrayList<>();
+    for (int threads = 1; threads < maxThreads; threads <<= 1) {
+      threadCounts.add(threads);
     }
-  }
+    threadCounts.add(maxThreads);
 
-  private static Stat toStat(int[] counts) {
-    Arrays.sort(counts);
-    int mean = 0;
-    for (long count : counts) {
-      mean += count;
+    System.out.println("Sequences per microsecond, " + durationMs + "ms per measure, " + stripes + " stripes");
+    System.out.println(String.format(Locale.ROOT, "%8s %12s %12s %12s %12s", "threads", "shared", "shared/buf", "striped", "striped/buf"));
+    for (int threads : threadCounts) {
+      System.out.println(String.format(Locale.ROOT, "%8d %12.2f %12.2f %12.2f %12.2f",
+          threads,
+          measure(1, false, threads, durationMs),
+          measure(1, true, threads, durationMs),
+          measure(stripes, false, threads, durationMs),
+          measure(stripes, true, threads, durationMs)));
     }
-    return new Stat(counts[0], counts[counts.length - 1], mean / counts.length);
-  }
 
-  private static int genMs(int durationMs) {
-    int n = 0;
-    long time = System.currentTimeMillis();
-    while (generator.next().getTimestamp() - time < durationMs) {
-      n++;
+    BoundaryFlakeSequenceGenerator generator = new BoundaryFlakeSequenceGenerator(TimeSource.BEST, NodeIdSource.BEST);
+    long[] buffer = new long[3];
+    long n = 0;
+    long chars = 0;
+    long end = System.nanoTime() + durationMs * 1_000_000L;
+    while (System.nanoTime() < end) {
+      for (int i = 0; i < 1000; i++, n++) {
+        generator.next(buffer, 0);
+        chars += BoundaryFlakeSequence.toHexString(buffer[0], buffer[1], buffer[2]).length();
+      }
     }
-    return n / durationMs;
+    System.out.println(String.format(Locale.ROOT, "Hex encoded sequences per microsecond: %.2f (%d chars)", n * 1000.0 / (durationMs * 1_000_000L), chars));
+    System.out.println("(sink: " + SINK.sum() + ")");
   }
 
-  static class Stat {
-    final int mean;
-    final int min;
-    final int max;
-
-    Stat(int min, int max, int mean) {
-      this.min = min;
-      this.max = max;
-      this.mean = mean;
+  /**
+   * @return the number of sequences generated per microsecond by all the threads together, after a warm-up
+   */
+  private static double measure(int stripes, final boolean buffered, int threadCount, int durationMs) throws Exception {
+    final BoundaryFlakeSequenceGenerator generator = new BoundaryFlakeSequenceGenerator(TimeSource.BEST, NodeIdSource.BEST, stripes);
+    final CyclicBarrier barrier = new CyclicBarrier(threadCount + 1);
+    final AtomicBoolean measuring = new AtomicBoolean();
+    final AtomicBoolean stop = new AtomicBoolean();
+    final LongAdder count = new LongAdder();
+    Thread[] threads = new Thread[threadCount];
+    for (int i = 0; i < threadCount; i++) {
+      threads[i] = new Thread("thread-" + i) {
+        @Override
+        public void run() {
+          long[] buffer = new long[3];
+          long blackhole = 0;
+          try {
+            barrier.await();
+          } catch (Exception ignored) {
+            return;
+          }
+          while (!stop.get()) {
+            boolean measured = measuring.get();
+            for (int i = 0; i < 1000; i++) {
+              if (buffered) {
+                generator.next(buffer, 0);
+                blackhole += buffer[2];
+              } else {
+                blackhole += generator.next().getSequenceId();
+              }
+            }
+            if (measured && measuring.get()) {
+              count.add(1000);
+            }
+          }
+          SINK.add(blackhole);
+        }
+      };
+      threads[i].setDaemon(true);
+      threads[i].start();
     }
-
-    @Override
-    public String toString() {
-      return "min=" + mean + ", max=" + max + ", mean=" + mean;
+    barrier.await();
+    Thread.sleep(WARMUP_MS);
+    measuring.set(true);
+    long start = System.nanoTime();
+    Thread.sleep(durationMs);
+    measuring.set(false);
+    long elapsed = System.nanoTime() - start;
+    stop.set(true);
+    for (Thread thread : threads) {
+      thread.join();
     }
+    return count.sum() * 1000.0 / elapsed;
   }
+
 }
@@ -25,14 +25,19 @@ import java.net.URL;
 import java.net.URLClassLoader;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CyclicBarrier;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static java.lang.Long.toHexString;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
 import static org.terracotta.management.sequence.Defaults.readMacAddress;
 import static org.terracotta.management.sequence.Defaults.readPID;
 
@@ -75,6 +80,97 @@ public class BoundaryFlakeSequenceGeneratorTest {
     assertEquals(sequence, BoundaryFlakeSequence.fromHexString(sequence.toHexString()));
   }
 
+  @Test
+  public void test_generation_in_buffer() {
+    final long now = System.currentTimeMillis();
+    BoundaryFlakeSequenceGenerator generator = new BoundaryFlakeSequenceGenerator(new TimeSource.Fixed(now), NodeIdSource.MAC_PID);
+    long[] buffer = new long[4];
+
+    generator.next(buffer, 1);
+    Sequence sequence = generator.next();
+
+    assertEquals(0, buffer[0]);
+    assertEquals(now, buffer[1]);
+    assertEquals(generator.getNodeId(), buffer[2]);
+    assertEquals(generator.getInstanceId(), buffer[3]);
+    assertEquals(generator.getInstanceId() | 1, sequence.getSequenceId());
+    assertEquals(new BoundaryFlakeSequence(buffer[1], buffer[2], buffer[3]).toHexString(), BoundaryFlakeSequence.toHexString(buffer[1], buffer[2], buffer[3]));
+    assertEquals(sequence, BoundaryFlakeSequence.fromHexString(sequence.toHexString()));
+    assertEquals(sequence, BoundaryFlakeSequence.fromHexString(sequence.toHexString().toUpperCase()));
+  }
+
+  @Test
+  public void test_striped_generation() {
+    final AtomicLong now = new AtomicLong(1000);
+    BoundaryFlakeSequenceGenerator generator = new BoundaryFlakeSequenceGenerator(new TimeSource() {
+      @Override
+      public long getTimestamp() {
+        return now.get();
+      }
+    }, NodeIdSource.MAC_PID, 4);
+    long stripe = Thread.currentThread().getId() & 3;
+    long first = stripe << 16;
+
+    Sequence sequence1 = generator.next();
+    Sequence sequence2 = generator.next();
+    now.set(900); // clock going back
+    Sequence sequence3 = generator.next();
+    now.set(1001);
+    Sequence sequence4 = generator.next();
+
+    assertEquals(1000, sequence1.getTimestamp());
+    assertEquals(generator.getInstanceId() | first, sequence1.getSequenceId());
+    assertEquals(generator.getInstanceId() | (first + 1), sequence2.getSequenceId());
+    assertEquals(1000, sequence3.getTimestamp());
+    assertEquals(generator.getInstanceId() | (first + 2), sequence3.getSequenceId());
+    assertEquals(1001, sequence4.getTimestamp());
+    assertEquals(generator.getInstanceId() | first, sequence4.getSequenceId());
+  }
+
+  @Test
+  public void test_striped_generation_is_unique_and_ordered_per_thread() throws InterruptedException {
+    final BoundaryFlakeSequenceGenerator generator = new BoundaryFlakeSequenceGenerator(TimeSource.SYSTEM, NodeIdSource.MAC_PID, 4);
+    final Collection<Sequence> bag = new ConcurrentSkipListSet<Sequence>();
+    final List<String> errors = new CopyOnWriteArrayList<String>();
+    Thread[] threads = new Thread[8];
+    for (int i = 0; i < threads.length; i++) {
+      threads[i] = new Thread("thread-" + i) {
+        @Override
+        public void run() {
+          Sequence previous = generator.next();
+          bag.add(previous);
+          for (int i = 0; i < 20000; i++) {
+            Sequence sequence = generator.next();
+            if (sequence.getTimestamp() < previous.getTimestamp()
+                || sequence.getTimestamp() == previous.getTimestamp() && sequence.getSequenceId() <= previous.getSequenceId()) {
+              errors.add(previous + " => " + sequence);
+            }
+            bag.add(sequence);
+            previous = sequence;
+          }
+        }
+      };
+      threads[i].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertEquals(Collections.<String>emptyList(), errors);
+    assertEquals(threads.length * 20001, bag.size());
+  }
+
+  @Test
+  public void test_bad_stripes() {
+    for (int stripes : new int[]{0, 3, 2048}) {
+      try {
+        new BoundaryFlakeSequenceGenerator(TimeSource.SYSTEM, NodeIdSource.MAC_PID, stripes);
+        throw new AssertionError(stripes);
+      } catch (IllegalArgumentException e) {
+        assertTrue(e.getMessage().contains("" + stripes));
+      }
+    }
+  }
+
   private static String pad(int length, char character, String string) {
     char[] padding = new char[length - string.length()];
     Arrays.fill(padding, character);
@@ -34,7 +34,16 @@ public class ClientProxyFactory {
                                                                             EntityClientEndpoint<ProxyEntityMessage, ProxyEntityResponse> entityClientEndpoint,
                                                                             Class<?>[] messageTypes,
                                                                             Codec codec) {
-    return createProxy(clientType, type, entityClientEndpoint, messageTypes, codec);
+    return createProxy(clientType, type, entityClientEndpoint, messageTypes, codec, null);
+  }
+
+  public static <T extends Entity & ServerMessageAware> T createEntityProxy(Class<T> clientType,
+                                                                            Class<? super T> type,
+                                                                            EntityClientEndpoint<ProxyEntityMessage, ProxyEntityResponse> entityClientEndpoint,
+                                                                            Class<?>[] messageTypes,
+                                                                            Codec codec,
+                                                                            MessageDispatcher dispatcher) {
+    return createProxy(clientType, type, entityClientEndpoint, messageTypes, codec, dispatcher);
   }
 
   public static <T> T createProxy(Class<T> clientType,
@@ -42,6 +51,18 @@ public class ClientProxyFactory {
                                   EntityClientEndpoint<ProxyEntityMessage, ProxyEntityResponse> entityClientEndpoint,
                                   Class<?>[] messageTypes,
                                   Codec codec) {
+    return createProxy(clientType, type, entityClientEndpoint, messageTypes, codec, null);
+  }
+
+  /**
+   * @param dispatcher the dispatcher of the server messages to the listeners, or null to use a dedicated thread for this proxy
+   */
+  public static <T> T createProxy(Class<T> clientType,
+                                  Class<? super T> type,
+                                  EntityClientEndpoint<ProxyEntityMessage, ProxyEntityResponse> entityClientEndpoint,
+                                  Class<?>[] messageTypes,
+                                  Codec codec,
+                                  MessageDispatcher dispatcher) {
 
     if (entityClientEndpoint == null) {
       throw new NullPointerException("EntityClientEndpoint has to be provided!");
@@ -63,7 +84,8 @@ public class ClientProxyFactory {
         new VoltronProxyInvocationHandler(
             entityClientEndpoint,
             CommonProxyFactory.invert(CommonProxyFactory.createResponseTypeMappings(type, messageTypes)).values(),
-            codec)
+            codec,
+            dispatcher)
     ));
   }
 
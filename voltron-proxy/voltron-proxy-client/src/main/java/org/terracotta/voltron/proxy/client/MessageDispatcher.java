@@ -0,0 +1,319 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.voltron.proxy.client;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Dispatches the server messages received by entity proxies to their {@link org.terracotta.voltron.proxy.MessageListener}s
+ * on a thread pool which can be shared by many proxies, instead of using one thread per proxy.
+ * <p>
+ * Messages of the same event type received by a proxy are dispatched in order, one at a time. Messages of different
+ * event types or proxies can be dispatched concurrently.
+ * <p>
+ * The number of messages waiting to be dispatched is bounded by a capacity: when reached, the {@link OverflowPolicy}
+ * decides whether the receiving thread blocks (backpressure to the server) or the message is dropped.
+ * <p>
+ * The receiving thread is the thread delivering all the messages from the server, including the responses awaited by
+ * the listeners: if it blocked until there is room, a listener waiting for a response would never make room, and the
+ * client would deadlock. So it blocks at most for a timeout, after which the message is dropped as with
+ * {@link OverflowPolicy#DROP}. A dispatching thread itself never blocks.
+ * <p>
+ * A dispatcher is set on a {@link ProxyEntityClientService} and must be closed by its owner once all the proxies
+ * using it are closed.
+ */
+public class MessageDispatcher implements Closeable {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(MessageDispatcher.class);
+
+  // number of messages a lane dispatches before yielding its thread to other lanes
+  private static final int DRAIN_BATCH_SIZE = 64;
+
+  public static final long DEFAULT_BLOCK_TIMEOUT_MILLIS = 5_000L;
+
+  // the dispatcher owning the current thread, if any
+  private static final ThreadLocal<MessageDispatcher> DISPATCHING = new ThreadLocal<>();
+
+  public enum OverflowPolicy {
+    /**
+     * The thread receiving the message waits until there is room, up to the block timeout of the dispatcher. The
+     * message is dropped and counted if there is still no room then.
+     */
+    BLOCK,
+    /**
+     * The message is dropped and counted
+     */
+    DROP
+  }
+
+  private final ExecutorService executor;
+  private final int capacity;
+  private final Semaphore permits;
+  private final OverflowPolicy overflowPolicy;
+  private final long blockTimeoutNanos;
+  private final AtomicLong dispatched = new AtomicLong();
+  private final AtomicLong dropped = new AtomicLong();
+
+  /**
+   * @param name           the prefix of the dispatching thread names
+   * @param threads        the number of dispatching threads
+   * @param capacity       the maximum number of messages waiting to be dispatched
+   * @param overflowPolicy what to do with a message received when the capacity is reached
+   */
+  public MessageDispatcher(String name, int threads, int capacity, OverflowPolicy overflowPolicy) {
+    this(name, threads, capacity, overflowPolicy, DEFAULT_BLOCK_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * @param name           the prefix of the dispatching thread names
+   * @param threads        the number of dispatching threads
+   * @param capacity       the maximum number of messages waiting to be dispatched
+   * @param overflowPolicy what to do with a message received when the capacity is reached
+   * @param blockTimeout   how long the {@link OverflowPolicy#BLOCK} policy waits for room before dropping a message
+   * @param unit           the unit of the block timeout
+   */
+  public MessageDispatcher(String name, int threads, int capacity, OverflowPolicy overflowPolicy, long blockTimeout, TimeUnit unit) {
+    if (threads <= 0) {
+      throw new IllegalArgumentException("Bad thread count: " + threads);
+    }
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Bad capacity: " + capacity);
+    }
+    if (blockTimeout < 0) {
+      throw new IllegalArgumentException("Bad block timeout: " + blockTimeout);
+    }
+    AtomicInteger threadCount = new AtomicInteger();
+    this.executor = Executors.newFixedThreadPool(threads, r -> {
+      Thread thread = new Thread(() -> {
+        DISPATCHING.set(this);
+        r.run();
+      }, name + "-" + threadCount.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.capacity = capacity;
+    this.permits = new Semaphore(capacity);
+    this.overflowPolicy = overflowPolicy;
+    this.blockTimeoutNanos = unit.toNanos(blockTimeout);
+  }
+
+  /**
+   * @return the number of messages waiting to be dispatched
+   */
+  public int getQueueDepth() {
+    return capacity - permits.availablePermits();
+  }
+
+  public int getCapacity() {
+    return capacity;
+  }
+
+  public OverflowPolicy getOverflowPolicy() {
+    return overflowPolicy;
+  }
+
+  public long getBlockTimeout(TimeUnit unit) {
+    return unit.convert(blockTimeoutNanos, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * @return the number of messages handed over to listeners
+   */
+  public long getDispatchedCount() {
+    return dispatched.get();
+  }
+
+  /**
+   * @return the number of messages dropped because the capacity was reached, or stayed reached for the block timeout
+   */
+  public long getDroppedCount() {
+    return dropped.get();
+  }
+
+  @Override
+  public void close() {
+    executor.shutdown();
+  }
+
+  /**
+   * @param bounded true if the tasks of this lane are subject to the capacity
+   * @return a new executor running its tasks in order on this dispatcher threads
+   */
+  Lane newLane(boolean bounded) {
+    return new Lane(bounded);
+  }
+
+  @Override
+  public String toString() {
+    return "MessageDispatcher{" +
+        "queueDepth=" + getQueueDepth() +
+        ", capacity=" + capacity +
+        ", overflowPolicy=" + overflowPolicy +
+        ", dispatched=" + dispatched +
+        ", dropped=" + dropped +
+        '}';
+  }
+
+  private boolean acquire() {
+    switch (overflowPolicy) {
+      case DROP:
+        return permits.tryAcquire();
+      case BLOCK:
+        if (DISPATCHING.get() == this) {
+          // waiting would keep this thread from making room
+          return permits.tryAcquire();
+        }
+        try {
+          return permits.tryAcquire(blockTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return false;
+        }
+      default:
+        throw new AssertionError(overflowPolicy);
+    }
+  }
+
+  /**
+   * A serial executor multiplexed on the dispatcher threads
+   */
+  final class Lane implements Executor {
+
+    private final boolean bounded;
+
+    // guarded by this
+    private final Queue<Runnable> tasks = new ArrayDeque<>();
+    private boolean running;
+    private boolean closed;
+
+    private Lane(boolean bounded) {
+      this.bounded = bounded;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+      if (isClosed()) {
+        throw new RejectedExecutionException("Closed");
+      }
+      if (bounded && !acquire()) {
+        long count = dropped.incrementAndGet();
+        if (overflowPolicy == OverflowPolicy.BLOCK) {
+          LOGGER.warn("Dropped server message after waiting {}ms for room: {} messages dropped so far", TimeUnit.NANOSECONDS.toMillis(blockTimeoutNanos), count);
+        } else {
+          LOGGER.debug("Dropped server message: {} messages dropped so far", count);
+        }
+        return;
+      }
+      boolean submit;
+      synchronized (this) {
+        if (closed) {
+          release(1);
+          throw new RejectedExecutionException("Closed");
+        }
+        tasks.add(task);
+        submit = !running;
+        running = true;
+      }
+      if (submit) {
+        submit();
+      }
+    }
+
+    /**
+     * Rejects new tasks. Already queued tasks are dispatched unless discardPending is true.
+     */
+    void close(boolean discardPending) {
+      int discarded = 0;
+      synchronized (this) {
+        closed = true;
+        if (discardPending) {
+          discarded = tasks.size();
+          tasks.clear();
+        }
+      }
+      release(discarded);
+    }
+
+    private synchronized boolean isClosed() {
+      return closed;
+    }
+
+    private void submit() {
+      try {
+        executor.execute(this::drain);
+      } catch (RejectedExecutionException e) {
+        // dispatcher closed: nothing will run the pending tasks anymore
+        int discarded;
+        synchronized (this) {
+          discarded = tasks.size();
+          tasks.clear();
+          running = false;
+        }
+        release(discarded);
+        throw e;
+      }
+    }
+
+    private void drain() {
+      for (int i = 0; i < DRAIN_BATCH_SIZE; i++) {
+        Runnable task;
+        synchronized (this) {
+          task = tasks.poll();
+          if (task == null) {
+            running = false;
+            return;
+          }
+        }
+        try {
+          task.run();
+        } catch (RuntimeException e) {
+          LOGGER.warn("Error dispatching server message: {}", e.getMessage(), e);
+        } finally {
+          if (bounded) {
+            permits.release();
+            dispatched.incrementAndGet();
+          }
+        }
+      }
+      // let other lanes run
+      try {
+        submit();
+      } catch (RejectedExecutionException ignored) {
+        // dispatcher closed
+      }
+    }
+
+    private void release(int n) {
+      if (bounded && n > 0) {
+        permits.release(n);
+      }
+    }
+  }
+
+}
@@ -32,6 +32,7 @@ public abstract class ProxyEntityClientService<T extends Entity & ServerMessageA
   private final Class<C> configType;
   private final Class<?>[] messageTypes;
   private final ProxyMessageCodec messageCodec;
+  private volatile MessageDispatcher messageDispatcher;
 
   @SuppressFBWarnings("EI_EXPOSE_REP2")
   public ProxyEntityClientService(Class<T> clientType, Class<? super T> type, Class<C> configType, Class<?>[] messageTypes) {
@@ -49,7 +50,7 @@ public abstract class ProxyEntityClientService<T extends Entity & ServerMessageA
 
   @Override
   public T create(EntityClientEndpoint<ProxyEntityMessage, ProxyEntityResponse> endpoint, Object userData) {
-    return ClientProxyFactory.createEntityProxy(clientType, type, endpoint, messageTypes, messageCodec.getCodec());
+    return ClientProxyFactory.createEntityProxy(clientType, type, endpoint, messageTypes, messageCodec.getCodec(), messageDispatcher);
   }
 
   @Override
@@ -76,4 +77,12 @@ public abstract class ProxyEntityClientService<T extends Entity & ServerMessageA
   protected void setCodec(Codec codec) {
     messageCodec.setCodec(codec);
   }
+
+  /**
+   * Sets the dispatcher shared by the entities created afterwards to deliver server messages to their listeners.
+   * By default (null), each entity has its own dispatching thread.
+   */
+  protected void setMessageDispatcher(MessageDispatcher messageDispatcher) {
+    this.messageDispatcher = messageDispatcher;
+  }
 }
@@ -34,6 +34,9 @@ import org.terracotta.voltron.proxy.ProxyEntityResponse;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
@@ -68,15 +71,35 @@ class VoltronProxyInvocationHandler implements InvocationHandler {
   }
 
   private final EntityClientEndpoint<ProxyEntityMessage, ProxyEntityResponse> entityClientEndpoint;
-  private final ExecutorService handler;
   private final ConcurrentMap<Class<?>, CopyOnWriteArrayList<MessageListener<?>>> listeners;
 
+  // without a dispatcher: a dedicated thread handles all messages and invoke callbacks
+  private final ExecutorService handler;
+  // with a dispatcher: shared threads, with ordering per event type
+  private final MessageDispatcher.Lane invokeLane;
+  private final Map<Class<?>, MessageDispatcher.Lane> eventLanes;
+
   private volatile EndpointListener endpointListener;
 
   VoltronProxyInvocationHandler(final EntityClientEndpoint<ProxyEntityMessage, ProxyEntityResponse> entityClientEndpoint, Collection<Class<?>> events, final Codec codec) {
+    this(entityClientEndpoint, events, codec, null);
+  }
+
+  VoltronProxyInvocationHandler(final EntityClientEndpoint<ProxyEntityMessage, ProxyEntityResponse> entityClientEndpoint, Collection<Class<?>> events, final Codec codec, MessageDispatcher dispatcher) {
     this.entityClientEndpoint = entityClientEndpoint;
-    handler = Executors.newSingleThreadExecutor(r -> new Thread(r, "Message Handler for " + entityClientEndpoint));
     this.listeners = new ConcurrentHashMap<>();
+    if (dispatcher == null) {
+      this.handler = Executors.newSingleThreadExecutor(r -> new Thread(r, "Message Handler for " + entityClientEndpoint));
+      this.invokeLane = null;
+      this.eventLanes = Collections.emptyMap();
+    } else {
+      this.handler = null;
+      this.invokeLane = dispatcher.newLane(false);
+      this.eventLanes = new HashMap<>();
+      for (Class<?> aClass : events) {
+        eventLanes.put(aClass, dispatcher.newLane(true));
+      }
+    }
     if (events.size() > 0) {
       for (Class<?> aClass : events) {
         listeners.put(aClass, new CopyOnWriteArrayList<>());
@@ -84,20 +107,10 @@ class VoltronProxyInvocationHandler implements InvocationHandler {
 
       entityClientEndpoint.setDelegate(new EndpointDelegate<ProxyEntityResponse>() {
 
-        @SuppressWarnings({"unchecked", "rawtypes"})
         @Override
         public void handleMessage(ProxyEntityResponse response) {
           try {
-            handler.execute(() -> {
-              final Class<?> aClass = response.getResponseType();
-              try {
-                for (MessageListener messageListener : listeners.get(aClass)) {
-                  messageListener.onMessage(response.getResponse());
-                }
-              } catch (Exception e) {
-                LOGGER.warn("Error handling incoming server message {}: {}", aClass, e.getMessage(), e);
-              }
-            });
+            dispatch(response);
           } catch (RejectedExecutionException e) {
             // do nothing: this is normal in case the executor is closed
             // and we can forget the message because the caller wants to close anyway
@@ -122,9 +135,65 @@ class VoltronProxyInvocationHandler implements InvocationHandler {
           if (endpointListener != null) {
             endpointListener.onDisconnectUnexpectedly();
           }
-          handler.shutdownNow();
+          shutdown(true);
+        }
+      });
+    }
+  }
+
+  private void dispatch(ProxyEntityResponse response) {
+    if (handler != null) {
+      handler.execute(() -> {
+        if (response.getMessageType() == MessageType.BATCH) {
+          for (ProxyEntityResponse message : (ProxyEntityResponse[]) response.getResponse()) {
+            fireMessage(message);
+          }
+        } else {
+          fireMessage(response);
         }
       });
+    } else if (response.getMessageType() == MessageType.BATCH) {
+      for (ProxyEntityResponse message : (ProxyEntityResponse[]) response.getResponse()) {
+        dispatchToLane(message);
+      }
+    } else {
+      dispatchToLane(response);
+    }
+  }
+
+  private void dispatchToLane(ProxyEntityResponse response) {
+    MessageDispatcher.Lane lane = eventLanes.get(response.getResponseType());
+    if (lane == null) {
+      LOGGER.warn("Unsupported incoming server message {}", response.getResponseType());
+    } else {
+      lane.execute(() -> fireMessage(response));
+    }
+  }
+
+  private void shutdown(boolean discardPending) {
+    if (handler != null) {
+      if (discardPending) {
+        handler.shutdownNow();
+      } else {
+        handler.shutdown();
+      }
+    } else {
+      invokeLane.close(discardPending);
+      for (MessageDispatcher.Lane lane : eventLanes.values()) {
+        lane.close(discardPending);
+      }
+    }
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private void fireMessage(ProxyEntityResponse response) {
+    final Class<?> aClass = response.getResponseType();
+    try {
+      for (MessageListener messageListener : listeners.get(aClass)) {
+        messageListener.onMessage(response.getResponse());
+      }
+    } catch (Exception e) {
+      LOGGER.warn("Error handling incoming server message {}: {}", aClass, e.getMessage(), e);
     }
   }
 
@@ -132,7 +201,7 @@ class VoltronProxyInvocationHandler implements InvocationHandler {
   public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
 
     if (close.equals(method)) {
-      handler.shutdown();
+      shutdown(false);
       entityClientEndpoint.close();
       return null;
 
@@ -154,7 +223,7 @@ class VoltronProxyInvocationHandler implements InvocationHandler {
     final MethodDescriptor methodDescriptor = MethodDescriptor.of(method);
 
     final InvocationBuilder<ProxyEntityMessage, ProxyEntityResponse> builder = entityClientEndpoint.beginInvoke()
-        .message(new ProxyEntityMessage(methodDescriptor, args, MessageType.MESSAGE)).withExecutor(handler);
+        .message(new ProxyEntityMessage(methodDescriptor, args, MessageType.MESSAGE)).withExecutor(handler != null ? handler : invokeLane);
 
     if (methodDescriptor.isAsync()) {
       switch (methodDescriptor.getAck()) {
@@ -0,0 +1,145 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.voltron.proxy.client;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class MessageDispatcherTest {
+
+  @Test
+  public void testOrderingPerLane() throws Exception {
+    try (MessageDispatcher dispatcher = new MessageDispatcher("test", 4, 1000, MessageDispatcher.OverflowPolicy.BLOCK)) {
+      MessageDispatcher.Lane lane1 = dispatcher.newLane(true);
+      MessageDispatcher.Lane lane2 = dispatcher.newLane(true);
+      List<Integer> received1 = new CopyOnWriteArrayList<>();
+      List<Integer> received2 = new CopyOnWriteArrayList<>();
+      CountDownLatch done = new CountDownLatch(1000);
+
+      for (int i = 0; i < 500; i++) {
+        int n = i;
+        lane1.execute(() -> {
+          received1.add(n);
+          done.countDown();
+        });
+        lane2.execute(() -> {
+          received2.add(n);
+          done.countDown();
+        });
+      }
+
+      assertTrue(done.await(10, TimeUnit.SECONDS));
+      for (int i = 0; i < 500; i++) {
+        assertThat(received1.get(i), is(i));
+        assertThat(received2.get(i), is(i));
+      }
+      assertThat(dispatcher.getDispatchedCount(), is(1000L));
+      assertThat(dispatcher.getQueueDepth(), is(0));
+    }
+  }
+
+  @Test
+  public void testDropWhenFull() throws Exception {
+    try (MessageDispatcher dispatcher = new MessageDispatcher("test", 1, 2, MessageDispatcher.OverflowPolicy.DROP)) {
+      MessageDispatcher.Lane lane = dispatcher.newLane(true);
+      CountDownLatch blocked = new CountDownLatch(1);
+      CountDownLatch release = new CountDownLatch(1);
+
+      lane.execute(() -> {
+        blocked.countDown();
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      });
+      assertTrue(blocked.await(10, TimeUnit.SECONDS));
+      lane.execute(() -> {});
+      assertThat(dispatcher.getQueueDepth(), is(2));
+
+      lane.execute(() -> fail("should have been dropped"));
+      assertThat(dispatcher.getDroppedCount(), is(1L));
+
+      release.countDown();
+    }
+  }
+
+  @Test
+  public void testBlockDropsAfterTimeout() throws Exception {
+    try (MessageDispatcher dispatcher = new MessageDispatcher("test", 1, 1, MessageDispatcher.OverflowPolicy.BLOCK, 100, TimeUnit.MILLISECONDS)) {
+      MessageDispatcher.Lane lane = dispatcher.newLane(true);
+      CountDownLatch blocked = new CountDownLatch(1);
+      CountDownLatch release = new CountDownLatch(1);
+
+      lane.execute(() -> {
+        blocked.countDown();
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      });
+      assertTrue(blocked.await(10, TimeUnit.SECONDS));
+
+      long start = System.nanoTime();
+      lane.execute(() -> fail("should have been dropped"));
+      assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(100));
+      assertThat(dispatcher.getDroppedCount(), is(1L));
+
+      release.countDown();
+    }
+  }
+
+  @Test
+  public void testBlockNeverWaitsOnDispatchingThread() throws Exception {
+    try (MessageDispatcher dispatcher = new MessageDispatcher("test", 1, 1, MessageDispatcher.OverflowPolicy.BLOCK, 1, TimeUnit.HOURS)) {
+      MessageDispatcher.Lane lane = dispatcher.newLane(true);
+      CountDownLatch done = new CountDownLatch(1);
+
+      lane.execute(() -> {
+        lane.execute(() -> fail("should have been dropped"));
+        done.countDown();
+      });
+
+      assertTrue(done.await(10, TimeUnit.SECONDS));
+      assertThat(dispatcher.getDroppedCount(), is(1L));
+    }
+  }
+
+  @Test
+  public void testClosedLane() {
+    try (MessageDispatcher dispatcher = new MessageDispatcher("test", 1, 10, MessageDispatcher.OverflowPolicy.BLOCK)) {
+      MessageDispatcher.Lane lane = dispatcher.newLane(true);
+      lane.close(true);
+      try {
+        lane.execute(() -> {});
+        fail();
+      } catch (RejectedExecutionException expected) {
+      }
+      assertThat(dispatcher.getQueueDepth(), is(0));
+    }
+  }
+}
@@ -0,0 +1,475 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.voltron.proxy;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A {@link Codec} writing compact, type-directed binary encodings instead of Java-serializing the whole argument array.
+ * <p>
+ * Values declared with a primitive type (i.e. from {@link MethodDescriptor#getParameterTypes()}) are written raw.
+ * Other values are prefixed by a one-byte tag and support:
+ * <ul>
+ * <li>null, boxed primitives and strings</li>
+ * <li>primitive arrays and string arrays</li>
+ * <li>enums, when the declared type is the enum type</li>
+ * <li>types registered with {@link #registerStruct(int, Class, StructCodec)}</li>
+ * </ul>
+ * Any other value falls back to Java serialization through a {@link SerializationCodec}.
+ * <p>
+ * Both the client and the server side must use a codec with the same struct registrations.
+ * This codec can be installed with {@code setCodec()} on the client and server entity services.
+ */
+public class BinaryCodec implements Codec {
+
+  private static final byte NULL = 0;
+  private static final byte BOOLEAN = 1;
+  private static final byte BYTE = 2;
+  private static final byte SHORT = 3;
+  private static final byte CHAR = 4;
+  private static final byte INT = 5;
+  private static final byte LONG = 6;
+  private static final byte FLOAT = 7;
+  private static final byte DOUBLE = 8;
+  private static final byte STRING = 9;
+  private static final byte ENUM = 10;
+  private static final byte BOOLEAN_ARRAY = 11;
+  private static final byte BYTE_ARRAY = 12;
+  private static final byte SHORT_ARRAY = 13;
+  private static final byte CHAR_ARRAY = 14;
+  private static final byte INT_ARRAY = 15;
+  private static final byte LONG_ARRAY = 16;
+  private static final byte FLOAT_ARRAY = 17;
+  private static final byte DOUBLE_ARRAY = 18;
+  private static final byte STRING_ARRAY = 19;
+  private static final byte STRUCT = 20;
+  private static final byte SERIALIZED = 127;
+
+  private final Map<Class<?>, Struct<?>> structsByType = new ConcurrentHashMap<>();
+  private final Map<Integer, Struct<?>> structsById = new ConcurrentHashMap<>();
+  private final SerializationCodec fallback;
+
+  public BinaryCodec() {
+    this(new SerializationCodec());
+  }
+
+  /**
+   * @param fallback the codec used for values of unknown types
+   */
+  public BinaryCodec(SerializationCodec fallback) {
+    this.fallback = Objects.requireNonNull(fallback);
+  }
+
+  /**
+   * Registers a type encoded field by field instead of being serialized.
+   * Only values of this exact type are encoded with this struct codec (not subclasses).
+   *
+   * @param id    the identifier written on the wire for this type, which must be the same on both sides
+   * @param type  the type to register
+   * @param codec the codec of the type fields
+   * @return this codec
+   */
+  public <T> BinaryCodec registerStruct(int id, Class<T> type, StructCodec<T> codec) {
+    if (id < 0) {
+      throw new IllegalArgumentException("Bad id: " + id);
+    }
+    Struct<T> struct = new Struct<>(id, Objects.requireNonNull(codec));
+    if (structsById.putIfAbsent(id, struct) != null) {
+      throw new IllegalArgumentException("Id " + id + " already registered");
+    }
+    if (structsByType.putIfAbsent(type, struct) != null) {
+      structsById.remove(id);
+      throw new IllegalArgumentException("Type " + type.getName() + " already registered");
+    }
+    return this;
+  }
+
+  @Override
+  public byte[] encode(Class<?> type, Object value) {
+    return encode(0, type, value);
+  }
+
+  @Override
+  public byte[] encode(int headerSize, Class<?> type, Object value) {
+    if (type == Void.TYPE || type == Void.class) {
+      return new byte[headerSize];
+    }
+    BinaryOutput output = new BinaryOutput();
+    output.skip(headerSize);
+    write(output, type, value);
+    return output.toByteArray();
+  }
+
+  @Override
+  public byte[] encode(Class<?>[] types, Object[] values) {
+    return encode(0, types, values);
+  }
+
+  @Override
+  public byte[] encode(int headerSize, Class<?>[] types, Object[] values) {
+    if (values == null) {
+      values = new Object[0];
+    }
+    if (types.length != values.length) {
+      throw new IllegalArgumentException();
+    }
+    BinaryOutput output = new BinaryOutput();
+    output.skip(headerSize);
+    for (int i = 0; i < types.length; i++) {
+      write(output, types[i], values[i]);
+    }
+    return output.toByteArray();
+  }
+
+  @Override
+  public <T> T decode(Class<T> type, byte[] buffer) {
+    return decode(type, buffer, 0, buffer.length);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public <T> T decode(Class<T> type, byte[] buffer, int offset, int len) {
+    if (len == 0 || type == Void.TYPE || type == Void.class) {
+      return null;
+    }
+    Object o = read(new BinaryInput(buffer, offset, len), type);
+    return type.isPrimitive() ? (T) o : type.cast(o);
+  }
+
+  @Override
+  public Object[] decode(Class<?>[] types, byte[] buffer) {
+    return decode(types, buffer, 0, buffer.length);
+  }
+
+  @Override
+  public Object[] decode(Class<?>[] types, byte[] buffer, int offset, int len) {
+    BinaryInput input = new BinaryInput(buffer, offset, len);
+    Object[] values = new Object[types.length];
+    for (int i = 0; i < types.length; i++) {
+      Object o = read(input, types[i]);
+      values[i] = types[i].isPrimitive() ? o : types[i].cast(o);
+    }
+    return values;
+  }
+
+  void write(BinaryOutput output, Class<?> type, Object value) {
+    try {
+      if (type.isPrimitive()) {
+        writePrimitive(output, type, value);
+      } else {
+        writeTagged(output, type, value);
+      }
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  Object read(BinaryInput input, Class<?> type) {
+    try {
+      return type.isPrimitive() ? readPrimitive(input, type) : readTagged(input, type);
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private static void writePrimitive(BinaryOutput output, Class<?> type, Object value) {
+    if (value == null) {
+      throw new IllegalArgumentException("Null value for primitive type " + type);
+    }
+    if (type == Integer.TYPE) {
+      output.writeInt((Integer) value);
+    } else if (type == Long.TYPE) {
+      output.writeLong((Long) value);
+    } else if (type == Boolean.TYPE) {
+      output.writeBoolean((Boolean) value);
+    } else if (type == Double.TYPE) {
+      output.writeDouble((Double) value);
+    } else if (type == Byte.TYPE) {
+      output.writeByte((Byte) value);
+    } else if (type == Short.TYPE) {
+      output.writeShort((Short) value);
+    } else if (type == Character.TYPE) {
+      output.writeChar((Character) value);
+    } else if (type == Float.TYPE) {
+      output.writeFloat((Float) value);
+    } else {
+      throw new IllegalArgumentException("Unsupported type: " + type);
+    }
+  }
+
+  private static Object readPrimitive(BinaryInput input, Class<?> type) throws IOException {
+    if (type == Integer.TYPE) {
+      return input.readInt();
+    } else if (type == Long.TYPE) {
+      return input.readLong();
+    } else if (type == Boolean.TYPE) {
+      return input.readBoolean();
+    } else if (type == Double.TYPE) {
+      return input.readDouble();
+    } else if (type == Byte.TYPE) {
+      return input.readByte();
+    } else if (type == Short.TYPE) {
+      return input.readShort();
+    } else if (type == Character.TYPE) {
+      return input.readChar();
+    } else if (type == Float.TYPE) {
+      return input.readFloat();
+    } else {
+      throw new IllegalArgumentException("Unsupported type: " + type);
+    }
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private void writeTagged(BinaryOutput output, Class<?> type, Object value) throws IOException {
+    if (value == null) {
+      output.writeByte(NULL);
+      return;
+    }
+    Class<?> valueType = value.getClass();
+    if (valueType == String.class) {
+      output.writeByte(STRING);
+      output.writeString((String) value);
+    } else if (valueType == Integer.class) {
+      output.writeByte(INT);
+      output.writeInt((Integer) value);
+    } else if (valueType == Long.class) {
+      output.writeByte(LONG);
+      output.writeLong((Long) value);
+    } else if (valueType == Boolean.class) {
+      output.writeByte(BOOLEAN);
+      output.writeBoolean((Boolean) value);
+    } else if (valueType == Double.class) {
+      output.writeByte(DOUBLE);
+      output.writeDouble((Double) value);
+    } else if (valueType == Byte.class) {
+      output.writeByte(BYTE);
+      output.writeByte((Byte) value);
+    } else if (valueType == Short.class) {
+      output.writeByte(SHORT);
+      output.writeShort((Short) value);
+    } else if (valueType == Character.class) {
+      output.writeByte(CHAR);
+      output.writeChar((Character) value);
+    } else if (valueType == Float.class) {
+      output.writeByte(FLOAT);
+      output.writeFloat((Float) value);
+    } else if (value instanceof Enum<?> && ((Enum<?>) value).getDeclaringClass() == type) {
+      output.writeByte(ENUM);
+      output.writeString(((Enum<?>) value).name());
+    } else if (valueType.isArray() && writeArray(output, valueType, value)) {
+      // written
+    } else {
+      Struct struct = structsByType.get(valueType);
+      if (struct != null) {
+        output.writeByte(STRUCT);
+        output.writeVarInt(struct.id);
+        struct.codec.encode(output, value);
+      } else {
+        byte[] serialized = fallback.encode(valueType, value);
+        output.writeByte(SERIALIZED);
+        output.writeVarInt(serialized.length);
+        output.write(serialized);
+      }
+    }
+  }
+
+  private static boolean writeArray(BinaryOutput output, Class<?> arrayType, Object value) {
+    if (arrayType == byte[].class) {
+      byte[] array = (byte[]) value;
+      output.writeByte(BYTE_ARRAY);
+      output.writeVarInt(array.length);
+      output.write(array);
+    } else if (arrayType == int[].class) {
+      int[] array = (int[]) value;
+      output.writeByte(INT_ARRAY);
+      output.writeVarInt(array.length);
+      for (int v : array) {
+        output.writeInt(v);
+      }
+    } else if (arrayType == long[].class) {
+      long[] array = (long[]) value;
+      output.writeByte(LONG_ARRAY);
+      output.writeVarInt(array.length);
+      for (long v : array) {
+        output.writeLong(v);
+      }
+    } else if (arrayType == String[].class) {
+      String[] array = (String[]) value;
+      output.writeByte(STRING_ARRAY);
+      output.writeVarInt(array.length);
+      for (String v : array) {
+        output.writeString(v);
+      }
+    } else if (arrayType == double[].class) {
+      double[] array = (double[]) value;
+      output.writeByte(DOUBLE_ARRAY);
+      output.writeVarInt(array.length);
+      for (double v : array) {
+        output.writeDouble(v);
+      }
+    } else if (arrayType == boolean[].class) {
+      boolean[] array = (boolean[]) value;
+      output.writeByte(BOOLEAN_ARRAY);
+      output.writeVarInt(array.length);
+      for (boolean v : array) {
+        output.writeBoolean(v);
+      }
+    } else if (arrayType == short[].class) {
+      short[] array = (short[]) value;
+      output.writeByte(SHORT_ARRAY);
+      output.writeVarInt(array.length);
+      for (short v : array) {
+        output.writeShort(v);
+      }
+    } else if (arrayType == char[].class) {
+      char[] array = (char[]) value;
+      output.writeByte(CHAR_ARRAY);
+      output.writeVarInt(array.length);
+      for (char v : array) {
+        output.writeChar(v);
+      }
+    } else if (arrayType == float[].class) {
+      float[] array = (float[]) value;
+      output.writeByte(FLOAT_ARRAY);
+      output.writeVarInt(array.length);
+      for (float v : array) {
+        output.writeFloat(v);
+      }
+    } else {
+      return false;
+    }
+    return true;
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private Object readTagged(BinaryInput input, Class<?> type) throws IOException {
+    byte tag = input.readByte();
+    switch (tag) {
+      case NULL:
+        return null;
+      case BOOLEAN:
+        return input.readBoolean();
+      case BYTE:
+        return input.readByte();
+      case SHORT:
+        return input.readShort();
+      case CHAR:
+        return input.readChar();
+      case INT:
+        return input.readInt();
+      case LONG:
+        return input.readLong();
+      case FLOAT:
+        return input.readFloat();
+      case DOUBLE:
+        return input.readDouble();
+      case STRING:
+        return input.readString();
+      case ENUM:
+        return Enum.valueOf((Class<Enum>) type, input.readString());
+      case BOOLEAN_ARRAY: {
+        boolean[] array = new boolean[input.readLength(1)];
+        for (int i = 0; i < array.length; i++) {
+          array[i] = input.readBoolean();
+        }
+        return array;
+      }
+      case BYTE_ARRAY: {
+        byte[] array = new byte[input.readLength(1)];
+        input.readFully(array);
+        return array;
+      }
+      case SHORT_ARRAY: {
+        short[] array = new short[input.readLength(2)];
+        for (int i = 0; i < array.length; i++) {
+          array[i] = input.readShort();
+        }
+        return array;
+      }
+      case CHAR_ARRAY: {
+        char[] array = new char[input.readLength(2)];
+        for (int i = 0; i < array.length; i++) {
+          array[i] = input.readChar();
+        }
+        return array;
+      }
+      case INT_ARRAY: {
+        int[] array = new int[input.readLength(4)];
+        for (int i = 0; i < array.length; i++) {
+          array[i] = input.readInt();
+        }
+        return array;
+      }
+      case LONG_ARRAY: {
+        long[] array = new long[input.readLength(8)];
+        for (int i = 0; i < array.length; i++) {
+          array[i] = input.readLong();
+        }
+        return array;
+      }
+      case FLOAT_ARRAY: {
+        float[] array = new float[input.readLength(4)];
+        for (int i = 0; i < array.length; i++) {
+          array[i] = input.readFloat();
+        }
+        return array;
+      }
+      case DOUBLE_ARRAY: {
+        double[] array = new double[input.readLength(8)];
+        for (int i = 0; i < array.length; i++) {
+          array[i] = input.readDouble();
+        }
+        return array;
+      }
+      case STRING_ARRAY: {
+        String[] array = new String[input.readLength(1)];
+        for (int i = 0; i < array.length; i++) {
+          array[i] = input.readString();
+        }
+        return array;
+      }
+      case STRUCT: {
+        int id = input.readVarInt();
+        Struct<?> struct = structsById.get(id);
+        if (struct == null) {
+          throw new IllegalStateException("No struct registered with id " + id);
+        }
+        return struct.codec.decode(input);
+      }
+      case SERIALIZED: {
+        int len = input.readVarInt();
+        int offset = input.advance(len);
+        return fallback.decode(Object.class, input.array(), offset, len);
+      }
+      default:
+        throw new IllegalStateException("Unknown tag " + tag + " while decoding " + type.getName());
+    }
+  }
+
+  private static final class Struct<T> {
+    private final int id;
+    private final StructCodec<T> codec;
+
+    private Struct(int id, StructCodec<T> codec) {
+      this.id = id;
+      this.codec = codec;
+    }
+  }
+
+}
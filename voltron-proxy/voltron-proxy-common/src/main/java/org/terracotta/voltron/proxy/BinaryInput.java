@@ -0,0 +1,238 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.voltron.proxy;
+
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.io.UTFDataFormatException;
+
+/**
+ * A {@link DataInput} (big-endian) reading from a region of a byte array without copying it, used by {@link BinaryCodec}.
+ */
+class BinaryInput implements DataInput {
+
+  private final byte[] buffer;
+  private final int limit;
+  private int position;
+
+  BinaryInput(byte[] buffer, int offset, int len) {
+    if (offset < 0 || len < 0 || offset + len > buffer.length) {
+      throw new IndexOutOfBoundsException("offset=" + offset + ", len=" + len + ", length=" + buffer.length);
+    }
+    this.buffer = buffer;
+    this.position = offset;
+    this.limit = offset + len;
+  }
+
+  int position() {
+    return position;
+  }
+
+  int remaining() {
+    return limit - position;
+  }
+
+  private void require(int n) throws EOFException {
+    if (n < 0 || limit - position < n) {
+      throw new EOFException("Required " + n + " bytes but only " + (limit - position) + " remaining");
+    }
+  }
+
+  int readVarInt() throws EOFException {
+    int value = 0;
+    for (int shift = 0; shift < 35; shift += 7) {
+      require(1);
+      byte b = buffer[position++];
+      value |= (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IllegalStateException("Malformed varint");
+  }
+
+  /**
+   * Reads the length of an array whose elements take at least {@code minElementSize} bytes each, checking that the
+   * remaining input can hold them before anything gets allocated for them.
+   */
+  int readLength(int minElementSize) throws IOException {
+    int len = readVarInt();
+    if (len < 0) {
+      throw new StreamCorruptedException("Negative length: " + len);
+    }
+    if ((long) len * minElementSize > limit - position) {
+      throw new EOFException("Length " + len + " exceeds the " + (limit - position) + " remaining bytes");
+    }
+    return len;
+  }
+
+  String readString() throws IOException {
+    int len = readVarInt() - 1;
+    if (len == -1) {
+      return null;
+    }
+    if (len < 0) {
+      throw new StreamCorruptedException("Negative string length: " + len);
+    }
+    require(len);
+    // modified utf-8 (see BinaryOutput.writeString()): a string has at most as many chars as encoded bytes
+    char[] chars = new char[len];
+    int count = 0;
+    int end = position + len;
+    while (position < end) {
+      int b = buffer[position] & 0xFF;
+      if (b < 0x80) {
+        chars[count++] = (char) b;
+        position++;
+      } else if ((b & 0xE0) == 0xC0) {
+        if (end - position < 2 || (buffer[position + 1] & 0xC0) != 0x80) {
+          throw new UTFDataFormatException("Malformed input around byte " + position);
+        }
+        chars[count++] = (char) (((b & 0x1F) << 6) | (buffer[position + 1] & 0x3F));
+        position += 2;
+      } else if ((b & 0xF0) == 0xE0) {
+        if (end - position < 3 || (buffer[position + 1] & 0xC0) != 0x80 || (buffer[position + 2] & 0xC0) != 0x80) {
+          throw new UTFDataFormatException("Malformed input around byte " + position);
+        }
+        chars[count++] = (char) (((b & 0x0F) << 12) | ((buffer[position + 1] & 0x3F) << 6) | (buffer[position + 2] & 0x3F));
+        position += 3;
+      } else {
+        throw new UTFDataFormatException("Malformed input around byte " + position);
+      }
+    }
+    return new String(chars, 0, count);
+  }
+
+  /**
+   * Skips {@code n} bytes, returning the position before the skip
+   */
+  int advance(int n) throws EOFException {
+    require(n);
+    int start = position;
+    position += n;
+    return start;
+  }
+
+  byte[] array() {
+    return buffer;
+  }
+
+  @Override
+  public void readFully(byte[] b) throws IOException {
+    readFully(b, 0, b.length);
+  }
+
+  @Override
+  public void readFully(byte[] b, int off, int len) throws IOException {
+    require(len);
+    System.arraycopy(buffer, position, b, off, len);
+    position += len;
+  }
+
+  @Override
+  public int skipBytes(int n) {
+    int skipped = Math.max(0, Math.min(n, limit - position));
+    position += skipped;
+    return skipped;
+  }
+
+  @Override
+  public boolean readBoolean() throws IOException {
+    return readByte() != 0;
+  }
+
+  @Override
+  public byte readByte() throws IOException {
+    require(1);
+    return buffer[position++];
+  }
+
+  @Override
+  public int readUnsignedByte() throws IOException {
+    return readByte() & 0xFF;
+  }
+
+  @Override
+  public short readShort() throws IOException {
+    require(2);
+    return (short) (((buffer[position++] & 0xFF) << 8) | (buffer[position++] & 0xFF));
+  }
+
+  @Override
+  public int readUnsignedShort() throws IOException {
+    return readShort() & 0xFFFF;
+  }
+
+  @Override
+  public char readChar() throws IOException {
+    return (char) readShort();
+  }
+
+  @Override
+  public int readInt() throws IOException {
+    require(4);
+    return ((buffer[position++] & 0xFF) << 24)
+        | ((buffer[position++] & 0xFF) << 16)
+        | ((buffer[position++] & 0xFF) << 8)
+        | (buffer[position++] & 0xFF);
+  }
+
+  @Override
+  public long readLong() throws IOException {
+    return ((long) readInt() << 32) | (readInt() & 0xFFFFFFFFL);
+  }
+
+  @Override
+  public float readFloat() throws IOException {
+    return Float.intBitsToFloat(readInt());
+  }
+
+  @Override
+  public double readDouble() throws IOException {
+    return Double.longBitsToDouble(readLong());
+  }
+
+  @Override
+  public String readLine() {
+    if (position >= limit) {
+      return null;
+    }
+    StringBuilder sb = new StringBuilder();
+    while (position < limit) {
+      char c = (char) (buffer[position++] & 0xFF);
+      if (c == '\n') {
+        break;
+      }
+      if (c == '\r') {
+        if (position < limit && buffer[position] == '\n') {
+          position++;
+        }
+        break;
+      }
+      sb.append(c);
+    }
+    return sb.toString();
+  }
+
+  @Override
+  public String readUTF() throws IOException {
+    return DataInputStream.readUTF(this);
+  }
+
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.voltron.proxy;
+
+import java.io.DataOutput;
+import java.io.UTFDataFormatException;
+import java.util.Arrays;
+
+/**
+ * A growable byte array implementing {@link DataOutput} (big-endian), used by {@link BinaryCodec}.
+ * <p>
+ * Unlike a {@code DataOutputStream} over a {@code ByteArrayOutputStream}, there is no stream synchronization
+ * and no intermediate copies: the backing array is only copied when it needs to grow, and once when calling {@link #toByteArray()}.
+ */
+class BinaryOutput implements DataOutput {
+
+  private byte[] buffer;
+  private int position;
+
+  BinaryOutput() {
+    this(64);
+  }
+
+  BinaryOutput(int initialCapacity) {
+    this.buffer = new byte[Math.max(initialCapacity, 16)];
+  }
+
+  int position() {
+    return position;
+  }
+
+  /**
+   * Leaves {@code n} zeroed bytes at the current position, i.e. for a header the caller fills in afterwards
+   */
+  void skip(int n) {
+    ensureCapacity(n);
+    position += n;
+  }
+
+  byte[] toByteArray() {
+    return Arrays.copyOf(buffer, position);
+  }
+
+  private void ensureCapacity(int extra) {
+    int required = position + extra;
+    if (required < 0) {
+      throw new OutOfMemoryError("Required array size too large");
+    }
+    if (required > buffer.length) {
+      buffer = Arrays.copyOf(buffer, Math.max(required, buffer.length << 1));
+    }
+  }
+
+  /**
+   * Writes an unsigned variable-length int (LEB128): 1 byte for values lower than 128
+   */
+  void writeVarInt(int value) {
+    ensureCapacity(5);
+    while ((value & ~0x7F) != 0) {
+      buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    buffer[position++] = (byte) value;
+  }
+
+  /**
+   * Writes a nullable string as a varint (encoded length + 1, 0 for null) followed by its modified utf-8 bytes, as
+   * {@link #writeUTF(String)} but without its 65535 bytes limit. Unlike standard utf-8, any string, including one
+   * holding lone surrogates, is read back unchanged.
+   */
+  void writeString(String s) {
+    if (s == null) {
+      writeVarInt(0);
+    } else {
+      long utfLength = modifiedUtfLength(s);
+      if (utfLength >= Integer.MAX_VALUE) {
+        throw new OutOfMemoryError("Required array size too large");
+      }
+      writeVarInt((int) utfLength + 1);
+      writeModifiedUtf(s, (int) utfLength);
+    }
+  }
+
+  private static long modifiedUtfLength(String s) {
+    long utfLength = 0;
+    for (int i = 0, len = s.length(); i < len; i++) {
+      char c = s.charAt(i);
+      utfLength += c >= 0x0001 && c <= 0x007F ? 1 : c > 0x07FF ? 3 : 2;
+    }
+    return utfLength;
+  }
+
+  private void writeModifiedUtf(String s, int utfLength) {
+    ensureCapacity(utfLength);
+    for (int i = 0, len = s.length(); i < len; i++) {
+      char c = s.charAt(i);
+      if (c >= 0x0001 && c <= 0x007F) {
+        buffer[position++] = (byte) c;
+      } else if (c > 0x07FF) {
+        buffer[position++] = (byte) (0xE0 | ((c >> 12) & 0x0F));
+        buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+        buffer[position++] = (byte) (0x80 | (c & 0x3F));
+      } else {
+        buffer[position++] = (byte) (0xC0 | ((c >> 6) & 0x1F));
+        buffer[position++] = (byte) (0x80 | (c & 0x3F));
+      }
+    }
+  }
+
+  @Override
+  public void write(int b) {
+    ensureCapacity(1);
+    buffer[position++] = (byte) b;
+  }
+
+  @Override
+  public void write(byte[] b) {
+    write(b, 0, b.length);
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) {
+    ensureCapacity(len);
+    System.arraycopy(b, off, buffer, position, len);
+    position += len;
+  }
+
+  @Override
+  public void writeBoolean(boolean v) {
+    write(v ? 1 : 0);
+  }
+
+  @Override
+  public void writeByte(int v) {
+    write(v);
+  }
+
+  @Override
+  public void writeShort(int v) {
+    ensureCapacity(2);
+    buffer[position++] = (byte) (v >>> 8);
+    buffer[position++] = (byte) v;
+  }
+
+  @Override
+  public void writeChar(int v) {
+    writeShort(v);
+  }
+
+  @Override
+  public void writeInt(int v) {
+    ensureCapacity(4);
+    buffer[position++] = (byte) (v >>> 24);
+    buffer[position++] = (byte) (v >>> 16);
+    buffer[position++] = (byte) (v >>> 8);
+    buffer[position++] = (byte) v;
+  }
+
+  @Override
+  public void writeLong(long v) {
+    writeInt((int) (v >>> 32));
+    writeInt((int) v);
+  }
+
+  @Override
+  public void writeFloat(float v) {
+    writeInt(Float.floatToIntBits(v));
+  }
+
+  @Override
+  public void writeDouble(double v) {
+    writeLong(Double.doubleToLongBits(v));
+  }
+
+  @Override
+  public void writeBytes(String s) {
+    int len = s.length();
+    ensureCapacity(len);
+    for (int i = 0; i < len; i++) {
+      buffer[position++] = (byte) s.charAt(i);
+    }
+  }
+
+  @Override
+  public void writeChars(String s) {
+    for (int i = 0, len = s.length(); i < len; i++) {
+      writeChar(s.charAt(i));
+    }
+  }
+
+  /**
+   * Same format as {@link java.io.DataOutputStream#writeUTF(String)} (modified utf-8)
+   */
+  @Override
+  public void writeUTF(String s) throws UTFDataFormatException {
+    long utfLength = modifiedUtfLength(s);
+    if (utfLength > 65535) {
+      throw new UTFDataFormatException("encoded string too long: " + utfLength + " bytes");
+    }
+    writeShort((int) utfLength);
+    writeModifiedUtf(s, (int) utfLength);
+  }
+
+}
@@ -37,4 +37,28 @@ public interface Codec {
   Object[] decode(Class<?>[] types, byte[] buffer);
 
   Object[] decode(Class<?>[] types, byte[] buffer, int offset, int len);
+
+  /**
+   * Encodes the value in a new array, leaving the first {@code headerSize} bytes free for the caller's framing.
+   * <p>
+   * The default implementation copies the result of {@link #encode(Class, Object)}: codecs should override it to write in place.
+   */
+  default byte[] encode(int headerSize, Class<?> type, Object value) {
+    byte[] encoded = encode(type, value);
+    byte[] framed = new byte[headerSize + encoded.length];
+    System.arraycopy(encoded, 0, framed, headerSize, encoded.length);
+    return framed;
+  }
+
+  /**
+   * Encodes the values in a new array, leaving the first {@code headerSize} bytes free for the caller's framing.
+   * <p>
+   * The default implementation copies the result of {@link #encode(Class[], Object[])}: codecs should override it to write in place.
+   */
+  default byte[] encode(int headerSize, Class<?>[] types, Object[] values) {
+    byte[] encoded = encode(types, values);
+    byte[] framed = new byte[headerSize + encoded.length];
+    System.arraycopy(encoded, 0, framed, headerSize, encoded.length);
+    return framed;
+  }
 }
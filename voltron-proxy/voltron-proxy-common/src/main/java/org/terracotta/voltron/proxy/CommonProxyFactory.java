@@ -25,6 +25,7 @@ import java.util.TreeSet;
 
 import static java.util.Arrays.asList;
 import static java.util.Collections.unmodifiableMap;
+import static java.util.Collections.unmodifiableSortedSet;
 
 /**
  * @author Alex Snaps
@@ -86,6 +87,18 @@ public class CommonProxyFactory {
     return unmodifiableMap(map);
   }
 
+  /**
+   * @return all the concurrency keys that the calls to the methods of this type can be assigned to by their
+   * {@link ConcurrencyKey} argument
+   */
+  public static SortedSet<Integer> createArgumentConcurrencyKeys(Class<?> proxyType) {
+    SortedSet<Integer> keys = new TreeSet<Integer>();
+    for (MethodDescriptor m : getSortedMethods(proxyType)) {
+      keys.addAll(m.getArgumentConcurrencyKeys());
+    }
+    return unmodifiableSortedSet(keys);
+  }
+
   private static SortedSet<MethodDescriptor> getSortedMethods(final Class<?> type) {
     SortedSet<MethodDescriptor> methods = new TreeSet<MethodDescriptor>(METHOD_COMPARATOR);
 
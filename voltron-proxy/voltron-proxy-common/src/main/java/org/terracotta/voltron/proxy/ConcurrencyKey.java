@@ -0,0 +1,42 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.voltron.proxy;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Designates the method argument used to compute the concurrency key of a call, so that the calls of a proxied entity
+ * can be spread over several server threads (i.e. by cache name).
+ * <p>
+ * The key is {@code 1 + (hash(argument) mod buckets)}, so it is always within {@code [1, buckets]}, where the hash of
+ * an enum is the hash of its name and the hash of null is 0. The argument type must have a hash code that is stable
+ * across JVMs (i.e. String, numbers, enums).
+ * <p>
+ * Methods accessing the same state must use the same number of buckets. This annotation cannot be combined with
+ * {@link ConcurrencyStrategy} or {@link ClientId}.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.PARAMETER)
+public @interface ConcurrencyKey {
+
+  int buckets() default DEFAULT_BUCKETS;
+
+  int DEFAULT_BUCKETS = 16;
+
+}
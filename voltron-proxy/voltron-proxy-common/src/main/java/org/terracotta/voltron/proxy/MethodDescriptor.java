@@ -15,6 +15,8 @@
  */
 package org.terracotta.voltron.proxy;
 
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Array;
 import java.lang.reflect.GenericArrayType;
@@ -24,6 +26,11 @@ import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.lang.reflect.TypeVariable;
 import java.lang.reflect.WildcardType;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 
@@ -32,15 +39,33 @@ import java.util.concurrent.Future;
  */
 public final class MethodDescriptor {
 
+  // descriptors are cached per declaring type, so that they can be collected with their class loader
+  private static final ClassValue<ConcurrentMap<Method, MethodDescriptor>> DESCRIPTORS = new ClassValue<ConcurrentMap<Method, MethodDescriptor>>() {
+    @Override
+    protected ConcurrentMap<Method, MethodDescriptor> computeValue(Class<?> type) {
+      return new ConcurrentHashMap<>();
+    }
+  };
+
   private final boolean async;
   private final Class<?> messageType;
   private final Method method;
   private final Async.Ack ack;
   private final ExecutionStrategy.Location location;
   private final int concurrencyKey;
-  
+  private final int concurrencyKeyParameter;
+  private final int concurrencyKeyBuckets;
+  private final Class<?>[] parameterTypes;
+  private final Annotation[][] parameterAnnotations;
+  private final int[] clientIdParameters;
+  private final MethodInvoker invoker;
+
   private MethodDescriptor(Method method) {
     this.method = method;
+    this.parameterTypes = method.getParameterTypes();
+    this.parameterAnnotations = method.getParameterAnnotations();
+    this.clientIdParameters = findClientIdParameters(parameterAnnotations);
+    this.invoker = MethodInvokerFactory.createInvoker(method);
 
     // @Async
     Async asyncAnnot = method.getAnnotation(Async.class);
@@ -67,12 +92,70 @@ public final class MethodDescriptor {
     // @ConcurrencyStrategy
     ConcurrencyStrategy concurrencyStrategy = method.getAnnotation(ConcurrencyStrategy.class);
     concurrencyKey = concurrencyStrategy == null ? ConcurrencyStrategy.MANAGEMENT_KEY : concurrencyStrategy.key();
+
+    // @ConcurrencyKey
+    int keyParameter = -1;
+    int keyBuckets = 0;
+    for (int i = 0; i < parameterAnnotations.length; i++) {
+      for (Annotation parameterAnnotation : parameterAnnotations[i]) {
+        if (parameterAnnotation.annotationType() == ConcurrencyKey.class) {
+          if (keyParameter != -1) {
+            throw new IllegalStateException("@ConcurrencyKey can only be used on one parameter of method: " + method);
+          }
+          keyParameter = i;
+          keyBuckets = ((ConcurrencyKey) parameterAnnotation).buckets();
+        }
+      }
+    }
+    if (keyParameter != -1) {
+      if (concurrencyStrategy != null) {
+        throw new IllegalStateException("@ConcurrencyKey cannot be used with @ConcurrencyStrategy on method: " + method);
+      }
+      if (keyBuckets <= 0) {
+        throw new IllegalStateException("@ConcurrencyKey requires a positive number of buckets on method: " + method);
+      }
+      for (int clientIdParameter : clientIdParameters) {
+        if (clientIdParameter == keyParameter) {
+          throw new IllegalStateException("@ConcurrencyKey cannot be used on a @ClientId parameter on method: " + method);
+        }
+      }
+    }
+    concurrencyKeyParameter = keyParameter;
+    concurrencyKeyBuckets = keyBuckets;
   }
 
+  /**
+   * @return the concurrency key declared with {@link ConcurrencyStrategy}
+   */
   public int getConcurrencyKey() {
     return concurrencyKey;
   }
 
+  /**
+   * @return the concurrency key of a call to this method: the one derived from the argument annotated with
+   * {@link ConcurrencyKey} if any, otherwise the one declared with {@link ConcurrencyStrategy}
+   */
+  public int getConcurrencyKey(Object[] args) {
+    if (concurrencyKeyParameter == -1) {
+      return concurrencyKey;
+    }
+    Object arg = args[concurrencyKeyParameter];
+    int hash = arg == null ? 0 : arg instanceof Enum<?> ? ((Enum<?>) arg).name().hashCode() : arg.hashCode();
+    return 1 + Math.floorMod(hash, concurrencyKeyBuckets);
+  }
+
+  /**
+   * @return the concurrency keys that calls to this method can be assigned to when using {@link ConcurrencyKey},
+   * or an empty set if the key is fixed
+   */
+  public Set<Integer> getArgumentConcurrencyKeys() {
+    Set<Integer> keys = new TreeSet<>();
+    for (int key = 1; key <= concurrencyKeyBuckets; key++) {
+      keys.add(key);
+    }
+    return keys;
+  }
+
   public ExecutionStrategy.Location getExecutionLocation() {
     return location;
   }
@@ -89,8 +172,13 @@ public final class MethodDescriptor {
     return messageType;
   }
 
+  /**
+   * @return the descriptor of this method, which is only created once per method
+   */
   public static MethodDescriptor of(Method method) {
-    return new MethodDescriptor(method);
+    ConcurrentMap<Method, MethodDescriptor> descriptors = DESCRIPTORS.get(method.getDeclaringClass());
+    MethodDescriptor descriptor = descriptors.get(method);
+    return descriptor != null ? descriptor : descriptors.computeIfAbsent(method, MethodDescriptor::new);
   }
 
   public String toGenericString() {
@@ -115,16 +203,32 @@ public final class MethodDescriptor {
     return method.hashCode();
   }
 
+  /**
+   * @return the parameter types of this method. The returned array is shared and must not be modified.
+   */
+  @SuppressFBWarnings("EI_EXPOSE_REP")
   public Class<?>[] getParameterTypes() {
-    return method.getParameterTypes();
+    return parameterTypes;
   }
 
+  /**
+   * @return the parameter annotations of this method. The returned array is shared and must not be modified.
+   */
+  @SuppressFBWarnings("EI_EXPOSE_REP")
   public Annotation[][] getParameterAnnotations() {
-    return method.getParameterAnnotations();
+    return parameterAnnotations;
+  }
+
+  /**
+   * @return the indexes of the parameters annotated with {@link ClientId}. The returned array is shared and must not be modified.
+   */
+  @SuppressFBWarnings("EI_EXPOSE_REP")
+  public int[] getClientIdParameters() {
+    return clientIdParameters;
   }
 
   public Object invoke(Object target, Object... args) throws IllegalAccessException, IllegalArgumentException, InvocationTargetException {
-    Object ret = method.invoke(target, args);
+    Object ret = invoker.invoke(target, args);
     if (async) {
       try {
         ret = ((Future<?>) ret).get();
@@ -142,6 +246,20 @@ public final class MethodDescriptor {
     return method;
   }
 
+  private static int[] findClientIdParameters(Annotation[][] parameterAnnotations) {
+    int[] indexes = new int[parameterAnnotations.length];
+    int count = 0;
+    for (int i = 0; i < parameterAnnotations.length; i++) {
+      for (Annotation parameterAnnotation : parameterAnnotations[i]) {
+        if (parameterAnnotation.annotationType() == ClientId.class) {
+          indexes[count++] = i;
+          break;
+        }
+      }
+    }
+    return Arrays.copyOf(indexes, count);
+  }
+
   private static Class<?> determineRawType(Type type) {
     if (type instanceof Class<?>) {
       return (Class<?>) type;
@@ -0,0 +1,38 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.voltron.proxy;
+
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * Dispatches a call to a proxied method on a target.
+ * <p>
+ * Has the same contract as {@link java.lang.reflect.Method#invoke(Object, Object...)}: any exception thrown by the
+ * invoked method is wrapped into an {@link InvocationTargetException}.
+ * <p>
+ * Instances are created once per method by {@link MethodInvokerFactory} and cached in their {@link MethodDescriptor}.
+ */
+@FunctionalInterface
+public interface MethodInvoker {
+
+  /**
+   * @param target the object to invoke the method on
+   * @param args   the method arguments, can be null if the method has no parameter
+   * @return the method return value, or null for void methods
+   */
+  Object invoke(Object target, Object[] args) throws IllegalAccessException, InvocationTargetException;
+
+}
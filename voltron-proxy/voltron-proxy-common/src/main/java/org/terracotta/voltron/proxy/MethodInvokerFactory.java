@@ -0,0 +1,84 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.voltron.proxy;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * Builds {@link MethodInvoker}s backed by a {@link MethodHandle} adapted to the generic {@code (Object, Object[])Object}
+ * shape, so that a call does not pay the access checks and argument validation of {@link Method#invoke(Object, Object...)}.
+ * <p>
+ * As with {@link Method#invoke(Object, Object...)}, only the exceptions thrown by the method are wrapped into an
+ * {@link InvocationTargetException}: a target or arguments that do not match the method give an
+ * {@link IllegalArgumentException}, and a null target of an instance method a {@link NullPointerException}.
+ * <p>
+ * If the method cannot be unreflected (i.e. its declaring type is not accessible from here), the factory falls back
+ * to a reflective invoker, which keeps the previous behavior.
+ */
+public class MethodInvokerFactory {
+
+  private static final MethodType GENERIC_TYPE = MethodType.methodType(Object.class, Object.class, Object[].class);
+  private static final MethodHandle TARGET_EXCEPTION;
+
+  static {
+    try {
+      TARGET_EXCEPTION = MethodHandles.lookup().findStatic(MethodInvokerFactory.class, "targetException", MethodType.methodType(Object.class, Throwable.class));
+    } catch (NoSuchMethodException | IllegalAccessException e) {
+      throw new AssertionError(e);
+    }
+  }
+
+  public static MethodInvoker createInvoker(Method method) {
+    final MethodHandle handle;
+    try {
+      MethodHandle direct = MethodHandles.lookup().unreflect(method);
+      // Wrap what the method throws before adapting the arguments, so that adaptation failures are not mistaken for it
+      MethodHandle wrapped = MethodHandles.catchException(direct, Throwable.class,
+          TARGET_EXCEPTION.asType(MethodType.methodType(direct.type().returnType(), Throwable.class)));
+      handle = wrapped
+          .asSpreader(Object[].class, method.getParameterCount())
+          .asType(GENERIC_TYPE);
+    } catch (IllegalAccessException e) {
+      return method::invoke;
+    }
+    boolean instanceMethod = !Modifier.isStatic(method.getModifiers());
+    return (target, args) -> {
+      if (instanceMethod && target == null) {
+        throw new NullPointerException("Null target for instance method " + method);
+      }
+      try {
+        return (Object) handle.invokeExact(target, args);
+      } catch (InvocationTargetException | Error e) {
+        throw e;
+      } catch (RuntimeException e) {
+        // The target or the arguments could not be adapted to the method type
+        throw new IllegalArgumentException("Cannot invoke " + method + ": " + e, e);
+      } catch (Throwable t) {
+        throw new AssertionError(t);
+      }
+    };
+  }
+
+  private static Object targetException(Throwable t) throws InvocationTargetException {
+    throw new InvocationTargetException(t);
+  }
+
+}
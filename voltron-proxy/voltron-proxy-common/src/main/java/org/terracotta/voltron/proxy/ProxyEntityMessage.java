@@ -18,7 +18,6 @@ package org.terracotta.voltron.proxy;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import org.terracotta.entity.EntityMessage;
 
-import java.lang.annotation.Annotation;
 import java.lang.reflect.InvocationTargetException;
 
 /**
@@ -49,14 +48,8 @@ public class ProxyEntityMessage implements EntityMessage {
 
   public Object invoke(final Object target, final Object clientDescriptor) throws InvocationTargetException, IllegalAccessException {
     if (clientDescriptor != null) {
-      final Annotation[][] allAnnotations = method.getParameterAnnotations();
-      for (int i = 0; i < allAnnotations.length; i++) {
-        for (Annotation parameterAnnotation : allAnnotations[i]) {
-          if (parameterAnnotation.annotationType() == ClientId.class) {
-            args[i] = clientDescriptor;
-            break;
-          }
-        }
+      for (int i : method.getClientIdParameters()) {
+        args[i] = clientDescriptor;
       }
     }
 
@@ -72,7 +65,7 @@ public class ProxyEntityMessage implements EntityMessage {
   }
 
   public int getConcurrencyKey() {
-    return method.getConcurrencyKey();
+    return method.getConcurrencyKey(args);
   }
 
   public ExecutionStrategy.Location getExecutionLocation() {
@@ -19,6 +19,8 @@ import com.tc.classloader.CommonComponent;
 import org.terracotta.entity.EntityResponse;
 import org.terracotta.entity.EntityUserException;
 
+import java.util.List;
+
 /**
  * @author cdennis
  */
@@ -45,6 +47,13 @@ public final class ProxyEntityResponse implements EntityResponse {
     return response(MessageType.ERROR, EntityUserException.class, error);
   }
 
+  /**
+   * A response grouping several server-initiated messages, to be handled in order
+   */
+  public static ProxyEntityResponse batchResponse(List<ProxyEntityResponse> responses) {
+    return response(MessageType.BATCH, ProxyEntityResponse[].class, responses.toArray(new ProxyEntityResponse[0]));
+  }
+
   private final MessageType messageType;
   private final Class<?> responseType;
   private final Object response;
@@ -19,22 +19,34 @@ import org.terracotta.entity.MessageCodec;
 import org.terracotta.entity.MessageCodecException;
 import org.terracotta.entity.EntityUserException;
 
-import java.io.ByteArrayOutputStream;
-import java.io.DataOutputStream;
-import java.lang.annotation.Annotation;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.EnumMap;
+import java.util.List;
 import java.util.Map;
+import java.util.WeakHashMap;
 
 /**
  * @author cdennis
  */
 public class ProxyMessageCodec implements MessageCodec<ProxyEntityMessage, ProxyEntityResponse> {
 
+  /**
+   * Every frame starts with the message type ordinal and the method (or response type) identifier.
+   * The {@link Codec} encodes the payload right after this header, in the same array, and decodes it in place.
+   */
+  private static final int HEADER_SIZE = 2;
+
   private final EnumMap<MessageType, Map<Byte, MethodDescriptor>> methodMappings = new EnumMap<MessageType, Map<Byte, MethodDescriptor>>(MessageType.class);
   private final EnumMap<MessageType, Map<MethodDescriptor, Byte>> reverseMethodMappings = new EnumMap<MessageType, Map<MethodDescriptor, Byte>>(MessageType.class);
   private final EnumMap<MessageType, Map<Class<?>, Byte>> responseMappings = new EnumMap<MessageType, Map<Class<?>, Byte>>(MessageType.class);
   private final EnumMap<MessageType, Map<Byte, Class<?>>> reverseResponseMappings = new EnumMap<MessageType, Map<Byte, Class<?>>>(MessageType.class);
 
+  // the encoded form of the responses, kept so that a response sent to several clients is only encoded once.
+  // ProxyEntityResponse does not override equals() and hashCode(), so responses are looked up by identity.
+  private final Map<ProxyEntityResponse, byte[]> encodedResponses = Collections.synchronizedMap(new WeakHashMap<ProxyEntityResponse, byte[]>());
+
   private Codec codec = new SerializationCodec();
 
   public ProxyMessageCodec(Class<?> proxyType) {
@@ -80,18 +92,46 @@ public class ProxyMessageCodec implements MessageCodec<ProxyEntityMessage, Proxy
     if (r == null) {
       return new byte[0];
     }
+    byte[] encoded = encodedResponses.get(r);
+    if (encoded != null) {
+      return encoded;
+    }
     MessageType messageType = r.getMessageType();
-    ByteArrayOutputStream byteOut = new ByteArrayOutputStream();
-    DataOutputStream output = new DataOutputStream(byteOut);
     try {
-      output.writeByte(messageType.ordinal());
-      output.writeByte(messageType == MessageType.ERROR ? 0 : getMessageTypeIdentifier(r));
-      output.write(codec.encode(r.getResponseType(), r.getResponse()));
-      output.close();
+      if (messageType == MessageType.BATCH) {
+        encoded = encodeBatch((ProxyEntityResponse[]) r.getResponse());
+      } else {
+        byte messageTypeIdentifier = messageType == MessageType.ERROR ? 0 : getMessageTypeIdentifier(r);
+        encoded = codec.encode(HEADER_SIZE, r.getResponseType(), r.getResponse());
+        encoded[0] = (byte) messageType.ordinal();
+        encoded[1] = messageTypeIdentifier;
+      }
     } catch (Exception e) {
       throw new MessageCodecException("Error encoding ProxyEntityResponse", e);
     }
-    return byteOut.toByteArray();
+    encodedResponses.put(r, encoded);
+    return encoded;
+  }
+
+  /**
+   * A batch is a list of sized encoded responses
+   */
+  private byte[] encodeBatch(ProxyEntityResponse[] responses) throws MessageCodecException {
+    byte[][] encodedResponses = new byte[responses.length][];
+    int size = HEADER_SIZE + 4;
+    for (int i = 0; i < responses.length; i++) {
+      encodedResponses[i] = encodeResponse(responses[i]);
+      size += 4 + encodedResponses[i].length;
+    }
+    ByteBuffer output = ByteBuffer.allocate(size);
+    output.put((byte) MessageType.BATCH.ordinal());
+    output.put((byte) 0);
+    output.putInt(responses.length);
+    for (byte[] bytes : encodedResponses) {
+      output.putInt(bytes.length);
+      output.put(bytes);
+    }
+    return output.array();
   }
 
   @Override
@@ -100,15 +140,29 @@ public class ProxyMessageCodec implements MessageCodec<ProxyEntityMessage, Proxy
       return null;
     }
     try {
-      MessageType messageType = MessageType.values()[buffer[0]];
-      Class<?> responseType = messageType == MessageType.ERROR ? EntityUserException.class : getResponseType(messageType, buffer[1]);
-      Object o = codec.decode(responseType, buffer, 2, buffer.length - 2);
-      return ProxyEntityResponse.response(messageType, responseType, o);
+      return decodeResponse(buffer, 0, buffer.length);
     } catch (Exception e) {
       throw new MessageCodecException("Error decoding ProxyEntityResponse", e);
     }
   }
 
+  private ProxyEntityResponse decodeResponse(byte[] buffer, int offset, int len) {
+    MessageType messageType = MessageType.values()[buffer[offset]];
+    if (messageType == MessageType.BATCH) {
+      ByteBuffer input = ByteBuffer.wrap(buffer, offset + HEADER_SIZE, len - HEADER_SIZE);
+      List<ProxyEntityResponse> responses = new ArrayList<>(input.getInt());
+      while (input.hasRemaining()) {
+        int size = input.getInt();
+        responses.add(decodeResponse(buffer, input.position(), size));
+        input.position(input.position() + size);
+      }
+      return ProxyEntityResponse.batchResponse(responses);
+    }
+    Class<?> responseType = messageType == MessageType.ERROR ? EntityUserException.class : getResponseType(messageType, buffer[offset + 1]);
+    Object o = codec.decode(responseType, buffer, offset + HEADER_SIZE, len - HEADER_SIZE);
+    return ProxyEntityResponse.response(messageType, responseType, o);
+  }
+
   @Override
   public byte[] encodeMessage(ProxyEntityMessage message) throws MessageCodecException {
     try {
@@ -117,25 +171,14 @@ public class ProxyMessageCodec implements MessageCodec<ProxyEntityMessage, Proxy
       Byte methodIdentifier = getMethodIdentifier(message);
 
       Object[] args = message.getArguments();
-      final Annotation[][] parameterAnnotations = method.getParameterAnnotations();
-      for (int i = 0, parameterAnnotationsLength = parameterAnnotations.length; i < parameterAnnotationsLength; i++) {
-        final Annotation[] parameterAnnotation = parameterAnnotations[i];
-        for (Annotation annotation : parameterAnnotation) {
-          if (annotation.annotationType() == ClientId.class) {
-            args[i] = null;
-          }
-        }
+      for (int i : method.getClientIdParameters()) {
+        args[i] = null;
       }
 
-      ByteArrayOutputStream byteOut = new ByteArrayOutputStream();
-      DataOutputStream output = new DataOutputStream(byteOut);
-
-      output.writeByte(messageType.ordinal()); // first, message type
-      output.writeByte(methodIdentifier); // then method mapping
-      output.write(codec.encode(method.getParameterTypes(), args));
-
-      output.close();
-      return byteOut.toByteArray();
+      byte[] encoded = codec.encode(HEADER_SIZE, method.getParameterTypes(), args);
+      encoded[0] = (byte) messageType.ordinal(); // first, message type
+      encoded[1] = methodIdentifier; // then method mapping
+      return encoded;
     } catch (Exception ex) {
       throw new MessageCodecException("Error encoding ProxyEntityMessage", ex);
     }
@@ -146,7 +189,7 @@ public class ProxyMessageCodec implements MessageCodec<ProxyEntityMessage, Proxy
     try {
       MessageType messageType = MessageType.values()[buffer[0]];
       MethodDescriptor method = getMethod(messageType, buffer[1]);
-      return new ProxyEntityMessage(method, codec.decode(method.getParameterTypes(), buffer, 2, buffer.length - 2), messageType);
+      return new ProxyEntityMessage(method, codec.decode(method.getParameterTypes(), buffer, HEADER_SIZE, buffer.length - HEADER_SIZE), messageType);
     } catch (Exception ex) {
       throw new MessageCodecException("Error decoding ProxyEntityMessage", ex);
     }
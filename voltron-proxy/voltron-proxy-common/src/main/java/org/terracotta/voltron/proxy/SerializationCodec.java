@@ -25,6 +25,7 @@ import java.io.InvalidClassException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.ObjectStreamClass;
+import java.util.Arrays;
 import java.util.Objects;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -50,7 +51,12 @@ public class SerializationCodec implements Codec {
 
   @Override
   public byte[] encode(final Class<?> type, final Object value) {
-    return serialize(value);
+    return serialize(0, value);
+  }
+
+  @Override
+  public byte[] encode(int headerSize, Class<?> type, Object value) {
+    return serialize(headerSize, value);
   }
 
   @Override
@@ -66,13 +72,18 @@ public class SerializationCodec implements Codec {
 
   @Override
   public byte[] encode(Class<?>[] types, Object[] values) {
+    return encode(0, types, values);
+  }
+
+  @Override
+  public byte[] encode(int headerSize, Class<?>[] types, Object[] values) {
     if (values == null) {
       values = new Object[0];
     }
     if (types.length != values.length) {
       throw new IllegalArgumentException();
     }
-    return serialize(values);
+    return serialize(headerSize, values);
   }
 
   @Override
@@ -89,8 +100,8 @@ public class SerializationCodec implements Codec {
     return oo;
   }
 
-  private byte[] serialize(Object value) {
-    ByteArrayOutputStream bout = new ByteArrayOutputStream();
+  private byte[] serialize(int headerSize, Object value) {
+    FramingOutputStream bout = new FramingOutputStream(headerSize);
     try {
       ObjectOutputStream oout = new ObjectOutputStream(bout);
       oout.writeObject(value);
@@ -103,7 +114,7 @@ public class SerializationCodec implements Codec {
         throw new AssertionError(e);
       }
     }
-    return bout.toByteArray();
+    return bout.toFrame();
   }
 
   private Object deserialize(byte[] buffer, int offset, int len) {
@@ -163,4 +174,19 @@ public class SerializationCodec implements Codec {
       return substitution;
     }
   }
+
+  /**
+   * Starts writing after {@code headerSize} zeroed bytes, and hands out its backing array when it is exactly full
+   */
+  private static final class FramingOutputStream extends ByteArrayOutputStream {
+
+    FramingOutputStream(int headerSize) {
+      super(headerSize + 256);
+      this.count = headerSize;
+    }
+
+    byte[] toFrame() {
+      return count == buf.length ? buf : Arrays.copyOf(buf, count);
+    }
+  }
 }
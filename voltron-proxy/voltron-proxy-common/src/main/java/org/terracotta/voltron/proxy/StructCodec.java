@@ -0,0 +1,34 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.voltron.proxy;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Encodes and decodes the fields of a type registered in a {@link BinaryCodec} with
+ * {@link BinaryCodec#registerStruct(int, Class, StructCodec)}.
+ * <p>
+ * The value given to {@link #encode(DataOutput, Object)} is never null.
+ */
+public interface StructCodec<T> {
+
+  void encode(DataOutput output, T value) throws IOException;
+
+  T decode(DataInput input) throws IOException;
+
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.voltron.proxy;
+
+import org.junit.Test;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.io.UTFDataFormatException;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Collections.singletonList;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BinaryCodecTest {
+
+  private final BinaryCodec codec = new BinaryCodec().registerStruct(1, Point.class, new StructCodec<Point>() {
+    @Override
+    public void encode(DataOutput output, Point value) throws IOException {
+      output.writeInt(value.x);
+      output.writeInt(value.y);
+    }
+
+    @Override
+    public Point decode(DataInput input) throws IOException {
+      return new Point(input.readInt(), input.readInt());
+    }
+  });
+
+  @Test
+  public void testArguments() {
+    Class<?>[] types = {int.class, long.class, boolean.class, String.class, Object.class, TimeUnit.class, int[].class, String[].class, Point.class, Object.class};
+    Object[] values = {42, -1L, true, "h\u00e9llo", null, TimeUnit.SECONDS, new int[]{1, 2, 3}, new String[]{"a", null}, new Point(3, 4), singletonList("foo")};
+
+    Object[] decoded = codec.decode(types, codec.encode(types, values));
+
+    assertEquals(42, decoded[0]);
+    assertEquals(-1L, decoded[1]);
+    assertEquals(true, decoded[2]);
+    assertEquals("h\u00e9llo", decoded[3]);
+    assertNull(decoded[4]);
+    assertEquals(TimeUnit.SECONDS, decoded[5]);
+    assertArrayEquals(new int[]{1, 2, 3}, (int[]) decoded[6]);
+    assertArrayEquals(new String[]{"a", null}, (String[]) decoded[7]);
+    assertThat(((Point) decoded[8]).x, is(3));
+    assertThat(((Point) decoded[8]).y, is(4));
+    assertEquals(singletonList("foo"), decoded[9]);
+  }
+
+  @Test
+  public void testStringsRoundTripUnchanged() {
+    // lone surrogates, the nul char and a supplementary character (a surrogate pair)
+    String[] strings = {"\ud800", "a\udc00b", "\u0000", "\ud83d\ude00", "", "h\u00e9llo \u20ac"};
+    for (String s : strings) {
+      assertEquals(s, codec.decode(String.class, codec.encode(String.class, s)));
+      assertEquals(s, codec.decode(Object.class, codec.encode(Object.class, s)));
+    }
+    assertArrayEquals(strings, (String[]) codec.decode(String[].class, codec.encode(String[].class, strings)));
+  }
+
+  @Test
+  public void testMalformedStringRejected() {
+    // STRING tag, then 2 bytes (length + 1 = 3): a 2-byte sequence without its continuation byte
+    assertCorrupt(String.class, new byte[]{9, 3, (byte) 0xC3, 0x41}, UTFDataFormatException.class);
+  }
+
+  @Test
+  public void testNegativeArrayLengthRejected() {
+    // INT_ARRAY tag, then -1 as a varint
+    assertCorrupt(int[].class, new byte[]{15, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F}, StreamCorruptedException.class);
+    // STRING tag, then -2 as a varint (lengths are written plus one)
+    assertCorrupt(String.class, new byte[]{9, (byte) 0xFE, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F}, StreamCorruptedException.class);
+  }
+
+  @Test
+  public void testArrayLengthLargerThanInputRejected() {
+    // LONG_ARRAY tag, then Integer.MAX_VALUE as a varint
+    assertCorrupt(long[].class, new byte[]{16, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07}, EOFException.class);
+    // INT_ARRAY tag, then 2 elements but only 4 bytes
+    assertCorrupt(int[].class, new byte[]{15, 2, 0, 0, 0, 1}, EOFException.class);
+    // STRING_ARRAY tag, then 100 elements but no byte
+    assertCorrupt(String[].class, new byte[]{19, 100}, EOFException.class);
+  }
+
+  @Test
+  public void testNullPrimitiveRejected() {
+    try {
+      codec.encode(new Class<?>[]{int.class}, new Object[]{null});
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertThat(e.getMessage(), is("Null value for primitive type int"));
+    }
+  }
+
+  private void assertCorrupt(Class<?> type, byte[] encoded, Class<? extends IOException> cause) {
+    try {
+      codec.decode(type, encoded);
+      fail();
+    } catch (RuntimeException e) {
+      assertThat(e.getCause(), instanceOf(cause));
+    }
+  }
+
+  @Test
+  public void testDecodeFromOffset() {
+    byte[] encoded = codec.encode(String.class, "foobar");
+    byte[] framed = new byte[encoded.length + 3];
+    System.arraycopy(encoded, 0, framed, 2, encoded.length);
+
+    assertThat(codec.decode(String.class, framed, 2, encoded.length), is("foobar"));
+  }
+
+  @Test
+  public void testReturnValues() {
+    assertThat(codec.encode(Void.TYPE, null).length, is(0));
+    assertThat(codec.decode(Void.TYPE, new byte[0]), is(nullValue()));
+    assertThat(codec.decode(Integer.TYPE, codec.encode(Integer.TYPE, 7)), is(7));
+    assertEquals(7L, codec.decode(Object.class, codec.encode(Object.class, 7L)));
+  }
+
+  @Test
+  public void testSmallerThanSerialization() {
+    Class<?>[] types = {String.class, int.class, long.class};
+    Object[] values = {"cache-name", 1, 2L};
+    assertTrue(codec.encode(types, values).length < new SerializationCodec().encode(types, values).length);
+  }
+
+  static class Point {
+    final int x;
+    final int y;
+
+    Point(int x, int y) {
+      this.x = x;
+      this.y = y;
+    }
+  }
+}
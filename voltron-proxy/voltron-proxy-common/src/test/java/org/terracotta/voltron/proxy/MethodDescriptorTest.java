@@ -0,0 +1,189 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.voltron.proxy;
+
+import org.junit.Test;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class MethodDescriptorTest {
+
+  @Test
+  public void test_descriptor_cached_per_method() throws Exception {
+    Method method = Calculator.class.getMethod("add", int.class, int.class);
+    assertThat(MethodDescriptor.of(method), sameInstance(MethodDescriptor.of(method)));
+    assertThat(MethodDescriptor.of(Calculator.class.getMethod("add", int.class, int.class)), sameInstance(MethodDescriptor.of(method)));
+  }
+
+  @Test
+  public void test_invoke() throws Exception {
+    MethodDescriptor add = MethodDescriptor.of(Calculator.class.getMethod("add", int.class, int.class));
+    MethodDescriptor reset = MethodDescriptor.of(Calculator.class.getMethod("reset"));
+    MethodDescriptor fail = MethodDescriptor.of(Calculator.class.getMethod("fail", String.class));
+    Calculator calculator = new SimpleCalculator();
+
+    assertThat(add.invoke(calculator, 1, 2), equalTo(3));
+    assertThat(reset.invoke(calculator, (Object[]) null), is((Object) null));
+
+    try {
+      fail.invoke(calculator, "boom");
+      fail();
+    } catch (InvocationTargetException e) {
+      assertThat(e.getTargetException(), instanceOf(IllegalStateException.class));
+      assertThat(e.getTargetException().getMessage(), equalTo("boom"));
+    }
+  }
+
+  @Test
+  public void test_invoke_exceptions_of_the_method_are_wrapped() throws Exception {
+    MethodDescriptor length = MethodDescriptor.of(Calculator.class.getMethod("length", Object.class));
+    Calculator calculator = new SimpleCalculator();
+
+    assertThat(length.invoke(calculator, "abc"), equalTo(3));
+    try {
+      length.invoke(calculator, 1);
+      fail();
+    } catch (InvocationTargetException e) {
+      assertThat(e.getTargetException(), instanceOf(ClassCastException.class));
+    }
+  }
+
+  @Test
+  public void test_invoke_mismatching_arguments() throws Exception {
+    MethodDescriptor add = MethodDescriptor.of(Calculator.class.getMethod("add", int.class, int.class));
+    MethodDescriptor fail = MethodDescriptor.of(Calculator.class.getMethod("fail", String.class));
+    Calculator calculator = new SimpleCalculator();
+
+    assertIllegalArgument(() -> add.invoke(calculator, 1, "2"));
+    assertIllegalArgument(() -> add.invoke(calculator, 1, null));
+    assertIllegalArgument(() -> add.invoke(calculator, 1));
+    assertIllegalArgument(() -> add.invoke(calculator, (Object[]) null));
+    assertIllegalArgument(() -> fail.invoke(calculator, 1));
+    assertIllegalArgument(() -> add.invoke("not a calculator", 1, 2));
+
+    try {
+      add.invoke(null, 1, 2);
+      fail();
+    } catch (NullPointerException e) {
+      // expected, as for Method.invoke
+    }
+  }
+
+  private static void assertIllegalArgument(Invocation invocation) throws Exception {
+    try {
+      invocation.invoke();
+      fail();
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  @FunctionalInterface
+  private interface Invocation {
+    void invoke() throws Exception;
+  }
+
+  @Test
+  public void test_client_id_parameters() throws Exception {
+    MethodDescriptor descriptor = MethodDescriptor.of(Calculator.class.getMethod("fail", String.class));
+    assertThat(descriptor.getClientIdParameters().length, is(0));
+
+    descriptor = MethodDescriptor.of(Calculator.class.getMethod("identify", Object.class, String.class, Object.class));
+    assertThat(descriptor.getClientIdParameters().length, is(2));
+    assertThat(descriptor.getClientIdParameters()[0], is(0));
+    assertThat(descriptor.getClientIdParameters()[1], is(2));
+  }
+
+  @Test
+  public void test_argument_concurrency_key() throws Exception {
+    MethodDescriptor fixed = MethodDescriptor.of(Cache.class.getMethod("clearAll"));
+    assertThat(fixed.getConcurrencyKey(null), is(ConcurrencyStrategy.UNIVERSAL_KEY));
+    assertThat(fixed.getArgumentConcurrencyKeys().isEmpty(), is(true));
+
+    MethodDescriptor put = MethodDescriptor.of(Cache.class.getMethod("put", String.class, String.class));
+    assertThat(put.getArgumentConcurrencyKeys().size(), is(4));
+    for (String name : new String[]{"a", "b", "my-cache", "other-cache"}) {
+      int key = put.getConcurrencyKey(new Object[]{name, "value"});
+      assertThat(key, is(1 + Math.floorMod(name.hashCode(), 4)));
+      assertThat(put.getArgumentConcurrencyKeys().contains(key), is(true));
+    }
+    assertThat(put.getConcurrencyKey(new Object[]{null, "value"}), is(1));
+
+    assertThat(CommonProxyFactory.createArgumentConcurrencyKeys(Cache.class).size(), is(4));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void test_concurrency_key_conflicts_with_concurrency_strategy() throws Exception {
+    MethodDescriptor.of(BadCache.class.getMethod("clear", String.class));
+  }
+
+  public interface Cache {
+    @ConcurrencyStrategy(key = ConcurrencyStrategy.UNIVERSAL_KEY)
+    void clearAll();
+
+    void put(@ConcurrencyKey(buckets = 4) String cacheName, String value);
+  }
+
+  public interface BadCache {
+    @ConcurrencyStrategy(key = 1)
+    void clear(@ConcurrencyKey String cacheName);
+  }
+
+  public interface Calculator {
+    int add(int a, int b);
+
+    void reset();
+
+    void fail(String message);
+
+    void identify(@ClientId Object client, String name, @ClientId Object other);
+
+    int length(Object value);
+  }
+
+  public static class SimpleCalculator implements Calculator {
+    @Override
+    public int add(int a, int b) {
+      return a + b;
+    }
+
+    @Override
+    public void reset() {
+    }
+
+    @Override
+    public void fail(String message) {
+      throw new IllegalStateException(message);
+    }
+
+    @Override
+    public void identify(Object client, String name, Object other) {
+    }
+
+    @Override
+    public int length(Object value) {
+      return ((String) value).length();
+    }
+  }
+}
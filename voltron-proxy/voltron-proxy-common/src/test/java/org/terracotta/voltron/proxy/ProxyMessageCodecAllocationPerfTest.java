@@ -0,0 +1,104 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.voltron.proxy;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+/**
+ * Measures the bytes allocated (and the time spent) per encoded message, for small and large payloads,
+ * comparing the in-place framing of {@link ProxyMessageCodec} with the former stream-based framing.
+ * <p>
+ * Requires a HotSpot JVM (for thread allocation counters).
+ * TIP: run with: -server -Xmx512M -Xms512M -verbose:gc
+ */
+public class ProxyMessageCodecAllocationPerfTest {
+
+  private static final int ROUNDS = 10;
+  private static final int MESSAGES_PER_ROUND = 100_000;
+
+  private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+  @Test
+  @Ignore
+  public void smallPayload() throws Exception {
+    run(new byte[16], 1);
+  }
+
+  @Test
+  @Ignore
+  public void largePayload() throws Exception {
+    run(new byte[64 * 1024], 100);
+  }
+
+  private static void run(byte[] payload, int divider) throws Exception {
+    for (Codec codec : Arrays.asList(new SerializationCodec(), new BinaryCodec())) {
+      ProxyMessageCodec messageCodec = new ProxyMessageCodec(Sink.class);
+      messageCodec.setCodec(codec);
+      MethodDescriptor accept = MethodDescriptor.of(Sink.class.getMethod("accept", byte[].class));
+      ProxyEntityMessage message = new ProxyEntityMessage(accept, new Object[]{payload}, MessageType.MESSAGE);
+      int messages = MESSAGES_PER_ROUND / divider;
+
+      for (int round = 0; round < ROUNDS; round++) {
+        long threadId = Thread.currentThread().getId();
+        long allocated = THREAD_MX_BEAN.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        int size = 0;
+        for (int i = 0; i < messages; i++) {
+          size += messageCodec.encodeMessage(message).length;
+        }
+        long framedTook = System.nanoTime() - start;
+        long framedAllocated = THREAD_MX_BEAN.getThreadAllocatedBytes(threadId) - allocated;
+
+        allocated = THREAD_MX_BEAN.getThreadAllocatedBytes(threadId);
+        start = System.nanoTime();
+        for (int i = 0; i < messages; i++) {
+          size += streamFraming(codec, accept, payload).length;
+        }
+        long streamTook = System.nanoTime() - start;
+        long streamAllocated = THREAD_MX_BEAN.getThreadAllocatedBytes(threadId) - allocated;
+
+        System.out.println(round + ". " + codec.getClass().getSimpleName() + " " + payload.length + " byte payload:"
+            + " framed: " + (framedTook / messages) + " ns/op, " + (framedAllocated / messages) + " B/op,"
+            + " stream: " + (streamTook / messages) + " ns/op, " + (streamAllocated / messages) + " B/op"
+            + " (" + size + ")");
+      }
+    }
+  }
+
+  /**
+   * The framing {@link ProxyMessageCodec#encodeMessage(ProxyEntityMessage)} used to do
+   */
+  private static byte[] streamFraming(Codec codec, MethodDescriptor method, byte[] payload) throws IOException {
+    ByteArrayOutputStream byteOut = new ByteArrayOutputStream();
+    DataOutputStream output = new DataOutputStream(byteOut);
+    output.writeByte(MessageType.MESSAGE.ordinal());
+    output.writeByte(0);
+    output.write(codec.encode(method.getParameterTypes(), new Object[]{payload}));
+    output.close();
+    return byteOut.toByteArray();
+  }
+
+  public interface Sink {
+    void accept(byte[] payload);
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.voltron.proxy;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class ProxyMessageCodecTest {
+
+  private final ProxyMessageCodec codec = new ProxyMessageCodec(Comparable.class, new Class<?>[]{String.class, Integer.class});
+
+  @Test
+  public void testResponseEncodedOnce() throws Exception {
+    ProxyEntityResponse response = ProxyEntityResponse.messageResponse(String.class, "hello");
+    byte[] encoded = codec.encodeResponse(response);
+    assertThat(codec.encodeResponse(response), sameInstance(encoded));
+
+    ProxyEntityResponse decoded = codec.decodeResponse(encoded);
+    assertThat(decoded.getMessageType(), is(MessageType.MESSAGE));
+    assertThat(decoded.getResponseType(), equalTo((Object) String.class));
+    assertThat(decoded.getResponse(), equalTo((Object) "hello"));
+  }
+
+  @Test
+  public void testBatchResponse() throws Exception {
+    ProxyEntityResponse batch = ProxyEntityResponse.batchResponse(Arrays.asList(
+        ProxyEntityResponse.messageResponse(String.class, "hello"),
+        ProxyEntityResponse.messageResponse(Integer.class, 42),
+        ProxyEntityResponse.messageResponse(String.class, "world")));
+
+    ProxyEntityResponse decoded = codec.decodeResponse(codec.encodeResponse(batch));
+
+    assertThat(decoded.getMessageType(), is(MessageType.BATCH));
+    ProxyEntityResponse[] responses = (ProxyEntityResponse[]) decoded.getResponse();
+    assertThat(responses.length, is(3));
+    assertThat(responses[0].getResponse(), equalTo((Object) "hello"));
+    assertThat(responses[1].getResponseType(), equalTo((Object) Integer.class));
+    assertThat(responses[1].getResponse(), equalTo((Object) 42));
+    assertThat(responses[2].getResponse(), equalTo((Object) "world"));
+  }
+
+  @Test
+  public void testMessageFraming() throws Exception {
+    Codec[] codecs = {new SerializationCodec(), new BinaryCodec(), new CopyingCodec()};
+    for (Codec c : codecs) {
+      codec.setCodec(c);
+      MethodDescriptor compareTo = MethodDescriptor.of(Comparable.class.getMethod("compareTo", Object.class));
+      byte[] encoded = codec.encodeMessage(new ProxyEntityMessage(compareTo, new Object[]{"hello"}, MessageType.MESSAGE));
+      assertThat(encoded[0], is((byte) MessageType.MESSAGE.ordinal()));
+
+      ProxyEntityMessage decoded = codec.decodeMessage(encoded);
+      assertThat(decoded.getMethod(), equalTo(compareTo));
+      assertThat(decoded.getArguments()[0], equalTo((Object) "hello"));
+
+      ProxyEntityResponse response = codec.decodeResponse(codec.encodeResponse(ProxyEntityResponse.messageResponse(Integer.class, 42)));
+      assertThat(response.getResponse(), equalTo((Object) 42));
+    }
+  }
+
+  /**
+   * Only implements the non-framing methods, to exercise the default {@link Codec} framing
+   */
+  private static class CopyingCodec implements Codec {
+
+    private final Codec delegate = new SerializationCodec();
+
+    @Override
+    public byte[] encode(Class<?> type, Object value) {
+      return delegate.encode(type, value);
+    }
+
+    @Override
+    public byte[] encode(Class<?>[] types, Object[] values) {
+      return delegate.encode(types, values);
+    }
+
+    @Override
+    public <T> T decode(Class<T> type, byte[] buffer) {
+      return delegate.decode(type, buffer);
+    }
+
+    @Override
+    public <T> T decode(Class<T> type, byte[] buffer, int offset, int len) {
+      return delegate.decode(type, buffer, offset, len);
+    }
+
+    @Override
+    public Object[] decode(Class<?>[] types, byte[] buffer) {
+      return delegate.decode(types, buffer);
+    }
+
+    @Override
+    public Object[] decode(Class<?>[] types, byte[] buffer, int offset, int len) {
+      return delegate.decode(types, buffer, offset, len);
+    }
+  }
+}
@@ -107,8 +107,12 @@ public abstract class ActiveProxiedServerEntity<S, R, M extends Messenger> imple
     // Don't care I think
   }
 
+  /**
+   * Subclasses overriding this method must call it, so that the events held back by event coalescing are flushed.
+   */
   @Override
   public void destroy() {
+    entityInvoker.close();
   }
 
   @Override
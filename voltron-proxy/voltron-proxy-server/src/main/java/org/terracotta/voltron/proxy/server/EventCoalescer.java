@@ -0,0 +1,131 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.voltron.proxy.server;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.terracotta.entity.ClientCommunicator;
+import org.terracotta.entity.ClientDescriptor;
+import org.terracotta.entity.MessageCodecException;
+import org.terracotta.voltron.proxy.ProxyEntityResponse;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Groups the messages fired to a client within a time window into one batch message.
+ * <p>
+ * The window starts with the first pending message: no task is scheduled when there is nothing to send.
+ * A client batch is sent right away when it reaches the max batch size.
+ * Messages are sent in the order they were fired.
+ * <p>
+ * The windows are timed by a thread owned by this coalescer, which only lives while there are pending messages.
+ * Closing the coalescer flushes the pending messages and stops the thread: messages sent afterwards are sent right away.
+ */
+class EventCoalescer {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(EventCoalescer.class);
+
+  private final ClientCommunicator clientCommunicator;
+  private final long windowNanos;
+  private final int maxBatchSize;
+  private final ScheduledThreadPoolExecutor scheduler;
+
+  // guarded by this, which is also held when sending to preserve ordering
+  private Map<ClientDescriptor, List<ProxyEntityResponse>> pending = new LinkedHashMap<>();
+  private boolean scheduled;
+  private boolean closed;
+
+  EventCoalescer(ClientCommunicator clientCommunicator, long window, TimeUnit unit, int maxBatchSize) {
+    if (window <= 0) {
+      throw new IllegalArgumentException("Bad window: " + window);
+    }
+    if (maxBatchSize < 2) {
+      throw new IllegalArgumentException("Bad max batch size: " + maxBatchSize);
+    }
+    this.clientCommunicator = clientCommunicator;
+    this.windowNanos = unit.toNanos(window);
+    this.maxBatchSize = maxBatchSize;
+    this.scheduler = new ScheduledThreadPoolExecutor(1, r -> {
+      Thread thread = new Thread(r, "voltron-proxy-event-coalescer");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.scheduler.setKeepAliveTime(Math.max(windowNanos, TimeUnit.SECONDS.toNanos(10)), TimeUnit.NANOSECONDS);
+    this.scheduler.allowCoreThreadTimeOut(true);
+  }
+
+  /**
+   * Adds the message to the pending batch of the client, or sends the batch on the caller thread when it is full.
+   *
+   * @throws MessageCodecException if the batch is sent and cannot be encoded
+   */
+  synchronized void send(ClientDescriptor client, ProxyEntityResponse message) throws MessageCodecException {
+    if (closed) {
+      clientCommunicator.sendNoResponse(client, message);
+      return;
+    }
+    List<ProxyEntityResponse> messages = pending.computeIfAbsent(client, c -> new ArrayList<>());
+    messages.add(message);
+    if (messages.size() >= maxBatchSize) {
+      pending.remove(client);
+      send(client, messages);
+    } else if (!scheduled) {
+      scheduled = true;
+      scheduler.schedule(this::flush, windowNanos, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  synchronized void flush() {
+    Map<ClientDescriptor, List<ProxyEntityResponse>> toSend = pending;
+    pending = new LinkedHashMap<>();
+    scheduled = false;
+    for (Map.Entry<ClientDescriptor, List<ProxyEntityResponse>> entry : toSend.entrySet()) {
+      try {
+        send(entry.getKey(), entry.getValue());
+      } catch (MessageCodecException | RuntimeException e) {
+        LOGGER.warn("Error sending {} messages to client {}: {}", entry.getValue().size(), entry.getKey(), e.getMessage(), e);
+      }
+    }
+  }
+
+  synchronized void removeClient(ClientDescriptor client) {
+    pending.remove(client);
+  }
+
+  /**
+   * Flushes the pending messages and stops the thread timing the windows.
+   */
+  void close() {
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      flush();
+    }
+    scheduler.shutdownNow();
+  }
+
+  private void send(ClientDescriptor client, List<ProxyEntityResponse> messages) throws MessageCodecException {
+    clientCommunicator.sendNoResponse(client, messages.size() == 1 ? messages.get(0) : ProxyEntityResponse.batchResponse(messages));
+  }
+
+}
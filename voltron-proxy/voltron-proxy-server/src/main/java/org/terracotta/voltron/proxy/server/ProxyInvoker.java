@@ -31,6 +31,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author Alex Snaps
@@ -43,6 +44,7 @@ class ProxyInvoker<T> implements MessageFiring {
 
   private Set<Class<?>> messageTypes;
   private ClientCommunicator clientCommunicator;
+  private volatile EventCoalescer coalescer;
 
   ProxyInvoker(T target) {
     this.target = target;
@@ -96,13 +98,11 @@ class ProxyInvoker<T> implements MessageFiring {
     }
     final InvocationContext invocationContext = this.invocationContext.get();
     final ClientDescriptor caller = invocationContext == null ? null : invocationContext.caller;
+    // the same response is sent to all clients so that it is only encoded once
+    final ProxyEntityResponse response = ProxyEntityResponse.messageResponse(type, message);
     for (ClientDescriptor client : clients) {
       if (echo || !client.equals(caller)) {
-        try {
-          clientCommunicator.sendNoResponse(client, ProxyEntityResponse.messageResponse(type, message));
-        } catch (MessageCodecException ex) {
-          handleExceptionOnSend(ex);
-        }
+        send(client, response);
       }
     }
   }
@@ -112,12 +112,22 @@ class ProxyInvoker<T> implements MessageFiring {
     if (!messageTypes.contains(type)) {
       throw new IllegalArgumentException("Event type '" + type + "' isn't supported");
     }
+    final ProxyEntityResponse response = ProxyEntityResponse.messageResponse(type, message);
     for (ClientDescriptor client : clients) {
-      try {
-        clientCommunicator.sendNoResponse(client, ProxyEntityResponse.messageResponse(type, message));
-      } catch (MessageCodecException ex) {
-        handleExceptionOnSend(ex);
+      send(client, response);
+    }
+  }
+
+  private void send(ClientDescriptor client, ProxyEntityResponse response) {
+    EventCoalescer coalescer = this.coalescer;
+    try {
+      if (coalescer != null) {
+        coalescer.send(client, response);
+      } else {
+        clientCommunicator.sendNoResponse(client, response);
       }
+    } catch (MessageCodecException ex) {
+      handleExceptionOnSend(ex);
     }
   }
 
@@ -127,6 +137,10 @@ class ProxyInvoker<T> implements MessageFiring {
 
   void removeClient(ClientDescriptor descriptor) {
     clients.remove(descriptor);
+    EventCoalescer coalescer = this.coalescer;
+    if (coalescer != null) {
+      coalescer.removeClient(descriptor);
+    }
   }
 
   public Collection<ClientDescriptor> getClients() {
@@ -155,6 +169,28 @@ class ProxyInvoker<T> implements MessageFiring {
     return this;
   }
 
+  /**
+   * Groups the messages fired to each client within the given window into one message, sent when the window
+   * elapses or when the batch reaches its max size. Requires events to be activated.
+   */
+  ProxyInvoker<T> coalesceEvents(long window, TimeUnit unit, int maxBatchSize) {
+    if (clientCommunicator == null) {
+      throw new IllegalStateException("Events are not activated");
+    }
+    this.coalescer = new EventCoalescer(clientCommunicator, window, unit, maxBatchSize);
+    return this;
+  }
+
+  /**
+   * Flushes the messages held back by event coalescing and releases its thread.
+   */
+  void close() {
+    EventCoalescer coalescer = this.coalescer;
+    if (coalescer != null) {
+      coalescer.close();
+    }
+  }
+
   private static final class InvocationContext {
 
     private final ClientDescriptor caller;
@@ -32,6 +32,7 @@ import org.terracotta.entity.ServiceException;
 import org.terracotta.entity.ServiceRegistry;
 import org.terracotta.entity.SyncMessageCodec;
 import org.terracotta.voltron.proxy.Codec;
+import org.terracotta.voltron.proxy.CommonProxyFactory;
 import org.terracotta.voltron.proxy.ProxyEntityMessage;
 import org.terracotta.voltron.proxy.ProxyEntityResponse;
 import org.terracotta.voltron.proxy.ProxyMessageCodec;
@@ -40,6 +41,8 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.Objects;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @param <C> Entity config type
@@ -56,6 +59,10 @@ public abstract class ProxyServerEntityService<C, S, R, M extends Messenger> imp
   private final ProxyMessageCodec messageCodec;
   private final DelegatingSyncMessageCodec syncMessageCodec;
   private final Class<M> messengerType;
+  private final Set<Integer> argumentConcurrencyKeys;
+  private long eventCoalescingWindow;
+  private TimeUnit eventCoalescingUnit;
+  private int eventCoalescingMaxBatchSize;
   private final ExecutionStrategy<ProxyEntityMessage> executionStrategy = message -> ExecutionStrategy.Location.valueOf(message.getExecutionLocation().name());
   private final ConcurrencyStrategy<ProxyEntityMessage> concurrencyStrategy = new ConcurrencyStrategy<ProxyEntityMessage>() {
     @Override
@@ -85,6 +92,11 @@ public abstract class ProxyServerEntityService<C, S, R, M extends Messenger> imp
 
     // for IEntityMessenger
     this.messengerType = messengerType; // can be null
+
+    // for @ConcurrencyKey
+    Set<Integer> keys = new TreeSet<>(CommonProxyFactory.createArgumentConcurrencyKeys(proxyType));
+    keys.addAll(CommonProxyFactory.createArgumentConcurrencyKeys(messengerType));
+    this.argumentConcurrencyKeys = Collections.unmodifiableSet(keys);
   }
 
   @Override
@@ -107,6 +119,9 @@ public abstract class ProxyServerEntityService<C, S, R, M extends Messenger> imp
       try {
         ClientCommunicator clientCommunicator = registry.getService(new BasicServiceConfiguration<>(ClientCommunicator.class));
         activeEntity.getEntityInvoker().activateEvents(clientCommunicator, eventTypes);
+        if (eventCoalescingUnit != null) {
+          activeEntity.getEntityInvoker().coalesceEvents(eventCoalescingWindow, eventCoalescingUnit, eventCoalescingMaxBatchSize);
+        }
       } catch (ServiceException e) {
         throw new ConfigurationException("Unable to retrieve ClientCommunicator: " + e.getMessage());
       }
@@ -189,10 +204,27 @@ public abstract class ProxyServerEntityService<C, S, R, M extends Messenger> imp
     }
   }
 
+  /**
+   * Enables the coalescing of the events fired to clients: the events fired to a client within the window are sent
+   * as one message (up to maxBatchSize events). This trades some latency for less messages with broadcast-heavy entities.
+   */
+  protected final void setEventCoalescing(long window, TimeUnit unit, int maxBatchSize) {
+    if (window <= 0 || maxBatchSize < 2) {
+      throw new IllegalArgumentException("Bad coalescing window (" + window + ") or batch size (" + maxBatchSize + ")");
+    }
+    this.eventCoalescingWindow = window;
+    this.eventCoalescingUnit = Objects.requireNonNull(unit);
+    this.eventCoalescingMaxBatchSize = maxBatchSize;
+  }
+
   // can be overriden / implemented
 
+  /**
+   * By default, the keys used by the methods having a {@link org.terracotta.voltron.proxy.ConcurrencyKey} argument
+   * (empty if there is none)
+   */
   protected Set<Integer> getKeysForSynchronization() {
-    return Collections.emptySet();
+    return argumentConcurrencyKeys;
   }
 
   protected abstract ActiveProxiedServerEntity<S, R, M> createActiveEntity(ServiceRegistry registry, C configuration) throws ConfigurationException;
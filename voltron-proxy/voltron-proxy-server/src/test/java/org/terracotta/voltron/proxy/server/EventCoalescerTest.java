@@ -0,0 +1,216 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.voltron.proxy.server;
+
+import org.junit.Test;
+import org.terracotta.entity.ClientCommunicator;
+import org.terracotta.entity.ClientDescriptor;
+import org.terracotta.entity.EntityResponse;
+import org.terracotta.entity.MessageCodecException;
+import org.terracotta.voltron.proxy.MessageType;
+import org.terracotta.voltron.proxy.ProxyEntityResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+
+public class EventCoalescerTest {
+
+  private final ClientDescriptor client1 = mock(ClientDescriptor.class);
+  private final ClientDescriptor client2 = mock(ClientDescriptor.class);
+  private final RecordingCommunicator communicator = new RecordingCommunicator();
+
+  @Test
+  public void testMessagesWithinWindowAreBatched() throws Exception {
+    EventCoalescer coalescer = new EventCoalescer(communicator, 100, TimeUnit.MILLISECONDS, 10);
+    try {
+      coalescer.send(client1, message(1));
+      coalescer.send(client2, message(2));
+      coalescer.send(client1, message(3));
+      coalescer.send(client1, message(4));
+      assertThat(communicator.sent().size(), is(0));
+
+      List<Sent> sent = communicator.awaitSent(2);
+      assertThat(sent.get(0).client, sameInstance(client1));
+      assertMessages(sent.get(0).response, 1, 3, 4);
+      assertThat(sent.get(1).client, sameInstance(client2));
+      assertMessages(sent.get(1).response, 2);
+    } finally {
+      coalescer.close();
+    }
+  }
+
+  @Test
+  public void testFullBatchIsSentRightAwayOnCallerThread() throws Exception {
+    EventCoalescer coalescer = new EventCoalescer(communicator, 1, TimeUnit.HOURS, 3);
+    try {
+      coalescer.send(client1, message(1));
+      coalescer.send(client1, message(2));
+      assertThat(communicator.sent().size(), is(0));
+      coalescer.send(client1, message(3));
+
+      List<Sent> sent = communicator.sent();
+      assertThat(sent.size(), is(1));
+      assertThat(sent.get(0).thread, sameInstance(Thread.currentThread()));
+      assertMessages(sent.get(0).response, 1, 2, 3);
+    } finally {
+      coalescer.close();
+    }
+  }
+
+  @Test
+  public void testFullBatchEncodingFailureIsThrownToCaller() throws Exception {
+    communicator.failFor = client1;
+    EventCoalescer coalescer = new EventCoalescer(communicator, 1, TimeUnit.HOURS, 2);
+    try {
+      coalescer.send(client1, message(1));
+      try {
+        coalescer.send(client1, message(2));
+        fail();
+      } catch (MessageCodecException e) {
+        // expected
+      }
+    } finally {
+      coalescer.close();
+    }
+  }
+
+  @Test
+  public void testFlush() throws Exception {
+    communicator.failFor = client1;
+    EventCoalescer coalescer = new EventCoalescer(communicator, 1, TimeUnit.HOURS, 10);
+    try {
+      coalescer.send(client1, message(1));
+      coalescer.send(client2, message(2));
+      coalescer.send(client2, message(3));
+      coalescer.flush();
+
+      // the failure to send to client1 does not prevent sending to client2
+      List<Sent> sent = communicator.sent();
+      assertThat(sent.size(), is(1));
+      assertThat(sent.get(0).client, sameInstance(client2));
+      assertMessages(sent.get(0).response, 2, 3);
+
+      coalescer.flush();
+      assertThat(communicator.sent().size(), is(1));
+    } finally {
+      coalescer.close();
+    }
+  }
+
+  @Test
+  public void testRemoveClientDiscardsItsPendingMessages() throws Exception {
+    EventCoalescer coalescer = new EventCoalescer(communicator, 1, TimeUnit.HOURS, 10);
+    try {
+      coalescer.send(client1, message(1));
+      coalescer.send(client2, message(2));
+      coalescer.removeClient(client1);
+      coalescer.flush();
+
+      List<Sent> sent = communicator.sent();
+      assertThat(sent.size(), is(1));
+      assertThat(sent.get(0).client, sameInstance(client2));
+    } finally {
+      coalescer.close();
+    }
+  }
+
+  @Test
+  public void testCloseFlushesAndThenSendsRightAway() throws Exception {
+    EventCoalescer coalescer = new EventCoalescer(communicator, 1, TimeUnit.HOURS, 10);
+    coalescer.send(client1, message(1));
+    coalescer.send(client1, message(2));
+    coalescer.close();
+
+    List<Sent> sent = communicator.sent();
+    assertThat(sent.size(), is(1));
+    assertMessages(sent.get(0).response, 1, 2);
+
+    coalescer.send(client1, message(3));
+    sent = communicator.sent();
+    assertThat(sent.size(), is(2));
+    assertMessages(sent.get(1).response, 3);
+
+    coalescer.close();
+    assertThat(communicator.sent().size(), is(2));
+  }
+
+  private static ProxyEntityResponse message(int value) {
+    return ProxyEntityResponse.messageResponse(Integer.class, value);
+  }
+
+  private static void assertMessages(EntityResponse response, Integer... values) {
+    ProxyEntityResponse proxyResponse = (ProxyEntityResponse) response;
+    if (values.length == 1) {
+      assertThat(proxyResponse.getMessageType(), is(MessageType.MESSAGE));
+      assertThat(proxyResponse.getResponse(), is(values[0]));
+    } else {
+      assertThat(proxyResponse.getMessageType(), is(MessageType.BATCH));
+      ProxyEntityResponse[] batch = (ProxyEntityResponse[]) proxyResponse.getResponse();
+      assertThat(batch.length, is(values.length));
+      for (int i = 0; i < values.length; i++) {
+        assertThat(batch[i].getResponse(), is(values[i]));
+      }
+    }
+  }
+
+  private static class Sent {
+    private final ClientDescriptor client;
+    private final EntityResponse response;
+    private final Thread thread = Thread.currentThread();
+
+    Sent(ClientDescriptor client, EntityResponse response) {
+      this.client = client;
+      this.response = response;
+    }
+  }
+
+  private static class RecordingCommunicator implements ClientCommunicator {
+    private final List<Sent> sent = new ArrayList<>();
+    private volatile ClientDescriptor failFor;
+
+    @Override
+    public synchronized void sendNoResponse(ClientDescriptor clientDescriptor, EntityResponse message) throws MessageCodecException {
+      if (clientDescriptor == failFor) {
+        throw new MessageCodecException("failure", null);
+      }
+      sent.add(new Sent(clientDescriptor, message));
+      notifyAll();
+    }
+
+    synchronized List<Sent> sent() {
+      return new ArrayList<>(sent);
+    }
+
+    synchronized List<Sent> awaitSent(int count) throws InterruptedException {
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+      while (sent.size() < count) {
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+          fail("Expected " + count + " messages but got " + sent.size());
+        }
+        TimeUnit.NANOSECONDS.timedWait(this, remaining);
+      }
+      return new ArrayList<>(sent);
+    }
+  }
+}
@@ -0,0 +1,255 @@
+/*
+ * Copyright Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terracotta.voltron.proxy.server;
+
+import org.junit.Ignore;
+import org.junit.Test;
+import org.terracotta.entity.ActiveInvokeChannel;
+import org.terracotta.entity.ActiveInvokeContext;
+import org.terracotta.entity.ClientDescriptor;
+import org.terracotta.entity.ClientSourceId;
+import org.terracotta.entity.EntityClientEndpoint;
+import org.terracotta.entity.InvocationBuilder;
+import org.terracotta.entity.InvokeFuture;
+import org.terracotta.entity.InvokeMonitor;
+import org.terracotta.entity.MessageCodecException;
+import org.terracotta.voltron.proxy.ProxyEntityMessage;
+import org.terracotta.voltron.proxy.ProxyEntityResponse;
+import org.terracotta.voltron.proxy.ProxyMessageCodec;
+import org.terracotta.voltron.proxy.client.ClientProxyFactory;
+
+import java.util.Properties;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Measures a no-op proxied call going through the client proxy, the message codec (both ways) and the server invoker.
+ * <p>
+ * TIP: run with: -server -Xmx512M -Xms512M -verbose:gc
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+public class ProxyRoundTripPerfTest {
+
+  private static final int ROUNDS = 20;
+  private static final int CALLS_PER_ROUND = 200_000;
+
+  @Test
+  @Ignore
+  public void noopRoundTrip() {
+    ProxyMessageCodec messageCodec = new ProxyMessageCodec(Noop.class);
+    ProxyInvoker<Noop> proxyInvoker = new ProxyInvoker<>(new NoopImpl());
+    EntityClientEndpoint endpoint = mock(EntityClientEndpoint.class);
+    when(endpoint.beginInvoke()).thenReturn(new CodecInvocationBuilder(proxyInvoker, messageCodec));
+    Noop proxy = ClientProxyFactory.createProxy(Noop.class, Noop.class, endpoint, null, messageCodec.getCodec());
+
+    for (int round = 0; round < ROUNDS; round++) {
+      long start = System.nanoTime();
+      for (int i = 0; i < CALLS_PER_ROUND; i++) {
+        proxy.noop();
+      }
+      long noopTook = System.nanoTime() - start;
+
+      start = System.nanoTime();
+      int sum = 0;
+      for (int i = 0; i < CALLS_PER_ROUND; i++) {
+        sum += proxy.echo(i);
+      }
+      long echoTook = System.nanoTime() - start;
+
+      System.out.println(round + ". noop(): " + (noopTook / CALLS_PER_ROUND) + " ns/op, echo(int): " + (echoTook / CALLS_PER_ROUND) + " ns/op (" + sum + ")");
+    }
+  }
+
+  public interface Noop {
+    void noop();
+
+    int echo(int value);
+  }
+
+  public static class NoopImpl implements Noop {
+    @Override
+    public void noop() {
+    }
+
+    @Override
+    public int echo(int value) {
+      return value;
+    }
+  }
+
+  /**
+   * Encodes the message, decodes it "server side", invokes it and sends back the encoded response
+   */
+  private static class CodecInvocationBuilder implements InvocationBuilder<ProxyEntityMessage, ProxyEntityResponse> {
+
+    private final ProxyInvoker<?> proxyInvoker;
+    private final ProxyMessageCodec codec;
+    private final ActiveInvokeContext<ProxyEntityResponse> context = new FakeActiveInvokeContext();
+    private ProxyEntityMessage message;
+
+    CodecInvocationBuilder(ProxyInvoker<?> proxyInvoker, ProxyMessageCodec codec) {
+      this.proxyInvoker = proxyInvoker;
+      this.codec = codec;
+    }
+
+    @Override
+    public InvocationBuilder<ProxyEntityMessage, ProxyEntityResponse> ackReceived() {
+      return this;
+    }
+
+    @Override
+    public InvocationBuilder<ProxyEntityMessage, ProxyEntityResponse> ackCompleted() {
+      return this;
+    }
+
+    @Override
+    public InvocationBuilder<ProxyEntityMessage, ProxyEntityResponse> ackRetired() {
+      return this;
+    }
+
+    @Override
+    public InvocationBuilder<ProxyEntityMessage, ProxyEntityResponse> ackSent() {
+      return this;
+    }
+
+    @Override
+    public InvocationBuilder<ProxyEntityMessage, ProxyEntityResponse> monitor(InvokeMonitor<ProxyEntityResponse> im) {
+      return this;
+    }
+
+    @Override
+    public InvocationBuilder<ProxyEntityMessage, ProxyEntityResponse> withExecutor(Executor exctr) {
+      return this;
+    }
+
+    @Override
+    @Deprecated
+    public InvocationBuilder<ProxyEntityMessage, ProxyEntityResponse> asDeferredResponse() {
+      return this;
+    }
+
+    @Override
+    public InvocationBuilder<ProxyEntityMessage, ProxyEntityResponse> replicate(boolean b) {
+      return this;
+    }
+
+    @Override
+    public InvocationBuilder<ProxyEntityMessage, ProxyEntityResponse> message(ProxyEntityMessage message) {
+      this.message = message;
+      return this;
+    }
+
+    @Override
+    public InvocationBuilder<ProxyEntityMessage, ProxyEntityResponse> blockGetOnRetire(boolean shouldBlock) {
+      return this;
+    }
+
+    @Override
+    public InvokeFuture<ProxyEntityResponse> invokeWithTimeout(long time, TimeUnit units) throws MessageCodecException {
+      return invoke();
+    }
+
+    @Override
+    public InvokeFuture<ProxyEntityResponse> invoke() {
+      try {
+        ProxyEntityMessage received = codec.decodeMessage(codec.encodeMessage(message));
+        ProxyEntityResponse response = codec.decodeResponse(codec.encodeResponse(proxyInvoker.invoke(context, received)));
+        return new InvokeFuture<ProxyEntityResponse>() {
+          @Override
+          public boolean isDone() {
+            return true;
+          }
+
+          @Override
+          public ProxyEntityResponse get() {
+            return response;
+          }
+
+          @Override
+          public ProxyEntityResponse getWithTimeout(long timeout, TimeUnit unit) {
+            return response;
+          }
+
+          @Override
+          public void interrupt() {
+          }
+        };
+      } catch (MessageCodecException e) {
+        throw new RuntimeException(e);
+      }
+    }
+  }
+
+  private static class FakeActiveInvokeContext implements ActiveInvokeContext<ProxyEntityResponse> {
+
+    private final ClientDescriptor clientDescriptor = new FakeClientDescriptor();
+
+    @Override
+    public ClientDescriptor getClientDescriptor() {
+      return clientDescriptor;
+    }
+
+    @Override
+    public ActiveInvokeChannel openInvokeChannel() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ClientSourceId getClientSource() {
+      return null;
+    }
+
+    @Override
+    public long getCurrentTransactionId() {
+      return 0;
+    }
+
+    @Override
+    public long getOldestTransactionId() {
+      return 0;
+    }
+
+    @Override
+    public boolean isValidClientInformation() {
+      return false;
+    }
+
+    @Override
+    public ClientSourceId makeClientSourceId(long l) {
+      return null;
+    }
+
+    @Override
+    public int getConcurrencyKey() {
+      return 0;
+    }
+
+    @Override
+    public Properties getClientSourceProperties() {
+      return new Properties();
+    }
+  }
+
+  private static class FakeClientDescriptor implements ClientDescriptor {
+    @Override
+    public ClientSourceId getSourceId() {
+      return null;
+    }
+  }
+}